@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,27 +17,41 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
-import org.eclipse.debug.core.DebugEvent;
-import org.eclipse.debug.core.DebugPlugin;
-import org.eclipse.debug.core.IDebugEventSetListener;
+import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.RefreshUtil;
+import org.eclipse.debug.core.ResourceSnapshot;
+import org.eclipse.debug.core.TerminationNotifier;
 import org.eclipse.debug.core.model.IProcess;
 
 /**
  * Refreshes resources as specified by a launch configuration, when
  * an associated process terminates.
  */
-public class BackgroundResourceRefresher implements IDebugEventSetListener  {
+public class BackgroundResourceRefresher {
 
 	private ILaunchConfiguration fConfiguration;
 	private IProcess fProcess;
+	private ResourceSnapshot fSnapshot;
 
 
 
 	public BackgroundResourceRefresher(ILaunchConfiguration configuration, IProcess process) {
+		this(configuration, process, null);
+	}
+
+	/**
+	 * Creates a refresher that only refreshes the resources that changed
+	 * since the given snapshot was taken, if any.
+	 *
+	 * @param configuration the launch configuration specifying the resources
+	 * @param process the process to wait for
+	 * @param snapshot snapshot of the resources or <code>null</code>
+	 */
+	public BackgroundResourceRefresher(ILaunchConfiguration configuration, IProcess process, ResourceSnapshot snapshot) {
 		fConfiguration = configuration;
 		fProcess = process;
+		fSnapshot = snapshot;
 	}
 
 	/**
@@ -46,28 +60,7 @@ public class BackgroundResourceRefresher implements IDebugEventSetListener  {
 	 * process terminates.
 	 */
 	public void startBackgroundRefresh() {
-		synchronized (fProcess) {
-			if (fProcess.isTerminated()) {
-				refresh();
-			} else {
-				DebugPlugin.getDefault().addDebugEventListener(this);
-			}
-		}
-	}
-
-	/* (non-Javadoc)
-	 * @see org.eclipse.debug.core.IDebugEventSetListener#handleDebugEvents(org.eclipse.debug.core.DebugEvent[])
-	 */
-	@Override
-	public void handleDebugEvents(DebugEvent[] events) {
-		for (int i = 0; i < events.length; i++) {
-			DebugEvent event = events[i];
-			if (event.getSource() == fProcess && event.getKind() == DebugEvent.TERMINATE) {
-				DebugPlugin.getDefault().removeDebugEventListener(this);
-				refresh();
-				break;
-			}
-		}
+		TerminationNotifier.whenTerminated(fProcess).thenRun(() -> refresh());
 	}
 
 	/**
@@ -78,7 +71,12 @@ public class BackgroundResourceRefresher implements IDebugEventSetListener  {
 			@Override
 			public IStatus run(IProgressMonitor monitor) {
 				try {
-					RefreshUtil.refreshResources(fConfiguration, monitor);
+					ILaunch launch = fProcess.getLaunch();
+					if (launch != null) {
+						RefreshUtil.refreshResources(launch, fSnapshot, monitor);
+					} else {
+						RefreshUtil.refreshResources(fConfiguration, monitor);
+					}
 				} catch (CoreException e) {
 					ExternalToolsCore.log(e);
 					return e.getStatus();
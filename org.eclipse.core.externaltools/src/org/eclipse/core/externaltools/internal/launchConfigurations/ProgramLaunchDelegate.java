@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,8 @@ import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.RefreshUtil;
+import org.eclipse.debug.core.ResourceSnapshot;
+import org.eclipse.debug.core.TerminationNotifier;
 import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.debug.core.model.LaunchConfigurationDelegate;
 import org.eclipse.osgi.util.NLS;
@@ -107,7 +109,15 @@ public class ProgramLaunchDelegate extends LaunchConfigurationDelegate {
 			return;
 		}
 
-		Process p = DebugPlugin.exec(cmdLine, workingDir, envp);
+		// remember the refresh scope to refresh only what the program changes
+		ResourceSnapshot snapshot = RefreshUtil.takeSnapshot(configuration, monitor);
+
+		if (monitor.isCanceled()) {
+			return;
+		}
+
+		// output that is not shown in a console is redirected by the system
+		Process p = DebugPlugin.exec(DebugPlugin.newProcessBuilder(launch, cmdLine, workingDir, envp));
 		IProcess process = null;
 
 		// add process type to process attributes
@@ -144,24 +154,17 @@ public class ProgramLaunchDelegate extends LaunchConfigurationDelegate {
 			// refresh resources after process finishes
 			String scope = configuration.getAttribute(RefreshUtil.ATTR_REFRESH_SCOPE, (String)null);
 			if (scope != null) {
-				BackgroundResourceRefresher refresher = new BackgroundResourceRefresher(configuration, process);
+				BackgroundResourceRefresher refresher = new BackgroundResourceRefresher(configuration, process, snapshot);
 				refresher.startBackgroundRefresh();
 			}
 		} else {
 			// wait for process to exit
-			while (!process.isTerminated()) {
-				try {
-					if (monitor.isCanceled()) {
-						process.terminate();
-						break;
-					}
-					Thread.sleep(50);
-				} catch (InterruptedException e) {
-				}
+			if (!TerminationNotifier.waitForTermination(process, monitor) && monitor.isCanceled()) {
+				process.terminate();
 			}
 
 			// refresh resources
-			RefreshUtil.refreshResources(configuration, monitor);
+			RefreshUtil.refreshResources(launch, snapshot, monitor);
 		}
 	}
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,12 +10,16 @@
  *******************************************************************************/
 package org.eclipse.core.internal.variables;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.variables.IDynamicVariable;
 import org.eclipse.core.variables.IDynamicVariableResolver;
+import org.eclipse.core.variables.IStringVariableManager;
 import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.osgi.util.NLS;
 
@@ -29,6 +33,24 @@ public class DynamicVariable extends StringVariable implements IDynamicVariable
 	 */
 	private IDynamicVariableResolver fResolver;
 
+	/**
+	 * Cache scope of this variable, one of the <code>CACHE_SCOPE_*</code>
+	 * constants of {@link IStringVariableManager}
+	 */
+	private final String fCacheScope;
+
+	/**
+	 * Cached values by argument, or <code>null</code> if values of this
+	 * variable are not cached until the workspace changes. Values cached for
+	 * a launch are kept by the launch scope of the launching thread.
+	 */
+	private final Map<String, String> fValues;
+
+	/**
+	 * Number of times the cached values were discarded
+	 */
+	private int fGeneration = 0;
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IContextVariable#getValue(java.lang.String)
 	 */
@@ -40,6 +62,67 @@ public class DynamicVariable extends StringVariable implements IDynamicVariable
 				throw new CoreException(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), VariablesPlugin.INTERNAL_ERROR, NLS.bind(VariablesMessages.DynamicVariable_0, new String[]{argument, getName()}), null));
 			}
 		}
+		if (IStringVariableManager.CACHE_SCOPE_LAUNCH.equals(fCacheScope)) {
+			return getLaunchScopeValue(argument);
+		}
+		if (fValues == null) {
+			return resolveValue(argument);
+		}
+		int generation;
+		synchronized (fValues) {
+			String value = fValues.get(argument);
+			if (value != null) {
+				return value;
+			}
+			generation = fGeneration;
+		}
+		// resolve outside of the lock, resolvers may take a while
+		String value = resolveValue(argument);
+		if (value != null) {
+			synchronized (fValues) {
+				// a value resolved while the cache was cleared may be stale
+				if (generation == fGeneration) {
+					fValues.put(argument, value);
+				}
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of this variable cached in the launch scope of the
+	 * calling thread, resolving and caching it if needed. Outside of a launch
+	 * scope the value is resolved every time.
+	 *
+	 * @param argument argument or <code>null</code>
+	 * @return variable value, possibly <code>null</code>
+	 * @exception CoreException if unable to resolve a value
+	 */
+	private String getLaunchScopeValue(String argument) throws CoreException {
+		Map<String, String> values = StringVariableManager.getDefault().getLaunchScopeValues();
+		if (values == null) {
+			return resolveValue(argument);
+		}
+		// names cannot contain the argument separator
+		String key = argument == null ? getName() : getName() + ':' + argument;
+		String value = values.get(key);
+		if (value == null) {
+			value = resolveValue(argument);
+			if (value != null) {
+				values.put(key, value);
+			}
+		}
+		return value;
+	}
+
+	/**
+	 * Returns the value of this variable computed by its resolver.
+	 *
+	 * @param argument argument or <code>null</code>
+	 * @return variable value, possibly <code>null</code>
+	 * @exception CoreException if unable to resolve a value
+	 */
+	private String resolveValue(String argument) throws CoreException {
 		if (fResolver == null) {
 			String name = getConfigurationElement().getAttribute("resolver"); //$NON-NLS-1$
 			if (name == null) {
@@ -68,6 +151,40 @@ public class DynamicVariable extends StringVariable implements IDynamicVariable
 	 */
 	public DynamicVariable(String name, String description, IConfigurationElement configurationElement) {
 		super(name, description, configurationElement);
+		String scope = configurationElement.getAttribute("cacheScope"); //$NON-NLS-1$
+		if (IStringVariableManager.CACHE_SCOPE_LAUNCH.equals(scope)) {
+			fCacheScope = scope;
+			fValues = null;
+		} else if (IStringVariableManager.CACHE_SCOPE_BUILD.equals(scope)) {
+			fCacheScope = scope;
+			fValues = new HashMap<>();
+		} else {
+			fCacheScope = IStringVariableManager.CACHE_SCOPE_NONE;
+			fValues = null;
+		}
+	}
+
+	/**
+	 * Returns the cache scope of this variable, one of the
+	 * <code>CACHE_SCOPE_*</code> constants of {@link IStringVariableManager}.
+	 *
+	 * @return cache scope
+	 */
+	public String getCacheScope() {
+		return fCacheScope;
+	}
+
+	/**
+	 * Discards the values of this variable cached until the workspace
+	 * changes.
+	 */
+	public void clearCache() {
+		if (fValues != null) {
+			synchronized (fValues) {
+				fValues.clear();
+				fGeneration++;
+			}
+		}
 	}
 
 	/* (non-Javadoc)
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,9 @@ package org.eclipse.core.internal.variables;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Stack;
+import java.util.Map;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
@@ -26,6 +27,11 @@ import org.eclipse.osgi.util.NLS;
 
 /**
  * Performs string substitution for context and value variables.
+ * <p>
+ * Expressions are compiled once into a tree of literal text and variable
+ * references, kept in a bounded cache shared by all engines, so substitution
+ * passes of known expressions do not scan them again.
+ * </p>
  */
 public class StringSubstitutionEngine {
 
@@ -33,14 +39,34 @@ public class StringSubstitutionEngine {
 	private static final String VARIABLE_START = "${"; //$NON-NLS-1$
 	private static final char VARIABLE_END = '}';
 	private static final char VARIABLE_ARG = ':';
-	// parsing states
-	private static final int SCAN_FOR_START = 0;
-	private static final int SCAN_FOR_END = 1;
+
+	/**
+	 * Maximum number of compiled expressions to keep
+	 */
+	private static final int MAX_EXPRESSIONS = 256;
+
+	/**
+	 * Maximum length of expressions to keep compiled. Longer expressions, like
+	 * generated class paths, are compiled every time.
+	 */
+	private static final int MAX_EXPRESSION_LENGTH = 4096;
+
+	/**
+	 * Compiled expressions by expression text, least recently used first
+	 */
+	private static final Map<String, Node[]> fgExpressions = new LinkedHashMap<String, Node[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Node[]> eldest) {
+			return size() > MAX_EXPRESSIONS;
+		}
+	};
 
 	/**
 	 * Resulting string
 	 */
-	private StringBuffer fResult;
+	private StringBuilder fResult;
 
 	/**
 	 * Whether substitutions were performed
@@ -48,27 +74,92 @@ public class StringSubstitutionEngine {
 	private boolean fSubs;
 
 	/**
-	 * Stack of variables to resolve
+	 * Text of the variables resolved by the current pass
+	 */
+	private HashSet<String> fResolvedVariables;
+
+	/**
+	 * Part of a compiled expression. Compiled expressions are immutable and
+	 * shared by all engines.
+	 */
+	static abstract class Node {
+
+		/**
+		 * Appends the value of this node to the given buffer.
+		 */
+		abstract void evaluate(StringSubstitutionEngine engine, StringBuilder buffer, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException;
+
+		static void evaluate(Node[] nodes, StringSubstitutionEngine engine, StringBuilder buffer, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
+			for (int i = 0; i < nodes.length; i++) {
+				nodes[i].evaluate(engine, buffer, reportUndefinedVariables, resolveVariables, manager);
+			}
+		}
+	}
+
+	/**
+	 * Text outside of variable references
 	 */
-	private Stack<VariableReference> fStack;
+	static class Literal extends Node {
+
+		private final String fText;
+
+		Literal(String text) {
+			fText = text;
+		}
+
+		@Override
+		void evaluate(StringSubstitutionEngine engine, StringBuilder buffer, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) {
+			buffer.append(fText);
+		}
+	}
 
-	class VariableReference {
+	/**
+	 * Complete variable reference. The text of the reference is the value of
+	 * its nested nodes followed by the text after the last nested reference.
+	 */
+	static class VariableReference extends Node {
 
-		// the text inside the variable reference
-		private StringBuffer fText;
+		private final Node[] fNodes;
+		private final String fTail;
 
-		public VariableReference() {
-			fText = new StringBuffer();
+		VariableReference(Node[] nodes, String tail) {
+			fNodes = nodes;
+			fTail = tail;
 		}
 
-		public void append(String text) {
-			fText.append(text);
+		@Override
+		void evaluate(StringSubstitutionEngine engine, StringBuilder buffer, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
+			String text = fTail;
+			if (fNodes.length > 0) {
+				StringBuilder nested = new StringBuilder();
+				evaluate(fNodes, engine, nested, reportUndefinedVariables, resolveVariables, manager);
+				nested.append(fTail);
+				text = nested.toString();
+			}
+			engine.fResolvedVariables.add(fTail);
+			String value = engine.resolve(text, reportUndefinedVariables, resolveVariables, manager);
+			if (value != null) {
+				buffer.append(value);
+			}
 		}
+	}
+
+	/**
+	 * Variable reference missing its end, left as is
+	 */
+	static class IncompleteReference extends Node {
 
-		public String getText() {
-			return fText.toString();
+		private final Node[] fNodes;
+
+		IncompleteReference(Node[] nodes) {
+			fNodes = nodes;
 		}
 
+		@Override
+		void evaluate(StringSubstitutionEngine engine, StringBuilder buffer, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
+			buffer.append(VARIABLE_START);
+			evaluate(fNodes, engine, buffer, reportUndefinedVariables, resolveVariables, manager);
+		}
 	}
 
 	/**
@@ -84,10 +175,15 @@ public class StringSubstitutionEngine {
 	 *  in referenced variables
 	 */
 	public String performStringSubstitution(String expression, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
-		substitute(expression, reportUndefinedVariables, resolveVariables, manager);
+		if (expression.indexOf(VARIABLE_START) < 0) {
+			// nothing to substitute
+			return expression;
+		}
+		substitute(getCompiledExpression(expression), reportUndefinedVariables, resolveVariables, manager);
 		List<HashSet<String>> resolvedVariableSets = new ArrayList<>();
 		while (fSubs) {
-			HashSet<String> resolved = substitute(fResult.toString(), reportUndefinedVariables, true, manager);
+			// values of variables are rarely substituted again, do not keep them compiled
+			HashSet<String> resolved = substitute(compile(fResult.toString()), reportUndefinedVariables, true, manager);
 			for(int i=resolvedVariableSets.size()-1; i>=0; i--) {
 				HashSet<String> prevSet = resolvedVariableSets.get(i);
 				if (prevSet.equals(resolved)) {
@@ -123,114 +219,128 @@ public class StringSubstitutionEngine {
 	}
 
 	/**
-	 * Makes a substitution pass of the given expression returns a Set of the variables that were resolved in this
-	 *  pass
+	 * Returns the compiled form of the given expression, compiling it if it
+	 * is not known yet.
 	 *
 	 * @param expression source expression
-	 * @param reportUndefinedVariables whether to report undefined variables as an error
-	 * @param resolveVariables whether to resolve the value of any variables
-	 * @param manager the {@link IStringVariableManager} to use for the substitution
-	 * @return the set of {@link String}s resolved from the given expression
-	 * @exception CoreException if unable to resolve a variable
+	 * @return compiled expression
 	 */
-	private HashSet<String> substitute(String expression, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
-		fResult = new StringBuffer(expression.length());
-		fStack = new Stack<>();
-		fSubs = false;
-
-		HashSet<String> resolvedVariables = new HashSet<>();
+	static Node[] getCompiledExpression(String expression) {
+		if (expression.length() > MAX_EXPRESSION_LENGTH) {
+			return compile(expression);
+		}
+		synchronized (fgExpressions) {
+			Node[] nodes = fgExpressions.get(expression);
+			if (nodes != null) {
+				return nodes;
+			}
+		}
+		Node[] nodes = compile(expression);
+		synchronized (fgExpressions) {
+			fgExpressions.put(expression, nodes);
+		}
+		return nodes;
+	}
 
+	/**
+	 * Compiles the given expression. Variable references are delimited the way
+	 * a substitution pass scans them: a reference ends at the first end
+	 * delimiter that is not preceded by the start of a nested reference, and
+	 * references with no end delimiter after them are left as is.
+	 *
+	 * @param expression source expression
+	 * @return compiled expression
+	 */
+	static Node[] compile(String expression) {
+		List<Node> result = new ArrayList<>();
+		// nodes of the references being scanned, innermost last
+		List<List<Node>> stack = new ArrayList<>();
 		int pos = 0;
-		int state = SCAN_FOR_START;
-		while (pos < expression.length()) {
-			switch (state) {
-				case SCAN_FOR_START:
-					int start = expression.indexOf(VARIABLE_START, pos);
-					if (start >= 0) {
-						int length = start - pos;
-						// copy non-variable text to the result
-						if (length > 0) {
-							fResult.append(expression.substring(pos, start));
-						}
-						pos = start + 2;
-						state = SCAN_FOR_END;
-
-						fStack.push(new VariableReference());
-					} else {
-						// done - no more variables
-						fResult.append(expression.substring(pos));
-						pos = expression.length();
-					}
-					break;
-				case SCAN_FOR_END:
-					// be careful of nested variables
-					start = expression.indexOf(VARIABLE_START, pos);
-					int end = expression.indexOf(VARIABLE_END, pos);
-					if (end < 0) {
-						// variables are not completed
-						VariableReference tos = fStack.peek();
-						tos.append(expression.substring(pos));
-						pos = expression.length();
-					} else {
-						if (start >= 0 && start < end) {
-							// start of a nested variable
-							int length = start - pos;
-							if (length > 0) {
-								VariableReference tos = fStack.peek();
-								tos.append(expression.substring(pos, start));
-							}
-							pos = start + 2;
-							fStack.push(new VariableReference());
-						} else {
-							// end of variable reference
-							VariableReference tos = fStack.pop();
-							String substring = expression.substring(pos, end);
-							tos.append(substring);
-							resolvedVariables.add(substring);
-
-							pos = end + 1;
-							String value= resolve(tos, reportUndefinedVariables, resolveVariables, manager);
-							if (value == null) {
-								value = ""; //$NON-NLS-1$
-							}
-							if (fStack.isEmpty()) {
-								// append to result
-								fResult.append(value);
-								state = SCAN_FOR_START;
-							} else {
-								// append to previous variable
-								tos = fStack.peek();
-								tos.append(value);
-							}
-						}
+		int length = expression.length();
+		while (pos < length) {
+			if (stack.isEmpty()) {
+				int start = expression.indexOf(VARIABLE_START, pos);
+				if (start < 0) {
+					// done - no more variables
+					result.add(new Literal(expression.substring(pos)));
+					pos = length;
+				} else {
+					// copy non-variable text to the result
+					if (start > pos) {
+						result.add(new Literal(expression.substring(pos, start)));
 					}
-					break;
-				default:
-					break;
+					pos = start + 2;
+					stack.add(new ArrayList<Node>());
+				}
+				continue;
+			}
+			// be careful of nested variables
+			List<Node> tos = stack.get(stack.size() - 1);
+			int start = expression.indexOf(VARIABLE_START, pos);
+			int end = expression.indexOf(VARIABLE_END, pos);
+			if (end < 0) {
+				// variables are not completed
+				tos.add(new Literal(expression.substring(pos)));
+				pos = length;
+			} else if (start >= 0 && start < end) {
+				// start of a nested variable
+				if (start > pos) {
+					tos.add(new Literal(expression.substring(pos, start)));
+				}
+				pos = start + 2;
+				stack.add(new ArrayList<Node>());
+			} else {
+				// end of variable reference
+				stack.remove(stack.size() - 1);
+				Node reference = new VariableReference(toArray(tos), expression.substring(pos, end));
+				pos = end + 1;
+				if (stack.isEmpty()) {
+					result.add(reference);
+				} else {
+					stack.get(stack.size() - 1).add(reference);
+				}
 			}
 		}
 		// process incomplete variable references
-		while (!fStack.isEmpty()) {
-			VariableReference tos = fStack.pop();
-			if (fStack.isEmpty()) {
-				fResult.append(VARIABLE_START);
-				fResult.append(tos.getText());
+		while (!stack.isEmpty()) {
+			Node reference = new IncompleteReference(toArray(stack.remove(stack.size() - 1)));
+			if (stack.isEmpty()) {
+				result.add(reference);
 			} else {
-				VariableReference var = fStack.peek();
-				var.append(VARIABLE_START);
-				var.append(tos.getText());
+				stack.get(stack.size() - 1).add(reference);
 			}
 		}
+		return toArray(result);
+	}
 
+	private static Node[] toArray(List<Node> nodes) {
+		return nodes.toArray(new Node[nodes.size()]);
+	}
 
-		return resolvedVariables;
+	/**
+	 * Makes a substitution pass of the given compiled expression returns a Set
+	 * of the variables that were resolved in this pass
+	 *
+	 * @param expression compiled source expression
+	 * @param reportUndefinedVariables whether to report undefined variables as an error
+	 * @param resolveVariables whether to resolve the value of any variables
+	 * @param manager the {@link IStringVariableManager} to use for the substitution
+	 * @return the set of {@link String}s resolved from the given expression
+	 * @exception CoreException if unable to resolve a variable
+	 */
+	private HashSet<String> substitute(Node[] expression, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
+		fResult = new StringBuilder();
+		fSubs = false;
+		fResolvedVariables = new HashSet<>();
+		Node.evaluate(expression, this, fResult, reportUndefinedVariables, resolveVariables, manager);
+		return fResolvedVariables;
 	}
 
 	/**
 	 * Resolve and return the value of the given variable reference,
 	 * possibly <code>null</code>.
 	 *
-	 * @param var the {@link VariableReference} to try and resolve
+	 * @param text the text of the variable reference to try and resolve
 	 * @param reportUndefinedVariables whether to report undefined variables as
 	 *  an error
 	 * @param resolveVariables whether to resolve the variables value or just to validate that this variable is valid
@@ -238,8 +348,7 @@ public class StringSubstitutionEngine {
 	 * @return variable value, possibly <code>null</code>
 	 * @exception CoreException if unable to resolve a value
 	 */
-	private String resolve(VariableReference var, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
-		String text = var.getText();
+	private String resolve(String text, boolean reportUndefinedVariables, boolean resolveVariables, IStringVariableManager manager) throws CoreException {
 		int pos = text.indexOf(VARIABLE_ARG);
 		String name = null;
 		String arg = null;
@@ -261,7 +370,7 @@ public class StringSubstitutionEngine {
 					throw new CoreException(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), VariablesPlugin.INTERNAL_ERROR, NLS.bind(VariablesMessages.StringSubstitutionEngine_3, new String[]{name}), null));
 				}
 				// leave as is
-				return getOriginalVarText(var);
+				return getOriginalVarText(text);
 			}
 
 			if (resolveVariables) {
@@ -269,7 +378,7 @@ public class StringSubstitutionEngine {
 				return dynamicVariable.getValue(arg);
 			}
 			//leave as is
-			return getOriginalVarText(var);
+			return getOriginalVarText(text);
 		}
 
 		if (arg == null) {
@@ -278,15 +387,16 @@ public class StringSubstitutionEngine {
 				return valueVariable.getValue();
 			}
 			//leave as is
-			return getOriginalVarText(var);
+			return getOriginalVarText(text);
 		}
 		// error - an argument specified for a value variable
 		throw new CoreException(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), VariablesPlugin.INTERNAL_ERROR, NLS.bind(VariablesMessages.StringSubstitutionEngine_4, new String[]{valueVariable.getName()}), null));
 	}
 
-	private String getOriginalVarText(VariableReference var) {
-		StringBuffer res = new StringBuffer(var.getText());
-		res.insert(0, VARIABLE_START);
+	private String getOriginalVarText(String text) {
+		StringBuilder res = new StringBuilder(text.length() + 3);
+		res.append(VARIABLE_START);
+		res.append(text);
 		res.append(VARIABLE_END);
 		return res.toString();
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,27 +12,19 @@
 package org.eclipse.core.internal.variables;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtensionPoint;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.ListenerList;
@@ -40,6 +32,7 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
 import org.eclipse.core.runtime.preferences.IEclipsePreferences.PreferenceChangeEvent;
@@ -52,7 +45,6 @@ import org.eclipse.core.variables.IValueVariableListener;
 import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.osgi.util.NLS;
 import org.osgi.service.prefs.BackingStoreException;
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -60,18 +52,50 @@ import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * Singleton string variable manager.
+ * <p>
+ * Variables are read without locking: the maps of variables are immutable
+ * snapshots, replaced by the changes made while holding the lock of the
+ * manager. Value variables are persisted shortly after they change, at most
+ * once for a burst of changes, and only the variables that changed since the
+ * last time are serialized again.
+ * </p>
  */
 public class StringVariableManager implements IStringVariableManager, IPreferenceChangeListener {
 
 	/**
-	 * Dynamic variables - maps variable names to variables.
+	 * Dynamic variables - maps variable names to variables, <code>null</code>
+	 * until the variables are loaded. Never changes once loaded.
 	 */
-	private Map<String, IDynamicVariable> fDynamicVariables;
+	private volatile Map<String, IDynamicVariable> fDynamicVariables;
 
 	/**
-	 * Value variables - maps variable names to variables.
+	 * Launch scope of the calling thread, or <code>null</code> outside of a
+	 * launch scope
 	 */
-	private Map<String, IStringVariable> fValueVariables;
+	private final ThreadLocal<LaunchScope> fLaunchScope = new ThreadLocal<>();
+
+	/**
+	 * Values of dynamic variables with the launch cache scope resolved while
+	 * a launch scope is open in a thread
+	 */
+	static class LaunchScope {
+
+		/**
+		 * Number of nested scopes
+		 */
+		int fDepth = 0;
+
+		/**
+		 * Cached values by variable name and argument
+		 */
+		final Map<String, String> fValues = new HashMap<>();
+	}
+
+	/**
+	 * Value variables - maps variable names to variables. Replaced, not
+	 * modified, when value variables are added or removed.
+	 */
+	private volatile Map<String, IValueVariable> fValueVariables;
 
 	/**
 	 * Variable listeners
@@ -86,11 +110,39 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	/**
 	 * Singleton variable manager.
 	 */
-	private static StringVariableManager fgManager;
+	private static final StringVariableManager fgManager = new StringVariableManager();
 
 	// true during internal updates indicates that change notification
 	// should be suppressed/ignored.
-	private boolean fInternalChange = false;
+	private volatile boolean fInternalChange = false;
+
+	/**
+	 * Whether value variables are being written to the preference store, the
+	 * resulting preference change is ignored.
+	 */
+	private boolean fStoring = false;
+
+	/**
+	 * Delay in milliseconds between a change of value variables and their
+	 * persistence, to persist bursts of changes once.
+	 */
+	private static final long STORE_DELAY = 200;
+
+	/**
+	 * Persists value variables after changes
+	 */
+	private final Job fStoreJob;
+
+	/**
+	 * Whether value variables changed since they were persisted
+	 */
+	private volatile boolean fStorePending = false;
+
+	/**
+	 * Serialized value variables by name, reused while the variables do not
+	 * change.
+	 */
+	private final Map<String, Fragment> fFragments = new HashMap<>();
 
 	// Variable extension point constants
 	private static final String ATTR_NAME= "name"; //$NON-NLS-1$
@@ -109,6 +161,52 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	// preference store key for value variables
 	private static final String PREF_VALUE_VARIABLES= VariablesPlugin.getUniqueIdentifier() + ".valueVariables"; //$NON-NLS-1$
 
+	/**
+	 * Serialized value variable, with the state it was serialized from
+	 */
+	static class Fragment {
+
+		private final IValueVariable fVariable;
+		private final String fValue;
+		private final String fDescription;
+		private final String fXML;
+
+		Fragment(IValueVariable variable, String value, String description, String xml) {
+			fVariable = variable;
+			fValue = value;
+			fDescription = description;
+			fXML = xml;
+		}
+
+		/**
+		 * Returns whether this fragment still represents the given state.
+		 */
+		boolean matches(IValueVariable variable, String value, String description) {
+			return fVariable == variable && equals(fValue, value) && equals(fDescription, description);
+		}
+
+		private static boolean equals(String a, String b) {
+			return a == null ? b == null : a.equals(b);
+		}
+	}
+
+	/**
+	 * Persists value variables
+	 */
+	class StoreJob extends Job {
+
+		StoreJob() {
+			super(VariablesMessages.StringVariableManager_28);
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			storeValueVariables();
+			return Status.OK_STATUS;
+		}
+	}
+
 	/**
 	 * Notifies a string variable listener in a safe runnable to handle
 	 * exceptions.
@@ -164,7 +262,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 			fVariables = null;
 			fListener = null;
 			// persist variables whenever there is an add/change/remove
-			storeValueVariables();
+			scheduleStore();
 		}
 	}
 
@@ -183,9 +281,6 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * @return string variable manager
 	 */
 	public static StringVariableManager getDefault() {
-		if (fgManager == null) {
-			fgManager = new StringVariableManager();
-		}
 		return fgManager;
 	}
 
@@ -194,28 +289,53 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 */
 	private StringVariableManager() {
 		fListeners = new ListenerList<>();
+		fStoreJob = new StoreJob();
 	}
 
 	/**
 	 * Load contributed variables and persisted variables
 	 */
-	private synchronized void initialize() {
-		if (fDynamicVariables == null) {
-			fInternalChange = true;
-			fDynamicVariables = new HashMap<>(5);
-			fValueVariables = new HashMap<>(5);
-			loadContributedValueVariables();
-			loadPersistedValueVariables();
-			loadDynamicVariables();
-			InstanceScope.INSTANCE.getNode(VariablesPlugin.PI_CORE_VARIABLES).addPreferenceChangeListener(this);
-			fInternalChange = false;
+	private void initialize() {
+		if (fDynamicVariables != null) {
+			return;
+		}
+		synchronized (this) {
+			if (fDynamicVariables == null) {
+				fInternalChange = true;
+				Map<String, IValueVariable> valueVariables = new HashMap<>(5);
+				loadContributedValueVariables(valueVariables);
+				loadPersistedValueVariables(valueVariables);
+				Map<String, IDynamicVariable> dynamicVariables = new HashMap<>(5);
+				loadDynamicVariables(dynamicVariables);
+				// publish the dynamic variables last, they mark the manager as initialized
+				fValueVariables = Collections.unmodifiableMap(valueVariables);
+				fDynamicVariables = Collections.unmodifiableMap(dynamicVariables);
+				InstanceScope.INSTANCE.getNode(VariablesPlugin.PI_CORE_VARIABLES).addPreferenceChangeListener(this);
+				fInternalChange = false;
+			}
+		}
+	}
+
+	/**
+	 * Persists pending changes of value variables. Called when the plug-in
+	 * shuts down.
+	 */
+	public void shutdown() {
+		fStoreJob.cancel();
+		try {
+			fStoreJob.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (fStorePending) {
+			storeValueVariables();
 		}
 	}
 
 	/**
 	 * Loads contributed dynamic variables
 	 */
-	private void loadDynamicVariables() {
+	private void loadDynamicVariables(Map<String, IDynamicVariable> dynamicVariables) {
 		IExtensionPoint point = Platform.getExtensionRegistry().getExtensionPoint(VariablesPlugin.PI_CORE_VARIABLES, EXTENSION_POINT_DYNAMIC_VARIABLES);
 		IConfigurationElement elements[]= point.getConfigurationElements();
 		for (int i = 0; i < elements.length; i++) {
@@ -227,7 +347,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 			}
 			String description= element.getAttribute(ATTR_DESCRIPTION);
 			DynamicVariable variable= new DynamicVariable(name, description, element);
-			Object old = fDynamicVariables.put(variable.getName(), variable);
+			Object old = dynamicVariables.put(variable.getName(), variable);
 			if (old != null) {
 				DynamicVariable oldVariable = (DynamicVariable)old;
 				VariablesPlugin.logMessage(NLS.bind("Dynamic variable extension from bundle ''{0}'' overrides existing extension variable ''{1}'' from bundle ''{2}''", //$NON-NLS-1$
@@ -240,7 +360,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	/**
 	 * Loads contributed value variables. This is done before loading persisted values.
 	 */
-	private void loadContributedValueVariables() {
+	private void loadContributedValueVariables(Map<String, IValueVariable> valueVariables) {
 		IExtensionPoint point = Platform.getExtensionRegistry().getExtensionPoint(VariablesPlugin.PI_CORE_VARIABLES, EXTENSION_POINT_VALUE_VARIABLES);
 		IConfigurationElement elements[]= point.getConfigurationElements();
 		for (int i = 0; i < elements.length; i++) {
@@ -254,7 +374,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 			boolean isReadOnly = TRUE_VALUE.equals(element.getAttribute(ATTR_READ_ONLY));
 
 			IValueVariable variable = new ContributedValueVariable(name, description, isReadOnly, element);
-			Object old = fValueVariables.put(name, variable);
+			Object old = valueVariables.put(name, variable);
 			if (old != null) {
 				StringVariable oldVariable = (StringVariable)old;
 				VariablesPlugin.logMessage(NLS.bind("Contributed variable extension from bundle ''{0}'' overrides existing extension variable ''{1}'' from  bundle ''{2}''", //$NON-NLS-1$
@@ -271,7 +391,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * the persisted value unless either a) The persisted value is <code>null</code>, or
 	 * b) the variable is read-only.
 	 */
-	private void loadPersistedValueVariables() {
+	private void loadPersistedValueVariables(Map<String, IValueVariable> valueVariables) {
 		String variablesString = Platform.getPreferencesService().getString(VariablesPlugin.PI_CORE_VARIABLES, PREF_VALUE_VARIABLES, "", null); //$NON-NLS-1$
 		if (variablesString.length() == 0) {
 			return;
@@ -305,10 +425,10 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 					String description= element.getAttribute(DESCRIPTION_TAG);
 					boolean readOnly= TRUE_VALUE.equals(element.getAttribute(READ_ONLY_TAG));
 
-					IValueVariable existing = getValueVariable(name);
+					IValueVariable existing = valueVariables.get(name);
 					if (existing == null){
 						ValueVariable variable = new ValueVariable(name, description, readOnly, value);
-						fValueVariables.put(name, variable);
+						valueVariables.put(name, variable);
 					} else if (!existing.isReadOnly() && value != null){
 						existing.setValue(value);
 					}
@@ -323,11 +443,13 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IStringVariableManager#getVariables()
 	 */
 	@Override
-	public synchronized IStringVariable[] getVariables() {
+	public IStringVariable[] getVariables() {
 		initialize();
-		List<IStringVariable> list = new ArrayList<>(fDynamicVariables.size() + fValueVariables.size());
-		list.addAll(fDynamicVariables.values());
-		list.addAll(fValueVariables.values());
+		Map<String, IDynamicVariable> dynamicVariables = fDynamicVariables;
+		Map<String, IValueVariable> valueVariables = fValueVariables;
+		List<IStringVariable> list = new ArrayList<>(dynamicVariables.size() + valueVariables.size());
+		list.addAll(dynamicVariables.values());
+		list.addAll(valueVariables.values());
 		return list.toArray(new IStringVariable[list.size()]);
 	}
 
@@ -335,18 +457,20 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IStringVariableManager#getValueVariables()
 	 */
 	@Override
-	public synchronized IValueVariable[] getValueVariables() {
+	public IValueVariable[] getValueVariables() {
 		initialize();
-		return fValueVariables.values().toArray(new IValueVariable[fValueVariables.size()]);
+		Map<String, IValueVariable> valueVariables = fValueVariables;
+		return valueVariables.values().toArray(new IValueVariable[valueVariables.size()]);
 	}
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IStringVariableManager#getDynamicVariables()
 	 */
 	@Override
-	public synchronized IDynamicVariable[] getDynamicVariables() {
+	public IDynamicVariable[] getDynamicVariables() {
 		initialize();
-		return fDynamicVariables.values().toArray(new IDynamicVariable[fDynamicVariables.size()]);
+		Map<String, IDynamicVariable> dynamicVariables = fDynamicVariables;
+		return dynamicVariables.values().toArray(new IDynamicVariable[dynamicVariables.size()]);
 	}
 
 	/* (non-Javadoc)
@@ -387,10 +511,12 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 			}
 		}
 		if (status.isOK()) {
+			Map<String, IValueVariable> valueVariables = new HashMap<>(fValueVariables);
 			for (int i = 0; i < variables.length; i++) {
 				IValueVariable variable = variables[i];
-				fValueVariables.put(variable.getName(), variable);
+				valueVariables.put(variable.getName(), variable);
 			}
+			fValueVariables = Collections.unmodifiableMap(valueVariables);
 			IValueVariable[] copy = new IValueVariable[variables.length];
 			System.arraycopy(variables, 0, copy, 0, variables.length);
 			getNotifier().notify(copy, ADDED);
@@ -406,13 +532,15 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	public synchronized void removeVariables(IValueVariable[] variables) {
 		initialize();
 		List<IValueVariable> removed = new ArrayList<>(variables.length);
+		Map<String, IValueVariable> valueVariables = new HashMap<>(fValueVariables);
 		for (int i = 0; i < variables.length; i++) {
 			IValueVariable variable = variables[i];
-			if (fValueVariables.remove(variable.getName()) != null) {
+			if (valueVariables.remove(variable.getName()) != null) {
 				removed.add(variable);
 			}
 		}
 		if (removed.size() > 0) {
+			fValueVariables = Collections.unmodifiableMap(valueVariables);
 			getNotifier().notify(removed.toArray(new IValueVariable[removed.size()]), REMOVED);
 		}
 	}
@@ -421,7 +549,7 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IStringVariableManager#getDynamicVariable(java.lang.String)
 	 */
 	@Override
-	public synchronized IDynamicVariable getDynamicVariable(String name) {
+	public IDynamicVariable getDynamicVariable(String name) {
 		initialize();
 		return fDynamicVariables.get(name);
 	}
@@ -430,9 +558,9 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	 * @see org.eclipse.debug.internal.core.stringsubstitution.IStringVariableManager#getValueVariable(java.lang.String)
 	 */
 	@Override
-	public synchronized IValueVariable getValueVariable(String name) {
+	public IValueVariable getValueVariable(String name) {
 		initialize();
-		return (IValueVariable) fValueVariables.get(name);
+		return fValueVariables.get(name);
 	}
 
 
@@ -454,102 +582,127 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 
 	/**
 	 * Returns a memento representing the value variables currently registered.
+	 * Variables that did not change since the previous memento are not
+	 * serialized again.
 	 *
 	 * @return memento representing the value variables currently registered
-	 * @throws IOException if an I/O exception occurs while creating the XML.
-	 * @throws ParserConfigurationException if an I/O exception occurs while creating the XML.
-	 * @throws TransformerException if an exception occurs while creating the XML.
 	 */
-	private String getValueVariablesAsXML() throws IOException, ParserConfigurationException, TransformerException {
+	private String getValueVariablesAsXML() {
 		IValueVariable[] variables = getValueVariables();
-
-		Document document= getDocument();
-		Element rootElement= document.createElement(VALUE_VARIABLES_TAG);
-		document.appendChild(rootElement);
+		Map<String, Fragment> fragments = new HashMap<>(variables.length);
+		StringBuilder buffer = new StringBuilder();
+		buffer.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"); //$NON-NLS-1$
+		buffer.append('<').append(VALUE_VARIABLES_TAG).append(">\n"); //$NON-NLS-1$
 		for (int i = 0; i < variables.length; i++) {
 			IValueVariable variable = variables[i];
 			if (!variable.isReadOnly()){
 				// don't persist read-only variables or un-initialized contributed variables
 				if (!variable.isContributed() || ((ContributedValueVariable)variable).isInitialized()) {
-					Element element= document.createElement(VALUE_VARIABLE_TAG);
-					element.setAttribute(NAME_TAG, variable.getName());
-					String value= variable.getValue();
-					if (value != null) {
-						element.setAttribute(VALUE_TAG, value);
-					}
-					element.setAttribute(READ_ONLY_TAG, variable.isReadOnly() ? TRUE_VALUE : FALSE_VALUE);
-					String description= variable.getDescription();
-					if (description != null) {
-						element.setAttribute(DESCRIPTION_TAG, description);
+					String value = variable.getValue();
+					String description = variable.getDescription();
+					Fragment fragment = fFragments.get(variable.getName());
+					if (fragment == null || !fragment.matches(variable, value, description)) {
+						fragment = new Fragment(variable, value, description, getValueVariableAsXML(variable.getName(), value, description));
 					}
-					rootElement.appendChild(element);
+					fragments.put(variable.getName(), fragment);
+					buffer.append(fragment.fXML);
 				}
 			}
 		}
-		return serializeDocument(document);
+		buffer.append("</").append(VALUE_VARIABLES_TAG).append(">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		// forget the fragments of removed variables
+		fFragments.clear();
+		fFragments.putAll(fragments);
+		return buffer.toString();
 	}
 
-	private Document getDocument() throws ParserConfigurationException {
-		DocumentBuilderFactory dfactory = DocumentBuilderFactory.newInstance();
-		DocumentBuilder docBuilder = dfactory.newDocumentBuilder();
-		Document doc =docBuilder.newDocument();
-		return doc;
+	/**
+	 * Returns the XML element of a writable value variable.
+	 */
+	private static String getValueVariableAsXML(String name, String value, String description) {
+		StringBuilder buffer = new StringBuilder();
+		buffer.append('<').append(VALUE_VARIABLE_TAG);
+		appendAttribute(buffer, NAME_TAG, name);
+		if (value != null) {
+			appendAttribute(buffer, VALUE_TAG, value);
+		}
+		appendAttribute(buffer, READ_ONLY_TAG, FALSE_VALUE);
+		if (description != null) {
+			appendAttribute(buffer, DESCRIPTION_TAG, description);
+		}
+		buffer.append("/>\n"); //$NON-NLS-1$
+		return buffer.toString();
 	}
 
 	/**
-	 * Serializes a XML document into a string - encoded in UTF8 format,
-	 * with platform line separators.
-	 *
-	 * @param doc document to serialize
-	 * @return the document as a string
-	 * @throws TransformerException if an unrecoverable error occurs during the serialization
-	 * @throws UnsupportedEncodingException if the encoding attempted to be used is not supported
-	 */
-	private String serializeDocument(Document doc) throws TransformerException, UnsupportedEncodingException {
-		ByteArrayOutputStream s= new ByteArrayOutputStream();
-
-		TransformerFactory factory= TransformerFactory.newInstance();
-		Transformer transformer= factory.newTransformer();
-		transformer.setOutputProperty(OutputKeys.METHOD, "xml"); //$NON-NLS-1$
-		transformer.setOutputProperty(OutputKeys.INDENT, "yes"); //$NON-NLS-1$
-
-		DOMSource source= new DOMSource(doc);
-		StreamResult outputTarget= new StreamResult(s);
-		transformer.transform(source, outputTarget);
+	 * Appends an attribute to an XML element, escaping its value.
+	 */
+	private static void appendAttribute(StringBuilder buffer, String name, String value) {
+		buffer.append(' ').append(name).append("=\""); //$NON-NLS-1$
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '&':
+					buffer.append("&amp;"); //$NON-NLS-1$
+					break;
+				case '<':
+					buffer.append("&lt;"); //$NON-NLS-1$
+					break;
+				case '>':
+					buffer.append("&gt;"); //$NON-NLS-1$
+					break;
+				case '"':
+					buffer.append("&quot;"); //$NON-NLS-1$
+					break;
+				case '\t':
+				case '\n':
+				case '\r':
+					// preserve white space, parsers normalize it to spaces
+					buffer.append("&#").append((int) c).append(';'); //$NON-NLS-1$
+					break;
+				default:
+					buffer.append(c);
+					break;
+			}
+		}
+		buffer.append('"');
+	}
 
-		return s.toString("UTF8"); //$NON-NLS-1$
+	/**
+	 * Schedules the persistence of the value variables.
+	 */
+	private void scheduleStore() {
+		fStorePending = true;
+		fStoreJob.schedule(STORE_DELAY);
 	}
 
 	/**
 	 * Saves the value variables currently registered in the
 	 * preference store.
 	 */
-	private synchronized void storeValueVariables() {
+	private void storeValueVariables() {
+		fStorePending = false;
 		String variableString= ""; //$NON-NLS-1$
 		if (!fValueVariables.isEmpty()) {
+			synchronized (fFragments) {
+				variableString = getValueVariablesAsXML();
+			}
+		}
+		IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode(VariablesPlugin.PI_CORE_VARIABLES);
+		synchronized (this) {
+			fStoring = true;
 			try {
-				variableString= getValueVariablesAsXML();
-			} catch (IOException e) {
-				VariablesPlugin.log(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), IStatus.ERROR, "An exception occurred while storing launch configuration variables.", e)); //$NON-NLS-1$
-				return;
-			} catch (ParserConfigurationException e) {
-				VariablesPlugin.log(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), IStatus.ERROR, "An exception occurred while storing launch configuration variables.", e)); //$NON-NLS-1$
-				return;
-			} catch (TransformerException e) {
-				VariablesPlugin.log(new Status(IStatus.ERROR, VariablesPlugin.getUniqueIdentifier(), IStatus.ERROR, "An exception occurred while storing launch configuration variables.", e)); //$NON-NLS-1$
-				return;
+				prefs.put(PREF_VALUE_VARIABLES, variableString);
+			} finally {
+				fStoring = false;
 			}
 		}
-		fInternalChange = true;
 		try {
-			IEclipsePreferences prefs = InstanceScope.INSTANCE.getNode(VariablesPlugin.PI_CORE_VARIABLES);
-			prefs.put(PREF_VALUE_VARIABLES, variableString);
 			prefs.flush();
 		}
 		catch(BackingStoreException bse) {
 			VariablesPlugin.log(bse);
 		}
-		fInternalChange = false;
 	}
 
 	/**
@@ -599,6 +752,69 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 		new StringSubstitutionEngine().validateStringVariables(expression, this);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.variables.IStringVariableManager#clearDynamicVariableCache(java.lang.String)
+	 */
+	@Override
+	public void clearDynamicVariableCache(String scope) {
+		if (CACHE_SCOPE_LAUNCH.equals(scope)) {
+			LaunchScope launchScope = fLaunchScope.get();
+			if (launchScope != null) {
+				launchScope.fValues.clear();
+			}
+			return;
+		}
+		Map<String, IDynamicVariable> dynamicVariables = fDynamicVariables;
+		if (dynamicVariables == null) {
+			// no values resolved yet
+			return;
+		}
+		for (IDynamicVariable dynamicVariable : dynamicVariables.values()) {
+			if (dynamicVariable instanceof DynamicVariable) {
+				DynamicVariable variable = (DynamicVariable) dynamicVariable;
+				if (variable.getCacheScope().equals(scope)) {
+					variable.clearCache();
+				}
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.variables.IStringVariableManager#beginLaunchScope()
+	 */
+	@Override
+	public void beginLaunchScope() {
+		LaunchScope scope = fLaunchScope.get();
+		if (scope == null) {
+			scope = new LaunchScope();
+			fLaunchScope.set(scope);
+		}
+		scope.fDepth++;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.variables.IStringVariableManager#endLaunchScope()
+	 */
+	@Override
+	public void endLaunchScope() {
+		LaunchScope scope = fLaunchScope.get();
+		if (scope != null && --scope.fDepth == 0) {
+			fLaunchScope.remove();
+		}
+	}
+
+	/**
+	 * Returns the values of dynamic variables cached in the launch scope of
+	 * the calling thread, by variable name and argument, or <code>null</code>
+	 * if no launch scope is open in the calling thread.
+	 *
+	 * @return cached values or <code>null</code>
+	 */
+	Map<String, String> getLaunchScopeValues() {
+		LaunchScope scope = fLaunchScope.get();
+		return scope == null ? null : scope.fValues;
+	}
+
     /* (non-Javadoc)
      * @see org.eclipse.core.variables.IStringVariableManager#getContributingPluginId(org.eclipse.core.variables.IStringVariable)
      */
@@ -617,10 +833,11 @@ public class StringVariableManager implements IStringVariableManager, IPreferenc
 	public void preferenceChange(PreferenceChangeEvent event) {
 		if (PREF_VALUE_VARIABLES.equals(event.getKey())) {
 			synchronized (this) {
-				if (!fInternalChange) {
-					fValueVariables.clear();
-					loadPersistedValueVariables();
-					loadContributedValueVariables();
+				if (!fInternalChange && !fStoring) {
+					Map<String, IValueVariable> valueVariables = new HashMap<>(5);
+					loadPersistedValueVariables(valueVariables);
+					loadContributedValueVariables(valueVariables);
+					fValueVariables = Collections.unmodifiableMap(valueVariables);
 				}
 			}
 		}
@@ -1,5 +1,5 @@
 /**********************************************************************
- * Copyright (c) 2000, 2009 IBM Corporation and others. All rights reserved.   This
+ * Copyright (c) 2000, 2017 IBM Corporation and others. All rights reserved.   This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -19,6 +19,7 @@ public class VariablesMessages extends NLS {
 
 	public static String StringVariableManager_26;
 	public static String StringVariableManager_27;
+	public static String StringVariableManager_28;
 
 	public static String DynamicVariable_0;
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2008 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -31,6 +31,34 @@ public interface IStringVariableManager {
 	 */
 	public static final String EXTENSION_POINT_VALUE_VARIABLES = "valueVariables"; //$NON-NLS-1$
 
+	/**
+	 * Cache scope of dynamic variables that are resolved every time they are
+	 * referenced (value <code>"none"</code>). This is the cache scope of
+	 * dynamic variables that do not declare one.
+	 *
+	 * @since 3.4
+	 */
+	public static final String CACHE_SCOPE_NONE = "none"; //$NON-NLS-1$
+
+	/**
+	 * Cache scope of dynamic variables whose values are cached while a launch
+	 * is performed (value <code>"launch"</code>). Values are only cached
+	 * between {@link #beginLaunchScope()} and {@link #endLaunchScope()}, in
+	 * the thread performing the launch, and are resolved every time they are
+	 * referenced otherwise.
+	 *
+	 * @since 3.4
+	 */
+	public static final String CACHE_SCOPE_LAUNCH = "launch"; //$NON-NLS-1$
+
+	/**
+	 * Cache scope of dynamic variables whose values are cached until the next
+	 * change of the workspace, like a build (value <code>"build"</code>).
+	 *
+	 * @since 3.4
+	 */
+	public static final String CACHE_SCOPE_BUILD = "build"; //$NON-NLS-1$
+
 	/**
 	 * Returns all registered variables.
 	 *
@@ -188,4 +216,37 @@ public interface IStringVariableManager {
 	 */
 	public String generateVariableExpression(String varName, String arg);
 
+	/**
+	 * Discards the cached values of the dynamic variables with the given
+	 * cache scope, so they are resolved again when next referenced. For the
+	 * {@link #CACHE_SCOPE_LAUNCH} scope, the values cached in the launch scope
+	 * of the calling thread are discarded. Has no effect for the
+	 * {@link #CACHE_SCOPE_NONE} scope.
+	 *
+	 * @param scope one of {@link #CACHE_SCOPE_LAUNCH} or
+	 *            {@link #CACHE_SCOPE_BUILD}
+	 * @since 3.4
+	 */
+	public void clearDynamicVariableCache(String scope);
+
+	/**
+	 * Begins a launch scope in the calling thread. Until the matching call to
+	 * {@link #endLaunchScope()}, the values of dynamic variables with the
+	 * {@link #CACHE_SCOPE_LAUNCH} cache scope that are resolved in the calling
+	 * thread are cached. Launch scopes may be nested, values are cached until
+	 * the outermost scope ends.
+	 *
+	 * @since 3.4
+	 */
+	public void beginLaunchScope();
+
+	/**
+	 * Ends a launch scope begun in the calling thread with
+	 * {@link #beginLaunchScope()}. When the outermost scope ends, the values
+	 * cached in the scope are discarded.
+	 *
+	 * @since 3.4
+	 */
+	public void endLaunchScope();
+
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -15,6 +15,7 @@ import org.eclipse.core.internal.variables.StringVariableManager;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.Status;
+import org.osgi.framework.BundleContext;
 
 /**
  * The plug-in runtime class for the Core Variables plug-in.
@@ -112,4 +113,16 @@ public class VariablesPlugin extends Plugin {
 	public IStringVariableManager getStringVariableManager() {
 		return StringVariableManager.getDefault();
 	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.runtime.Plugin#stop(org.osgi.framework.BundleContext)
+	 */
+	@Override
+	public void stop(BundleContext context) throws Exception {
+		try {
+			StringVariableManager.getDefault().shutdown();
+		} finally {
+			super.stop(context);
+		}
+	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -16,6 +16,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.ProcessBuilder.Redirect;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -27,6 +28,8 @@ import javax.xml.parsers.FactoryConfigurationError;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
 
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
 import org.eclipse.core.resources.ISaveContext;
 import org.eclipse.core.resources.ISaveParticipant;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -45,6 +48,7 @@ import org.eclipse.core.runtime.Plugin;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.debug.core.model.IDebugElement;
 import org.eclipse.debug.core.model.IDisconnect;
 import org.eclipse.debug.core.model.IDropToFrame;
@@ -66,10 +70,12 @@ import org.eclipse.debug.internal.core.LaunchManager;
 import org.eclipse.debug.internal.core.LogicalStructureManager;
 import org.eclipse.debug.internal.core.MemoryBlockManager;
 import org.eclipse.debug.internal.core.Preferences;
+import org.eclipse.debug.internal.core.ProcessRedirects;
 import org.eclipse.debug.internal.core.StepFilterManager;
 import org.eclipse.debug.internal.core.commands.CommandAdapterFactory;
 import org.eclipse.debug.internal.core.groups.GroupMemberChangeListener;
 import org.eclipse.debug.internal.core.sourcelookup.SourceLookupUtils;
+import org.eclipse.debug.internal.core.variables.VariableCacheInvalidator;
 import org.eclipse.osgi.service.environment.Constants;
 import org.osgi.framework.BundleContext;
 import org.w3c.dom.Document;
@@ -289,6 +295,70 @@ public class DebugPlugin extends Plugin {
      */
 	public static final String ATTR_CONSOLE_ENCODING = "org.eclipse.debug.ui.ATTR_CONSOLE_ENCODING"; //$NON-NLS-1$
 
+	/**
+	 * Launch configuration attribute that designates whether the error output
+	 * of processes is merged into their standard output. Value is a boolean,
+	 * <code>false</code> when unspecified.
+	 *
+	 * @see #newProcessBuilder(ILaunch, String[], File, String[])
+	 * @since 3.11
+	 */
+	public static final String ATTR_MERGE_OUTPUT = PI_DEBUG_CORE + ".ATTR_MERGE_OUTPUT"; //$NON-NLS-1$
+
+	/**
+	 * Launch configuration boolean attribute specifying whether output from
+	 * the launched process will be captured and written to the console.
+	 * Default value is <code>true</code>.
+	 * <p>
+	 * Value of this constant is the same as the value of
+	 * <code>IDebugUIConstants.ATTR_CAPTURE_IN_CONSOLE</code>, which is set by
+	 * the common tab of launch configurations.
+	 * </p>
+	 *
+	 * @see #newProcessBuilder(ILaunch, String[], File, String[])
+	 * @since 3.11
+	 */
+	public static final String ATTR_CAPTURE_IN_CONSOLE = "org.eclipse.debug.ui.ATTR_CONSOLE_OUTPUT_ON"; //$NON-NLS-1$
+
+	/**
+	 * Launch configuration attribute specifying a file name that console
+	 * output should be written to or <code>null</code> if none. Default value
+	 * is <code>null</code>. The file name may contain variables.
+	 * <p>
+	 * Value of this constant is the same as the value of
+	 * <code>IDebugUIConstants.ATTR_CAPTURE_IN_FILE</code>.
+	 * </p>
+	 *
+	 * @since 3.11
+	 */
+	public static final String ATTR_CAPTURE_IN_FILE = "org.eclipse.debug.ui.ATTR_CAPTURE_IN_FILE"; //$NON-NLS-1$
+
+	/**
+	 * Launch configuration attribute specifying whether process output is
+	 * appended to the file specified by {@link #ATTR_CAPTURE_IN_FILE} instead
+	 * of overwriting it. Default value is <code>false</code>.
+	 * <p>
+	 * Value of this constant is the same as the value of
+	 * <code>IDebugUIConstants.ATTR_APPEND_TO_FILE</code>.
+	 * </p>
+	 *
+	 * @since 3.11
+	 */
+	public static final String ATTR_APPEND_TO_FILE = "org.eclipse.debug.ui.ATTR_APPEND_TO_FILE"; //$NON-NLS-1$
+
+	/**
+	 * Launch configuration attribute specifying a file name that the standard
+	 * input of the process is read from or <code>null</code> if none. Default
+	 * value is <code>null</code>. The file name may contain variables.
+	 * <p>
+	 * Value of this constant is the same as the value of
+	 * <code>IDebugUIConstants.ATTR_CAPTURE_STDIN_FILE</code>.
+	 * </p>
+	 *
+	 * @since 3.11
+	 */
+	public static final String ATTR_CAPTURE_STDIN_FILE = "org.eclipse.debug.ui.ATTR_CAPTURE_STDIN_FILE"; //$NON-NLS-1$
+
 	/**
 	 * Boolean preference key (value <code>org.eclipse.debug.core.PREF_DELETE_CONFIGS_ON_PROJECT_DELETE</code>) that controls
 	 * whether to delete associated configurations when a project is deleted. Default value is <code>false</code>.
@@ -405,6 +475,11 @@ public class DebugPlugin extends Plugin {
 	 */
 	private EventDispatchJob fEventDispatchJob = new EventDispatchJob();
 
+	/**
+	 * Discards cached values of dynamic variables when the workspace changes
+	 */
+	private IResourceChangeListener fVariableCacheInvalidator = null;
+
 	/**
 	 * Event dispatch job. Processes event queue of debug events and runnables.
 	 *
@@ -671,6 +746,9 @@ public class DebugPlugin extends Plugin {
             fEventFilters.clear();
 
 			SourceLookupUtils.shutdown();
+			if (fVariableCacheInvalidator != null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fVariableCacheInvalidator);
+			}
 			Preferences.savePreferences(DebugPlugin.getUniqueIdentifier());
 			ResourcesPlugin.getWorkspace().removeSaveParticipant(getUniqueIdentifier());
 		} finally {
@@ -717,6 +795,9 @@ public class DebugPlugin extends Plugin {
 
 		// monitor launch configuration renames for launch groups
 		getLaunchManager().addLaunchConfigurationListener(new GroupMemberChangeListener());
+
+		fVariableCacheInvalidator = new VariableCacheInvalidator();
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(fVariableCacheInvalidator, IResourceChangeEvent.POST_CHANGE);
 	}
 
 	/**
@@ -840,15 +921,11 @@ public class DebugPlugin extends Plugin {
 	/**
 	 * Convenience method that performs a runtime exec on the given command line
 	 * in the context of the specified working directory, and returns the
-	 * resulting process. If the current runtime does not support the
-	 * specification of a working directory, the status handler for error code
-	 * <code>ERR_WORKING_DIRECTORY_NOT_SUPPORTED</code> is queried to see if the
-	 * exec should be re-executed without specifying a working directory.
+	 * resulting process.
 	 *
 	 * @param cmdLine the command line
 	 * @param workingDirectory the working directory, or <code>null</code>
-	 * @return the resulting process or <code>null</code> if the exec is
-	 *  canceled
+	 * @return the resulting process
 	 * @exception CoreException if the exec fails
 	 * @see Runtime
 	 *
@@ -861,45 +938,167 @@ public class DebugPlugin extends Plugin {
 	/**
 	 * Convenience method that performs a runtime exec on the given command line
 	 * in the context of the specified working directory, and returns the
-	 * resulting process. If the current runtime does not support the
-	 * specification of a working directory, the status handler for error code
-	 * <code>ERR_WORKING_DIRECTORY_NOT_SUPPORTED</code> is queried to see if the
-	 * exec should be re-executed without specifying a working directory.
+	 * resulting process.
 	 *
 	 * @param cmdLine the command line
 	 * @param workingDirectory the working directory, or <code>null</code>
 	 * @param envp the environment variables set in the process, or <code>null</code>
-	 * @return the resulting process or <code>null</code> if the exec is
-	 *  canceled
+	 * @return the resulting process
 	 * @exception CoreException if the exec fails
 	 * @see Runtime
 	 *
 	 * @since 3.0
 	 */
 	public static Process exec(String[] cmdLine, File workingDirectory, String[] envp) throws CoreException {
-		Process p= null;
+		return exec(cmdLine, workingDirectory, envp, false);
+	}
+
+	/**
+	 * Convenience method that performs a runtime exec on the given command line
+	 * in the context of the specified working directory, and returns the
+	 * resulting process. When <code>mergeOutput</code> is <code>true</code>,
+	 * the error output of the process is merged into its standard output and
+	 * no thread is spent on reading the error stream.
+	 *
+	 * @param cmdLine the command line
+	 * @param workingDirectory the working directory, or <code>null</code>
+	 * @param envp the environment variables set in the process, or <code>null</code>
+	 * @param mergeOutput whether to merge the error output into the standard output
+	 * @return the resulting process
+	 * @exception CoreException if the exec fails
+	 * @see ProcessBuilder#redirectErrorStream(boolean)
+	 *
+	 * @since 3.11
+	 */
+	public static Process exec(String[] cmdLine, File workingDirectory, String[] envp, boolean mergeOutput) throws CoreException {
+		ProcessBuilder builder = createProcessBuilder(cmdLine, workingDirectory, envp);
+		builder.redirectErrorStream(mergeOutput);
+		return exec(builder);
+	}
+
+	/**
+	 * Starts a process with the given process builder and returns it. Streams
+	 * of the process that the builder redirects, or error output merged into
+	 * the standard output, are not monitored by the streams proxy of the
+	 * {@link IProcess} created for the process, so no threads are spent on
+	 * them.
+	 *
+	 * @param builder the configured process builder
+	 * @return the resulting process
+	 * @exception CoreException if the exec fails
+	 * @see #newProcessBuilder(ILaunch, String[], File, String[])
+	 *
+	 * @since 3.11
+	 */
+	public static Process exec(ProcessBuilder builder) throws CoreException {
 		try {
-			if (workingDirectory == null) {
-				p= Runtime.getRuntime().exec(cmdLine, envp);
-			} else {
-				p= Runtime.getRuntime().exec(cmdLine, envp, workingDirectory);
-			}
+			Process p = builder.start();
+			ProcessRedirects.record(p, builder);
+			return p;
 		} catch (IOException e) {
-		    Status status = new Status(IStatus.ERROR, getUniqueIdentifier(), ERROR, DebugCoreMessages.DebugPlugin_0, e);
-		    throw new CoreException(status);
-		} catch (NoSuchMethodError e) {
-			//attempting launches on 1.2.* - no ability to set working directory
-			IStatus status = new Status(IStatus.ERROR, getUniqueIdentifier(), ERR_WORKING_DIRECTORY_NOT_SUPPORTED, DebugCoreMessages.DebugPlugin_Eclipse_runtime_does_not_support_working_directory_2, e);
-			IStatusHandler handler = DebugPlugin.getDefault().getStatusHandler(status);
-
-			if (handler != null) {
-				Object result = handler.handleStatus(status, null);
-				if (result instanceof Boolean && ((Boolean)result).booleanValue()) {
-					p= exec(cmdLine, null);
+			Status status = new Status(IStatus.ERROR, getUniqueIdentifier(), ERROR, DebugCoreMessages.DebugPlugin_0, e);
+			throw new CoreException(status);
+		}
+	}
+
+	/**
+	 * Returns a process builder for the given command line that directs the
+	 * output of the process as specified by the given launch and its launch
+	 * configuration:
+	 * <ul>
+	 * <li>the error output is merged into the standard output when
+	 * {@link #ATTR_MERGE_OUTPUT} is set,</li>
+	 * <li>the output is discarded when the launch does not capture output, see
+	 * {@link #ATTR_CAPTURE_OUTPUT},</li>
+	 * <li>the output is written by the process directly to the output file of
+	 * the launch configuration when it is not shown in a console as well, see
+	 * {@link #ATTR_CAPTURE_IN_CONSOLE} and {@link #ATTR_CAPTURE_IN_FILE}. The
+	 * streams proxy of the process then does not read the output, and the
+	 * console does not open the file.</li>
+	 * </ul>
+	 * Use {@link #exec(ProcessBuilder)} to start the process.
+	 *
+	 * @param launch the launch the process is created for
+	 * @param cmdLine the command line
+	 * @param workingDirectory the working directory, or <code>null</code>
+	 * @param envp the environment variables set in the process, or <code>null</code>
+	 * @return a process builder for the command line
+	 * @exception CoreException if the launch configuration cannot be read
+	 *
+	 * @since 3.11
+	 */
+	public static ProcessBuilder newProcessBuilder(ILaunch launch, String[] cmdLine, File workingDirectory, String[] envp) throws CoreException {
+		ProcessBuilder builder = createProcessBuilder(cmdLine, workingDirectory, envp);
+		ILaunchConfiguration configuration = launch.getLaunchConfiguration();
+		if (configuration != null) {
+			builder.redirectErrorStream(configuration.getAttribute(ATTR_MERGE_OUTPUT, false));
+		}
+		if ("false".equals(launch.getAttribute(ATTR_CAPTURE_OUTPUT))) { //$NON-NLS-1$
+			Redirect discard = Redirect.to(getNullDevice());
+			builder.redirectOutput(discard);
+			if (!builder.redirectErrorStream()) {
+				builder.redirectError(discard);
+			}
+		} else if (configuration != null && !configuration.getAttribute(ATTR_CAPTURE_IN_CONSOLE, true)) {
+			File file = getRedirectFile(configuration.getAttribute(ATTR_CAPTURE_IN_FILE, (String) null));
+			if (file != null) {
+				// both streams go to the file, as the console would write them
+				builder.redirectErrorStream(true);
+				builder.redirectOutput(configuration.getAttribute(ATTR_APPEND_TO_FILE, false) ? Redirect.appendTo(file) : Redirect.to(file));
+				File input = getRedirectFile(configuration.getAttribute(ATTR_CAPTURE_STDIN_FILE, (String) null));
+				if (input != null && input.isFile()) {
+					builder.redirectInput(Redirect.from(input));
 				}
 			}
 		}
-		return p;
+		return builder;
+	}
+
+	/**
+	 * Returns a process builder for the given command line. Like
+	 * {@link Runtime#exec(String[], String[], File)}, the given environment
+	 * replaces the environment of this process.
+	 */
+	private static ProcessBuilder createProcessBuilder(String[] cmdLine, File workingDirectory, String[] envp) {
+		ProcessBuilder builder = new ProcessBuilder(cmdLine);
+		builder.directory(workingDirectory);
+		if (envp != null) {
+			Map<String, String> environment = builder.environment();
+			environment.clear();
+			for (String variable : envp) {
+				// names of variables may start with '=' on Windows
+				int separator = variable.indexOf('=', 1);
+				if (separator != -1) {
+					environment.put(variable.substring(0, separator), variable.substring(separator + 1));
+				}
+			}
+		}
+		return builder;
+	}
+
+	/**
+	 * Returns the file with the given path after variable substitution, or
+	 * <code>null</code> if there is none or the path cannot be resolved, in
+	 * which case the output is left to the console.
+	 */
+	private static File getRedirectFile(String path) {
+		if (path == null) {
+			return null;
+		}
+		try {
+			File file = new File(VariablesPlugin.getDefault().getStringVariableManager().performStringSubstitution(path)).getAbsoluteFile();
+			File parent = file.getParentFile();
+			return parent != null && parent.isDirectory() ? file : null;
+		} catch (CoreException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the file that discards everything written to it.
+	 */
+	private static File getNullDevice() {
+		return new File(Constants.OS_WIN32.equals(Platform.getOS()) ? "NUL" : "/dev/null"); //$NON-NLS-1$ //$NON-NLS-2$
 	}
 
 	/**
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.core;
+
+import org.eclipse.debug.core.model.IBinaryStreamMonitor;
+
+/**
+ * A binary stream listener is notified of the bytes read by a stream monitor,
+ * before they are decoded.
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @see IBinaryStreamMonitor
+ * @since 3.11
+ */
+public interface IBinaryStreamListener {
+
+	/**
+	 * Notifies this listener that bytes have been read by the given stream
+	 * monitor. The listener is notified before the decoded text is appended.
+	 *
+	 * @param data buffer holding the bytes, it must not be kept after the call
+	 * @param offset start of the bytes in the buffer
+	 * @param length number of bytes
+	 * @param monitor the stream monitor that read the bytes
+	 */
+	public void streamAppended(byte[] data, int offset, int length, IBinaryStreamMonitor monitor);
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009, 2013 IBM Corporation and others.
+ * Copyright (c) 2009, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -17,6 +17,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
@@ -29,6 +31,7 @@ import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.variables.IStringVariableManager;
 import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.debug.internal.core.DebugCoreMessages;
+import org.eclipse.debug.internal.core.DebugOptions;
 import org.eclipse.debug.internal.core.IMementoConstants;
 import org.eclipse.debug.internal.core.ResourceFactory;
 import org.eclipse.debug.internal.core.XMLMemento;
@@ -62,6 +65,40 @@ public class RefreshUtil {
 	 */
 	public static final String ATTR_REFRESH_RECURSIVE = DebugPlugin.getUniqueIdentifier() + ".ATTR_REFRESH_RECURSIVE"; //$NON-NLS-1$
 
+	/**
+	 * Boolean attribute indicating if only resources that changed while an
+	 * external tool was run are refreshed, rather than the whole refresh scope.
+	 * Default value is <code>false</code>. Changes are detected by comparing
+	 * the modification times of the files in the scope with a snapshot taken
+	 * before the tool is run.
+	 *
+	 * @see #takeSnapshot(ILaunchConfiguration, IProgressMonitor)
+	 * @since 3.11
+	 */
+	public static final String ATTR_REFRESH_INCREMENTAL = DebugPlugin.getUniqueIdentifier() + ".ATTR_REFRESH_INCREMENTAL"; //$NON-NLS-1$
+
+	/**
+	 * Launch attribute recording the number of resources that were refreshed
+	 * after the launch, counting the members of refreshed folders up to the
+	 * depth they were refreshed to. Value is {@link Integer#toString(int)}.
+	 * Counting the resources of a refresh of the whole refresh scope takes
+	 * another walk of the scope, so the attribute is only recorded for it
+	 * when refresh tracing is enabled.
+	 *
+	 * @see #refreshResources(ILaunch, ResourceSnapshot, IProgressMonitor)
+	 * @since 3.11
+	 */
+	public static final String ATTR_REFRESHED_RESOURCES = DebugPlugin.getUniqueIdentifier() + ".refreshedResources"; //$NON-NLS-1$
+
+	/**
+	 * Launch attribute recording how long the refresh after the launch took,
+	 * in milliseconds. Value is {@link Long#toString(long)}.
+	 *
+	 * @see #refreshResources(ILaunch, ResourceSnapshot, IProgressMonitor)
+	 * @since 3.11
+	 */
+	public static final String ATTR_REFRESH_TIME = DebugPlugin.getUniqueIdentifier() + ".refreshTime"; //$NON-NLS-1$
+
 	/**
 	 * Resource memento referring to the selected resource's project.
 	 * Only works when the debug user interface is running.
@@ -280,16 +317,118 @@ public class RefreshUtil {
 	 *             configuration attributes
 	 */
 	public static void refreshResources(ILaunchConfiguration configuration, IProgressMonitor monitor) throws CoreException {
+		refreshScope(configuration, false, monitor);
+	}
+
+	/**
+	 * Returns a snapshot of the resources specified by the given launch
+	 * configuration, to be taken before an external tool is run, or
+	 * <code>null</code> if the configuration has no refresh scope, does not
+	 * refresh incrementally or its scope is too large for a snapshot.
+	 *
+	 * @param configuration launch configuration
+	 * @param monitor progress monitor which may be <code>null</code>
+	 * @return a snapshot of the refresh scope or <code>null</code>
+	 * @throws CoreException if unable to access the launch configuration
+	 *             attributes or to resolve the refresh scope
+	 * @see #ATTR_REFRESH_INCREMENTAL
+	 * @since 3.11
+	 */
+	public static ResourceSnapshot takeSnapshot(ILaunchConfiguration configuration, IProgressMonitor monitor) throws CoreException {
+		String scope = configuration.getAttribute(ATTR_REFRESH_SCOPE, (String) null);
+		if (scope == null || !configuration.getAttribute(ATTR_REFRESH_INCREMENTAL, false)) {
+			return null;
+		}
+		return ResourceSnapshot.take(toResources(scope), getRefreshDepth(configuration), monitor);
+	}
+
+	/**
+	 * Refreshes the resources as specified by the configuration of the given
+	 * launch after it has run. When a snapshot is given, only the resources
+	 * that changed since it was taken are refreshed. The number of refreshed
+	 * resources and the time it took are recorded in the
+	 * {@link #ATTR_REFRESHED_RESOURCES} and {@link #ATTR_REFRESH_TIME}
+	 * attributes of the launch; without a snapshot the number is only
+	 * recorded when refresh tracing is enabled.
+	 *
+	 * @param launch launch whose resources to refresh
+	 * @param snapshot snapshot taken before the launch, or <code>null</code>
+	 *            to refresh the whole refresh scope
+	 * @param monitor progress monitor which may be <code>null</code>
+	 * @throws CoreException if an exception occurs while refreshing resources
+	 *             or accessing launch configuration attributes
+	 * @see #takeSnapshot(ILaunchConfiguration, IProgressMonitor)
+	 * @since 3.11
+	 */
+	public static void refreshResources(ILaunch launch, ResourceSnapshot snapshot, IProgressMonitor monitor) throws CoreException {
+		long start = System.currentTimeMillis();
+		int refreshed;
+		if (snapshot != null) {
+			refreshed = snapshot.refreshChanged(monitor);
+		} else {
+			ILaunchConfiguration configuration = launch.getLaunchConfiguration();
+			if (configuration == null) {
+				return;
+			}
+			refreshed = refreshScope(configuration, DebugOptions.DEBUG_REFRESH, monitor);
+		}
+		long time = System.currentTimeMillis() - start;
+		if (refreshed >= 0) {
+			launch.setAttribute(ATTR_REFRESHED_RESOURCES, Integer.toString(refreshed));
+		}
+		launch.setAttribute(ATTR_REFRESH_TIME, Long.toString(time));
+		if (DebugOptions.DEBUG_REFRESH) {
+			DebugOptions.trace(DebugOptions.DEBUG_FLAG_REFRESH, "Refreshed " + refreshed + (snapshot != null ? " changed" : " scope") + " resources in " + time + "ms", null); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		}
+	}
+
+	/**
+	 * Refreshes the whole refresh scope of the given launch configuration and
+	 * returns the number of resources that were refreshed if they are to be
+	 * counted, otherwise -1.
+	 */
+	private static int refreshScope(ILaunchConfiguration configuration, boolean count, IProgressMonitor monitor) throws CoreException {
 		String scope = configuration.getAttribute(ATTR_REFRESH_SCOPE, (String) null);
 		if (scope != null) {
 			IResource[] resources = toResources(scope);
 			if (resources != null && resources.length > 0) {
-				int depth = IResource.DEPTH_ONE;
-				if (isRefreshRecursive(configuration)) {
-					depth = IResource.DEPTH_INFINITE;
-				}
+				int depth = getRefreshDepth(configuration);
 				refreshResources(resources, depth, monitor);
+				if (!count) {
+					return -1;
+				}
+				int refreshed = 0;
+				for (IResource resource : resources) {
+					refreshed += countResources(resource, depth);
+				}
+				return refreshed;
 			}
 		}
+		return 0;
+	}
+
+	/**
+	 * Returns the number of resources covered by a refresh of the given
+	 * resource to the given depth. The count is taken from the workspace
+	 * tree after the refresh, without accessing the file system.
+	 */
+	static int countResources(IResource resource, int depth) throws CoreException {
+		if (!resource.isAccessible()) {
+			// removed by the refresh, or a closed project
+			return 1;
+		}
+		final int[] count = { 0 };
+		resource.accept(new IResourceProxyVisitor() {
+			@Override
+			public boolean visit(IResourceProxy proxy) {
+				count[0]++;
+				return true;
+			}
+		}, depth, IResource.NONE);
+		return count[0];
+	}
+
+	private static int getRefreshDepth(ILaunchConfiguration configuration) throws CoreException {
+		return isRefreshRecursive(configuration) ? IResource.DEPTH_INFINITE : IResource.DEPTH_ONE;
 	}
 }
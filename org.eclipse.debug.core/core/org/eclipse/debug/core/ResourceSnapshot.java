@@ -0,0 +1,472 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.core;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceProxy;
+import org.eclipse.core.resources.IResourceProxyVisitor;
+import org.eclipse.core.resources.IWorkspaceRoot;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.debug.internal.core.DebugCoreMessages;
+
+/**
+ * The modification times of the files and folders in a refresh scope, taken
+ * before an external tool is run. After the tool has run, only the resources
+ * that changed on disk since the snapshot need to be refreshed instead of the
+ * whole scope.
+ * <p>
+ * Resources without a location in the local file system are refreshed
+ * completely. No snapshot is taken of scopes with more files and folders than
+ * the snapshot can keep in a small part of the heap.
+ * </p>
+ *
+ * @see RefreshUtil#takeSnapshot(ILaunchConfiguration, IProgressMonitor)
+ * @since 3.11
+ * @noextend This class is not intended to be subclassed by clients.
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ */
+public final class ResourceSnapshot {
+
+	/**
+	 * Maximum number of files and folders in the scope of a snapshot. A stamp
+	 * takes about 100 bytes, so the stamps use at most about a twentieth of
+	 * the heap.
+	 */
+	private static final int MAX_STAMPS = (int) Math.min(1000000, Runtime.getRuntime().maxMemory() / 2048);
+
+	/**
+	 * Depth of the refresh scope
+	 */
+	private final int fDepth;
+
+	/**
+	 * Locations that are walked, mapped to the resources they belong to and
+	 * the depth they are walked to
+	 */
+	private final Map<Path, IResource> fRoots = new LinkedHashMap<>();
+	private final Map<Path, Integer> fRootDepths = new HashMap<>();
+
+	/**
+	 * Resources that have no location, refreshed completely
+	 */
+	private final List<IResource> fUnmapped = new ArrayList<>();
+
+	/**
+	 * Time stamps of the files and folders in the scope, by the location of
+	 * the folder they are in
+	 */
+	private final Map<Path, FolderStamps> fFolders = new HashMap<>();
+
+	/**
+	 * Modification times and sizes of the members of a folder, sorted by
+	 * name. The sizes catch changes within the resolution of the modification
+	 * times. Members are kept by name in arrays rather than by location, so
+	 * that large scopes fit into the heap.
+	 */
+	private static final class FolderStamps {
+
+		String[] fNames = new String[4];
+		long[] fModified = new long[4];
+		long[] fSizes = new long[4];
+		int fCount;
+
+		/**
+		 * Whether the members have been seen by the walk after the launch
+		 */
+		boolean[] fSeen;
+
+		void add(String name, BasicFileAttributes attrs) {
+			if (fCount == fNames.length) {
+				fNames = Arrays.copyOf(fNames, fCount * 2);
+				fModified = Arrays.copyOf(fModified, fCount * 2);
+				fSizes = Arrays.copyOf(fSizes, fCount * 2);
+			}
+			fNames[fCount] = name;
+			fModified[fCount] = attrs.lastModifiedTime().toMillis();
+			fSizes[fCount] = attrs.size();
+			fCount++;
+		}
+
+		/**
+		 * Sorts the members by name and drops the ones recorded twice, once
+		 * all members have been added.
+		 */
+		void sort() {
+			Integer[] order = new Integer[fCount];
+			for (int i = 0; i < fCount; i++) {
+				order[i] = Integer.valueOf(i);
+			}
+			Arrays.sort(order, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer i1, Integer i2) {
+					return fNames[i1.intValue()].compareTo(fNames[i2.intValue()]);
+				}
+			});
+			String[] names = new String[fCount];
+			long[] modified = new long[fCount];
+			long[] sizes = new long[fCount];
+			int count = 0;
+			for (Integer index : order) {
+				int i = index.intValue();
+				if (count > 0 && names[count - 1].equals(fNames[i])) {
+					// seen from an enclosing location as well
+					continue;
+				}
+				names[count] = fNames[i];
+				modified[count] = fModified[i];
+				sizes[count] = fSizes[i];
+				count++;
+			}
+			fNames = names;
+			fModified = modified;
+			fSizes = sizes;
+			fCount = count;
+		}
+
+		int indexOf(String name) {
+			return Arrays.binarySearch(fNames, 0, fCount, name);
+		}
+
+		boolean matches(int index, BasicFileAttributes attrs) {
+			return fModified[index] == attrs.lastModifiedTime().toMillis() && fSizes[index] == attrs.size();
+		}
+	}
+
+	/**
+	 * Receives the files and folders of a walk
+	 */
+	private interface Recorder {
+
+		/**
+		 * Records a file or folder and returns whether to continue the walk
+		 */
+		boolean record(Path path, BasicFileAttributes attrs);
+	}
+
+	private ResourceSnapshot(int depth) {
+		fDepth = depth;
+	}
+
+	/**
+	 * Takes a snapshot of the given resources and their members up to the
+	 * given depth.
+	 *
+	 * @param resources resources to take a snapshot of
+	 * @param depth one of {@link IResource#DEPTH_INFINITE},
+	 *            {@link IResource#DEPTH_ONE}, or {@link IResource#DEPTH_ZERO}
+	 * @param monitor progress monitor which may be <code>null</code>
+	 * @return the snapshot of the resources, or <code>null</code> if they
+	 *         have too many files and folders or taking the snapshot was
+	 *         cancelled, in which case all resources have to be refreshed
+	 * @throws CoreException if the members of a resource cannot be visited
+	 */
+	public static ResourceSnapshot take(IResource[] resources, int depth, IProgressMonitor monitor) throws CoreException {
+		ResourceSnapshot snapshot = new ResourceSnapshot(depth);
+		if (resources == null) {
+			return snapshot;
+		}
+		SubMonitor lmonitor = SubMonitor.convert(monitor, resources.length * 2);
+		for (IResource resource : resources) {
+			if (resource != null && resource.isAccessible()) {
+				snapshot.addRoot(resource, depth);
+			}
+			lmonitor.worked(1);
+		}
+		final Map<Path, FolderStamps> folders = snapshot.fFolders;
+		final int[] count = { 0 };
+		for (Entry<Path, Integer> root : snapshot.fRootDepths.entrySet()) {
+			boolean complete = walk(root.getKey(), root.getValue().intValue(), new Recorder() {
+				@Override
+				public boolean record(Path path, BasicFileAttributes attrs) {
+					Path parent = path.getParent();
+					FolderStamps stamps = folders.get(parent);
+					if (stamps == null) {
+						stamps = new FolderStamps();
+						folders.put(parent, stamps);
+					}
+					stamps.add(getName(path), attrs);
+					return ++count[0] <= MAX_STAMPS;
+				}
+			});
+			if (!complete || lmonitor.isCanceled()) {
+				return null;
+			}
+			lmonitor.worked(1);
+		}
+		for (FolderStamps stamps : folders.values()) {
+			stamps.sort();
+		}
+		lmonitor.done();
+		return snapshot;
+	}
+
+	/**
+	 * Adds the location of the given resource to the walked locations, as
+	 * well as the locations of linked resources below it.
+	 */
+	private void addRoot(IResource resource, int depth) throws CoreException {
+		if (resource.getType() == IResource.ROOT && depth != IResource.DEPTH_ZERO) {
+			// projects may be located outside of the workspace
+			for (IProject project : ((IWorkspaceRoot) resource).getProjects()) {
+				if (project.isAccessible()) {
+					addRoot(project, depth == IResource.DEPTH_INFINITE ? depth : IResource.DEPTH_ZERO);
+				}
+			}
+			return;
+		}
+		IPath location = resource.getLocation();
+		if (location == null) {
+			fUnmapped.add(resource);
+			return;
+		}
+		Path path = Paths.get(location.toOSString());
+		fRoots.put(path, resource);
+		fRootDepths.put(path, Integer.valueOf(depth));
+		if (depth == IResource.DEPTH_INFINITE && resource instanceof IContainer) {
+			resource.accept(new IResourceProxyVisitor() {
+				@Override
+				public boolean visit(IResourceProxy proxy) throws CoreException {
+					if (proxy.isLinked()) {
+						IResource linked = proxy.requestResource();
+						IPath linkedLocation = linked.getLocation();
+						if (linkedLocation != null) {
+							Path linkedPath = Paths.get(linkedLocation.toOSString());
+							fRoots.put(linkedPath, linked);
+							fRootDepths.put(linkedPath, Integer.valueOf(IResource.DEPTH_INFINITE));
+						}
+					}
+					return true;
+				}
+			}, IResource.NONE);
+		}
+	}
+
+	/**
+	 * Passes the files and folders below the given location up to the given
+	 * depth to the recorder. Returns <code>false</code> if the recorder
+	 * stopped the walk.
+	 */
+	private static boolean walk(Path root, int depth, final Recorder recorder) {
+		int maxDepth = depth == IResource.DEPTH_INFINITE ? Integer.MAX_VALUE : depth;
+		final boolean[] complete = { true };
+		try {
+			Files.walkFileTree(root, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					return record(dir, attrs);
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					// folders at the maximum depth are visited as files
+					return record(file, attrs);
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+
+				private FileVisitResult record(Path path, BasicFileAttributes attrs) {
+					if (recorder.record(path, attrs)) {
+						return FileVisitResult.CONTINUE;
+					}
+					complete[0] = false;
+					return FileVisitResult.TERMINATE;
+				}
+			});
+		} catch (IOException e) {
+			// not accessible, the location is refreshed if it has been
+			// recorded before
+		}
+		return complete[0];
+	}
+
+	/**
+	 * Refreshes the resources that changed on disk since this snapshot was
+	 * taken.
+	 *
+	 * @param monitor progress monitor which may be <code>null</code>
+	 * @return the number of resources that were refreshed, counting the
+	 *         members of refreshed folders up to the depth they were
+	 *         refreshed to
+	 * @throws CoreException if an exception occurs while refreshing resources
+	 */
+	public int refreshChanged(IProgressMonitor monitor) throws CoreException {
+		SubMonitor lmonitor = SubMonitor.convert(monitor, DebugCoreMessages.RefreshingResources, 100);
+		// the changes are found while walking, what is not seen was removed
+		for (FolderStamps stamps : fFolders.values()) {
+			stamps.fSeen = new boolean[stamps.fCount];
+		}
+		final Map<Path, Integer> changes = new HashMap<>();
+		for (Entry<Path, Integer> root : fRootDepths.entrySet()) {
+			walk(root.getKey(), root.getValue().intValue(), new Recorder() {
+				@Override
+				public boolean record(Path path, BasicFileAttributes attrs) {
+					FolderStamps stamps = fFolders.get(path.getParent());
+					int index = stamps == null ? -1 : stamps.indexOf(getName(path));
+					boolean folder = attrs.isDirectory();
+					if (index < 0) {
+						// added, the parent learns about it, new folders need
+						// their members as well
+						changed(changes, path, IResource.DEPTH_ZERO);
+						if (folder && fDepth == IResource.DEPTH_INFINITE) {
+							changed(changes, path, IResource.DEPTH_INFINITE);
+						}
+					} else if (!stamps.fSeen[index]) {
+						stamps.fSeen[index] = true;
+						if (!stamps.matches(index, attrs)) {
+							// members of a folder changed, they are only
+							// refreshed when the scope is recursive
+							changed(changes, path, folder && fDepth == IResource.DEPTH_INFINITE ? IResource.DEPTH_ONE : IResource.DEPTH_ZERO);
+						}
+					}
+					// otherwise already seen from an enclosing location
+					return true;
+				}
+			});
+		}
+		lmonitor.worked(30);
+		if (lmonitor.isCanceled()) {
+			return 0;
+		}
+		for (Entry<Path, FolderStamps> entry : fFolders.entrySet()) {
+			Path parent = entry.getKey();
+			FolderStamps stamps = entry.getValue();
+			for (int i = 0; i < stamps.fCount; i++) {
+				if (!stamps.fSeen[i] && parent != null) {
+					changed(changes, parent.resolve(stamps.fNames[i]), IResource.DEPTH_ZERO);
+				}
+			}
+			stamps.fSeen = null;
+		}
+		List<IResource> resources = new ArrayList<>();
+		List<Integer> depths = new ArrayList<>();
+		IWorkspaceRoot workspaceRoot = ResourcesPlugin.getWorkspace().getRoot();
+		for (Entry<Path, Integer> change : changes.entrySet()) {
+			Path path = change.getKey();
+			if (isCovered(changes, path)) {
+				continue;
+			}
+			IResource resource = fRoots.get(path);
+			if (resource == null) {
+				// only walked locations are refreshed to depth zero, changes
+				// below them refresh a folder
+				resource = workspaceRoot.getContainerForLocation(new org.eclipse.core.runtime.Path(path.toString()));
+			}
+			if (resource != null) {
+				resources.add(resource);
+				depths.add(change.getValue());
+			}
+		}
+		for (IResource resource : fUnmapped) {
+			resources.add(resource);
+			depths.add(Integer.valueOf(fDepth));
+		}
+		lmonitor.setWorkRemaining(resources.size());
+		MultiStatus status = new MultiStatus(DebugPlugin.getUniqueIdentifier(), 0, DebugCoreMessages.RefreshingResourcesError, null);
+		int refreshed = 0;
+		for (int i = 0; i < resources.size(); i++) {
+			if (lmonitor.isCanceled()) {
+				break;
+			}
+			try {
+				int depth = depths.get(i).intValue();
+				resources.get(i).refreshLocal(depth, lmonitor.newChild(1));
+				refreshed += RefreshUtil.countResources(resources.get(i), depth);
+			} catch (CoreException e) {
+				status.merge(e.getStatus());
+			}
+		}
+		lmonitor.done();
+		if (!status.isOK()) {
+			throw new CoreException(status);
+		}
+		return refreshed;
+	}
+
+	/**
+	 * Returns the name of the given location in its parent folder.
+	 */
+	private static String getName(Path path) {
+		Path name = path.getFileName();
+		return name == null ? "" : name.toString(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Records that the given location changed. Added, removed and modified
+	 * files are refreshed with their parent folder, unless they are walked
+	 * locations themselves.
+	 */
+	private void changed(Map<Path, Integer> changes, Path path, int depth) {
+		Path target = path;
+		int targetDepth = depth;
+		if (depth == IResource.DEPTH_ZERO && !fRoots.containsKey(path) && path.getParent() != null) {
+			target = path.getParent();
+			targetDepth = IResource.DEPTH_ONE;
+		}
+		Integer previous = changes.get(target);
+		if (previous == null || deeper(targetDepth, previous.intValue())) {
+			changes.put(target, Integer.valueOf(targetDepth));
+		}
+	}
+
+	/**
+	 * Returns whether a refresh of the given location is covered by the
+	 * infinite refresh of one of its parents.
+	 */
+	private boolean isCovered(Map<Path, Integer> changes, Path path) {
+		if (fRoots.containsKey(path)) {
+			return false;
+		}
+		Path parent = path.getParent();
+		while (parent != null) {
+			Integer parentDepth = changes.get(parent);
+			if (parentDepth != null && parentDepth.intValue() == IResource.DEPTH_INFINITE) {
+				return true;
+			}
+			if (fRoots.containsKey(parent)) {
+				return false;
+			}
+			parent = parent.getParent();
+		}
+		return false;
+	}
+
+	private static boolean deeper(int depth, int other) {
+		return depth == IResource.DEPTH_INFINITE || (depth == IResource.DEPTH_ONE && other == IResource.DEPTH_ZERO);
+	}
+}
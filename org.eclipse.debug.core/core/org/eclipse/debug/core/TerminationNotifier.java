@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.core;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.debug.core.model.IProcess;
+
+/**
+ * Notifies clients when processes and launches terminate, so that they can
+ * wait for or react to termination without polling. Notifications are fed by
+ * the {@link DebugEvent#TERMINATE} events of processes and debug targets, and
+ * by the termination notifications of the launch manager.
+ * <p>
+ * Waiting for a future returned by this class blocks the calling thread only,
+ * subscribing to it with one of the <code>then</code> methods of
+ * {@link CompletableFuture} does not block any thread. Cancelling a future
+ * stops its notification. Listeners are only registered with the debug
+ * plug-in while futures are pending.
+ * </p>
+ *
+ * @since 3.11
+ * @noextend This class is not intended to be subclassed by clients.
+ * @noinstantiate This class is not intended to be instantiated by clients.
+ */
+public final class TerminationNotifier {
+
+	/**
+	 * How often the progress monitors of blocking waits are checked for
+	 * cancellation, in milliseconds.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL = 100;
+
+	/**
+	 * Futures waiting for a process or launch to terminate, by process or
+	 * launch.
+	 */
+	private static final Map<Object, List<CompletableFuture<?>>> fgPending = new IdentityHashMap<>();
+
+	/**
+	 * Progress monitors of blocking waits, by the future they wait for.
+	 * Guarded by {@link #fgPending}.
+	 */
+	private static final Map<CompletableFuture<?>, IProgressMonitor> fgMonitors = new IdentityHashMap<>();
+
+	/**
+	 * Listens to termination of all processes, debug targets and launches
+	 * while futures are pending, or <code>null</code>. Guarded by
+	 * {@link #fgPending}.
+	 */
+	private static Listener fgListener;
+
+	/**
+	 * Cancels the futures of blocking waits whose progress monitor is
+	 * cancelled, or <code>null</code> if no wait has a progress monitor.
+	 * Guarded by {@link #fgPending}.
+	 */
+	private static CancelWatcher fgCancelWatcher;
+
+	private TerminationNotifier() {
+	}
+
+	/**
+	 * Returns a future that is completed with the given process once it has
+	 * terminated. The future is already completed if the process has
+	 * terminated.
+	 *
+	 * @param process the process to observe
+	 * @return a future completed once the process has terminated
+	 */
+	public static CompletableFuture<IProcess> whenTerminated(IProcess process) {
+		CompletableFuture<IProcess> future = new CompletableFuture<>();
+		register(process, future);
+		// the process may have terminated before the future was registered
+		if (process.isTerminated()) {
+			complete(process);
+		}
+		return future;
+	}
+
+	/**
+	 * Returns a future that is completed with the given launch once it has
+	 * terminated or has been removed from the launch manager. The future is
+	 * already completed if the launch has terminated.
+	 *
+	 * @param launch the launch to observe
+	 * @return a future completed once the launch has terminated
+	 */
+	public static CompletableFuture<ILaunch> whenTerminated(ILaunch launch) {
+		CompletableFuture<ILaunch> future = new CompletableFuture<>();
+		register(launch, future);
+		// the launch may have terminated before the future was registered
+		if (launch.isTerminated()) {
+			complete(launch);
+		}
+		return future;
+	}
+
+	/**
+	 * Blocks until the given process has terminated, or the given monitor is
+	 * cancelled.
+	 *
+	 * @param process the process to wait for
+	 * @param monitor progress monitor to check for cancellation, or
+	 *            <code>null</code>
+	 * @return whether the process has terminated, <code>false</code> if
+	 *         waiting was cancelled or interrupted
+	 */
+	public static boolean waitForTermination(IProcess process, IProgressMonitor monitor) {
+		return await(whenTerminated(process), monitor);
+	}
+
+	/**
+	 * Blocks until the given launch has terminated or has been removed from
+	 * the launch manager, or the given monitor is cancelled.
+	 *
+	 * @param launch the launch to wait for
+	 * @param monitor progress monitor to check for cancellation, or
+	 *            <code>null</code>
+	 * @return whether the launch has terminated, <code>false</code> if
+	 *         waiting was cancelled or interrupted
+	 */
+	public static boolean waitForTermination(ILaunch launch, IProgressMonitor monitor) {
+		return await(whenTerminated(launch), monitor);
+	}
+
+	/**
+	 * Blocks until the given future is done. The waiting thread is released by
+	 * the termination notification, or by the cancel watcher once the monitor
+	 * is cancelled.
+	 */
+	private static boolean await(CompletableFuture<?> future, IProgressMonitor monitor) {
+		final CountDownLatch done = new CountDownLatch(1);
+		future.whenComplete((result, e) -> done.countDown());
+		if (monitor != null) {
+			watch(future, monitor);
+		}
+		try {
+			done.await();
+			return !future.isCompletedExceptionally();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			future.cancel(false);
+		}
+	}
+
+	private static void register(final Object element, final CompletableFuture<?> future) {
+		synchronized (fgPending) {
+			if (fgListener == null) {
+				fgListener = new Listener();
+				DebugPlugin plugin = DebugPlugin.getDefault();
+				plugin.addDebugEventListener(fgListener);
+				plugin.getLaunchManager().addLaunchListener(fgListener);
+			}
+			List<CompletableFuture<?>> futures = fgPending.get(element);
+			if (futures == null) {
+				futures = new ArrayList<>(1);
+				fgPending.put(element, futures);
+			}
+			futures.add(future);
+		}
+		// forget futures that are cancelled
+		future.whenComplete((result, e) -> {
+			if (e != null) {
+				synchronized (fgPending) {
+					List<CompletableFuture<?>> futures = fgPending.get(element);
+					if (futures != null && futures.remove(future) && futures.isEmpty()) {
+						fgPending.remove(element);
+						removeListener();
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Removes the listener once no future is pending. Called with the lock
+	 * held.
+	 */
+	private static void removeListener() {
+		if (fgPending.isEmpty() && fgListener != null) {
+			DebugPlugin plugin = DebugPlugin.getDefault();
+			if (plugin != null) {
+				plugin.removeDebugEventListener(fgListener);
+				plugin.getLaunchManager().removeLaunchListener(fgListener);
+			}
+			fgListener = null;
+		}
+	}
+
+	/**
+	 * Cancels the given future once the monitor is cancelled.
+	 */
+	private static void watch(final CompletableFuture<?> future, IProgressMonitor monitor) {
+		synchronized (fgPending) {
+			if (future.isDone()) {
+				return;
+			}
+			fgMonitors.put(future, monitor);
+			if (fgCancelWatcher == null) {
+				fgCancelWatcher = new CancelWatcher();
+				fgCancelWatcher.schedule(CANCEL_CHECK_INTERVAL);
+			}
+		}
+		future.whenComplete((result, e) -> {
+			synchronized (fgPending) {
+				fgMonitors.remove(future);
+			}
+		});
+	}
+
+	/**
+	 * Completes the futures waiting for the given process or launch, outside
+	 * of the lock.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> void complete(T element) {
+		List<CompletableFuture<?>> futures;
+		synchronized (fgPending) {
+			futures = fgPending.remove(element);
+			removeListener();
+		}
+		if (futures != null) {
+			for (CompletableFuture<?> future : futures) {
+				((CompletableFuture<T>) future).complete(element);
+			}
+		}
+	}
+
+	private static boolean isPending(Object element) {
+		synchronized (fgPending) {
+			return fgPending.containsKey(element);
+		}
+	}
+
+	/**
+	 * Cancels the futures of blocking waits whose progress monitor has been
+	 * cancelled, as progress monitors do not notify cancellation. Runs while
+	 * there are such waits.
+	 */
+	static class CancelWatcher extends Job {
+
+		CancelWatcher() {
+			super("termination notifier cancel watcher"); //$NON-NLS-1$
+			setSystem(true);
+		}
+
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			List<CompletableFuture<?>> cancelled = new ArrayList<>();
+			synchronized (fgPending) {
+				for (Map.Entry<CompletableFuture<?>, IProgressMonitor> entry : fgMonitors.entrySet()) {
+					if (entry.getValue().isCanceled()) {
+						cancelled.add(entry.getKey());
+					}
+				}
+				if (fgMonitors.size() == cancelled.size()) {
+					fgCancelWatcher = null;
+				} else {
+					schedule(CANCEL_CHECK_INTERVAL);
+				}
+			}
+			for (CompletableFuture<?> future : cancelled) {
+				future.cancel(false);
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
+	/**
+	 * Completes futures from debug events and launch notifications.
+	 */
+	static class Listener implements IDebugEventSetListener, ILaunchesListener2 {
+
+		@Override
+		public void handleDebugEvents(DebugEvent[] events) {
+			for (DebugEvent event : events) {
+				if (event.getKind() != DebugEvent.TERMINATE) {
+					continue;
+				}
+				Object source = event.getSource();
+				ILaunch launch = null;
+				if (source instanceof IProcess) {
+					IProcess process = (IProcess) source;
+					if (isPending(process) && process.isTerminated()) {
+						complete(process);
+					}
+					launch = process.getLaunch();
+				} else if (source instanceof IDebugTarget) {
+					launch = ((IDebugTarget) source).getLaunch();
+				}
+				if (launch != null && isPending(launch) && launch.isTerminated()) {
+					complete(launch);
+				}
+			}
+		}
+
+		@Override
+		public void launchesTerminated(ILaunch[] launches) {
+			for (ILaunch launch : launches) {
+				complete(launch);
+			}
+		}
+
+		@Override
+		public void launchesRemoved(ILaunch[] launches) {
+			for (ILaunch launch : launches) {
+				complete(launch);
+			}
+		}
+
+		@Override
+		public void launchesAdded(ILaunch[] launches) {
+		}
+
+		@Override
+		public void launchesChanged(ILaunch[] launches) {
+		}
+	}
+}
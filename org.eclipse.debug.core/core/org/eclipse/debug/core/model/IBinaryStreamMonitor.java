@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.core.model;
+
+import org.eclipse.debug.core.IBinaryStreamListener;
+
+/**
+ * A stream monitor that also notifies listeners of the bytes it reads, as they
+ * were written by the process. Binary listeners are only notified of bytes
+ * read after they have been added; the bytes read before are only available
+ * as text from <code>getContents()</code>.
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @see IBinaryStreamListener
+ * @since 3.11
+ */
+public interface IBinaryStreamMonitor extends IStreamMonitor {
+
+	/**
+	 * Adds the given listener to this stream monitor's registered binary
+	 * listeners. Has no effect if an identical listener is already registered.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addBinaryListener(IBinaryStreamListener listener);
+
+	/**
+	 * Removes the given listener from this stream monitor's registered binary
+	 * listeners. Has no effect if the listener is not already registered.
+	 *
+	 * @param listener the listener to remove
+	 */
+	public void removeBinaryListener(IBinaryStreamListener listener);
+}
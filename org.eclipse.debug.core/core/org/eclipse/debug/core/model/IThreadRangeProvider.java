@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.core.model;
+
+import org.eclipse.debug.core.DebugException;
+
+/**
+ * Optional extension of a debug target with a large number of threads. The
+ * debug view retrieves the threads of such a target in ranges, rather than
+ * retrieving all threads with {@link IDebugTarget#getThreads()}, and lets the
+ * target filter the threads by state and name.
+ * <p>
+ * A debug target provides this capability by implementing this interface or
+ * by adapting to it.
+ * </p>
+ * <p>
+ * A name pattern may contain the wildcards <code>*</code> (any string) and
+ * <code>?</code> (any character) and is matched against the thread name
+ * ignoring case. A <code>null</code> pattern matches all threads.
+ * </p>
+ * <p>
+ * Clients may implement this interface.
+ * </p>
+ *
+ * @see IDebugTarget
+ * @since 3.11
+ */
+public interface IThreadRangeProvider {
+
+	/**
+	 * State mask bit for suspended threads.
+	 */
+	public static final int SUSPENDED = 0x0001;
+
+	/**
+	 * State mask bit for threads that are not suspended.
+	 */
+	public static final int RUNNING = 0x0002;
+
+	/**
+	 * State mask for all threads.
+	 */
+	public static final int ALL = SUSPENDED | RUNNING;
+
+	/**
+	 * Returns the number of threads in the given states whose names match the
+	 * given pattern.
+	 *
+	 * @param stateMask combination of {@link #SUSPENDED} and {@link #RUNNING}
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return number of matching threads
+	 * @exception DebugException if the threads cannot be retrieved
+	 */
+	public int getThreadCount(int stateMask, String namePattern) throws DebugException;
+
+	/**
+	 * Returns the matching threads from <code>offset</code> to
+	 * <code>offset + length</code>, in the order of
+	 * {@link IDebugTarget#getThreads()}. The returned array is shorter than
+	 * <code>length</code> when the range extends past the last matching thread.
+	 *
+	 * @param offset index of the first matching thread to return
+	 * @param length maximum number of threads to return
+	 * @param stateMask combination of {@link #SUSPENDED} and {@link #RUNNING}
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return matching threads in the given range
+	 * @exception DebugException if the threads cannot be retrieved
+	 */
+	public IThread[] getThreads(int offset, int length, int stateMask, String namePattern) throws DebugException;
+
+	/**
+	 * Returns the index of the given thread among the matching threads, or
+	 * <code>-1</code> if the thread does not match.
+	 *
+	 * @param thread thread to look up
+	 * @param stateMask combination of {@link #SUSPENDED} and {@link #RUNNING}
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return index of the thread or <code>-1</code>
+	 * @exception DebugException if the threads cannot be retrieved
+	 */
+	public int indexOf(IThread thread, int stateMask, String namePattern) throws DebugException;
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2004, 2013 IBM Corporation and others.
+ *  Copyright (c) 2004, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -78,6 +78,8 @@ public abstract class AbstractSourceLookupDirector implements ISourceLookupDirec
 	protected ILaunchConfiguration fConfig;
 	//whether duplicates should be searched for or not
 	protected boolean fDuplicates = false;
+	//whether source containers are searched concurrently
+	private volatile boolean fParallelLookup = false;
 	// source path computer, or null if default
 	protected ISourcePathComputer fComputer = null;
 	/**
@@ -317,6 +319,36 @@ public abstract class AbstractSourceLookupDirector implements ISourceLookupDirec
 		fDuplicates = duplicates;
 	}
 
+	/**
+	 * Returns whether the source containers of this director are searched
+	 * concurrently. Default is <code>false</code>.
+	 *
+	 * @return whether source containers are searched concurrently
+	 * @see #setParallelLookup(boolean)
+	 * @since 3.11
+	 */
+	public boolean isParallelLookup() {
+		return fParallelLookup;
+	}
+
+	/**
+	 * Sets whether the source containers of this director are searched
+	 * concurrently. Source containers are searched one after the other by
+	 * default. When searched concurrently, the result is the same: if
+	 * duplicates are not searched for, the source element of the first
+	 * container in order that has one is returned, and the searches of the
+	 * containers after it are cancelled. Concurrent lookup helps when the
+	 * source containers are slow to search, like directories on a network
+	 * file system. The setting is not persisted in the memento of this
+	 * director.
+	 *
+	 * @param parallel whether to search source containers concurrently
+	 * @since 3.11
+	 */
+	public void setParallelLookup(boolean parallel) {
+		fParallelLookup = parallel;
+	}
+
 	/**
 	 * Removes the given participant from the list of registered participants.
 	 * Has no effect if an identical participant is not already registered.
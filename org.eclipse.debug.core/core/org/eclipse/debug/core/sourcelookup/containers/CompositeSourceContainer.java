@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2013 IBM Corporation and others.
+ * Copyright (c) 2003, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.internal.core.sourcelookup.ParallelSourceLookup;
 import org.eclipse.debug.internal.core.sourcelookup.SourceLookupMessages;
 
 /**
@@ -30,7 +31,8 @@ import org.eclipse.debug.internal.core.sourcelookup.SourceLookupMessages;
  */
 public abstract class CompositeSourceContainer extends AbstractSourceContainer {
 
-	private ISourceContainer[] fContainers;
+	// created lazily, read without lock by concurrent lookups
+	private volatile ISourceContainer[] fContainers;
 
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.core.sourcelookup.ISourceContainer#isComposite()
@@ -55,7 +57,9 @@ public abstract class CompositeSourceContainer extends AbstractSourceContainer {
 	 * source elements should be searched for, via <code>isFindDuplicates()</code>.
 	 * When <code>false</code> the returned collection should contain at most one
 	 * source element. If this is a composite container, the containers contained
-	 * by this container are also searched.
+	 * by this container are also searched. When the source lookup director
+	 * searches source containers concurrently, the given containers are
+	 * searched concurrently, with the same result.
 	 * <p>
 	 * The format of the given name is implementation specific but generally conforms
 	 * to the format of a file name. If a source container does not recognize the
@@ -75,6 +79,9 @@ public abstract class CompositeSourceContainer extends AbstractSourceContainer {
 		if (isFindDuplicates()) {
 			results = new ArrayList<Object>();
 		}
+		if (containers.length > 1 && ParallelSourceLookup.isEnabled(getDirector())) {
+			return ParallelSourceLookup.findSourceElements(name, containers, results != null);
+		}
 		for (int i = 0; i < containers.length; i++) {
 			ISourceContainer container = containers[i];
 			try {
@@ -128,15 +135,23 @@ public abstract class CompositeSourceContainer extends AbstractSourceContainer {
 	 * @see org.eclipse.debug.core.sourcelookup.ISourceContainer#getSourceContainers()
 	 */
 	@Override
-	public synchronized ISourceContainer[] getSourceContainers() throws CoreException {
-		if (fContainers == null) {
-			fContainers = createSourceContainers();
-			for (int i = 0; i < fContainers.length; i++) {
-				ISourceContainer container = fContainers[i];
-				container.init(getDirector());
+	public ISourceContainer[] getSourceContainers() throws CoreException {
+		ISourceContainer[] containers = fContainers;
+		if (containers == null) {
+			synchronized (this) {
+				containers = fContainers;
+				if (containers == null) {
+					containers = createSourceContainers();
+					for (int i = 0; i < containers.length; i++) {
+						ISourceContainer container = containers[i];
+						container.init(getDirector());
+					}
+					// publish the containers once initialized
+					fContainers = containers;
+				}
 			}
 		}
-		return fContainers;
+		return containers;
 	}
 
 	/* (non-Javadoc)
@@ -145,12 +160,16 @@ public abstract class CompositeSourceContainer extends AbstractSourceContainer {
 	@Override
 	public void dispose() {
 		super.dispose();
-		if (fContainers != null) {
-			for (int i = 0; i < fContainers.length; i++) {
-				ISourceContainer container = fContainers[i];
+		ISourceContainer[] containers;
+		synchronized (this) {
+			containers = fContainers;
+			fContainers = null;
+		}
+		if (containers != null) {
+			for (int i = 0; i < containers.length; i++) {
+				ISourceContainer container = containers[i];
 				container.dispose();
 			}
 		}
-		fContainers = null;
 	}
 }
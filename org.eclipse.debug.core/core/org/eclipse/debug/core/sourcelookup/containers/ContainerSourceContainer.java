@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2013 IBM Corporation and others.
+ * Copyright (c) 2003, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -27,6 +27,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.internal.core.sourcelookup.WorkspaceSourceIndex;
 
 /**
  * A source container for a container in the workspace. Source elements are searched
@@ -37,6 +38,15 @@ import org.eclipse.debug.core.sourcelookup.ISourceContainer;
  * be searched for relative to this container, and optionally
  * nested containers.
  * </p>
+ * <p>
+ * When nested containers are searched and duplicates are not, names are
+ * resolved with an index of the files of the container and its folders. The
+ * index is built in the background and kept up to date from resource deltas;
+ * until it is available the nested containers are searched one by one. Files
+ * that are out of sync with the file system are found once refreshed. Names
+ * are matched ignoring case when the file system of the container is not case
+ * sensitive.
+ * </p>
  * @since 3.2
  * @noextend This class is not intended to be subclassed by clients.
  */
@@ -49,6 +59,11 @@ public abstract class ContainerSourceContainer extends CompositeSourceContainer
 	private IFileStore fRootFile = null;
 	private IWorkspaceRoot fRoot = null;
 
+	// whether this is a folder container nested in another container
+	private boolean fNested = false;
+	// name index of the container and its folders, or null
+	private WorkspaceSourceIndex fIndex = null;
+
 	/**
 	 * Constructs a source container on the given workspace container.
 	 *
@@ -85,6 +100,12 @@ public abstract class ContainerSourceContainer extends CompositeSourceContainer
 	 */
 	@Override
 	public Object[] findSourceElements(String name) throws CoreException {
+		if (fSubfolders && !fNested && !isFindDuplicates()) {
+			Object[] indexed = findIndexedSourceElements(name);
+			if (indexed != null) {
+				return indexed;
+			}
+		}
 		ArrayList<Object> sources = new ArrayList<Object>();
 
 		// An IllegalArgumentException is thrown from the "getFile" method
@@ -146,6 +167,64 @@ public abstract class ContainerSourceContainer extends CompositeSourceContainer
 		return sources.toArray();
 	}
 
+	/**
+	 * Looks up the given name in the index of this container and its folders.
+	 * Returns <code>null</code> when the index cannot be used, in which case
+	 * the nested containers are searched.
+	 *
+	 * @param name source name
+	 * @return the first source element in search order, an empty array, or
+	 *         <code>null</code>
+	 * @exception CoreException if an exception occurs while searching nested
+	 *                containers that are not indexed
+	 */
+	private Object[] findIndexedSourceElements(String name) throws CoreException {
+		WorkspaceSourceIndex index;
+		synchronized (this) {
+			if (fIndex == null) {
+				// bug 82627 - names are matched ignoring case in stores that are not case sensitive
+				boolean caseSensitive = fRootFile == null || fRootFile.getFileSystem().isCaseSensitive();
+				fIndex = new WorkspaceSourceIndex(fContainer, caseSensitive);
+			}
+			index = fIndex;
+		}
+		String[] paths = index.lookup(name);
+		if (paths == null) {
+			return null;
+		}
+		if (paths.length == 0) {
+			return findUnindexedSourceElements(name);
+		}
+		IFile file = fContainer.getFile(new Path(paths[0]));
+		if (file.exists()) {
+			return new Object[] { file };
+		}
+		index.invalidate();
+		return null;
+	}
+
+	/**
+	 * Searches the nested containers that are not covered by the index, like
+	 * the referenced projects of a project.
+	 *
+	 * @param name source name
+	 * @return the first source element found or an empty array
+	 * @exception CoreException if an exception occurs while searching
+	 */
+	private Object[] findUnindexedSourceElements(String name) throws CoreException {
+		ISourceContainer[] containers = getSourceContainers();
+		for (int i = 0; i < containers.length; i++) {
+			if (containers[i] instanceof ContainerSourceContainer && ((ContainerSourceContainer) containers[i]).fNested) {
+				continue;
+			}
+			Object[] objects = containers[i].findSourceElements(name);
+			if (objects != null && objects.length > 0) {
+				return new Object[] { objects[0] };
+			}
+		}
+		return EMPTY;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.internal.core.sourcelookup.ISourceContainer#getName()
 	 */
@@ -193,7 +272,9 @@ public abstract class ContainerSourceContainer extends CompositeSourceContainer
 			for (int i = 0; i < resources.length; i++) {
 				IResource resource = resources[i];
 				if (resource.getType() == IResource.FOLDER) {
-					list.add(new FolderSourceContainer((IFolder)resource, fSubfolders));
+					FolderSourceContainer container = new FolderSourceContainer((IFolder) resource, fSubfolders);
+					((ContainerSourceContainer) container).fNested = true;
+					list.add(container);
 				}
 			}
 			ISourceContainer[] containers = list.toArray(new ISourceContainer[list.size()]);
@@ -206,6 +287,20 @@ public abstract class ContainerSourceContainer extends CompositeSourceContainer
 		return new ISourceContainer[0];
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.core.sourcelookup.containers.CompositeSourceContainer#dispose()
+	 */
+	@Override
+	public void dispose() {
+		super.dispose();
+		synchronized (this) {
+			if (fIndex != null) {
+				fIndex.dispose();
+				fIndex = null;
+			}
+		}
+	}
+
 	/**
 	 * Validates the given string as a path for a file in this container.
 	 *
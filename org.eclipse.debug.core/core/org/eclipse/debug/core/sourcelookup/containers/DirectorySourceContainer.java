@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2013 IBM Corporation and others.
+ * Copyright (c) 2003, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,12 +19,19 @@ import org.eclipse.core.runtime.IPath;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.sourcelookup.ISourceContainer;
 import org.eclipse.debug.core.sourcelookup.ISourceContainerType;
+import org.eclipse.debug.internal.core.sourcelookup.DirectorySourceIndex;
 
 /**
  * A directory in the local file system. Source elements returned
  * from <code>findSourceElements(...)</code> are instances
  * of <code>LocalFileStorage</code>.
  * <p>
+ * When sub-folders are searched and duplicates are not, names are resolved
+ * with an index of the directory tree. The index is built in the background
+ * and validated against the modification times of the directories before
+ * lookups; until it is available the sub-folders are searched one by one.
+ * </p>
+ * <p>
  * Clients may instantiate this class.
  * </p>
  * @since 3.0
@@ -37,6 +44,10 @@ public class DirectorySourceContainer extends CompositeSourceContainer {
 	private File fDirectory;
 	// whether to search sub-folders
 	private boolean fSubfolders = false;
+	// whether this is a sub-folder container of another directory container
+	private boolean fNested = false;
+	// name index of the directory and its sub-folders, or null
+	private DirectorySourceIndex fIndex = null;
 	/**
 	 * Unique identifier for the directory source container type
 	 * (value <code>org.eclipse.debug.core.containerType.directory</code>).
@@ -100,6 +111,12 @@ public class DirectorySourceContainer extends CompositeSourceContainer {
 	 */
 	@Override
 	public Object[] findSourceElements(String name) throws CoreException {
+		if (fSubfolders && !fNested && !isFindDuplicates()) {
+			Object[] indexed = findIndexedSourceElements(name);
+			if (indexed != null) {
+				return indexed;
+			}
+		}
 		ArrayList<Object> sources = new ArrayList<Object>();
 		File directory = getDirectory();
 		File file = new File(directory, name);
@@ -132,6 +149,39 @@ public class DirectorySourceContainer extends CompositeSourceContainer {
 		return sources.toArray();
 	}
 
+	/**
+	 * Looks up the given name in the index of this directory and its
+	 * sub-folders. Returns <code>null</code> when the index cannot be used, in
+	 * which case the sub-folders are searched.
+	 *
+	 * @param name source name
+	 * @return the first source element in search order, an empty array, or
+	 *         <code>null</code>
+	 */
+	private Object[] findIndexedSourceElements(String name) {
+		DirectorySourceIndex index;
+		synchronized (this) {
+			if (fIndex == null) {
+				fIndex = new DirectorySourceIndex(fDirectory);
+			}
+			index = fIndex;
+		}
+		String[] paths = index.lookup(name);
+		if (paths == null) {
+			return null;
+		}
+		if (paths.length == 0) {
+			return EMPTY;
+		}
+		File file = new File(fDirectory, paths[0]);
+		if (file.isFile()) {
+			return new Object[] { new LocalFileStorage(file) };
+		}
+		// not notified yet
+		index.invalidate();
+		return null;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.core.sourcelookup.ISourceContainer#isComposite()
 	 */
@@ -172,7 +222,9 @@ public class DirectorySourceContainer extends CompositeSourceContainer {
 					String name = files[i];
 					File file = new File(getDirectory(), name);
 					if (file.exists() && file.isDirectory()) {
-						dirs.add(new DirectorySourceContainer(file, true));
+						DirectorySourceContainer container = new DirectorySourceContainer(file, true);
+						container.fNested = true;
+						dirs.add(container);
 					}
 				}
 				ISourceContainer[] containers = dirs.toArray(new ISourceContainer[dirs.size()]);
@@ -186,4 +238,18 @@ public class DirectorySourceContainer extends CompositeSourceContainer {
 		return new ISourceContainer[0];
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.core.sourcelookup.containers.CompositeSourceContainer#dispose()
+	 */
+	@Override
+	public void dispose() {
+		super.dispose();
+		synchronized (this) {
+			if (fIndex != null) {
+				fIndex.dispose();
+				fIndex = null;
+			}
+		}
+	}
+
 }
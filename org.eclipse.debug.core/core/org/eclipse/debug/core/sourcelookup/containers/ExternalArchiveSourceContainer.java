@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,11 +13,7 @@ package org.eclipse.debug.core.sourcelookup.containers;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Enumeration;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
@@ -26,6 +22,7 @@ import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.sourcelookup.ISourceContainerType;
+import org.eclipse.debug.internal.core.sourcelookup.ArchiveSourceIndex;
 import org.eclipse.debug.internal.core.sourcelookup.SourceLookupMessages;
 import org.eclipse.debug.internal.core.sourcelookup.SourceLookupUtils;
 
@@ -44,9 +41,9 @@ public class ExternalArchiveSourceContainer extends AbstractSourceContainer {
 
 	private boolean fDisposed;
 	private boolean fDetectRoots;
-	private Set<String> fPotentialRoots;
 	private List<String> fRoots = new ArrayList<String>();
 	private String fArchivePath;
+	private volatile ArchiveSourceIndex fIndex;
 	/**
 	 * Unique identifier for the external archive source container type
 	 * (value <code>org.eclipse.debug.core.containerType.externalArchive</code>).
@@ -75,136 +72,135 @@ public class ExternalArchiveSourceContainer extends AbstractSourceContainer {
 		fDetectRoots = detectRootPaths;
 	}
 
-	@SuppressWarnings("resource")
 	@Override
 	public Object[] findSourceElements(String name) throws CoreException {
 		String newname = name.replace('\\', '/');
-		ZipFile file = getArchive();
-		if (file == null) {
+		ArchiveSourceIndex index = getIndex();
+		if (index == null) {
 			return EMPTY;
 		}
-		// NOTE: archive can be closed between get (above) and synchronized block (below)
-		synchronized (file) {
-			boolean isQualfied = newname.indexOf('/') > 0;
-			if (fDetectRoots && isQualfied) {
-				ZipEntry entry = searchRoots(file, newname);
-				if (entry != null) {
-					return new Object[]{new ZipEntryStorage(file, entry)};
-				}
-			} else {
-				// try exact match
-				ZipEntry entry = null;
-				try {
-					entry = file.getEntry(newname);
-				} catch (IllegalStateException e) {
-					// archive was closed between retrieving and locking
-					throw new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(),
-							e.getMessage(), e));
-				}
-				if (entry != null) {
+		// the index is immutable, so lookups do not lock the archive
+		boolean isQualfied = newname.indexOf('/') > 0;
+		if (fDetectRoots && isQualfied) {
+			String entry = searchRoots(index, newname);
+			if (entry != null) {
+				return getStorage(new String[]{entry});
+			}
+		} else {
+			String[] entries = index.findEntries(newname, isQualfied);
+			for (int i = 0; i < entries.length; i++) {
+				if (entries[i].equals(newname)) {
 					// can't be any duplicates if there is an exact match
-					return new Object[]{new ZipEntryStorage(file, entry)};
-				}
-				// search
-				Enumeration<? extends ZipEntry> entries = file.entries();
-				List<ZipEntryStorage> matches = null;
-				while (entries.hasMoreElements()) {
-					entry = entries.nextElement();
-					String entryName = entry.getName();
-					if (entryName.endsWith(newname)) {
-						if (isQualfied || entryName.length() == newname.length() || entryName.charAt(entryName.length() - newname.length() - 1) == '/') {
-							if (isFindDuplicates()) {
-								if (matches == null) {
-									matches = new ArrayList<ZipEntryStorage>();
-								}
-								matches.add(new ZipEntryStorage(file, entry));
-							} else {
-								return new Object[]{new ZipEntryStorage(file, entry)};
-							}
-						}
-					}
-				}
-				if (matches != null) {
-					return matches.toArray();
+					return getStorage(new String[]{entries[i]});
 				}
 			}
+			if (entries.length > 1 && !isFindDuplicates()) {
+				return getStorage(new String[]{entries[0]});
+			}
+			return getStorage(entries);
 		}
 		return EMPTY;
 	}
 
 	/**
-	 * Returns the root path in this archive for the given file name, based
-	 * on its type, or <code>null</code> if none. Detects a root if a root has
-	 * not yet been detected for the given file type.
+	 * Returns the name of the entry in this archive with the given name
+	 * relative to a root path, or <code>null</code> if none. Detects a root
+	 * if the name is not found relative to the roots already detected.
 	 *
-	 * @param file zip file to search in
+	 * @param index index of the archive to search in
 	 * @param name file name
-	 * @return the {@link ZipEntry} with the given name or <code>null</code>
-	 * @exception CoreException if an exception occurs while detecting the root
+	 * @return the name of the entry or <code>null</code>
 	 */
-	private synchronized ZipEntry searchRoots(ZipFile file, String name) throws CoreException {
+	private synchronized String searchRoots(ArchiveSourceIndex index, String name) {
 		if (fDisposed) {
 			return null;
 		}
-		if (fPotentialRoots == null) {
-			fPotentialRoots = new HashSet<String>();
-			fPotentialRoots.add(""); //$NON-NLS-1$
-			// all potential roots are the directories
-			try {
-				Enumeration<? extends ZipEntry> entries = file.entries();
-				while (entries.hasMoreElements()) {
-					ZipEntry entry = entries.nextElement();
-					if (entry.isDirectory()) {
-						fPotentialRoots.add(entry.getName());
-					} else {
-						String entryName = entry.getName();
-						int index = entryName.lastIndexOf("/"); //$NON-NLS-1$
-						while (index > 0) {
-							if (fPotentialRoots.add(entryName.substring(0, index + 1))) {
-								entryName = entryName.substring(0, index);
-								index = entryName.lastIndexOf("/"); //$NON-NLS-1$
-							} else {
-								break;
-							}
-						}
-					}
-				}
-			} catch (IllegalStateException e) {
-				// archive was closed between retrieving and locking
-				throw new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(),
-					e.getMessage(), e));
-			}
-		}
 		int i = 0;
 		while (i < fRoots.size()) {
-			String root = fRoots.get(i);
-			ZipEntry entry = file.getEntry(root+name);
-			if (entry != null) {
+			String entry = fRoots.get(i) + name;
+			if (index.contains(entry)) {
 				return entry;
 			}
 			i++;
 		}
-		if (!fPotentialRoots.isEmpty()) {
-			for (String root : fPotentialRoots) {
-				ZipEntry entry = file.getEntry(root + name);
+		// all potential roots are the directories, except those within a
+		// detected root as roots cannot be nested
+		String[] entries = index.findEntries(name, false);
+		for (int j = 0; j < entries.length; j++) {
+			String root = entries[j].substring(0, entries[j].length() - name.length());
+			if (!isWithinRoot(root)) {
+				fRoots.add(root);
+				return entries[j];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether the given path starts with a detected root.
+	 */
+	private boolean isWithinRoot(String path) {
+		for (String root : fRoots) {
+			if (path.startsWith(root)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns source elements for the given entries of this archive.
+	 *
+	 * @param entries entry names
+	 * @return source elements
+	 * @throws CoreException if unable to access the archive
+	 */
+	@SuppressWarnings("resource")
+	private Object[] getStorage(String[] entries) throws CoreException {
+		if (entries.length == 0) {
+			return EMPTY;
+		}
+		ZipFile file = getArchive();
+		if (file == null) {
+			return EMPTY;
+		}
+		List<ZipEntryStorage> storage = new ArrayList<ZipEntryStorage>(entries.length);
+		try {
+			for (int i = 0; i < entries.length; i++) {
+				ZipEntry entry = file.getEntry(entries[i]);
 				if (entry != null) {
-					if (root != null) {
-						fRoots.add(root);
-						fPotentialRoots.remove(root);
-						// remove any roots that begin with the new root, as
-						// roots
-						// cannot be nested
-						Iterator<String> rs = fPotentialRoots.iterator();
-						while (rs.hasNext()) {
-							String r = rs.next();
-							if (r.startsWith(root)) {
-								rs.remove();
-							}
-						}
-					}
-					return entry;
+					storage.add(new ZipEntryStorage(file, entry));
 				}
 			}
+		} catch (IllegalStateException e) {
+			// archive was closed between retrieving and reading
+			throw new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(),
+					e.getMessage(), e));
+		}
+		return storage.toArray();
+	}
+
+	/**
+	 * Returns the index of the archive to search in.
+	 * @return the index of the archive or <code>null</code> if disposed
+	 *
+	 * @throws CoreException if unable to access the archive
+	 */
+	private ArchiveSourceIndex getIndex() throws CoreException {
+		ArchiveSourceIndex index = fIndex;
+		if (index != null && index.isCurrent()) {
+			return index;
+		}
+		synchronized (this) {
+			if (fDisposed) {
+				return null;
+			}
+			try {
+				fIndex = ArchiveSourceIndex.getIndex(fArchivePath);
+				return fIndex;
+			} catch (IOException e) {
+				handleException(e);
+			}
 		}
 		return null;
 	}
@@ -222,16 +218,20 @@ public class ExternalArchiveSourceContainer extends AbstractSourceContainer {
 		try {
 			return SourceLookupUtils.getZipFile(fArchivePath);
 		} catch (IOException e) {
-			File file = new File(fArchivePath);
-			if (file.exists()) {
-				abort(MessageFormat.format(SourceLookupMessages.ExternalArchiveSourceContainer_2, new Object[] { fArchivePath }), e);
-			} else {
-				warn(MessageFormat.format(SourceLookupMessages.ExternalArchiveSourceContainer_1, new Object[] { fArchivePath }), e);
-			}
+			handleException(e);
 		}
 		return null;
 	}
 
+	private void handleException(IOException e) throws CoreException {
+		File file = new File(fArchivePath);
+		if (file.exists()) {
+			abort(MessageFormat.format(SourceLookupMessages.ExternalArchiveSourceContainer_2, new Object[] { fArchivePath }), e);
+		} else {
+			warn(MessageFormat.format(SourceLookupMessages.ExternalArchiveSourceContainer_1, new Object[] { fArchivePath }), e);
+		}
+	}
+
 	@Override
 	public String getName() {
 		return fArchivePath;
@@ -267,10 +267,8 @@ public class ExternalArchiveSourceContainer extends AbstractSourceContainer {
 	@Override
 	public synchronized void dispose() {
 		super.dispose();
-		if (fPotentialRoots != null) {
-			fPotentialRoots.clear();
-		}
 		fRoots.clear();
+		fIndex = null;
 		fDisposed = true;
 	}
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -25,6 +25,7 @@ import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.internal.core.sourcelookup.SourceLookupMessages;
+import org.eclipse.debug.internal.core.sourcelookup.SourceLookupUtils;
 
 /**
  * Storage implementation for zip entries.
@@ -65,7 +66,19 @@ public class ZipEntryStorage extends PlatformObject implements IStorage {
 	@Override
 	public InputStream getContents() throws CoreException {
 		try {
-			return getArchive().getInputStream(getZipEntry());
+			try {
+				return SourceLookupUtils.getInputStream(getArchive(), getZipEntry());
+			} catch (IllegalStateException e) {
+				// the shared archive was closed, read the entry from the archive shared now
+				ZipFile archive = SourceLookupUtils.getZipFile(getArchive().getName());
+				ZipEntry entry = archive.getEntry(getZipEntry().getName());
+				if (entry == null) {
+					throw new IOException(e.getMessage());
+				}
+				setArchive(archive);
+				setZipEntry(entry);
+				return SourceLookupUtils.getInputStream(archive, entry);
+			}
 		} catch (IOException e) {
 			throw new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(), DebugPlugin.ERROR, SourceLookupMessages.ZipEntryStorage_0, e));
 		}
@@ -144,7 +157,7 @@ public class ZipEntryStorage extends PlatformObject implements IStorage {
 	@Override
 	public boolean equals(Object object) {
 		return object instanceof ZipEntryStorage &&
-			 getArchive().equals(((ZipEntryStorage)object).getArchive()) &&
+			 getArchive().getName().equals(((ZipEntryStorage)object).getArchive().getName()) &&
 			 getZipEntry().getName().equals(((ZipEntryStorage)object).getZipEntry().getName());
 	}
 
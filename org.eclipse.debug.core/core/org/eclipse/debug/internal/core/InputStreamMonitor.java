@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,7 @@ package org.eclipse.debug.internal.core;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
 import java.util.Vector;
 
 import org.eclipse.debug.core.DebugPlugin;
@@ -31,9 +32,9 @@ public class InputStreamMonitor {
 	 */
 	private OutputStream fStream;
 	/**
-	 * The queue of output.
+	 * The queue of output, already encoded.
 	 */
-	private Vector<String> fQueue;
+	private Vector<byte[]> fQueue;
 	/**
 	 * The thread which writes to the stream.
 	 */
@@ -70,7 +71,7 @@ public class InputStreamMonitor {
 	 */
 	public InputStreamMonitor(OutputStream stream, String encoding) {
 		fStream= stream;
-		fQueue = new Vector<String>();
+		fQueue = new Vector<byte[]>();
 		fLock= new Object();
 		fEncoding= encoding;
 	}
@@ -83,8 +84,36 @@ public class InputStreamMonitor {
 	 * @param text text to append
 	 */
 	public void write(String text) {
+		byte[] data;
+		try {
+			data = fEncoding != null ? text.getBytes(fEncoding) : text.getBytes();
+		} catch (UnsupportedEncodingException e) {
+			DebugPlugin.log(e);
+			return;
+		}
+		enqueue(data);
+	}
+
+	/**
+	 * Appends the given bytes to the stream, or
+	 * queues them to be written at a later time
+	 * if the stream is blocked. The bytes are written as
+	 * they are, they must already be in the encoding of the stream.
+	 *
+	 * @param data the bytes to append
+	 * @param offset the start offset in the data
+	 * @param length the number of bytes to append
+	 * @since 3.11
+	 */
+	public void write(byte[] data, int offset, int length) {
+		byte[] copy = new byte[length];
+		System.arraycopy(data, offset, copy, 0, length);
+		enqueue(copy);
+	}
+
+	private void enqueue(byte[] data) {
 		synchronized(fLock) {
-			fQueue.add(text);
+			fQueue.add(data);
 			fLock.notifyAll();
 		}
 	}
@@ -138,14 +167,10 @@ public class InputStreamMonitor {
 	 */
 	protected void writeNext() {
 		while (!fQueue.isEmpty() && !fClosed) {
-			String text = fQueue.firstElement();
+			byte[] data = fQueue.firstElement();
 			fQueue.removeElementAt(0);
 			try {
-				if (fEncoding != null) {
-					fStream.write(text.getBytes(fEncoding));
-				} else {
-					fStream.write(text.getBytes());
-				}
+				fStream.write(data);
 				fStream.flush();
 			} catch (IOException e) {
 				DebugPlugin.log(e);
@@ -153,7 +178,10 @@ public class InputStreamMonitor {
 		}
 		try {
 			synchronized(fLock) {
-				fLock.wait();
+				// input queued while writing must not wait for the next write
+				if (fQueue.isEmpty()) {
+					fLock.wait();
+				}
 			}
 		} catch (InterruptedException e) {
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2014 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -44,6 +44,8 @@ import org.eclipse.core.runtime.PlatformObject;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.debug.core.DebugException;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
@@ -753,6 +755,9 @@ public class LaunchConfiguration extends PlatformObject implements ILaunchConfig
     	 * - Initialize source locator (1)
     	 * - Launch delegate (10) */
 		SubMonitor lmonitor = SubMonitor.convert(monitor, DebugCoreMessages.LaunchConfiguration_9, build ? 23 : 13);
+		// values of variables with the launch cache scope are cached until the launch is performed
+		IStringVariableManager variableManager = VariablesPlugin.getDefault().getStringVariableManager();
+		variableManager.beginLaunchScope();
     	try {
 			// bug 28245 - force the delegate to load in case it is interested in launch notifications
 			Set<String> modes = getModes();
@@ -902,6 +907,7 @@ public class LaunchConfiguration extends PlatformObject implements ILaunchConfig
 			return launch;
     	}
     	finally {
+			variableManager.endLaunchScope();
 			lmonitor.done();
     	}
     }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -22,8 +22,8 @@ public class NullStreamsProxy implements IStreamsProxy2 {
     private NullStreamMonitor errorStreamMonitor;
 
     public NullStreamsProxy(Process process) {
-        outputStreamMonitor = new NullStreamMonitor(process.getInputStream());
-        errorStreamMonitor = new NullStreamMonitor(process.getErrorStream());
+        outputStreamMonitor = new NullStreamMonitor(process.getInputStream(), ProcessRedirects.isOutputPiped(process));
+        errorStreamMonitor = new NullStreamMonitor(process.getErrorStream(), ProcessRedirects.isErrorPiped(process));
     }
 
     /* (non-Javadoc)
@@ -59,9 +59,12 @@ public class NullStreamsProxy implements IStreamsProxy2 {
     private class NullStreamMonitor implements IStreamMonitor {
         private InputStream fStream;
 
-        public NullStreamMonitor(InputStream stream) {
+        public NullStreamMonitor(InputStream stream, boolean piped) {
             fStream = stream;
-            startReaderThread();
+            // only a pipe must be drained for the process not to block
+            if (piped) {
+                startReaderThread();
+            }
         }
 
         private void startReaderThread() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,7 +19,9 @@ import org.eclipse.core.runtime.ISafeRunnable;
 import org.eclipse.core.runtime.ListenerList;
 import org.eclipse.core.runtime.SafeRunner;
 import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IBinaryStreamListener;
 import org.eclipse.debug.core.IStreamListener;
+import org.eclipse.debug.core.model.IBinaryStreamMonitor;
 import org.eclipse.debug.core.model.IFlushableStreamMonitor;
 
 /**
@@ -29,7 +31,7 @@ import org.eclipse.debug.core.model.IFlushableStreamMonitor;
  * The output stream monitor reads system out (or err) via
  * and input stream.
  */
-public class OutputStreamMonitor implements IFlushableStreamMonitor {
+public class OutputStreamMonitor implements IFlushableStreamMonitor, IBinaryStreamMonitor {
 	/**
 	 * The stream being monitored (connected system out or err).
 	 */
@@ -40,6 +42,11 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 	 */
 	private ListenerList<IStreamListener> fListeners = new ListenerList<>();
 
+	/**
+	 * A collection of listeners to the bytes read
+	 */
+	private ListenerList<IBinaryStreamListener> fBinaryListeners = new ListenerList<>();
+
 	/**
 	 * Whether content is being buffered
 	 */
@@ -92,6 +99,14 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 		fListeners.add(listener);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.core.model.IBinaryStreamMonitor#addBinaryListener(org.eclipse.debug.core.IBinaryStreamListener)
+	 */
+	@Override
+	public synchronized void addBinaryListener(IBinaryStreamListener listener) {
+		fBinaryListeners.add(listener);
+	}
+
 	/**
 	 * Causes the monitor to close all
 	 * communications between it and the
@@ -106,6 +121,7 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 			} catch (InterruptedException ie) {
 			}
 			fListeners = new ListenerList<>();
+			fBinaryListeners = new ListenerList<>();
 		}
 	}
 
@@ -118,6 +134,25 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 		getNotifier().notifyAppend(text);
 	}
 
+	/**
+	 * Notifies the binary listeners of the bytes read from the stream.
+	 */
+	private void fireStreamAppended(final byte[] data, final int length) {
+		for (final IBinaryStreamListener listener : fBinaryListeners) {
+			SafeRunner.run(new ISafeRunnable() {
+				@Override
+				public void handleException(Throwable exception) {
+					DebugPlugin.log(exception);
+				}
+
+				@Override
+				public void run() throws Exception {
+					listener.streamAppended(data, 0, length, OutputStreamMonitor.this);
+				}
+			});
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.eclipse.debug.core.model.IStreamMonitor#getContents()
 	 */
@@ -156,6 +191,7 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 						if (isBuffered()) {
 							fContents.append(text);
 						}
+						fireStreamAppended(bytes, read);
 						fireStreamAppended(text);
 					}
 				}
@@ -201,6 +237,14 @@ public class OutputStreamMonitor implements IFlushableStreamMonitor {
 		fListeners.remove(listener);
 	}
 
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.core.model.IBinaryStreamMonitor#removeBinaryListener(org.eclipse.debug.core.IBinaryStreamListener)
+	 */
+	@Override
+	public synchronized void removeBinaryListener(IBinaryStreamListener listener) {
+		fBinaryListeners.remove(listener);
+	}
+
 	/**
 	 * Starts a thread which reads from the stream
 	 */
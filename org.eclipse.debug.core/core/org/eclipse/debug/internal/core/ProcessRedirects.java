@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core;
+
+import java.lang.ProcessBuilder.Redirect;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Remembers which standard streams of processes started by
+ * {@link org.eclipse.debug.core.DebugPlugin#exec(ProcessBuilder)} are
+ * redirected, so that streams proxies do not start threads for streams that
+ * have nothing to read or write. Streams of other processes are pipes.
+ *
+ * @since 3.11
+ */
+public class ProcessRedirects {
+
+	private static final Map<Process, ProcessRedirects> fgRedirects = Collections.synchronizedMap(new WeakHashMap<Process, ProcessRedirects>());
+
+	private final boolean fInputPiped;
+	private final boolean fOutputPiped;
+	private final boolean fErrorPiped;
+
+	private ProcessRedirects(ProcessBuilder builder) {
+		fInputPiped = builder.redirectInput().type() == Redirect.Type.PIPE;
+		fOutputPiped = builder.redirectOutput().type() == Redirect.Type.PIPE;
+		// merged error output is read from the output stream
+		fErrorPiped = !builder.redirectErrorStream() && builder.redirectError().type() == Redirect.Type.PIPE;
+	}
+
+	/**
+	 * Records the redirects of a process started by the given builder.
+	 *
+	 * @param process the started process
+	 * @param builder the builder that started the process
+	 */
+	public static void record(Process process, ProcessBuilder builder) {
+		ProcessRedirects redirects = new ProcessRedirects(builder);
+		if (!redirects.fInputPiped || !redirects.fOutputPiped || !redirects.fErrorPiped) {
+			fgRedirects.put(process, redirects);
+		}
+	}
+
+	/**
+	 * Returns whether the standard input of the process can be written to.
+	 *
+	 * @param process system process
+	 * @return whether standard input is a pipe
+	 */
+	public static boolean isInputPiped(Process process) {
+		ProcessRedirects redirects = fgRedirects.get(process);
+		return redirects == null || redirects.fInputPiped;
+	}
+
+	/**
+	 * Returns whether the standard output of the process can be read.
+	 *
+	 * @param process system process
+	 * @return whether standard output is a pipe
+	 */
+	public static boolean isOutputPiped(Process process) {
+		ProcessRedirects redirects = fgRedirects.get(process);
+		return redirects == null || redirects.fOutputPiped;
+	}
+
+	/**
+	 * Returns whether the error output of the process can be read, that is
+	 * whether it is a pipe that is not merged into the standard output.
+	 *
+	 * @param process system process
+	 * @return whether error output is a separate pipe
+	 */
+	public static boolean isErrorPiped(Process process) {
+		ProcessRedirects redirects = fgRedirects.get(process);
+		return redirects == null || redirects.fErrorPiped;
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -40,6 +40,20 @@ public class StreamsProxy implements IStreamsProxy, IStreamsProxy2 {
 	 * <code>false</code> by default.
 	 */
 	private boolean fClosed;
+	/**
+	 * Whether the standard input of the process is a pipe, rather than
+	 * redirected from a file
+	 */
+	private boolean fInputPiped = true;
+	/**
+	 * Whether the standard output of the process is a pipe, rather than
+	 * redirected to a file
+	 */
+	private boolean fOutputPiped = true;
+	/**
+	 * The encoding of the streams or <code>null</code> for the default
+	 */
+	private String fEncoding;
 	/**
 	 * Creates a <code>StreamsProxy</code> on the streams
 	 * of the given system process.
@@ -48,15 +62,45 @@ public class StreamsProxy implements IStreamsProxy, IStreamsProxy2 {
 	 * @param encoding the process's encoding or <code>null</code> if default
 	 */
 	public StreamsProxy(Process process, String encoding) {
+		fEncoding = encoding;
 		if (process == null) {
 			return;
 		}
 		fOutputMonitor= new OutputStreamMonitor(process.getInputStream(), encoding);
 		fErrorMonitor= new OutputStreamMonitor(process.getErrorStream(), encoding);
 		fInputMonitor= new InputStreamMonitor(process.getOutputStream(), encoding);
-		fOutputMonitor.startMonitoring();
-		fErrorMonitor.startMonitoring();
-		fInputMonitor.startMonitoring();
+		// redirected and merged streams have nothing to read or write
+		fOutputPiped = ProcessRedirects.isOutputPiped(process);
+		if (fOutputPiped) {
+			fOutputMonitor.startMonitoring();
+		}
+		if (ProcessRedirects.isErrorPiped(process)) {
+			fErrorMonitor.startMonitoring();
+		}
+		fInputPiped = ProcessRedirects.isInputPiped(process);
+		if (fInputPiped) {
+			fInputMonitor.startMonitoring();
+		}
+	}
+
+	/**
+	 * Returns whether the standard input of the process is a pipe that this
+	 * proxy writes to, rather than redirected by the process builder.
+	 *
+	 * @return whether standard input is a pipe
+	 */
+	public boolean isInputPiped() {
+		return fInputPiped;
+	}
+
+	/**
+	 * Returns whether the standard output of the process is a pipe that this
+	 * proxy reads, rather than redirected by the process builder.
+	 *
+	 * @return whether standard output is a pipe
+	 */
+	public boolean isOutputPiped() {
+		return fOutputPiped;
 	}
 
 	/**
@@ -127,12 +171,45 @@ public class StreamsProxy implements IStreamsProxy, IStreamsProxy2 {
 	@Override
 	public void write(String input) throws IOException {
 		if (!isClosed(false)) {
-			fInputMonitor.write(input);
+			if (fInputPiped) {
+				fInputMonitor.write(input);
+			}
+		} else {
+			throw new IOException();
+		}
+	}
+
+	/**
+	 * Writes the given bytes to the standard input stream of the process.
+	 * The bytes are passed on as they are, they must be in the encoding
+	 * returned by {@link #getEncoding()}.
+	 *
+	 * @param data the bytes to write
+	 * @param offset the start offset in the data
+	 * @param length the number of bytes to write
+	 * @exception IOException if the proxy is closed
+	 * @since 3.11
+	 */
+	public void write(byte[] data, int offset, int length) throws IOException {
+		if (!isClosed(false)) {
+			if (fInputPiped) {
+				fInputMonitor.write(data, offset, length);
+			}
 		} else {
 			throw new IOException();
 		}
 	}
 
+	/**
+	 * Returns the encoding of the streams of the process.
+	 *
+	 * @return the encoding or <code>null</code> for the default encoding
+	 * @since 3.11
+	 */
+	public String getEncoding() {
+		return fEncoding;
+	}
+
     /* (non-Javadoc)
      * @see org.eclipse.debug.core.model.IStreamsProxy2#closeInputStream()
      */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2009, 2016 QNX Software Systems and others.
+ *  Copyright (c) 2009, 2017 QNX Software Systems and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -13,8 +13,9 @@
 package org.eclipse.debug.internal.core.groups;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
@@ -38,18 +39,23 @@ public class GroupLaunch extends Launch implements ILaunchesListener2 {
 	/**
 	 * Whether this process has been terminated
 	 */
-	private boolean fTerminated;
+	private volatile boolean fTerminated;
 
 	/**
 	 * Keeps track of whether launching has been finished
 	 */
-	private boolean fLaunched = false;
+	private volatile boolean fLaunched = false;
+
+	/**
+	 * Completed when this group is terminated, or asked to terminate
+	 */
+	private final CompletableFuture<Void> fTermination = new CompletableFuture<Void>();
 
 	/**
 	 * A map of all our sub-launches and the current processes that belong
-	 * to each one.
+	 * to each one. Members of the group may be launched in parallel.
 	 */
-	private Map<ILaunch, IProcess[]> subLaunches = new HashMap<ILaunch, IProcess[]>();
+	private Map<ILaunch, IProcess[]> subLaunches = new ConcurrentHashMap<ILaunch, IProcess[]>();
 
 	public GroupLaunch(ILaunchConfiguration launchConfiguration, String mode) {
 		super(launchConfiguration, mode, null);
@@ -60,6 +66,16 @@ public class GroupLaunch extends Launch implements ILaunchesListener2 {
 		fLaunched = true;
 	}
 
+	/**
+	 * Returns a future that is completed when this group is terminated, or
+	 * asked to terminate.
+	 *
+	 * @return termination of this group
+	 */
+	CompletableFuture<Void> getTermination() {
+		return fTermination;
+	}
+
 	/**
 	 * Associate the launch
 	 *
@@ -138,6 +154,7 @@ public class GroupLaunch extends Launch implements ILaunchesListener2 {
 		// immediately terminate and stop launching. So allow termination of the
 		// group when children disappear even if launching has not finished yet.
 		markLaunched();
+		fTermination.complete(null);
 
 		for (ILaunch launch : subLaunches.keySet()) {
 			if (launch.canTerminate()) {
@@ -177,6 +194,7 @@ public class GroupLaunch extends Launch implements ILaunchesListener2 {
 			// terminate ourselves if this is the last sub launch
 			if (subLaunches.size() == 0 && fLaunched) {
 				fTerminated = true;
+				fTermination.complete(null);
 				fireTerminate();
 			}
 		}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2009, 2016 QNX Software Systems and others.
+ *  Copyright (c) 2009, 2017 QNX Software Systems and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -13,16 +13,11 @@
 package org.eclipse.debug.internal.core.groups;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.CoreException;
@@ -37,13 +32,12 @@ import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
 import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.IStatusHandler;
 import org.eclipse.debug.core.model.ILaunchConfigurationDelegate2;
-import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.debug.core.model.LaunchConfigurationDelegate;
 import org.eclipse.debug.internal.core.DebugCoreMessages;
 import org.eclipse.debug.internal.core.IInternalDebugCoreConstants;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependency;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependencyCondition;
 import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementPostLaunchAction;
-import org.eclipse.debug.internal.core.groups.observer.ProcessObserver;
-import org.eclipse.debug.internal.core.groups.observer.StreamObserver;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -61,13 +55,14 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 	private static final String MODE_PROP = "mode"; //$NON-NLS-1$
 	private static final String ACTION_PROP = "action"; //$NON-NLS-1$
 	private static final String ACTION_PARAM_PROP = "actionParam"; //$NON-NLS-1$
+	private static final String DEPENDS_PROP = "dependsOn"; //$NON-NLS-1$
 	private static final String MULTI_LAUNCH_CONSTANTS_PREFIX = "org.eclipse.debug.core.launchGroup"; //$NON-NLS-1$
 
 	private static final String DEBUG_CORE = "org.eclipse.debug.core"; //$NON-NLS-1$
 
 	private static final Status UNSUPPORTED_MODE = new Status(IStatus.ERROR, DEBUG_CORE, 230, IInternalDebugCoreConstants.EMPTY_STRING, null);
-	private static final Status GROUP_ELEMENT_STARTED = new Status(IStatus.OK, DEBUG_CORE, 231, IInternalDebugCoreConstants.EMPTY_STRING, null);
-	private static final Status GROUP_CYCLE = new Status(IStatus.ERROR, DEBUG_CORE, 232, IInternalDebugCoreConstants.EMPTY_STRING, null);
+	static final Status GROUP_ELEMENT_STARTED = new Status(IStatus.OK, DEBUG_CORE, 231, IInternalDebugCoreConstants.EMPTY_STRING, null);
+	static final Status GROUP_CYCLE = new Status(IStatus.ERROR, DEBUG_CORE, 232, IInternalDebugCoreConstants.EMPTY_STRING, null);
 
 	private static final Status GROUP_LAUNCH_START = new Status(IStatus.INFO, DEBUG_CORE, CODE_GROUP_LAUNCH_START, IInternalDebugCoreConstants.EMPTY_STRING, null);
 	private static final Status GROUP_LAUNCH_DONE = new Status(IStatus.INFO, DEBUG_CORE, CODE_GROUP_LAUNCH_DONE, IInternalDebugCoreConstants.EMPTY_STRING, null);
@@ -88,6 +83,8 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 			SubMonitor progress = SubMonitor.convert(monitor, NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Launching, groupConfig.getName()), 1000);
 
 			List<GroupLaunchElement> launches = createLaunchElements(groupConfig);
+			List<GroupLaunchScheduler.Member> members = new ArrayList<>();
+			IStatusHandler cycleHandler = DebugPlugin.getDefault().getStatusHandler(GROUP_CYCLE);
 			for (int i = 0; i < launches.size(); ++i) {
 				GroupLaunchElement le = launches.get(i);
 
@@ -117,21 +114,15 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 
 				if (groupConfig.getName().equals(conf.getName())) {
 					// loop detected. report as appropriate and die.
-					IStatusHandler cycleHandler = DebugPlugin.getDefault().getStatusHandler(GROUP_CYCLE);
 					cycleHandler.handleStatus(GROUP_CYCLE, conf.getName());
 				} else {
-					if (!launchChild(progress.newChild(1000 / launches.size()), group, le, conf, localMode, (i == launches.size() - 1))) {
-						break;
-					}
-				}
-
-				// in case the group has been terminated while waiting in the
-				// post launch action.
-				if (group.isTerminated()) {
-					break;
+					members.add(new GroupLaunchScheduler.Member(le, conf, localMode));
 				}
 			}
 
+			// launches the members once the members they depend on are ready,
+			// by default each one after the previous one.
+			new GroupLaunchScheduler(group, members, progress, cycleHandler).run();
 
 			if (!group.hasChildren()) {
 				DebugPlugin.getDefault().getLaunchManager().removeLaunch(group);
@@ -144,106 +135,6 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 		}
 	}
 
-	private boolean launchChild(SubMonitor monitor, final GroupLaunch group, GroupLaunchElement le, final ILaunchConfiguration child, final String localMode, boolean lastConfig) throws CoreException {
-		final Set<ILaunch> running = le.adoptIfRunning ? findRunningLaunch(le.name) : Collections.emptySet();
-		ILaunch subLaunch = running.stream().findFirst().orElse(null);
-		if (subLaunch == null) {
-			subLaunch = child.launch(localMode, monitor);
-		}
-
-		group.addSubLaunch(subLaunch);
-
-		// Now that we added the launch in our list, we have already
-		// received the real launchChanged event, and did not know
-		// it was part of our list
-		// So, fake another event now.
-		group.launchChanged(subLaunch);
-
-		// give handler a chance to perform additional actions after
-		// launching each of the members.
-		IStatusHandler postLaunchHandler = DebugPlugin.getDefault().getStatusHandler(GROUP_ELEMENT_STARTED);
-		postLaunchHandler.handleStatus(GROUP_ELEMENT_STARTED, new ILaunch[] {
-				group, subLaunch });
-
-		// if this is the last child, mark the group as "launching finished", so
-		// that from now on the last terminating child will also terminate the
-		// group.
-		if (lastConfig) {
-			group.markLaunched();
-		}
-
-		return postLaunchAction(subLaunch, le, monitor);
-	}
-
-	private boolean postLaunchAction(ILaunch subLaunch, GroupLaunchElement le, IProgressMonitor monitor) {
-		switch (le.action) {
-			case NONE:
-				return true;
-			case WAIT_FOR_TERMINATION:
-				monitor.subTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Waiting_for_termination, subLaunch.getLaunchConfiguration().getName()));
-				while (!subLaunch.isTerminated() && !monitor.isCanceled()) {
-					try {
-						Thread.sleep(1000);
-					} catch (InterruptedException e) {
-						break;
-					}
-				}
-				monitor.subTask(""); //$NON-NLS-1$
-				break;
-			case DELAY:
-				Integer waitSecs = (Integer) le.actionParam;
-				if (waitSecs != null) {
-					monitor.subTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Delaying, waitSecs.toString()));
-					try {
-						Thread.sleep(waitSecs * 1000); // param is milliseconds
-					} catch (InterruptedException e) {
-						// ok
-					}
-				}
-				break;
-
-			case OUTPUT_REGEXP:
-				String regexp = (String) le.actionParam;
-				if (regexp != null) {
-					monitor.subTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_waiting, regexp, subLaunch.getLaunchConfiguration().getName()));
-					if (!waitForOutputMatching(subLaunch, monitor, regexp)) {
-						return false;
-					}
-				}
-
-				break;
-
-			default:
-				assert false : "new post launch action type is missing logic"; //$NON-NLS-1$
-		}
-
-		return true;
-	}
-
-	// blocks until a specific string is in the log output
-	private boolean waitForOutputMatching(ILaunch launch, IProgressMonitor m, String regexp) {
-		int processCount = launch.getProcesses().length;
-		final ExecutorService executor = Executors.newCachedThreadPool();
-		final CountDownLatch countDownLatch = new CountDownLatch(processCount);
-		Future<Integer> process = null;
-		for (IProcess p : launch.getProcesses()) {
-			process = executor.submit(new ProcessObserver(m, p, countDownLatch));
-			executor.submit(new StreamObserver(m, p, regexp, countDownLatch));
-		}
-		try {
-			countDownLatch.await();
-		} catch (InterruptedException e) {
-			// should not happen at all!
-		}
-		executor.shutdown();
-		// process terminated before condition
-		if (process == null || process.isDone()) {
-			return false;
-		}
-		// condition matched
-		return true;
-	}
-
 	/*
 	 * (non-Javadoc)
 	 * @see
@@ -349,6 +240,10 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 							}
 							el.mode = (String) attrs.get(getProp(index, MODE_PROP));
 							el.enabled = (Boolean) attrs.get(getProp(index, ENABLED_PROP));
+							Object dependencies = attrs.get(getProp(index, DEPENDS_PROP));
+							if (dependencies instanceof List) {
+								el.dependencies = decodeDependencies((List<?>) dependencies);
+							}
 							try {
 								el.data = findLaunchConfiguration(el.name);
 							} catch (Exception e) {
@@ -387,10 +282,50 @@ public class GroupLaunchConfigurationDelegate extends LaunchConfigurationDelegat
 			configuration.setAttribute(getProp(i, ACTION_PARAM_PROP), el.actionParam != null ? el.actionParam.toString() : null);
 			configuration.setAttribute(getProp(i, MODE_PROP), el.mode);
 			configuration.setAttribute(getProp(i, ENABLED_PROP), el.enabled);
+			if (el.dependencies != null) {
+				configuration.setAttribute(getProp(i, DEPENDS_PROP), encodeDependencies(el.dependencies));
+			}
 			i++;
 		}
 	}
 
+	/**
+	 * Encodes each dependency as <code>name:CONDITION[:param]</code>. Launch
+	 * configuration names cannot contain a colon.
+	 */
+	private static List<String> encodeDependencies(List<GroupElementDependency> dependencies) {
+		List<String> result = new ArrayList<>(dependencies.size());
+		for (GroupElementDependency dependency : dependencies) {
+			StringBuilder encoded = new StringBuilder(dependency.name).append(':').append(dependency.condition.name());
+			if (dependency.param != null) {
+				encoded.append(':').append(dependency.param);
+			}
+			result.add(encoded.toString());
+		}
+		return result;
+	}
+
+	private static List<GroupElementDependency> decodeDependencies(List<?> encoded) {
+		List<GroupElementDependency> result = new ArrayList<>(encoded.size());
+		for (Object entry : encoded) {
+			String[] parts = ((String) entry).split(":", 3); //$NON-NLS-1$
+			GroupElementDependency dependency = new GroupElementDependency();
+			dependency.name = parts[0];
+			if (parts.length > 1) {
+				try {
+					dependency.condition = GroupElementDependencyCondition.valueOf(parts[1]);
+				} catch (IllegalArgumentException e) {
+					DebugPlugin.log(e);
+				}
+			}
+			if (parts.length > 2) {
+				dependency.param = parts[2];
+			}
+			result.add(dependency);
+		}
+		return result;
+	}
+
 	public static void removeLaunchElements(ILaunchConfigurationWorkingCopy configuration) {
 		try {
 			Map<?, ?> attrs = configuration.getAttributes();
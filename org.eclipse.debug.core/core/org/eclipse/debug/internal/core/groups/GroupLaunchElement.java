@@ -12,6 +12,8 @@
  *******************************************************************************/
 package org.eclipse.debug.internal.core.groups;
 
+import java.util.List;
+
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.internal.core.DebugCoreMessages;
 
@@ -28,8 +30,8 @@ public class GroupLaunchElement {
 	 * {@link GroupLaunchElement}.
 	 * <p>
 	 * These actions get performed after the associated
-	 * {@link GroupLaunchElement} has been launched, before the next one is
-	 * launched (or launching is finished).
+	 * {@link GroupLaunchElement} has been launched, before the elements waiting
+	 * for it are launched (or launching is finished).
 	 */
 	public static enum GroupElementPostLaunchAction {
 		NONE(DebugCoreMessages.GroupLaunchConfigurationDelegate_None), //
@@ -57,6 +59,48 @@ public class GroupLaunchElement {
 		}
 	}
 
+	/**
+	 * Describes the conditions a {@link GroupLaunchElement} can wait for
+	 * before it is launched.
+	 */
+	public static enum GroupElementDependencyCondition {
+		/**
+		 * The other element has been launched and its post-launch action has
+		 * been performed.
+		 */
+		LAUNCHED,
+		/**
+		 * The console output of the other element matches a regular
+		 * expression.
+		 */
+		OUTPUT_REGEXP,
+		/**
+		 * The other element has terminated.
+		 */
+		TERMINATED,
+		/**
+		 * The other element has terminated and all of its processes exited
+		 * with value 0.
+		 */
+		EXIT_OK
+	}
+
+	/**
+	 * A condition on another element of the same group that must be met
+	 * before a {@link GroupLaunchElement} is launched.
+	 */
+	public static class GroupElementDependency {
+		/**
+		 * The name of the launch configuration of the element depended on.
+		 */
+		public String name;
+		public GroupElementDependencyCondition condition = GroupElementDependencyCondition.LAUNCHED;
+		/**
+		 * The regular expression for {@link GroupElementDependencyCondition#OUTPUT_REGEXP}.
+		 */
+		public String param;
+	}
+
 	public int index;
 	public boolean enabled = true;
 	public String mode = MODE_INHERIT;
@@ -65,4 +109,11 @@ public class GroupLaunchElement {
 	public Object actionParam;
 	public String name;
 	public ILaunchConfiguration data;
+	/**
+	 * The conditions to meet before launching this element. Elements without
+	 * dependencies are launched right away, in parallel to the others. If
+	 * <code>null</code>, this element is launched after the previous element
+	 * of the group has been launched and its post-launch action performed.
+	 */
+	public List<GroupElementDependency> dependencies;
 }
\ No newline at end of file
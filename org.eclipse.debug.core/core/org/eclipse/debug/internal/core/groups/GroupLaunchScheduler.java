@@ -0,0 +1,573 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.groups;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.IStatusHandler;
+import org.eclipse.debug.internal.core.DebugCoreMessages;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependency;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependencyCondition;
+import org.eclipse.debug.internal.core.groups.observer.LaunchObserver;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Launches the members of a group as soon as the conditions they depend on are
+ * met. Members that do not depend on each other are launched in parallel on a
+ * bounded pool. Waiting for a condition does not occupy a thread, conditions
+ * are observed from debug events and stream listeners. The launching thread
+ * sleeps until a member is done, launching fails or is cancelled, or the group
+ * is terminated.
+ *
+ * @since 3.11
+ */
+class GroupLaunchScheduler {
+
+	/**
+	 * The maximum number of members launched at the same time.
+	 */
+	private static final int MAX_PARALLEL_LAUNCHES = 4;
+
+	/**
+	 * How often the pool checks the progress monitor for cancellation, in
+	 * milliseconds. Progress monitors do not notify cancellation.
+	 */
+	private static final long CANCEL_CHECK_INTERVAL = 100;
+
+	/**
+	 * A member of the group to launch.
+	 */
+	static class Member {
+		final GroupLaunchElement fElement;
+		final ILaunchConfiguration fConfiguration;
+		final String fMode;
+
+		/**
+		 * The conditions to meet before launching.
+		 */
+		final List<Condition> fConditions = new ArrayList<>();
+
+		/**
+		 * Completed with the launch of this member, or with <code>null</code>
+		 * if this member is not launched.
+		 */
+		final CompletableFuture<ILaunch> fLaunched = new CompletableFuture<>();
+
+		/**
+		 * Completed once this member has been launched and its post-launch
+		 * action performed, with <code>false</code> if either failed.
+		 */
+		final CompletableFuture<Boolean> fDone = new CompletableFuture<>();
+
+		Member(GroupLaunchElement element, ILaunchConfiguration configuration, String mode) {
+			fElement = element;
+			fConfiguration = configuration;
+			fMode = mode;
+		}
+	}
+
+	/**
+	 * A condition on another member.
+	 */
+	static class Condition {
+		final Member fMember;
+		final GroupElementDependencyCondition fKind;
+		final String fParam;
+
+		Condition(Member member, GroupElementDependencyCondition kind, String param) {
+			fMember = member;
+			fKind = kind;
+			fParam = param;
+		}
+	}
+
+	private final GroupLaunch fGroup;
+	private final List<Member> fMembers;
+	private final SubMonitor fMonitor;
+	private final IStatusHandler fCycleHandler;
+
+	/**
+	 * The number of members that are neither launched nor failed.
+	 */
+	private final AtomicInteger fPending;
+
+	/**
+	 * The futures of observed conditions, cancelled when launching is done.
+	 */
+	private final List<CompletableFuture<?>> fObservers = new ArrayList<>();
+
+	/**
+	 * Notified when progress changes or launching is to stop, guards
+	 * {@link #fProgressChanged}.
+	 */
+	private final Object fProgressLock = new Object();
+	private boolean fProgressChanged = false;
+
+	private ScheduledThreadPoolExecutor fExecutor;
+	private volatile boolean fAborted = false;
+	private volatile String fSubTask;
+	private volatile CoreException fFailure;
+
+	/**
+	 * @param group the group to add the launched members to
+	 * @param members the members to launch, in the order of the group
+	 * @param monitor progress monitor, only used by the calling thread
+	 * @param cycleHandler handler to report dependency cycles to
+	 */
+	GroupLaunchScheduler(GroupLaunch group, List<Member> members, SubMonitor monitor, IStatusHandler cycleHandler) {
+		fGroup = group;
+		fMembers = members;
+		fMonitor = monitor;
+		fCycleHandler = cycleHandler;
+		fPending = new AtomicInteger(members.size());
+	}
+
+	/**
+	 * Launches all members and returns once they are launched and their
+	 * post-launch actions performed, or launching is cancelled, or the group
+	 * is terminated.
+	 *
+	 * @throws CoreException if launching a member fails
+	 */
+	void run() throws CoreException {
+		if (fMembers.isEmpty()) {
+			return;
+		}
+		List<Member> ready = resolveDependencies();
+		fExecutor = new ScheduledThreadPoolExecutor(Math.min(MAX_PARALLEL_LAUNCHES, fMembers.size()), new ThreadFactory() {
+			private int fCount = 0;
+
+			@Override
+			public synchronized Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "Launch Group " + fGroup.getLaunchConfiguration().getName() + " " + ++fCount); //$NON-NLS-1$ //$NON-NLS-2$
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		fExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		try {
+			for (Member member : fMembers) {
+				member.fDone.whenComplete((done, e) -> progressChanged());
+			}
+			fGroup.getTermination().thenRun(() -> progressChanged());
+			fExecutor.scheduleWithFixedDelay(() -> {
+				if (fMonitor.isCanceled()) {
+					progressChanged();
+				}
+			}, CANCEL_CHECK_INTERVAL, CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+			for (Member member : ready) {
+				schedule(member);
+			}
+			await();
+		} finally {
+			fAborted = true;
+			synchronized (fObservers) {
+				for (CompletableFuture<?> observer : fObservers) {
+					observer.cancel(false);
+				}
+				fObservers.clear();
+			}
+			fExecutor.shutdown();
+			// members being launched are added to the group before returning
+			try {
+				fExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (fFailure != null) {
+			throw fFailure;
+		}
+	}
+
+	/**
+	 * Connects the members to the members they depend on. Members without
+	 * dependencies wait for the previous member. Members in a dependency cycle
+	 * are reported and not launched.
+	 *
+	 * @return the members that can be launched, in topological order
+	 * @throws CoreException if a member depends on a launch configuration that
+	 *             is not an enabled member of the group
+	 */
+	private List<Member> resolveDependencies() throws CoreException {
+		Map<String, List<Member>> byName = new HashMap<>();
+		for (Member member : fMembers) {
+			byName.computeIfAbsent(member.fConfiguration.getName(), name -> new ArrayList<>()).add(member);
+		}
+		Member previous = null;
+		for (Member member : fMembers) {
+			List<GroupElementDependency> dependencies = member.fElement.dependencies;
+			if (dependencies == null) {
+				if (previous != null) {
+					member.fConditions.add(new Condition(previous, GroupElementDependencyCondition.LAUNCHED, null));
+				}
+			} else {
+				for (GroupElementDependency dependency : dependencies) {
+					List<Member> targets = byName.get(dependency.name);
+					if (targets == null) {
+						// unknown, disabled, or not launchable in the mode
+						throw new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(), DebugPlugin.ERROR, NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Unknown_dependency, member.fConfiguration.getName(), dependency.name), null));
+					}
+					for (Member target : targets) {
+						if (target != member) {
+							member.fConditions.add(new Condition(target, dependency.condition, dependency.param));
+						}
+					}
+				}
+			}
+			previous = member;
+		}
+
+		// topological sort, what remains is part of or depends on a cycle
+		Map<Member, Integer> inDegree = new HashMap<>();
+		Map<Member, List<Member>> dependents = new HashMap<>();
+		for (Member member : fMembers) {
+			inDegree.put(member, member.fConditions.size());
+			for (Condition condition : member.fConditions) {
+				dependents.computeIfAbsent(condition.fMember, m -> new ArrayList<>()).add(member);
+			}
+		}
+		List<Member> sorted = new ArrayList<>();
+		for (Member member : fMembers) {
+			if (member.fConditions.isEmpty()) {
+				sorted.add(member);
+			}
+		}
+		for (int i = 0; i < sorted.size(); i++) {
+			List<Member> next = dependents.get(sorted.get(i));
+			if (next != null) {
+				for (Member member : next) {
+					if (inDegree.merge(member, -1, Integer::sum) == 0) {
+						sorted.add(member);
+					}
+				}
+			}
+		}
+		if (sorted.size() < fMembers.size()) {
+			Set<Member> launchable = new HashSet<>(sorted);
+			boolean reported = false;
+			for (Member member : fMembers) {
+				if (!launchable.contains(member)) {
+					if (!reported && fCycleHandler != null) {
+						try {
+							fCycleHandler.handleStatus(GroupLaunchConfigurationDelegate.GROUP_CYCLE, member.fConfiguration.getName());
+						} catch (CoreException e) {
+							DebugPlugin.log(e);
+						}
+						reported = true;
+					}
+					finish(member, null);
+				}
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * Launches the member once its conditions are met.
+	 */
+	private void schedule(final Member member) {
+		if (member.fConditions.isEmpty()) {
+			submit(member);
+			return;
+		}
+		final List<CompletableFuture<Boolean>> conditions = new ArrayList<>();
+		for (Condition condition : member.fConditions) {
+			conditions.add(observe(condition));
+		}
+		CompletableFuture.allOf(conditions.toArray(new CompletableFuture<?>[conditions.size()])).whenComplete((v, e) -> {
+			if (e == null) {
+				for (CompletableFuture<Boolean> condition : conditions) {
+					if (!condition.join().booleanValue()) {
+						finish(member, null);
+						return;
+					}
+				}
+				submit(member);
+			} else {
+				finish(member, null);
+			}
+		});
+	}
+
+	/**
+	 * Returns a future that is completed with whether the condition is met.
+	 */
+	private CompletableFuture<Boolean> observe(final Condition condition) {
+		switch (condition.fKind) {
+			case TERMINATED:
+				return whenLaunched(condition.fMember, launch -> track(LaunchObserver.terminated(launch)).thenApply(l -> Boolean.TRUE));
+			case EXIT_OK:
+				return whenLaunched(condition.fMember, launch -> track(LaunchObserver.exitedNormally(launch)));
+			case OUTPUT_REGEXP:
+				if (condition.fParam != null) {
+					return whenLaunched(condition.fMember, launch -> track(LaunchObserver.outputMatches(launch, condition.fParam)));
+				}
+				return condition.fMember.fDone;
+			case LAUNCHED:
+			default:
+				return condition.fMember.fDone;
+		}
+	}
+
+	/**
+	 * Observes the launch of the member once it is launched. Completes with
+	 * <code>false</code> if the member is not launched. Observers are to be
+	 * tracked, so that they are removed when launching is done.
+	 */
+	private CompletableFuture<Boolean> whenLaunched(Member member, final Function<ILaunch, CompletableFuture<Boolean>> observer) {
+		return member.fLaunched.thenCompose(launch -> {
+			if (launch == null) {
+				return CompletableFuture.completedFuture(Boolean.FALSE);
+			}
+			return observer.apply(launch);
+		});
+	}
+
+	private <T> CompletableFuture<T> track(CompletableFuture<T> observer) {
+		synchronized (fObservers) {
+			if (fAborted) {
+				observer.cancel(false);
+			} else {
+				fObservers.add(observer);
+			}
+		}
+		return observer;
+	}
+
+	private void submit(final Member member) {
+		try {
+			fExecutor.execute(() -> launch(member));
+		} catch (RejectedExecutionException e) {
+			// launching is done
+			finish(member, null);
+		}
+	}
+
+	/**
+	 * Launches the member, or adopts its running launch, and performs its
+	 * post-launch action. Runs on the pool.
+	 */
+	private void launch(final Member member) {
+		if (fAborted || fGroup.isTerminated()) {
+			finish(member, null);
+			return;
+		}
+		ILaunch launch = null;
+		try {
+			if (member.fElement.adoptIfRunning) {
+				launch = GroupLaunchConfigurationDelegate.findRunningLaunch(member.fElement.name).stream().findFirst().orElse(null);
+			}
+			if (launch == null) {
+				launch = member.fConfiguration.launch(member.fMode, new NullProgressMonitor() {
+					@Override
+					public boolean isCanceled() {
+						return super.isCanceled() || fMonitor.isCanceled();
+					}
+				});
+			}
+
+			fGroup.addSubLaunch(launch);
+
+			// Now that we added the launch in our list, we have already
+			// received the real launchChanged event, and did not know
+			// it was part of our list
+			// So, fake another event now.
+			fGroup.launchChanged(launch);
+
+			// give handler a chance to perform additional actions after
+			// launching each of the members.
+			IStatusHandler postLaunchHandler = DebugPlugin.getDefault().getStatusHandler(GroupLaunchConfigurationDelegate.GROUP_ELEMENT_STARTED);
+			if (postLaunchHandler != null) {
+				postLaunchHandler.handleStatus(GroupLaunchConfigurationDelegate.GROUP_ELEMENT_STARTED, new ILaunch[] {
+						fGroup, launch });
+			}
+		} catch (CoreException e) {
+			fail(member, e);
+			return;
+		} catch (RuntimeException e) {
+			fail(member, new CoreException(new Status(IStatus.ERROR, DebugPlugin.getUniqueIdentifier(), e.getMessage(), e)));
+			return;
+		}
+
+		final ILaunch subLaunch = launch;
+		// the member must be known to be launched before observers are
+		// added, as an observer may complete right away
+		if (!member.fLaunched.complete(subLaunch)) {
+			return;
+		}
+		launched();
+		try {
+			postLaunchAction(member, subLaunch).whenComplete((result, e) -> member.fDone.complete(Boolean.valueOf(e == null && result.booleanValue())));
+		} catch (RuntimeException e) {
+			// like an invalid regular expression
+			DebugPlugin.log(e);
+			member.fDone.complete(Boolean.FALSE);
+		}
+	}
+
+	/**
+	 * Returns a future that is completed once the post-launch action of the
+	 * member is performed, with <code>false</code> if it failed.
+	 */
+	private CompletableFuture<Boolean> postLaunchAction(Member member, ILaunch subLaunch) {
+		GroupLaunchElement le = member.fElement;
+		switch (le.action) {
+			case NONE:
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+			case WAIT_FOR_TERMINATION:
+				setSubTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Waiting_for_termination, subLaunch.getLaunchConfiguration().getName()));
+				return track(LaunchObserver.terminated(subLaunch)).thenApply(l -> Boolean.TRUE);
+			case DELAY:
+				Integer waitSecs = (Integer) le.actionParam;
+				if (waitSecs != null) {
+					setSubTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_Delaying, waitSecs.toString()));
+					final CompletableFuture<Boolean> delay = track(new CompletableFuture<Boolean>());
+					try {
+						fExecutor.schedule(() -> delay.complete(Boolean.TRUE), waitSecs.longValue(), TimeUnit.SECONDS);
+					} catch (RejectedExecutionException e) {
+						delay.complete(Boolean.TRUE);
+					}
+					return delay;
+				}
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+			case OUTPUT_REGEXP:
+				String regexp = (String) le.actionParam;
+				if (regexp != null) {
+					setSubTask(NLS.bind(DebugCoreMessages.GroupLaunchConfigurationDelegate_waiting, regexp, subLaunch.getLaunchConfiguration().getName()));
+					// fails if the process terminated before the output matched
+					return track(LaunchObserver.outputMatches(subLaunch, regexp));
+				}
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+			default:
+				assert false : "new post launch action type is missing logic"; //$NON-NLS-1$
+				return CompletableFuture.completedFuture(Boolean.TRUE);
+		}
+	}
+
+	/**
+	 * Stops launching after a member failed to launch, like launching the
+	 * members one after the other did.
+	 */
+	private void fail(Member member, CoreException e) {
+		if (fFailure == null) {
+			fFailure = e;
+		}
+		fAborted = true;
+		finish(member, null);
+		progressChanged();
+	}
+
+	private void setSubTask(String subTask) {
+		fSubTask = subTask;
+		progressChanged();
+	}
+
+	/**
+	 * Wakes up the launching thread to report progress, or to stop waiting.
+	 */
+	private void progressChanged() {
+		synchronized (fProgressLock) {
+			fProgressChanged = true;
+			fProgressLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Completes the member with the given launch, <code>null</code> if it is
+	 * not launched.
+	 */
+	private void finish(Member member, ILaunch launch) {
+		if (member.fLaunched.complete(launch)) {
+			launched();
+		}
+		if (launch == null) {
+			member.fDone.complete(Boolean.FALSE);
+		}
+	}
+
+	/**
+	 * Called once for each member that is launched or failed. Once all are,
+	 * the last terminating member also terminates the group.
+	 */
+	private void launched() {
+		if (fPending.decrementAndGet() == 0) {
+			fGroup.markLaunched();
+		}
+	}
+
+	/**
+	 * Waits for all members to be done, or for launching to be cancelled or to
+	 * fail, or for the group to be terminated, reporting progress meanwhile.
+	 */
+	private void await() {
+		CompletableFuture<?>[] done = new CompletableFuture<?>[fMembers.size()];
+		for (int i = 0; i < done.length; i++) {
+			done[i] = fMembers.get(i).fDone;
+		}
+		CompletableFuture<Void> all = CompletableFuture.allOf(done);
+		fMonitor.setWorkRemaining(done.length);
+		int worked = 0;
+		String subTask = null;
+		while (!all.isDone()) {
+			// in case the group has been terminated while waiting in a post
+			// launch action, or launching failed
+			if (fMonitor.isCanceled() || fAborted || fGroup.isTerminated()) {
+				return;
+			}
+			int count = 0;
+			for (CompletableFuture<?> future : done) {
+				if (future.isDone()) {
+					count++;
+				}
+			}
+			if (count > worked) {
+				fMonitor.worked(count - worked);
+				worked = count;
+			}
+			if (fSubTask != subTask) {
+				subTask = fSubTask;
+				fMonitor.subTask(subTask);
+			}
+			synchronized (fProgressLock) {
+				try {
+					while (!fProgressChanged) {
+						fProgressLock.wait();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				fProgressChanged = false;
+			}
+		}
+	}
+}
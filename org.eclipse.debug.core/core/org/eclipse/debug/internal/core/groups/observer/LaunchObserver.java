@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.groups.observer;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.ILaunchesListener2;
+import org.eclipse.debug.core.IStreamListener;
+import org.eclipse.debug.core.TerminationNotifier;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStreamMonitor;
+import org.eclipse.debug.core.model.IStreamsProxy;
+
+/**
+ * Observes a launch without polling. The returned futures are completed from
+ * the {@link TerminationNotifier} and stream listeners. Cancelling a
+ * future removes the listeners it has added.
+ *
+ * @since 3.11
+ */
+public final class LaunchObserver {
+
+	private LaunchObserver() {
+	}
+
+	/**
+	 * Returns a future that is completed with the given launch once it is
+	 * terminated or removed from the launch manager.
+	 *
+	 * @param launch the launch to observe
+	 * @return a future completed once the launch is terminated
+	 */
+	public static CompletableFuture<ILaunch> terminated(ILaunch launch) {
+		return TerminationNotifier.whenTerminated(launch);
+	}
+
+	/**
+	 * Returns a future that is completed with <code>true</code> once the
+	 * output of a process of the given launch matches the given regular
+	 * expression, or with <code>false</code> if the launch terminates first or
+	 * has nothing to observe.
+	 *
+	 * @param launch the launch to observe
+	 * @param regexp the regular expression to find in the output
+	 * @return a future completed once the output matches
+	 */
+	public static CompletableFuture<Boolean> outputMatches(final ILaunch launch, String regexp) {
+		final CompletableFuture<Boolean> result = new CompletableFuture<>();
+		if (!launch.hasChildren()) {
+			result.complete(Boolean.FALSE);
+			return result;
+		}
+		final Pattern pattern = Pattern.compile(regexp, Pattern.MULTILINE);
+		final Set<IStreamMonitor> monitors = new HashSet<>();
+		final IStreamListener streamListener = new IStreamListener() {
+			@Override
+			public void streamAppended(String text, IStreamMonitor monitor) {
+				if (text != null && pattern.matcher(text).find()) {
+					result.complete(Boolean.TRUE);
+				}
+			}
+		};
+		final ILaunchesListener2 launchListener = new LaunchAdapter() {
+			@Override
+			public void launchesChanged(ILaunch[] launches) {
+				for (ILaunch l : launches) {
+					if (l == launch) {
+						observeProcesses(launch, monitors, streamListener, result);
+						return;
+					}
+				}
+			}
+		};
+		final ILaunchManager manager = DebugPlugin.getDefault().getLaunchManager();
+		manager.addLaunchListener(launchListener);
+		final CompletableFuture<ILaunch> terminated = terminated(launch);
+		terminated.thenRun(() -> result.complete(Boolean.FALSE));
+		result.whenComplete((b, e) -> {
+			manager.removeLaunchListener(launchListener);
+			terminated.cancel(false);
+			synchronized (monitors) {
+				for (IStreamMonitor monitor : monitors) {
+					monitor.removeListener(streamListener);
+				}
+				monitors.clear();
+			}
+		});
+		observeProcesses(launch, monitors, streamListener, result);
+		return result;
+	}
+
+	/**
+	 * Returns a future that is completed once the given launch is terminated,
+	 * with <code>true</code> if all its processes exited with value 0.
+	 *
+	 * @param launch the launch to observe
+	 * @return a future completed once the launch is terminated
+	 */
+	public static CompletableFuture<Boolean> exitedNormally(ILaunch launch) {
+		final CompletableFuture<ILaunch> terminated = terminated(launch);
+		CompletableFuture<Boolean> result = terminated.thenApply(l -> {
+			for (IProcess process : l.getProcesses()) {
+				try {
+					if (process.getExitValue() != 0) {
+						return Boolean.FALSE;
+					}
+				} catch (DebugException e) {
+					return Boolean.FALSE;
+				}
+			}
+			return Boolean.TRUE;
+		});
+		result.whenComplete((b, e) -> terminated.cancel(false));
+		return result;
+	}
+
+	/**
+	 * Adds the stream listener to the output of all processes of the launch
+	 * that are not observed yet, and matches the output they already have.
+	 */
+	static void observeProcesses(ILaunch launch, Set<IStreamMonitor> monitors, IStreamListener listener, CompletableFuture<Boolean> result) {
+		for (IProcess process : launch.getProcesses()) {
+			IStreamsProxy proxy = process.getStreamsProxy();
+			IStreamMonitor monitor = proxy == null ? null : proxy.getOutputStreamMonitor();
+			if (monitor == null) {
+				continue;
+			}
+			synchronized (monitors) {
+				if (result.isDone() || !monitors.add(monitor)) {
+					continue;
+				}
+				monitor.addListener(listener);
+			}
+			listener.streamAppended(monitor.getContents(), monitor);
+		}
+	}
+
+	/**
+	 * Launch listener that ignores all notifications.
+	 */
+	static class LaunchAdapter implements ILaunchesListener2 {
+
+		@Override
+		public void launchesRemoved(ILaunch[] launches) {
+		}
+
+		@Override
+		public void launchesAdded(ILaunch[] launches) {
+		}
+
+		@Override
+		public void launchesChanged(ILaunch[] launches) {
+		}
+
+		@Override
+		public void launchesTerminated(ILaunch[] launches) {
+		}
+	}
+}
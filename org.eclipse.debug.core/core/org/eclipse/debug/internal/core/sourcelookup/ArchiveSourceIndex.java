@@ -0,0 +1,431 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Immutable index of the file entries of an archive.
+ * <p>
+ * The index is built from the central directory of the archive, read through
+ * a memory mapped buffer without opening the archive. The names of the
+ * entries are kept as UTF-8 bytes in one array, in the order of the central
+ * directory, and are found through a hash table of their simple names. Since
+ * the index never changes once built, it is searched concurrently without
+ * locking.
+ * </p>
+ * <p>
+ * Indexes are shared by all containers of the same archive, and are kept
+ * when the shared archives are closed: an index is reused as long as the
+ * length and the modification time of its archive do not change.
+ * </p>
+ *
+ * @since 3.11
+ */
+public class ArchiveSourceIndex {
+
+	/**
+	 * Maximum number of shared indexes. Containers keep their index even when
+	 * it is no longer shared.
+	 */
+	private static final int MAX_INDEXES = 64;
+
+	private static final int END_SIGNATURE = 0x06054b50;
+	private static final int END_HEADER = 22;
+	private static final int MAX_COMMENT = 0xffff;
+	private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+	private static final int ZIP64_LOCATOR_HEADER = 20;
+	private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+	private static final int ZIP64_END_HEADER = 56;
+	private static final int CENTRAL_SIGNATURE = 0x02014b50;
+	private static final int CENTRAL_HEADER = 46;
+
+	private static final String[] EMPTY = new String[0];
+
+	/**
+	 * Archive paths to indexes, least recently used first
+	 */
+	private static final Map<String, ArchiveSourceIndex> fgIndexes = new LinkedHashMap<String, ArchiveSourceIndex>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ArchiveSourceIndex> eldest) {
+			return size() > MAX_INDEXES;
+		}
+	};
+
+	/**
+	 * Length and modification time of the indexed archive
+	 */
+	private final long fLength;
+	private final long fModified;
+
+	/**
+	 * Incremented each time the shared archives are closed
+	 */
+	private static volatile int fgGeneration = 0;
+
+	/**
+	 * Generation in which the archive was last known not to have changed
+	 */
+	private volatile int fGeneration;
+
+	/**
+	 * UTF-8 names of the file entries, entry <code>i</code> spanning
+	 * <code>fStarts[i]</code> to <code>fStarts[i + 1]</code>
+	 */
+	private final byte[] fNames;
+	private final int[] fStarts;
+
+	/**
+	 * Hashes of the simple names of the entries
+	 */
+	private final int[] fHashes;
+
+	/**
+	 * First entry of each hash bucket, and next entry in the bucket of each
+	 * entry, or <code>-1</code>. Buckets list their entries in the order of
+	 * the central directory.
+	 */
+	private final int[] fBuckets;
+	private final int[] fNext;
+
+	/**
+	 * Collects the names of the entries of an archive
+	 */
+	static class Builder {
+
+		private byte[] fBytes;
+		private int fSize = 0;
+		private int[] fStarts;
+		private int fCount = 0;
+
+		Builder(int bytes, int entries) {
+			fBytes = new byte[Math.max(bytes, 16)];
+			fStarts = new int[Math.max(entries, 16) + 1];
+		}
+
+		/**
+		 * Adds the given entry name, unless it is the name of a directory.
+		 */
+		void add(ByteBuffer buffer, int offset, int length) {
+			if (length == 0 || buffer.get(offset + length - 1) == '/') {
+				return;
+			}
+			ensureCapacity(length);
+			buffer.position(offset);
+			buffer.get(fBytes, fSize, length);
+			fSize += length;
+			fStarts[fCount] = fSize;
+		}
+
+		void add(String name) {
+			if (name.length() == 0 || name.charAt(name.length() - 1) == '/') {
+				return;
+			}
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			ensureCapacity(bytes.length);
+			System.arraycopy(bytes, 0, fBytes, fSize, bytes.length);
+			fSize += bytes.length;
+			fStarts[fCount] = fSize;
+		}
+
+		private void ensureCapacity(int length) {
+			if (fSize + length > fBytes.length) {
+				fBytes = Arrays.copyOf(fBytes, Math.max(fBytes.length * 2, fSize + length));
+			}
+			if (fCount + 2 > fStarts.length) {
+				fStarts = Arrays.copyOf(fStarts, fStarts.length * 2);
+			}
+			fStarts[fCount++] = fSize;
+		}
+	}
+
+	private ArchiveSourceIndex(int generation, long length, long modified, Builder builder) {
+		fGeneration = generation;
+		fLength = length;
+		fModified = modified;
+		fNames = Arrays.copyOf(builder.fBytes, builder.fSize);
+		fStarts = Arrays.copyOf(builder.fStarts, builder.fCount + 1);
+		int count = builder.fCount;
+		fHashes = new int[count];
+		fNext = new int[count];
+		fBuckets = new int[Integer.highestOneBit(Math.max(count, 1) * 2 - 1) * 2];
+		Arrays.fill(fBuckets, -1);
+		int mask = fBuckets.length - 1;
+		// insert backwards so that buckets list their entries in order
+		for (int i = count - 1; i >= 0; i--) {
+			int end = fStarts[i + 1];
+			int hash = hash(fNames, getSimpleStart(fNames, fStarts[i], end), end);
+			fHashes[i] = hash;
+			fNext[i] = fBuckets[hash & mask];
+			fBuckets[hash & mask] = i;
+		}
+	}
+
+	/**
+	 * Returns the index of the archive at the given path in the local file
+	 * system, building it if needed.
+	 *
+	 * @param path archive path
+	 * @return archive index
+	 * @exception IOException if the archive cannot be read
+	 */
+	public static ArchiveSourceIndex getIndex(String path) throws IOException {
+		ArchiveSourceIndex index;
+		synchronized (fgIndexes) {
+			index = fgIndexes.get(path);
+			if (index != null && index.isCurrent()) {
+				return index;
+			}
+		}
+		int generation = fgGeneration;
+		File file = new File(path);
+		if (index == null || index.fLength != file.length() || index.fModified != file.lastModified()) {
+			index = build(file);
+		} else {
+			index.fGeneration = generation;
+		}
+		synchronized (fgIndexes) {
+			fgIndexes.put(path, index);
+		}
+		return index;
+	}
+
+	/**
+	 * Returns whether the archive is known not to have changed since the
+	 * shared archives were last closed. Otherwise the index must be retrieved
+	 * again with {@link #getIndex(String)}.
+	 *
+	 * @return whether the index can be used
+	 */
+	public boolean isCurrent() {
+		return fGeneration == fgGeneration;
+	}
+
+	/**
+	 * Makes the next retrieval of each index check whether its archive has
+	 * changed. Called when the shared archives are closed.
+	 */
+	public static void verifyIndexes() {
+		synchronized (fgIndexes) {
+			fgGeneration++;
+		}
+	}
+
+	/**
+	 * Discards all indexes. Called when the debug plug-in shuts down.
+	 */
+	public static void shutdown() {
+		synchronized (fgIndexes) {
+			fgIndexes.clear();
+		}
+	}
+
+	/**
+	 * Builds the index of the given archive from its central directory, or
+	 * from the entries of the archive if its central directory cannot be
+	 * mapped.
+	 *
+	 * @param archive archive in the local file system
+	 * @return archive index
+	 * @exception IOException if the archive cannot be read
+	 */
+	public static ArchiveSourceIndex build(File archive) throws IOException {
+		int generation = fgGeneration;
+		long length = archive.length();
+		long modified = archive.lastModified();
+		Builder builder;
+		try {
+			builder = readCentralDirectory(archive);
+		} catch (IOException e) {
+			// not mappable or unusual layout, reports the errors of the archive
+			builder = readEntries(archive);
+		}
+		return new ArchiveSourceIndex(generation, length, modified, builder);
+	}
+
+	private static Builder readCentralDirectory(File archive) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(archive, "r"); FileChannel channel = file.getChannel()) { //$NON-NLS-1$
+			long length = channel.size();
+			if (length < END_HEADER) {
+				throw new ZipException();
+			}
+			// the end record is followed by the archive comment
+			int tailLength = (int) Math.min(length, END_HEADER + MAX_COMMENT);
+			long tailStart = length - tailLength;
+			ByteBuffer tail = channel.map(FileChannel.MapMode.READ_ONLY, tailStart, tailLength).order(ByteOrder.LITTLE_ENDIAN);
+			int end = tailLength - END_HEADER;
+			while (end >= 0 && (tail.getInt(end) != END_SIGNATURE || end + END_HEADER + (tail.getShort(end + 20) & 0xffff) > tailLength)) {
+				end--;
+			}
+			if (end < 0) {
+				throw new ZipException();
+			}
+			long count = tail.getShort(end + 10) & 0xffff;
+			long size = tail.getInt(end + 12) & 0xffffffffL;
+			long endStart = tailStart + end;
+			if ((count == 0xffff || size == 0xffffffffL) && end >= ZIP64_LOCATOR_HEADER && tail.getInt(end - ZIP64_LOCATOR_HEADER) == ZIP64_LOCATOR_SIGNATURE) {
+				long recordStart = tail.getLong(end - ZIP64_LOCATOR_HEADER + 8);
+				if (recordStart < 0 || recordStart + ZIP64_END_HEADER > length) {
+					throw new ZipException();
+				}
+				ByteBuffer record = channel.map(FileChannel.MapMode.READ_ONLY, recordStart, ZIP64_END_HEADER).order(ByteOrder.LITTLE_ENDIAN);
+				if (record.getInt(0) != ZIP64_END_SIGNATURE) {
+					throw new ZipException();
+				}
+				count = record.getLong(32);
+				size = record.getLong(40);
+				endStart = recordStart;
+			}
+			// the central directory ends where the end record starts, even
+			// when data precedes the archive
+			long start = endStart - size;
+			if (start < 0 || size > Integer.MAX_VALUE || count < 0) {
+				throw new ZipException();
+			}
+			ByteBuffer directory = channel.map(FileChannel.MapMode.READ_ONLY, start, size).order(ByteOrder.LITTLE_ENDIAN);
+			Builder builder = new Builder((int) size / 2, (int) Math.min(count, size / CENTRAL_HEADER));
+			int position = 0;
+			while (position + CENTRAL_HEADER <= size) {
+				if (directory.getInt(position) != CENTRAL_SIGNATURE) {
+					throw new ZipException();
+				}
+				int nameLength = directory.getShort(position + 28) & 0xffff;
+				int extraLength = directory.getShort(position + 30) & 0xffff;
+				int commentLength = directory.getShort(position + 32) & 0xffff;
+				if (position + CENTRAL_HEADER + nameLength > size) {
+					throw new ZipException();
+				}
+				builder.add(directory, position + CENTRAL_HEADER, nameLength);
+				position += CENTRAL_HEADER + nameLength + extraLength + commentLength;
+			}
+			return builder;
+		}
+	}
+
+	private static Builder readEntries(File archive) throws IOException {
+		try (ZipFile file = new ZipFile(archive)) {
+			Builder builder = new Builder(1024, file.size());
+			Enumeration<? extends ZipEntry> entries = file.entries();
+			while (entries.hasMoreElements()) {
+				builder.add(entries.nextElement().getName());
+			}
+			return builder;
+		}
+	}
+
+	/**
+	 * Returns the number of file entries in the index.
+	 *
+	 * @return number of file entries
+	 */
+	public int getEntryCount() {
+		return fHashes.length;
+	}
+
+	/**
+	 * Returns whether the archive has a file entry with the given name.
+	 *
+	 * @param name entry name
+	 * @return whether the entry exists
+	 */
+	public boolean contains(String name) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(key, getSimpleStart(key, 0, key.length), key.length);
+		for (int i = fBuckets[hash & (fBuckets.length - 1)]; i >= 0; i = fNext[i]) {
+			if (fHashes[i] == hash && fStarts[i + 1] - fStarts[i] == key.length && regionMatches(fStarts[i], key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the names of the file entries that end with the given name, in
+	 * the order of the central directory.
+	 *
+	 * @param name file name, with <code>/</code> separators
+	 * @param anySuffix whether the name may start in the middle of a segment
+	 *            of an entry name, or only at the start of a segment
+	 * @return entry names, possibly empty
+	 */
+	public String[] findEntries(String name, boolean anySuffix) {
+		byte[] key = name.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(key, getSimpleStart(key, 0, key.length), key.length);
+		List<String> matches = null;
+		for (int i = fBuckets[hash & (fBuckets.length - 1)]; i >= 0; i = fNext[i]) {
+			if (fHashes[i] != hash) {
+				continue;
+			}
+			int start = fStarts[i];
+			int length = fStarts[i + 1] - start;
+			int prefix = length - key.length;
+			if (prefix < 0 || !regionMatches(start + prefix, key)) {
+				continue;
+			}
+			if (anySuffix || prefix == 0 || fNames[start + prefix - 1] == '/') {
+				if (matches == null) {
+					matches = new ArrayList<String>(1);
+				}
+				matches.add(new String(fNames, start, length, StandardCharsets.UTF_8));
+			}
+		}
+		if (matches == null) {
+			return EMPTY;
+		}
+		return matches.toArray(new String[matches.size()]);
+	}
+
+	private boolean regionMatches(int offset, byte[] key) {
+		for (int i = 0; i < key.length; i++) {
+			if (fNames[offset + i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the start of the simple name of the given name.
+	 */
+	private static int getSimpleStart(byte[] bytes, int start, int end) {
+		for (int i = end - 1; i >= start; i--) {
+			if (bytes[i] == '/') {
+				return i + 1;
+			}
+		}
+		return start;
+	}
+
+	private static int hash(byte[] bytes, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + bytes[i];
+		}
+		return hash;
+	}
+}
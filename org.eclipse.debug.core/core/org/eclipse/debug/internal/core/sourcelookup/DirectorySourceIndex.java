@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Name index of a directory in the local file system and its sub-directories.
+ * <p>
+ * The index records the modification time of each indexed directory. Before
+ * a lookup, at most once per {@link #VALIDATION_INTERVAL}, the modification
+ * times are compared with the file system, and only the directories that
+ * changed are listed again: added and removed files are added to and removed
+ * from the index, added or removed directories invalidate the index. No
+ * file system watches are registered. Between two validations, names that
+ * are not in the index are looked up in the file system.
+ * </p>
+ *
+ * @since 3.11
+ */
+public class DirectorySourceIndex extends SourceContainerIndex {
+
+	/**
+	 * Maximum depth of indexed directories, which also stops the indexing of
+	 * cyclic links.
+	 */
+	private static final int MAX_DEPTH = 64;
+
+	/**
+	 * Minimum time in milliseconds between two validations of the index
+	 */
+	static final long VALIDATION_INTERVAL = 1000;
+
+	/**
+	 * Resolution of modification times. A directory modified this close to
+	 * the time it was listed may change again without a new modification
+	 * time, so it is listed again on the next validation.
+	 */
+	private static final long STAMP_RESOLUTION = 2000;
+
+	/**
+	 * Listing of an indexed directory
+	 */
+	private static class DirectoryState {
+
+		long fStamp;
+
+		boolean fRacy;
+
+		/**
+		 * Sorted names of the files
+		 */
+		String[] fFiles;
+
+		/**
+		 * Names of the directories in the order they are listed, which is the
+		 * order the nested directory source containers are searched in
+		 */
+		String[] fDirectories;
+	}
+
+	private final File fRoot;
+
+	/**
+	 * Listings of the indexed directories by path, relative to the root of
+	 * the index, or <code>null</code>. Guarded by this index.
+	 */
+	private Map<String, DirectoryState> fDirectories = null;
+
+	private long fLastValidation = 0;
+
+	/**
+	 * Constructs an index of the given directory.
+	 *
+	 * @param root directory
+	 */
+	public DirectorySourceIndex(File root) {
+		super(root.getName());
+		fRoot = root;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex#build(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected SourceNameIndex build(IProgressMonitor monitor) {
+		SourceNameIndex index = new SourceNameIndex(MAX_FILES, EFS.getLocalFileSystem().isCaseSensitive());
+		Map<String, DirectoryState> directories = new LinkedHashMap<String, DirectoryState>();
+		if (!index(fRoot, "", 0, index, directories, monitor)) { //$NON-NLS-1$
+			return null;
+		}
+		synchronized (this) {
+			fDirectories = directories;
+			fLastValidation = System.currentTimeMillis();
+		}
+		return index;
+	}
+
+	/**
+	 * Adds the files of the given directory to the index, then its
+	 * sub-directories, in the order of the nested directory source containers.
+	 */
+	private boolean index(File directory, String path, int depth, SourceNameIndex index, Map<String, DirectoryState> directories, IProgressMonitor monitor) {
+		if (monitor.isCanceled() || depth > MAX_DEPTH || !index.addFolder(path)) {
+			return false;
+		}
+		DirectoryState state = list(directory);
+		if (state == null) {
+			return false;
+		}
+		directories.put(path, state);
+		for (int i = 0; i < state.fFiles.length; i++) {
+			if (!index.addFile(getPath(path, state.fFiles[i]))) {
+				return false;
+			}
+		}
+		for (int i = 0; i < state.fDirectories.length; i++) {
+			String child = getPath(path, state.fDirectories[i]);
+			if (!index(new File(directory, state.fDirectories[i]), child, depth + 1, index, directories, monitor)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Lists the given directory, or returns <code>null</code> if it cannot be
+	 * listed. The modification time is read first, so that changes made while
+	 * listing are seen by the next validation.
+	 */
+	private static DirectoryState list(File directory) {
+		DirectoryState state = new DirectoryState();
+		long now = System.currentTimeMillis();
+		state.fStamp = directory.lastModified();
+		state.fRacy = state.fStamp + STAMP_RESOLUTION > now;
+		String[] names = directory.list();
+		if (state.fStamp == 0 || names == null) {
+			return null;
+		}
+		List<String> files = new ArrayList<String>(names.length);
+		List<String> directories = new ArrayList<String>();
+		for (int i = 0; i < names.length; i++) {
+			File file = new File(directory, names[i]);
+			if (file.isDirectory()) {
+				directories.add(names[i]);
+			} else if (file.isFile()) {
+				files.add(names[i]);
+			}
+		}
+		state.fFiles = files.toArray(new String[files.size()]);
+		state.fDirectories = directories.toArray(new String[directories.size()]);
+		Arrays.sort(state.fFiles);
+		return state;
+	}
+
+	private static String getPath(String parent, String name) {
+		return parent.length() == 0 ? name : parent + '/' + name;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex#release()
+	 */
+	@Override
+	protected void release() {
+		fDirectories = null;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex#processChanges()
+	 */
+	@Override
+	protected boolean processChanges() {
+		SourceNameIndex index;
+		Map<String, DirectoryState> directories;
+		synchronized (this) {
+			index = getIndex();
+			directories = fDirectories;
+			long now = System.currentTimeMillis();
+			if (index == null || directories == null) {
+				return true;
+			}
+			if (now - fLastValidation < VALIDATION_INTERVAL) {
+				// files may have been added since the last validation
+				return false;
+			}
+			fLastValidation = now;
+		}
+		if (!validate(index, directories)) {
+			invalidate();
+		}
+		return true;
+	}
+
+	/**
+	 * Lists the directories whose modification time changed again and
+	 * applies the changes to the index. Returns <code>false</code> if the
+	 * index has to be rebuilt.
+	 */
+	private boolean validate(SourceNameIndex index, Map<String, DirectoryState> directories) {
+		synchronized (directories) {
+			for (Entry<String, DirectoryState> entry : directories.entrySet()) {
+				String path = entry.getKey();
+				DirectoryState state = entry.getValue();
+				File directory = path.length() == 0 ? fRoot : new File(fRoot, path);
+				long stamp = directory.lastModified();
+				if (stamp == state.fStamp && !state.fRacy) {
+					continue;
+				}
+				DirectoryState current = list(directory);
+				if (current == null || !Arrays.equals(current.fDirectories, state.fDirectories)) {
+					// directories were added, removed or listed in another order
+					return false;
+				}
+				if (!apply(index, path, state.fFiles, current.fFiles)) {
+					return false;
+				}
+				entry.setValue(current);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Applies the difference of two sorted file listings of a directory to
+	 * the index.
+	 */
+	private static boolean apply(SourceNameIndex index, String path, String[] before, String[] after) {
+		int i = 0;
+		int j = 0;
+		while (i < before.length || j < after.length) {
+			int compare = i == before.length ? 1 : (j == after.length ? -1 : before[i].compareTo(after[j]));
+			if (compare < 0) {
+				index.removeFile(getPath(path, before[i++]));
+			} else if (compare > 0) {
+				if (!index.addFile(getPath(path, after[j++]))) {
+					return false;
+				}
+			} else {
+				i++;
+				j++;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupDirector;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.core.sourcelookup.ISourceLookupDirector;
+
+/**
+ * Searches source containers concurrently, with the same results as searching
+ * them one after the other.
+ * <p>
+ * All containers are probed at once by a shared pool of threads. The results
+ * are collected in the order of the containers, so when duplicates are not
+ * searched the first container with a hit wins even if a container after it
+ * answered first. Once a hit is known, the probes of the containers after it
+ * that have not started yet are cancelled, and the results of those still
+ * running are ignored.
+ * </p>
+ * <p>
+ * Containers searched from a lookup thread, like the nested containers of a
+ * composite container, are searched one after the other so that lookups never
+ * wait for probes queued behind them.
+ * </p>
+ *
+ * @since 3.11
+ */
+public class ParallelSourceLookup {
+
+	/**
+	 * Maximum number of lookup threads. Probes mostly wait for the file
+	 * system, so this is independent of the number of processors.
+	 */
+	private static final int MAX_THREADS = 8;
+
+	private static final Object[] EMPTY = new Object[0];
+
+	private static ThreadPoolExecutor fgExecutor = null;
+
+	/**
+	 * Marks the lookup threads
+	 */
+	private static final ThreadLocal<Boolean> fgLookupThread = new ThreadLocal<Boolean>();
+
+	/**
+	 * Returns whether containers searched for the given director in the
+	 * calling thread are to be searched concurrently.
+	 *
+	 * @param director source lookup director or <code>null</code>
+	 * @return whether to search concurrently
+	 */
+	public static boolean isEnabled(ISourceLookupDirector director) {
+		return director instanceof AbstractSourceLookupDirector && ((AbstractSourceLookupDirector) director).isParallelLookup() && fgLookupThread.get() == null;
+	}
+
+	/**
+	 * Returns the source elements with the given name in the given containers,
+	 * in the order of the containers. When duplicates are not searched, the
+	 * result contains at most one source element, from the first container
+	 * with a hit.
+	 *
+	 * @param name source name
+	 * @param containers containers to search, in order
+	 * @param duplicates whether to search for duplicates
+	 * @return source elements
+	 * @exception CoreException if no source element is found and searching a
+	 *                container failed
+	 */
+	public static Object[] findSourceElements(final String name, ISourceContainer[] containers, boolean duplicates) throws CoreException {
+		ThreadPoolExecutor executor = getExecutor();
+		List<Future<Object[]>> probes = new ArrayList<Future<Object[]>>(containers.length);
+		for (int i = 0; i < containers.length; i++) {
+			final ISourceContainer container = containers[i];
+			probes.add(executor.submit(new Callable<Object[]>() {
+				@Override
+				public Object[] call() throws Exception {
+					return container.findSourceElements(name);
+				}
+			}));
+		}
+		List<Object> results = duplicates ? new ArrayList<Object>() : null;
+		CoreException single = null;
+		MultiStatus multiStatus = null;
+		try {
+			for (int i = 0; i < probes.size(); i++) {
+				Object[] objects;
+				try {
+					objects = probes.get(i).get();
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof CoreException) {
+						if (single == null) {
+							single = (CoreException) cause;
+						} else if (multiStatus == null) {
+							multiStatus = new MultiStatus(DebugPlugin.getUniqueIdentifier(), DebugPlugin.ERROR, new IStatus[]{single.getStatus()}, SourceLookupMessages.Source_Lookup_Error, null);
+							multiStatus.add(((CoreException) cause).getStatus());
+						} else {
+							multiStatus.add(((CoreException) cause).getStatus());
+						}
+						continue;
+					}
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+				if (objects != null && objects.length > 0) {
+					if (results != null) {
+						for (int j = 0; j < objects.length; j++) {
+							results.add(objects[j]);
+						}
+					} else {
+						if (objects.length == 1) {
+							return objects;
+						}
+						return new Object[]{objects[0]};
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return results == null ? EMPTY : results.toArray();
+		} finally {
+			// cancel the probes of lower priority
+			for (int i = 0; i < probes.size(); i++) {
+				probes.get(i).cancel(false);
+			}
+		}
+		if (results == null) {
+			if (multiStatus != null) {
+				throw new CoreException(multiStatus);
+			} else if (single != null) {
+				throw single;
+			}
+			return EMPTY;
+		}
+		return results.toArray();
+	}
+
+	private static synchronized ThreadPoolExecutor getExecutor() {
+		if (fgExecutor == null) {
+			fgExecutor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				private int fCount = 0;
+
+				@Override
+				public synchronized Thread newThread(final Runnable runnable) {
+					Thread thread = new Thread(new Runnable() {
+						@Override
+						public void run() {
+							fgLookupThread.set(Boolean.TRUE);
+							runnable.run();
+						}
+					}, "Source Lookup " + ++fCount); //$NON-NLS-1$
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			fgExecutor.allowCoreThreadTimeOut(true);
+		}
+		return fgExecutor;
+	}
+
+	/**
+	 * Stops the lookup threads. Called when the debug plug-in shuts down.
+	 */
+	public static synchronized void shutdown() {
+		if (fgExecutor != null) {
+			fgExecutor.shutdownNow();
+			fgExecutor = null;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+
+import com.ibm.icu.text.MessageFormat;
+
+/**
+ * The name index of a composite source container.
+ * <p>
+ * The index is built in the background on the first lookup. Until it is
+ * available, and whenever it cannot answer a lookup, {@link #lookup(String)}
+ * returns <code>null</code> and the container probes its nested containers as
+ * usual. Subclasses keep the index up to date as files are added or removed
+ * and call {@link #invalidate()} on changes they cannot apply, in which case
+ * the index is rebuilt on the next lookup.
+ * </p>
+ *
+ * @since 3.11
+ */
+public abstract class SourceContainerIndex {
+
+	/**
+	 * Maximum number of files of an index. Larger trees are not indexed.
+	 */
+	protected static final int MAX_FILES = 250000;
+
+	/**
+	 * Family of the jobs building indexes
+	 */
+	public static final Object FAMILY = new Object();
+
+	private SourceNameIndex fIndex = null;
+
+	private Job fJob = null;
+
+	/**
+	 * Incremented whenever the index is invalidated, so an index built
+	 * meanwhile is discarded.
+	 */
+	private int fGeneration = 0;
+
+	private boolean fFailed = false;
+
+	private boolean fDisposed = false;
+
+	private final String fName;
+
+	/**
+	 * Constructs an index.
+	 *
+	 * @param name name of the indexed container, used for the indexing job
+	 */
+	protected SourceContainerIndex(String name) {
+		fName = name;
+	}
+
+	/**
+	 * Returns the paths of the files matching the given name in search order,
+	 * or <code>null</code> if the index is not available.
+	 *
+	 * @param name source name
+	 * @return matching paths, possibly empty, or <code>null</code>
+	 * @see SourceNameIndex#lookup(String)
+	 */
+	public String[] lookup(String name) {
+		boolean current = processChanges();
+		SourceNameIndex index;
+		synchronized (this) {
+			if (fDisposed || fFailed) {
+				return null;
+			}
+			index = fIndex;
+			if (index == null) {
+				schedule();
+				return null;
+			}
+		}
+		String[] paths = index.lookup(name);
+		if (paths != null && paths.length == 0 && !current) {
+			// the file may have been added since the changes were processed
+			return null;
+		}
+		return paths;
+	}
+
+	/**
+	 * Returns the index, or <code>null</code> if it is not available.
+	 *
+	 * @return index or <code>null</code>
+	 */
+	protected synchronized SourceNameIndex getIndex() {
+		return fIndex;
+	}
+
+	/**
+	 * Discards the index. It is rebuilt on the next lookup.
+	 */
+	public synchronized void invalidate() {
+		fGeneration++;
+		fIndex = null;
+		release();
+	}
+
+	/**
+	 * Discards the index for good.
+	 */
+	public void dispose() {
+		Job job;
+		synchronized (this) {
+			fDisposed = true;
+			fGeneration++;
+			fIndex = null;
+			job = fJob;
+			release();
+		}
+		if (job != null) {
+			job.cancel();
+		}
+	}
+
+	/**
+	 * Returns whether the index is available.
+	 *
+	 * @return whether the index is available
+	 */
+	public synchronized boolean isAvailable() {
+		return fIndex != null;
+	}
+
+	private void schedule() {
+		if (fJob != null) {
+			return;
+		}
+		final int generation = fGeneration;
+		fJob = new Job(MessageFormat.format(SourceLookupMessages.SourceContainerIndex_0, new Object[] { fName })) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				SourceNameIndex index = null;
+				try {
+					index = build(monitor);
+				} finally {
+					synchronized (SourceContainerIndex.this) {
+						fJob = null;
+						if (fDisposed || generation != fGeneration || monitor.isCanceled()) {
+							release();
+						} else if (index == null) {
+							fFailed = true;
+							release();
+						} else {
+							fIndex = index;
+						}
+					}
+				}
+				return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+			}
+
+			@Override
+			public boolean belongsTo(Object family) {
+				return family == FAMILY;
+			}
+		};
+		fJob.setSystem(true);
+		fJob.setPriority(Job.DECORATE);
+		fJob.schedule();
+	}
+
+	/**
+	 * Builds the index. Returns <code>null</code> if the container cannot be
+	 * indexed, or if it is too large.
+	 *
+	 * @param monitor progress monitor
+	 * @return index or <code>null</code>
+	 */
+	protected abstract SourceNameIndex build(IProgressMonitor monitor);
+
+	/**
+	 * Releases the resources used to track changes of the index, called
+	 * with this index locked when the index is discarded. Subclasses may
+	 * override.
+	 */
+	protected void release() {
+	}
+
+	/**
+	 * Applies pending changes to the index before a lookup and returns whether
+	 * the index is known to be up to date, so that a name it does not contain
+	 * does not exist. Otherwise the container probes its nested containers
+	 * when the index has no match. Subclasses may override.
+	 *
+	 * @return whether the index is up to date
+	 */
+	protected boolean processChanges() {
+		return true;
+	}
+}
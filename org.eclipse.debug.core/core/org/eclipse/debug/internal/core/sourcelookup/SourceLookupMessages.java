@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2007 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -48,6 +48,8 @@ public class SourceLookupMessages extends NLS {
 	public static String ProjectSourceContainerType_11;
 	public static String ProjectSourceContainerType_12;
 
+	public static String SourceContainerIndex_0;
+
 	public static String SourceContainerType_0;
 
 	public static String WorkspaceSourceContainer_0;
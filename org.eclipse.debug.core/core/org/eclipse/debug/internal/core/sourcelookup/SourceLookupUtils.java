@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2003, 2013 IBM Corporation and others.
+ * Copyright (c) 2003, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -10,8 +10,15 @@
  *******************************************************************************/
 package org.eclipse.debug.internal.core.sourcelookup;
 
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.util.HashMap;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
 import org.eclipse.core.resources.IResourceChangeEvent;
@@ -32,12 +39,50 @@ import org.eclipse.debug.core.ILaunchesListener2;
 public class SourceLookupUtils {
 
 	/**
-	 * Cache of shared zip files. Zip files are closed
+	 * Maximum number of shared zip files kept open.
+	 */
+	private static final int MAX_OPEN_ARCHIVES = 32;
+
+	/**
+	 * Cache of shared zip files, least recently used first. Zip files are closed
 	 * when this class's plug-in is shutdown, when a project
 	 * is about to be closed or deleted, when a launch is
 	 * removed, and when a debug target or process terminates.
+	 * When more than {@link #MAX_OPEN_ARCHIVES} zip files are open, the least
+	 * recently used one is removed from the cache, and closed once no entry
+	 * stream opened through {@link #getInputStream(ZipFile, ZipEntry)} is
+	 * open anymore.
+	 */
+	private static LinkedHashMap<String, ZipFile> fgZipFileCache = new LinkedHashMap<String, ZipFile>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, ZipFile> eldest) {
+			if (size() > MAX_OPEN_ARCHIVES) {
+				ZipFile file = eldest.getValue();
+				if (fgOpenStreams.containsKey(file)) {
+					fgEvicted.add(file);
+				} else {
+					close(file);
+				}
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/**
+	 * Number of open entry streams of shared zip files, by zip file. Guarded
+	 * by the zip file cache.
 	 */
-	private static HashMap<String, ZipFile> fgZipFileCache = new HashMap<String, ZipFile>(5);
+	private static Map<ZipFile, Integer> fgOpenStreams = new IdentityHashMap<ZipFile, Integer>();
+
+	/**
+	 * Zip files removed from the cache that are closed when their last entry
+	 * stream is closed. Guarded by the zip file cache.
+	 */
+	private static Set<ZipFile> fgEvicted = new HashSet<ZipFile>();
+
 	private static ArchiveCleaner fgCleaner = null;
 
 	/**
@@ -65,23 +110,91 @@ public class SourceLookupUtils {
 	}
 
 	/**
-	 * Closes all zip files that have been opened,
-	 * and removes them from the zip file cache.
+	 * Returns a stream to read the given entry of a shared zip file. The zip
+	 * file is not closed when it is removed from the cache of shared zip files
+	 * while the stream is open, unless all zip files are closed.
+	 *
+	 * @param file shared zip file
+	 * @param entry entry of the zip file
+	 * @return stream to read the entry
+	 * @exception IOException if unable to read the entry
+	 * @exception IllegalStateException if the zip file has been closed
+	 */
+	public static InputStream getInputStream(final ZipFile file, ZipEntry entry) throws IOException {
+		InputStream stream;
+		synchronized (fgZipFileCache) {
+			// opened under the lock, so that the zip file is not closed in between
+			stream = file.getInputStream(entry);
+			Integer count = fgOpenStreams.get(file);
+			fgOpenStreams.put(file, Integer.valueOf(count == null ? 1 : count.intValue() + 1));
+		}
+		return new FilterInputStream(stream) {
+			private boolean fClosed = false;
+
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					synchronized (fgZipFileCache) {
+						if (!fClosed) {
+							fClosed = true;
+							release(file);
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Releases an entry stream of the given zip file, and closes the zip file
+	 * if it was removed from the cache and this was its last open stream.
+	 * Called while holding the lock of the cache.
+	 */
+	private static void release(ZipFile file) {
+		Integer count = fgOpenStreams.get(file);
+		if (count == null) {
+			return;
+		}
+		if (count.intValue() > 1) {
+			fgOpenStreams.put(file, Integer.valueOf(count.intValue() - 1));
+			return;
+		}
+		fgOpenStreams.remove(file);
+		if (fgEvicted.remove(file)) {
+			close(file);
+		}
+	}
+
+	/**
+	 * Closes all zip files that have been opened, including zip files with
+	 * open entry streams, and removes them from the zip file cache.
 	 * This method is only to be called by the debug
 	 * plug-in.
 	 */
 	public static void closeArchives() {
 		synchronized (fgZipFileCache) {
 			for (ZipFile file : fgZipFileCache.values()) {
-				synchronized (file) {
-					try {
-						file.close();
-					} catch (IOException e) {
-						DebugPlugin.log(e);
-					}
-				}
+				close(file);
+			}
+			for (ZipFile file : fgEvicted) {
+				close(file);
 			}
 			fgZipFileCache.clear();
+			fgEvicted.clear();
+			fgOpenStreams.clear();
+		}
+		ArchiveSourceIndex.verifyIndexes();
+	}
+
+	private static void close(ZipFile file) {
+		synchronized (file) {
+			try {
+				file.close();
+			} catch (IOException e) {
+				DebugPlugin.log(e);
+			}
 		}
 	}
 
@@ -90,6 +203,9 @@ public class SourceLookupUtils {
 	 */
 	public static void shutdown() {
 		closeArchives();
+		WorkspaceSourceIndex.shutdown();
+		ArchiveSourceIndex.shutdown();
+		ParallelSourceLookup.shutdown();
 		if (fgCleaner != null) {
 			DebugPlugin.getDefault().getLaunchManager().removeLaunchListener(fgCleaner);
 			ResourcesPlugin.getWorkspace().removeResourceChangeListener(fgCleaner);
@@ -0,0 +1,235 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Maps the names of the files in a tree of folders to their paths relative to
+ * the root of the tree.
+ * <p>
+ * Folders are ranked in the order they are added, which must be the order in
+ * which a composite source container searches its nested containers: the root
+ * first, then each sub-folder followed by its own sub-folders. A name is
+ * resolved to the files whose path ends with the name, ordered by the rank of
+ * the folder the name is relative to, so the first match is the file the
+ * nested containers would have found first.
+ * </p>
+ * <p>
+ * Paths use <code>/</code> as separator. The root folder has the empty path.
+ * Names are matched ignoring case when the indexed file system is not case
+ * sensitive.
+ * </p>
+ *
+ * @since 3.11
+ */
+public class SourceNameIndex {
+
+	private static final String[] EMPTY = new String[0];
+
+	/**
+	 * Maximum number of files, and of folders, in an index.
+	 */
+	private final int fMaxFiles;
+
+	/**
+	 * Folder paths to rank
+	 */
+	private final Map<String, Integer> fFolders = new HashMap<String, Integer>();
+
+	/**
+	 * Simple file names to the paths of the files with that name
+	 */
+	private final Map<String, List<String>> fFiles = new HashMap<String, List<String>>();
+
+	private int fFileCount = 0;
+
+	private final boolean fCaseSensitive;
+
+	/**
+	 * Constructs an empty index.
+	 *
+	 * @param maxFiles maximum number of files, and of folders, the index
+	 *            accepts
+	 * @param caseSensitive whether names are case sensitive
+	 */
+	public SourceNameIndex(int maxFiles, boolean caseSensitive) {
+		fMaxFiles = maxFiles;
+		fCaseSensitive = caseSensitive;
+	}
+
+	/**
+	 * Adds a folder, ranked after the folders already in the index.
+	 *
+	 * @param path folder path
+	 * @return <code>false</code> if the index is full
+	 */
+	public synchronized boolean addFolder(String path) {
+		if (!fFolders.containsKey(path)) {
+			if (fFolders.size() >= fMaxFiles) {
+				return false;
+			}
+			fFolders.put(path, Integer.valueOf(fFolders.size()));
+		}
+		return true;
+	}
+
+	/**
+	 * Returns whether the given folder is in the index.
+	 *
+	 * @param path folder path
+	 * @return whether the folder is in the index
+	 */
+	public synchronized boolean containsFolder(String path) {
+		return fFolders.containsKey(path);
+	}
+
+	/**
+	 * Adds a file.
+	 *
+	 * @param path file path
+	 * @return <code>false</code> if the index is full
+	 */
+	public synchronized boolean addFile(String path) {
+		if (fFileCount >= fMaxFiles) {
+			return false;
+		}
+		String name = getKey(path);
+		List<String> paths = fFiles.get(name);
+		if (paths == null) {
+			paths = new ArrayList<String>(1);
+			fFiles.put(name, paths);
+		}
+		if (!paths.contains(path)) {
+			paths.add(path);
+			fFileCount++;
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a file.
+	 *
+	 * @param path file path
+	 */
+	public synchronized void removeFile(String path) {
+		String name = getKey(path);
+		List<String> paths = fFiles.get(name);
+		if (paths != null && paths.remove(path)) {
+			fFileCount--;
+			if (paths.isEmpty()) {
+				fFiles.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of files in the index.
+	 *
+	 * @return number of files
+	 */
+	public synchronized int getFileCount() {
+		return fFileCount;
+	}
+
+	/**
+	 * Returns the paths of the files with the given name, relative to any
+	 * folder of the index, ordered by the rank of that folder. Returns
+	 * <code>null</code> if the name cannot be resolved by the index, for
+	 * example because it contains <code>..</code> segments.
+	 *
+	 * @param name simple or qualified file name
+	 * @return file paths, possibly empty, or <code>null</code>
+	 */
+	public String[] lookup(String name) {
+		final String path = normalize(name);
+		if (path == null) {
+			return null;
+		}
+		final Map<String, Integer> ranks = new HashMap<String, Integer>();
+		synchronized (this) {
+			List<String> candidates = fFiles.get(getKey(path));
+			if (candidates == null) {
+				return EMPTY;
+			}
+			for (String candidate : candidates) {
+				int prefix = candidate.length() - path.length();
+				if (prefix < 0 || !candidate.regionMatches(!fCaseSensitive, prefix, path, 0, path.length())) {
+					continue;
+				}
+				String folder;
+				if (prefix == 0) {
+					folder = ""; //$NON-NLS-1$
+				} else if (candidate.charAt(prefix - 1) == '/') {
+					folder = candidate.substring(0, prefix - 1);
+				} else {
+					continue;
+				}
+				Integer rank = fFolders.get(folder);
+				if (rank != null) {
+					ranks.put(candidate, rank);
+				}
+			}
+		}
+		String[] matches = ranks.keySet().toArray(new String[ranks.size()]);
+		if (matches.length > 1) {
+			Arrays.sort(matches, new Comparator<String>() {
+				@Override
+				public int compare(String o1, String o2) {
+					return ranks.get(o1).compareTo(ranks.get(o2));
+				}
+			});
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns the key of the simple name of the given path.
+	 */
+	private String getKey(String path) {
+		String name = path.substring(path.lastIndexOf('/') + 1);
+		return fCaseSensitive ? name : name.toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Returns the given name with <code>/</code> separators, or
+	 * <code>null</code> if it is not a plain relative path.
+	 */
+	private static String normalize(String name) {
+		String path = name;
+		if (File.separatorChar != '/') {
+			path = path.replace(File.separatorChar, '/');
+		}
+		if (path.length() == 0 || path.charAt(0) == '/' || path.charAt(path.length() - 1) == '/') {
+			return null;
+		}
+		int start = 0;
+		while (start <= path.length()) {
+			int end = path.indexOf('/', start);
+			if (end < 0) {
+				end = path.length();
+			}
+			String segment = path.substring(start, end);
+			if (segment.length() == 0 || segment.equals(".") || segment.equals("..") || segment.indexOf(':') >= 0) { //$NON-NLS-1$ //$NON-NLS-2$
+				return null;
+			}
+			start = end + 1;
+		}
+		return path;
+	}
+}
@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.sourcelookup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * Name index of a workspace container and its folders.
+ * <p>
+ * The index is updated from resource deltas, received by a resource change
+ * listener shared by all workspace indexes: added and removed files are added
+ * to and removed from the index, added or removed folders invalidate the
+ * index.
+ * </p>
+ *
+ * @since 3.11
+ */
+public class WorkspaceSourceIndex extends SourceContainerIndex {
+
+	/**
+	 * Indexes to update from resource deltas
+	 */
+	private static final List<WorkspaceSourceIndex> fgIndexes = new ArrayList<WorkspaceSourceIndex>();
+
+	private static IResourceChangeListener fgListener = null;
+
+	/**
+	 * Updates the indexes from resource deltas
+	 */
+	static class IndexUpdater implements IResourceChangeListener {
+
+		/* (non-Javadoc)
+		 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+		 */
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			if (delta == null) {
+				return;
+			}
+			WorkspaceSourceIndex[] indexes;
+			synchronized (fgIndexes) {
+				indexes = fgIndexes.toArray(new WorkspaceSourceIndex[fgIndexes.size()]);
+			}
+			for (int i = 0; i < indexes.length; i++) {
+				IResourceDelta member = delta.findMember(indexes[i].fContainer.getFullPath());
+				if (member != null) {
+					indexes[i].apply(member);
+				}
+			}
+		}
+	}
+
+	private final IContainer fContainer;
+
+	private final boolean fCaseSensitive;
+
+	/**
+	 * Constructs an index of the given container.
+	 *
+	 * @param container workspace container
+	 * @param caseSensitive whether the file system of the container is case
+	 *            sensitive. Names are matched ignoring case otherwise, like
+	 *            the lookup in the file store of the container.
+	 */
+	public WorkspaceSourceIndex(IContainer container, boolean caseSensitive) {
+		super(container.getName());
+		fContainer = container;
+		fCaseSensitive = caseSensitive;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex#build(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	@Override
+	protected SourceNameIndex build(IProgressMonitor monitor) {
+		// listen first, so changes made while indexing discard the index
+		synchronized (fgIndexes) {
+			if (!fgIndexes.contains(this)) {
+				fgIndexes.add(this);
+			}
+			if (fgListener == null) {
+				fgListener = new IndexUpdater();
+				ResourcesPlugin.getWorkspace().addResourceChangeListener(fgListener, IResourceChangeEvent.POST_CHANGE);
+			}
+		}
+		SourceNameIndex index = new SourceNameIndex(MAX_FILES, fCaseSensitive);
+		if (!fContainer.isAccessible()) {
+			// re-indexed when opened
+			index.addFolder(""); //$NON-NLS-1$
+			return index;
+		}
+		try {
+			if (index(fContainer, "", true, index, monitor)) { //$NON-NLS-1$
+				return index;
+			}
+		} catch (CoreException e) {
+			// deleted meanwhile
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the files of the given container to the index, then its folders,
+	 * in the order of the nested folder source containers. Hidden and team
+	 * private folders are not searched by nested containers, so they are not
+	 * ranked, but the files they contain can be found with qualified names.
+	 */
+	private boolean index(IContainer container, String path, boolean ranked, SourceNameIndex index, IProgressMonitor monitor) throws CoreException {
+		if (monitor.isCanceled() || (ranked && !index.addFolder(path))) {
+			return false;
+		}
+		IResource[] members = container.members(IContainer.INCLUDE_HIDDEN | IContainer.INCLUDE_TEAM_PRIVATE_MEMBERS);
+		for (int i = 0; i < members.length; i++) {
+			if (members[i].getType() == IResource.FILE && !index.addFile(getPath(path, members[i]))) {
+				return false;
+			}
+		}
+		for (int i = 0; i < members.length; i++) {
+			IResource member = members[i];
+			if (member.getType() == IResource.FOLDER) {
+				boolean visible = ranked && !member.isHidden() && !member.isTeamPrivateMember();
+				if (!index((IContainer) member, getPath(path, member), visible, index, monitor)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static String getPath(String parent, IResource member) {
+		return parent.length() == 0 ? member.getName() : parent + '/' + member.getName();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex#release()
+	 */
+	@Override
+	protected void release() {
+		synchronized (fgIndexes) {
+			fgIndexes.remove(this);
+			if (fgIndexes.isEmpty() && fgListener != null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fgListener);
+				fgListener = null;
+			}
+		}
+	}
+
+	/**
+	 * Applies the delta of the indexed container.
+	 */
+	private void apply(IResourceDelta delta) {
+		final SourceNameIndex index = getIndex();
+		if (index == null || delta.getKind() != IResourceDelta.CHANGED || (delta.getFlags() & (IResourceDelta.OPEN | IResourceDelta.REPLACED)) != 0) {
+			invalidate();
+			return;
+		}
+		final IPath root = fContainer.getFullPath();
+		final boolean[] invalid = new boolean[1];
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				@Override
+				public boolean visit(IResourceDelta child) throws CoreException {
+					if (invalid[0]) {
+						return false;
+					}
+					IResource resource = child.getResource();
+					int kind = child.getKind();
+					if (kind != IResourceDelta.ADDED && kind != IResourceDelta.REMOVED) {
+						return true;
+					}
+					if (resource.getType() != IResource.FILE) {
+						invalid[0] = true;
+						return false;
+					}
+					String path = resource.getFullPath().makeRelativeTo(root).toString();
+					if (kind == IResourceDelta.REMOVED) {
+						index.removeFile(path);
+					} else if (!index.addFile(path)) {
+						invalid[0] = true;
+					}
+					return false;
+				}
+			}, IContainer.INCLUDE_HIDDEN | IContainer.INCLUDE_TEAM_PRIVATE_MEMBERS);
+		} catch (CoreException e) {
+			invalid[0] = true;
+		}
+		if (invalid[0]) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * Removes the shared resource change listener. Called when the debug
+	 * plug-in shuts down.
+	 */
+	public static void shutdown() {
+		synchronized (fgIndexes) {
+			fgIndexes.clear();
+			if (fgListener != null) {
+				ResourcesPlugin.getWorkspace().removeResourceChangeListener(fgListener);
+				fgListener = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.core.variables;
+
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.VariablesPlugin;
+
+/**
+ * Discards the cached values of dynamic variables with the
+ * <code>build</code> cache scope when resources are added, removed, moved or
+ * relocated, or projects are opened or closed. Their values depend on the
+ * locations of resources, which changes of file contents do not affect.
+ *
+ * @since 3.11
+ */
+public class VariableCacheInvalidator implements IResourceChangeListener {
+
+	/**
+	 * Changes of a resource that may change the location of resources
+	 */
+	private static final int LOCATION_CHANGES = IResourceDelta.OPEN | IResourceDelta.MOVED_FROM | IResourceDelta.MOVED_TO | IResourceDelta.DESCRIPTION | IResourceDelta.LOCAL_CHANGED | IResourceDelta.REPLACED;
+
+	/* (non-Javadoc)
+	 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+	 */
+	@Override
+	public void resourceChanged(IResourceChangeEvent event) {
+		IResourceDelta delta = event.getDelta();
+		if (delta == null) {
+			return;
+		}
+		final boolean[] changed = new boolean[1];
+		try {
+			delta.accept(new IResourceDeltaVisitor() {
+				@Override
+				public boolean visit(IResourceDelta child) throws CoreException {
+					if (child.getKind() != IResourceDelta.CHANGED || (child.getFlags() & LOCATION_CHANGES) != 0) {
+						changed[0] = true;
+					}
+					return !changed[0];
+				}
+			});
+		} catch (CoreException e) {
+			changed[0] = true;
+		}
+		if (changed[0]) {
+			VariablesPlugin.getDefault().getStringVariableManager().clearDynamicVariableCache(IStringVariableManager.CACHE_SCOPE_BUILD);
+		}
+	}
+}
@@ -13,8 +13,14 @@
 package org.eclipse.debug.tests;
 
 import org.eclipse.debug.tests.breakpoint.BreakpointOrderingTests;
+import org.eclipse.debug.tests.console.ConsoleCaptureTests;
+import org.eclipse.debug.tests.console.ConsoleDocumentAdapterTests;
+import org.eclipse.debug.tests.console.ConsoleHyperlinkStoreTests;
+import org.eclipse.debug.tests.console.ConsoleLogStoreTests;
 import org.eclipse.debug.tests.console.ConsoleManagerTests;
 import org.eclipse.debug.tests.console.ConsoleTests;
+import org.eclipse.debug.tests.console.ConsoleTextIndexTests;
+import org.eclipse.debug.tests.console.ConsoleUpdateSchedulerTests;
 import org.eclipse.debug.tests.launching.AcceleratorSubstitutionTests;
 import org.eclipse.debug.tests.launching.ArgumentParsingTests;
 import org.eclipse.debug.tests.launching.LaunchConfigurationTests;
@@ -23,14 +29,23 @@ import org.eclipse.debug.tests.launching.LaunchGroupTests;
 import org.eclipse.debug.tests.launching.LaunchHistoryTests;
 import org.eclipse.debug.tests.launching.LaunchManagerTests;
 import org.eclipse.debug.tests.launching.LaunchTests;
+import org.eclipse.debug.tests.launching.ProcessRedirectTests;
 import org.eclipse.debug.tests.launching.RefreshTabTests;
+import org.eclipse.debug.tests.launching.StringSubstitutionTests;
+import org.eclipse.debug.tests.sourcelookup.ArchiveSourceIndexTests;
+import org.eclipse.debug.tests.sourcelookup.ParallelSourceLookupTests;
+import org.eclipse.debug.tests.sourcelookup.SourceContainerIndexTests;
 import org.eclipse.debug.tests.sourcelookup.SourceLookupFacilityTests;
 import org.eclipse.debug.tests.statushandlers.StatusHandlerTests;
 import org.eclipse.debug.tests.stepfilters.StepFiltersTests;
 import org.eclipse.debug.tests.view.memory.MemoryRenderingTests;
 import org.eclipse.debug.tests.viewer.model.ChildrenUpdateTests;
 import org.eclipse.debug.tests.viewer.model.FilterTransformTests;
+import org.eclipse.debug.tests.viewer.model.HeadlessTreeModelWalkerTests;
+import org.eclipse.debug.tests.viewer.model.ModelDeltaAggregatorTests;
+import org.eclipse.debug.tests.viewer.model.ModelProxySchedulerTests;
 import org.eclipse.debug.tests.viewer.model.PresentationContextTests;
+import org.eclipse.debug.tests.viewer.model.ViewerStateStoreTests;
 import org.eclipse.debug.tests.viewer.model.VirtualViewerContentTests;
 import org.eclipse.debug.tests.viewer.model.VirtualViewerDeltaTests;
 import org.eclipse.debug.tests.viewer.model.VirtualViewerFilterTests;
@@ -64,6 +79,9 @@ public class AutomatedSuite extends TestSuite {
 	public AutomatedSuite() {
 		// Source lookup tests
 		addTest(new TestSuite(SourceLookupFacilityTests.class));
+		addTest(new TestSuite(SourceContainerIndexTests.class));
+		addTest(new TestSuite(ParallelSourceLookupTests.class));
+		addTest(new TestSuite(ArchiveSourceIndexTests.class));
 		// BP tests
 		addTest(new TestSuite(BreakpointOrderingTests.class));
 	    // Note: jface viewer tests were moved out of nightly tests
@@ -83,6 +101,10 @@ public class AutomatedSuite extends TestSuite {
 		addTest(new TestSuite(FilterTransformTests.class));
 		addTest(new TestSuite(ChildrenUpdateTests.class));
 		addTest(new TestSuite(PresentationContextTests.class));
+		addTest(new TestSuite(HeadlessTreeModelWalkerTests.class));
+		addTest(new TestSuite(ViewerStateStoreTests.class));
+		addTest(new TestSuite(ModelDeltaAggregatorTests.class));
+		addTest(new TestSuite(ModelProxySchedulerTests.class));
 
 		// Memory view
 		addTest(new TestSuite(MemoryRenderingTests.class));
@@ -95,7 +117,9 @@ public class AutomatedSuite extends TestSuite {
 		addTest(new TestSuite(LaunchManagerTests.class));
 		addTest(new TestSuite(RefreshTabTests.class));
 		addTest(new TestSuite(ArgumentParsingTests.class));
+		addTest(new TestSuite(StringSubstitutionTests.class));
 		addTest(new TestSuite(LaunchTests.class));
+		addTest(new TestSuite(ProcessRedirectTests.class));
 
 		// Status handlers
 		addTest(new TestSuite(StatusHandlerTests.class));
@@ -106,6 +130,12 @@ public class AutomatedSuite extends TestSuite {
 		// Console view
 		addTest(new TestSuite(ConsoleManagerTests.class));
 		addTest(new TestSuite(ConsoleTests.class));
+		addTest(new TestSuite(ConsoleDocumentAdapterTests.class));
+		addTest(new TestSuite(ConsoleHyperlinkStoreTests.class));
+		addTest(new TestSuite(ConsoleLogStoreTests.class));
+		addTest(new TestSuite(ConsoleTextIndexTests.class));
+		addTest(new TestSuite(ConsoleUpdateSchedulerTests.class));
+		addTest(new TestSuite(ConsoleCaptureTests.class));
 
 		// Launch Groups
 		addTest(new TestSuite(LaunchGroupTests.class));
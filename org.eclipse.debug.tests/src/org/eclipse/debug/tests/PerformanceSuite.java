@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2009 Wind River Systems and others.
+ * Copyright (c) 2009, 2017 Wind River Systems and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -13,6 +13,11 @@ package org.eclipse.debug.tests;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
+import org.eclipse.debug.tests.console.IOConsolePerformanceTests;
+import org.eclipse.debug.tests.launching.StringVariableManagerPerformanceTests;
+import org.eclipse.debug.tests.launching.TerminationNotifierPerformanceTests;
+import org.eclipse.debug.tests.sourcelookup.ParallelSourceLookupPerformanceTests;
+import org.eclipse.debug.tests.viewer.model.DebugViewThreadsPerformanceTests;
 import org.eclipse.debug.tests.viewer.model.JFaceViewerPerformanceTests;
 import org.eclipse.debug.tests.viewer.model.VirtualViewerPerformanceTests;
 
@@ -41,6 +46,21 @@ public class PerformanceSuite extends TestSuite {
 
         // Virtual viewer tests
         addTest(new TestSuite(VirtualViewerPerformanceTests.class));
+
+        // Debug view tests
+        addTest(new TestSuite(DebugViewThreadsPerformanceTests.class));
+
+        // Source lookup tests
+        addTest(new TestSuite(ParallelSourceLookupPerformanceTests.class));
+
+        // String substitution tests
+        addTest(new TestSuite(StringVariableManagerPerformanceTests.class));
+
+        // Launch termination tests
+        addTest(new TestSuite(TerminationNotifierPerformanceTests.class));
+
+        // Console output tests
+        addTest(new TestSuite(IOConsolePerformanceTests.class));
     }
 
 }
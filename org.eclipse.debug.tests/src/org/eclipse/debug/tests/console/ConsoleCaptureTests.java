@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.debug.internal.ui.views.console.ConsoleCaptureReader;
+import org.eclipse.debug.internal.ui.views.console.ConsoleCaptureWriter;
+import org.eclipse.debug.ui.IDebugUIConstants;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the structured capture file of process consoles.
+ */
+public class ConsoleCaptureTests extends TestCase {
+
+	private static final String OUT = IDebugUIConstants.ID_STANDARD_OUTPUT_STREAM;
+
+	private static final String ERR = IDebugUIConstants.ID_STANDARD_ERROR_STREAM;
+
+	private File fFile;
+
+	public ConsoleCaptureTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fFile = File.createTempFile("console", ".capture"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fFile.delete();
+		super.tearDown();
+	}
+
+	/**
+	 * Writes <code>count</code> records alternating between standard output
+	 * and standard error, one millisecond apart, starting at time 1000.
+	 */
+	private void writeRecords(int count, boolean append) throws Exception {
+		try (ConsoleCaptureWriter writer = new ConsoleCaptureWriter(fFile, "UTF-8", append)) { //$NON-NLS-1$
+			for (int i = 0; i < count; i++) {
+				byte[] data = ("line " + i + "\n").getBytes(StandardCharsets.UTF_8); //$NON-NLS-1$ //$NON-NLS-2$
+				writer.write(i % 2 == 0 ? OUT : ERR, 1000 + i, data, 0, data.length);
+			}
+		}
+	}
+
+	private static String toString(ByteBuffer data) {
+		return StandardCharsets.UTF_8.decode(data).toString();
+	}
+
+	public void testReadAll() throws Exception {
+		writeRecords(10000, false);
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			assertEquals("UTF-8", reader.getEncoding()); //$NON-NLS-1$
+			assertEquals(10000, reader.getRecordCount());
+			assertEquals(1000, reader.getStartTime());
+			assertEquals(10999, reader.getEndTime());
+			assertEquals(Arrays.asList(OUT, ERR), Arrays.asList(reader.getStreamIds().toArray()));
+			ConsoleCaptureReader.Cursor cursor = reader.seek(0, null);
+			for (int i = 0; i < 10000; i++) {
+				assertTrue(cursor.next());
+				assertEquals(i % 2 == 0 ? OUT : ERR, cursor.getStreamId());
+				assertEquals(1000 + i, cursor.getTime());
+				assertEquals("line " + i + "\n", toString(cursor.getData())); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			assertFalse(cursor.next());
+		}
+	}
+
+	public void testFilterAndSeek() throws Exception {
+		writeRecords(10000, false);
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			ConsoleCaptureReader.Cursor cursor = reader.seek(6000, Collections.singleton(ERR));
+			for (int i = 5001; i < 10000; i += 2) {
+				assertTrue(cursor.next());
+				assertEquals(ERR, cursor.getStreamId());
+				assertEquals(1000 + i, cursor.getTime());
+				assertEquals("line " + i + "\n", toString(cursor.getData())); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+			assertFalse(cursor.next());
+			assertFalse(reader.seek(20000, null).next());
+			assertFalse(reader.seek(0, Collections.singleton("unknown")).next()); //$NON-NLS-1$
+		}
+	}
+
+	public void testReplay() throws Exception {
+		writeRecords(100, false);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Map<String, ByteArrayOutputStream> streams = new HashMap<String, ByteArrayOutputStream>();
+		streams.put(OUT, out);
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			reader.replay(1090, streams);
+		}
+		assertEquals("line 90\nline 92\nline 94\nline 96\nline 98\n", new String(out.toByteArray(), StandardCharsets.UTF_8)); //$NON-NLS-1$
+	}
+
+	public void testAppend() throws Exception {
+		writeRecords(10, false);
+		long length = fFile.length();
+		// simulate a block that was not completely written
+		try (RandomAccessFile file = new RandomAccessFile(fFile, "rw")) { //$NON-NLS-1$
+			file.seek(length);
+			file.writeInt(1000);
+			file.writeInt(5);
+		}
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			assertEquals(10, reader.getRecordCount());
+		}
+		writeRecords(10, true);
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			assertEquals(20, reader.getRecordCount());
+			assertEquals(1009, reader.getEndTime());
+		}
+		writeRecords(10, false);
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			assertEquals(10, reader.getRecordCount());
+		}
+	}
+
+	public void testFlushDelay() throws Exception {
+		try (ConsoleCaptureWriter writer = new ConsoleCaptureWriter(fFile, "UTF-8", false)) { //$NON-NLS-1$
+			writer.write(OUT, "quiet".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+				assertEquals(0, reader.getRecordCount());
+			}
+			// the record is written without further output
+			long timeout = System.currentTimeMillis() + ConsoleCaptureWriter.FLUSH_DELAY * 10;
+			long count = 0;
+			while (count == 0 && System.currentTimeMillis() < timeout) {
+				Thread.sleep(100);
+				try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+					count = reader.getRecordCount();
+				}
+			}
+			assertEquals(1, count);
+		}
+	}
+
+	public void testLargeOutput() throws Exception {
+		byte[] data = new byte[1024 * 1024];
+		Arrays.fill(data, (byte) 'x');
+		try (ConsoleCaptureWriter writer = new ConsoleCaptureWriter(fFile, null, false)) {
+			writer.write(OUT, data);
+			writer.write(ERR, "done".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+		}
+		try (ConsoleCaptureReader reader = new ConsoleCaptureReader(fFile)) {
+			assertNull(reader.getEncoding());
+			ConsoleCaptureReader.Cursor cursor = reader.seek(0, null);
+			assertTrue(cursor.next());
+			assertEquals(data.length, cursor.getData().remaining());
+			assertTrue(cursor.next());
+			assertEquals("done", toString(cursor.getData())); //$NON-NLS-1$
+			assertFalse(cursor.next());
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.swt.custom.TextChangeListener;
+import org.eclipse.swt.custom.TextChangedEvent;
+import org.eclipse.swt.custom.TextChangingEvent;
+import org.eclipse.ui.internal.console.ConsoleDocumentAdapter;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the wrapped lines of fixed width consoles.
+ */
+public class ConsoleDocumentAdapterTests extends TestCase {
+
+	private Document fDocument;
+	private ConsoleDocumentAdapter fAdapter;
+
+	/**
+	 * Line count expected from the change events
+	 */
+	private int fExpectedLines;
+
+	public ConsoleDocumentAdapterTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fDocument = new Document();
+		fAdapter = new ConsoleDocumentAdapter(10);
+		fAdapter.setDocument(fDocument);
+		fExpectedLines = fAdapter.getLineCount();
+		fAdapter.addTextChangeListener(new TextChangeListener() {
+			@Override
+			public void textChanging(TextChangingEvent event) {
+				assertTrue(event.replaceLineCount >= 0);
+				assertTrue(event.newLineCount >= 0);
+				fExpectedLines += event.newLineCount - event.replaceLineCount;
+			}
+
+			@Override
+			public void textChanged(TextChangedEvent event) {
+				assertEquals("Change events do not match the line count", fExpectedLines, fAdapter.getLineCount()); //$NON-NLS-1$
+			}
+
+			@Override
+			public void textSet(TextChangedEvent event) {
+				fExpectedLines = fAdapter.getLineCount();
+			}
+		});
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fAdapter.setDocument(null);
+		super.tearDown();
+	}
+
+	private void append(String text) throws Exception {
+		fDocument.replace(fDocument.getLength(), 0, text);
+	}
+
+	/**
+	 * Checks the wrapped lines against the expected lines.
+	 */
+	private void assertLines(String... lines) {
+		assertEquals(lines.length, fAdapter.getLineCount());
+		int offset = 0;
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals(lines[i], fAdapter.getLine(i));
+			if (lines[i].length() > 0) {
+				int lineOffset = fAdapter.getOffsetAtLine(i);
+				assertEquals(fDocument.get().indexOf(lines[i], offset), lineOffset);
+				assertEquals(i, fAdapter.getLineAtOffset(lineOffset));
+				offset = lineOffset + lines[i].length();
+			}
+		}
+	}
+
+	public void testAppend() throws Exception {
+		append("0123456789abcde\n"); //$NON-NLS-1$
+		assertLines("0123456789", "abcde", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		append("short"); //$NON-NLS-1$
+		assertLines("0123456789", "abcde", "short"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		append(" and longer than the width\r\nx"); //$NON-NLS-1$
+		assertLines("0123456789", "abcde", "short and ", "longer tha", "n the widt", "h", "x"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+	}
+
+	public void testExactWidth() throws Exception {
+		append("0123456789\n0123456789"); //$NON-NLS-1$
+		assertLines("0123456789", "0123456789"); //$NON-NLS-1$ //$NON-NLS-2$
+		append("a"); //$NON-NLS-1$
+		assertLines("0123456789", "0123456789", "a"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		fDocument.replace(fDocument.getLength() - 1, 1, ""); //$NON-NLS-1$
+		assertLines("0123456789", "0123456789"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	public void testTrimHead() throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			text.append("line ").append(i).append(" is a wrapped line\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		append(text.toString());
+		assertEquals(2000 * 3 + 1, fAdapter.getLineCount());
+		fDocument.replace(0, fDocument.getLineOffset(1500), ""); //$NON-NLS-1$
+		assertEquals(500 * 3 + 1, fAdapter.getLineCount());
+		assertEquals("line 1500 ", fAdapter.getLine(0)); //$NON-NLS-1$
+		assertEquals("line 1999 ", fAdapter.getLine(499 * 3)); //$NON-NLS-1$
+		// trim within a line
+		fDocument.replace(0, 5, ""); //$NON-NLS-1$
+		assertEquals("1500 is a ", fAdapter.getLine(0)); //$NON-NLS-1$
+		assertEquals(500 * 3 + 1, fAdapter.getLineCount());
+	}
+
+	public void testReplaceInMiddle() throws Exception {
+		append("aaaaaaaaaaaa\nbb\ncccccccccccccccccccccc\n"); //$NON-NLS-1$
+		fDocument.replace(13, 2, "b\nbbbbbbbbbbbbbbbb"); //$NON-NLS-1$
+		assertLines("aaaaaaaaaa", "aa", "b", "bbbbbbbbbb", "bbbbbb", "cccccccccc", "cccccccccc", "cc", ""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+	}
+
+	public void testSetWidth() throws Exception {
+		append("0123456789abcdefghij\nxyz"); //$NON-NLS-1$
+		fAdapter.setWidth(5);
+		assertLines("01234", "56789", "abcde", "fghij", "xyz"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+		fAdapter.setWidth(-1);
+		assertLines("0123456789abcdefghij", "xyz"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.ui.console.IHyperlink;
+import org.eclipse.ui.internal.console.ConsoleHyperlinkPosition;
+import org.eclipse.ui.internal.console.ConsoleHyperlinkStore;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the hyperlinks of console documents across document changes.
+ */
+public class ConsoleHyperlinkStoreTests extends TestCase {
+
+	private Document fDocument;
+	private ConsoleHyperlinkStore fStore;
+
+	private static class Link implements IHyperlink {
+		@Override
+		public void linkEntered() {
+		}
+
+		@Override
+		public void linkExited() {
+		}
+
+		@Override
+		public void linkActivated() {
+		}
+	}
+
+	public ConsoleHyperlinkStoreTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fDocument = new Document();
+		fStore = new ConsoleHyperlinkStore();
+		fDocument.addPositionUpdater(fStore);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fDocument.removePositionUpdater(fStore);
+		super.tearDown();
+	}
+
+	private void append(String text) throws Exception {
+		fDocument.replace(fDocument.getLength(), 0, text);
+	}
+
+	/**
+	 * Appends a line and links the given word in it.
+	 */
+	private IHyperlink appendLink(String line, String word) throws Exception {
+		int offset = fDocument.getLength();
+		append(line + "\n"); //$NON-NLS-1$
+		IHyperlink link = new Link();
+		fStore.add(link, offset + line.indexOf(word), word.length());
+		return link;
+	}
+
+	private void assertLink(IHyperlink link, String word) throws Exception {
+		IRegion region = fStore.getRegion(link);
+		assertNotNull("link was removed", region); //$NON-NLS-1$
+		assertEquals(word, fDocument.get(region.getOffset(), region.getLength()));
+		assertSame(link, fStore.getHyperlink(region.getOffset()));
+		assertSame(link, fStore.getHyperlink(region.getOffset() + region.getLength() - 1));
+	}
+
+	public void testAppend() throws Exception {
+		IHyperlink first = appendLink("at Foo.java:10", "Foo.java:10"); //$NON-NLS-1$ //$NON-NLS-2$
+		IHyperlink second = appendLink("at Bar.java:20", "Bar.java:20"); //$NON-NLS-1$ //$NON-NLS-2$
+		append("more output"); //$NON-NLS-1$
+		assertLink(first, "Foo.java:10"); //$NON-NLS-1$
+		assertLink(second, "Bar.java:20"); //$NON-NLS-1$
+		assertNull(fStore.getHyperlink(0));
+		IHyperlink[] links = fStore.getHyperlinks();
+		assertEquals(2, links.length);
+		assertSame(first, links[0]);
+		assertSame(second, links[1]);
+	}
+
+	public void testTrimHead() throws Exception {
+		IHyperlink[] links = new IHyperlink[2000];
+		for (int i = 0; i < links.length; i++) {
+			links[i] = appendLink("line " + i + " at Foo.java:" + i, "Foo.java:" + i); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		fDocument.replace(0, fDocument.getLineOffset(1500), ""); //$NON-NLS-1$
+		assertEquals(500, fStore.getCount());
+		assertNull(fStore.getRegion(links[1499]));
+		for (int i = 1500; i < links.length; i++) {
+			assertLink(links[i], "Foo.java:" + i); //$NON-NLS-1$
+		}
+		// trim into a link
+		fDocument.replace(0, fDocument.get().indexOf("Foo") + 1, ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(499, fStore.getCount());
+		assertLink(links[1501], "Foo.java:1501"); //$NON-NLS-1$
+		fDocument.set(""); //$NON-NLS-1$
+		assertEquals(0, fStore.getCount());
+		assertEquals(0, fStore.getHyperlinks().length);
+	}
+
+	public void testReplaceInMiddle() throws Exception {
+		IHyperlink first = appendLink("at Foo.java:10", "Foo.java:10"); //$NON-NLS-1$ //$NON-NLS-2$
+		IHyperlink second = appendLink("at Bar.java:20", "Bar.java:20"); //$NON-NLS-1$ //$NON-NLS-2$
+		IHyperlink third = appendLink("at Baz.java:30", "Baz.java:30"); //$NON-NLS-1$ //$NON-NLS-2$
+		// the change before the second link moves it and the third one
+		fDocument.replace(fDocument.get().indexOf("at Bar"), 2, "from"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertLink(first, "Foo.java:10"); //$NON-NLS-1$
+		assertLink(second, "Bar.java:20"); //$NON-NLS-1$
+		assertLink(third, "Baz.java:30"); //$NON-NLS-1$
+		// the change within the second link removes it
+		fDocument.replace(fDocument.get().indexOf("Bar"), 3, "Qux"); //$NON-NLS-1$ //$NON-NLS-2$
+		assertNull(fStore.getRegion(second));
+		assertLink(first, "Foo.java:10"); //$NON-NLS-1$
+		assertLink(third, "Baz.java:30"); //$NON-NLS-1$
+	}
+
+	public void testOverlappingPositions() throws Exception {
+		IHyperlink first = appendLink("at Foo.java:10", "Foo.java:10"); //$NON-NLS-1$ //$NON-NLS-2$
+		IHyperlink second = appendLink("at Bar.java:20", "Bar.java:20"); //$NON-NLS-1$ //$NON-NLS-2$
+		List<ConsoleHyperlinkPosition> positions = fStore.getPositions(fDocument.getLineOffset(1), fDocument.getLineLength(1));
+		assertEquals(1, positions.size());
+		assertSame(second, positions.get(0).getHyperLink());
+		positions = fStore.getPositions(0, fDocument.getLength());
+		assertEquals(2, positions.size());
+		assertSame(first, positions.get(0).getHyperLink());
+		assertSame(second, positions.get(1).getHyperLink());
+		// links may be added out of order
+		IHyperlink at = new Link();
+		fStore.add(at, fDocument.getLineOffset(1), 2);
+		positions = fStore.getPositions(fDocument.getLineOffset(1), 5);
+		assertEquals(2, positions.size());
+		assertSame(at, positions.get(0).getHyperLink());
+		assertSame(second, positions.get(1).getHyperLink());
+	}
+}
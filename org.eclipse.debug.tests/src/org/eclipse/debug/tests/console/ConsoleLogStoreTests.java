@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IFindReplaceTarget;
+import org.eclipse.jface.text.IFindReplaceTargetExtension3;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.layout.FillLayout;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.internal.console.ConsoleLogStore;
+import org.eclipse.ui.internal.console.IOConsolePartitioner;
+import org.eclipse.ui.internal.console.IOConsoleViewer;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the store that keeps the output trimmed from consoles, and the window
+ * of the console viewer that shows it.
+ */
+public class ConsoleLogStoreTests extends TestCase {
+
+	private ConsoleLogStore fStore;
+
+	public ConsoleLogStoreTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fStore = new ConsoleLogStore();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fStore.dispose();
+		super.tearDown();
+	}
+
+	public void testLines() throws Exception {
+		fStore.append("first\nsecond\r\nthird \u00e4\u00f6\u00fc\r"); //$NON-NLS-1$
+		fStore.append("\nfourth"); //$NON-NLS-1$
+		assertEquals(4, fStore.getLineCount());
+		assertEquals("second\r\n", fStore.getLines(1, 1)); //$NON-NLS-1$
+		assertEquals("third \u00e4\u00f6\u00fc\r\nfourth", fStore.getLines(2, 10)); //$NON-NLS-1$
+		fStore.append("\n"); //$NON-NLS-1$
+		assertEquals(4, fStore.getLineCount());
+		assertEquals("", fStore.getLines(4, 1)); //$NON-NLS-1$
+	}
+
+	public void testManyLines() throws Exception {
+		for (int i = 0; i < 100000; i++) {
+			fStore.append("line " + i + (i % 2 == 0 ? "\n" : "\r\n")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		assertEquals(100000, fStore.getLineCount());
+		assertEquals("line 0\nline 1\r\n", fStore.getLines(0, 2)); //$NON-NLS-1$
+		assertEquals("line 77777\r\nline 77778\n", fStore.getLines(77777, 2)); //$NON-NLS-1$
+		assertEquals("line 99999\r\n", fStore.getLines(99999, 5)); //$NON-NLS-1$
+	}
+
+	public void testFind() throws Exception {
+		for (int i = 0; i < 10000; i++) {
+			fStore.append((i % 1000 == 500 ? "Exception in line " : "line ") + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		Pattern pattern = Pattern.compile("exception", Pattern.CASE_INSENSITIVE); //$NON-NLS-1$
+		assertEquals(500, fStore.find(pattern, 0, true));
+		assertEquals(1500, fStore.find(pattern, 501, true));
+		assertEquals(9500, fStore.find(pattern, 9500, true));
+		assertEquals(-1, fStore.find(pattern, 9501, true));
+		assertEquals(8500, fStore.find(pattern, 9499, false));
+		assertEquals(500, fStore.find(pattern, 1000, false));
+		assertEquals(-1, fStore.find(pattern, 499, false));
+		// delimiters are not matched
+		assertEquals(-1, fStore.find(Pattern.compile("\\d\\n"), 0, true)); //$NON-NLS-1$
+		assertEquals(42, fStore.find(Pattern.compile("^line 42$"), 0, true)); //$NON-NLS-1$
+		// a canceled search stops without a match
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		assertEquals(-1, fStore.find(pattern, 0, true, monitor));
+	}
+
+	public void testClear() throws Exception {
+		fStore.append("first\nsecond\n"); //$NON-NLS-1$
+		fStore.clear();
+		assertEquals(0, fStore.getLineCount());
+		fStore.append("third\n"); //$NON-NLS-1$
+		assertEquals("third\n", fStore.getLines(0, 1)); //$NON-NLS-1$
+	}
+
+	public void testTrimmedOutput() throws Exception {
+		MessageConsole console = new MessageConsole("Log Store Console", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, "UTF-8", true); //$NON-NLS-1$
+		try {
+			console.setWaterMarks(1000, 2000);
+			console.setLogStoreEnabled(true);
+			IDocument document = console.getDocument();
+			StringBuilder expected = new StringBuilder();
+			try (IOConsoleOutputStream stream = console.newOutputStream()) {
+				for (int i = 0; i < 1000; i++) {
+					String line = "output line " + i + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+					stream.write(line);
+					expected.append(line);
+				}
+			}
+			TestHelper.waitForJobs();
+			ConsoleLogStore store = ((IOConsolePartitioner) document.getDocumentPartitioner()).getLogStore();
+			assertTrue("output was not trimmed", store.getLineCount() > 0); //$NON-NLS-1$
+			String stored = store.getLines(0, store.getLineCount());
+			assertEquals("trimmed output was not kept", expected.toString(), stored + document.get()); //$NON-NLS-1$
+			console.clearConsole();
+			TestHelper.waitForJobs();
+			assertEquals(0, store.getLineCount());
+		} finally {
+			console.destroy();
+		}
+		assertFalse(console.isLogStoreEnabled());
+	}
+
+	public void testViewerWindow() throws Exception {
+		MessageConsole console = new MessageConsole("Log Store Viewer Console", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, "UTF-8", true); //$NON-NLS-1$
+		Shell shell = new Shell(PlatformUI.getWorkbench().getDisplay());
+		try {
+			console.setWaterMarks(10000, 20000);
+			console.setLogStoreEnabled(true);
+			try (IOConsoleOutputStream stream = console.newOutputStream()) {
+				for (int i = 0; i < 10000; i++) {
+					stream.write("output line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			TestHelper.waitForJobs();
+			shell.setSize(400, 300);
+			shell.setLayout(new FillLayout());
+			IOConsoleViewer viewer = new IOConsoleViewer(shell, console);
+			shell.open();
+			IDocument document = console.getDocument();
+			assertSame(document, viewer.getDocument());
+
+			// scrolling up to the start of the document shows the trimmed output
+			viewer.setTopIndex(10);
+			viewer.setTopIndex(0);
+			int first = assertWindow(viewer, document);
+			assertTrue("window does not reach into the store", first < 10000 - document.getNumberOfLines()); //$NON-NLS-1$
+
+			// scrolling up to the start of the window pages through the store
+			int pages = 0;
+			while (first > 0) {
+				assertTrue("window does not move up", ++pages < 20); //$NON-NLS-1$
+				viewer.setTopIndex(0);
+				int previous = first;
+				first = assertWindow(viewer, document);
+				assertTrue("window does not move up", first < previous); //$NON-NLS-1$
+			}
+		} finally {
+			shell.dispose();
+			console.destroy();
+		}
+	}
+
+	public void testFindInStore() throws Exception {
+		MessageConsole console = new MessageConsole("Log Store Find Console", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, "UTF-8", true); //$NON-NLS-1$
+		Shell shell = new Shell(PlatformUI.getWorkbench().getDisplay());
+		try {
+			console.setWaterMarks(10000, 20000);
+			console.setLogStoreEnabled(true);
+			try (IOConsoleOutputStream stream = console.newOutputStream()) {
+				for (int i = 0; i < 10000; i++) {
+					stream.write("output line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			TestHelper.waitForJobs();
+			shell.setSize(400, 300);
+			shell.setLayout(new FillLayout());
+			IOConsoleViewer viewer = new IOConsoleViewer(shell, console);
+			shell.open();
+			IDocument document = console.getDocument();
+
+			// the store is searched in a job, the match is selected afterwards
+			IFindReplaceTarget target = viewer.getFindReplaceTarget();
+			int result = ((IFindReplaceTargetExtension3) target).findAndSelect(0, "^output line 42$", false, true, false, true); //$NON-NLS-1$
+			assertEquals(-1, result);
+			TestHelper.waitForJobs();
+			TestHelper.processUIEvents(100);
+			assertWindow(viewer, document);
+			Point selection = viewer.getSelectedRange();
+			assertEquals("output line 42", viewer.getDocument().get(selection.x, selection.y)); //$NON-NLS-1$
+		} finally {
+			shell.dispose();
+			console.destroy();
+		}
+	}
+
+	/**
+	 * Checks that the viewer shows a window of consecutive output lines that
+	 * is not larger than the window size of the viewer, 2000 lines, and
+	 * returns the number of its first line.
+	 */
+	private static int assertWindow(IOConsoleViewer viewer, IDocument document) {
+		IDocument window = viewer.getDocument();
+		assertNotSame("window is not shown", document, window); //$NON-NLS-1$
+		String[] lines = window.get().split("\n"); //$NON-NLS-1$
+		assertTrue("window is too large: " + lines.length, lines.length <= 2000); //$NON-NLS-1$
+		int first = Integer.parseInt(lines[0].substring("output line ".length())); //$NON-NLS-1$
+		for (int i = 0; i < lines.length; i++) {
+			assertEquals("output line " + (first + i), lines[i]); //$NON-NLS-1$
+		}
+		return first;
+	}
+}
@@ -11,13 +11,39 @@
 
 package org.eclipse.debug.tests.console;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.tests.TestsPlugin;
+import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.ui.console.AnsiOutputProcessor;
+import org.eclipse.ui.console.IConsoleDocumentPartitioner;
 import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IOConsoleInputStream;
 import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.eclipse.ui.console.IPatternMatchListener;
 import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.PatternMatchEvent;
+import org.eclipse.ui.console.TextConsole;
+import org.eclipse.ui.internal.console.ConsolePatternMatcher;
+import org.eclipse.ui.internal.console.IOConsolePartitioner;
 
 import junit.framework.TestCase;
 
@@ -82,6 +108,83 @@ public class ConsoleTests extends TestCase {
 		TestCase.assertEquals("closing the stream should write the pending \\r", testString, document.get()); //$NON-NLS-1$
 	}
 
+	public void testConsoleOutputStreamLargeOutput() throws IOException, InterruptedException {
+		StringBuilder expected = new StringBuilder();
+		while (expected.length() < 100000) {
+			// multi-byte characters and line delimiters across chunk borders
+			expected.append("line \u00e4\u00f6\u00fc ").append(expected.length()).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		String testString = expected.toString();
+		byte[] testStringBuffer = testString.getBytes(StandardCharsets.UTF_8);
+		MessageConsole console = new MessageConsole("Test Console 6", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IDocument document = console.getDocument();
+		try (IOConsoleOutputStream outStream = console.newOutputStream()) {
+			int half = testStringBuffer.length / 2;
+			outStream.write(testStringBuffer, 0, half);
+			outStream.write(testStringBuffer, half, testStringBuffer.length - half);
+			outStream.write(testString.toCharArray());
+			outStream.write(testString);
+		}
+		TestHelper.waitForJobs();
+		TestCase.assertEquals("output was not written as is", testString + testString + testString, document.get()); //$NON-NLS-1$
+	}
+
+	public void testConsoleOutputStreamSmallWrites() throws IOException, InterruptedException {
+		MessageConsole console = new MessageConsole("Test Console 8", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IDocument document = console.getDocument();
+		StringBuilder expected = new StringBuilder();
+		try (IOConsoleOutputStream out = console.newOutputStream(); IOConsoleOutputStream err = console.newOutputStream()) {
+			for (int i = 0; i < 5000; i++) {
+				// small writes share chunks, carriage returns and line feeds
+				// are written separately
+				String text = "line " + i; //$NON-NLS-1$
+				IOConsoleOutputStream stream = i % 100 == 0 ? err : out;
+				stream.write(text);
+				stream.write("\r"); //$NON-NLS-1$
+				stream.write("\n".toCharArray()); //$NON-NLS-1$
+				// decoded bytes share chunks as well
+				stream.write("\u00e4".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+				stream.write(("byte line " + i + "\n").getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$ //$NON-NLS-2$
+				expected.append(text).append("\r\n").append("\u00e4byte line ").append(i).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+			}
+		}
+		TestHelper.waitForJobs();
+		TestCase.assertEquals("output was not written as is", expected.toString(), document.get()); //$NON-NLS-1$
+		TestCase.assertEquals(10001, document.getNumberOfLines());
+	}
+
+	public void testConsoleInputStreamBulkRead() throws IOException {
+		MessageConsole console = new MessageConsole("Test Console 7", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IOConsoleInputStream inStream = console.getInputStream();
+		StringBuilder expected = new StringBuilder();
+		while (expected.length() < 100000) {
+			String line = "input \u00e4\u00f6\u00fc \ud83d\ude00 " + expected.length() + "\n"; //$NON-NLS-1$ //$NON-NLS-2$
+			// the surrogate pair is split across appends
+			int split = line.indexOf('\ude00');
+			inStream.appendData(line.substring(0, split));
+			inStream.appendData(line.substring(split));
+			expected.append(line);
+		}
+		byte[] expectedBytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+		assertEquals(expectedBytes.length, inStream.available());
+		ByteArrayOutputStream read = new ByteArrayOutputStream();
+		// a single byte read returns the unsigned value
+		assertEquals(expectedBytes[0] & 0xFF, inStream.read());
+		read.write(expectedBytes[0]);
+		byte[] buffer = new byte[1000];
+		while (read.size() < expectedBytes.length) {
+			int count = inStream.read(buffer);
+			assertTrue(count > 0);
+			read.write(buffer, 0, count);
+		}
+		assertTrue("input was not read as is", Arrays.equals(expectedBytes, read.toByteArray())); //$NON-NLS-1$
+		inStream.close();
+		assertEquals(-1, inStream.read(buffer));
+	}
+
 	public void testConsoleOutputStreamDocumentClosed() throws IOException {
 		MessageConsole console = new MessageConsole("Test Console 3", //$NON-NLS-1$
 				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
@@ -135,4 +238,295 @@ public class ConsoleTests extends TestCase {
 		}
 	}
 
+	public void testDeferredMatching() throws Exception {
+		MessageConsole console = new MessageConsole("Test Console 6", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		final AtomicInteger matches = new AtomicInteger();
+		console.setDeferredMatching(true);
+		console.addPatternMatchListener(new IPatternMatchListener() {
+			@Override
+			public String getPattern() {
+				return "ERROR \\d+"; //$NON-NLS-1$
+			}
+
+			@Override
+			public int getCompilerFlags() {
+				return 0;
+			}
+
+			@Override
+			public String getLineQualifier() {
+				return null;
+			}
+
+			@Override
+			public void connect(TextConsole c) {
+			}
+
+			@Override
+			public void disconnect() {
+			}
+
+			@Override
+			public void matchFound(PatternMatchEvent event) {
+				matches.incrementAndGet();
+			}
+		});
+		try (IOConsoleOutputStream outStream = console.newOutputStream()) {
+			for (int i = 0; i < 1000; i++) {
+				outStream.write((i % 10 == 0 ? "ERROR " : "line ") + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			TestHelper.waitForJobs();
+			// the console is not shown
+			assertEquals(0, matches.get());
+			console.getHyperlinks();
+			Job.getJobManager().join(console, null);
+			assertEquals(100, matches.get());
+		}
+	}
+
+	/**
+	 * The region shown by a viewer is matched before the rest of the deferred
+	 * output, and no line is matched twice.
+	 */
+	public void testDeferredMatchingShownRegion() throws Exception {
+		TextConsole console = createTextConsole("Test Console 11"); //$NON-NLS-1$
+		IDocument document = console.getDocument();
+		MatchRecorder recorder = new MatchRecorder();
+		ConsolePatternMatcher matcher = createDeferredMatcher(console, recorder);
+		document.replace(0, 0, createErrorLines(1000));
+		TestHelper.waitForJobs();
+		// the console is not shown
+		assertEquals(0, recorder.getMatches().size());
+		int offset = document.getLineOffset(500);
+		matcher.matchDeferred(offset, document.getLineOffset(520) - offset);
+		Job.getJobManager().join(console, null);
+		List<String> matches = recorder.getMatches();
+		assertEquals(Arrays.asList("ERROR 500", "ERROR 510"), matches.subList(0, 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatchedOnce(1000, matches);
+		matcher.disconnect();
+	}
+
+	/**
+	 * Output trimmed after a region has been matched ahead of the rest moves
+	 * the region, so that the rest is matched once.
+	 */
+	public void testDeferredMatchingTrimmed() throws Exception {
+		TextConsole console = createTextConsole("Test Console 12"); //$NON-NLS-1$
+		final IDocument document = console.getDocument();
+		final AtomicInteger matchedBeforeTrim = new AtomicInteger(-1);
+		final MatchRecorder recorder = new MatchRecorder();
+		// trims the output between the runs of the match job, which has the
+		// same rule
+		final Job trimJob = new Job("Trim Console") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				matchedBeforeTrim.set(recorder.getMatches().size());
+				try {
+					document.replace(0, document.getLineOffset(1000), ""); //$NON-NLS-1$
+				} catch (BadLocationException e) {
+					return new Status(IStatus.ERROR, TestsPlugin.PLUGIN_ID, e.getMessage(), e);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		trimJob.setSystem(true);
+		trimJob.setPriority(Job.INTERACTIVE);
+		trimJob.setRule(console.getSchedulingRule());
+		ConsolePatternMatcher matcher = createDeferredMatcher(console, new MatchRecorder() {
+			@Override
+			void matched(String text) {
+				recorder.matched(text);
+				// the first match after the shown region
+				if (text.equals("ERROR 0")) { //$NON-NLS-1$
+					trimJob.schedule();
+				}
+			}
+		});
+		// more than a chunk before the shown region
+		document.replace(0, 0, createErrorLines(10000));
+		TestHelper.waitForJobs();
+		assertEquals(0, recorder.getMatches().size());
+		int offset = document.getLineOffset(9000);
+		matcher.matchDeferred(offset, document.getLineOffset(9020) - offset);
+		Job.getJobManager().join(console, null);
+		assertTrue("output was not trimmed while matching", matchedBeforeTrim.get() >= 0); //$NON-NLS-1$
+		assertTrue("output was trimmed after matching", matchedBeforeTrim.get() < 1000); //$NON-NLS-1$
+		List<String> matches = recorder.getMatches();
+		assertEquals(Arrays.asList("ERROR 9000", "ERROR 9010"), matches.subList(0, 2)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertMatchedOnce(10000, matches);
+		matcher.disconnect();
+	}
+
+	public void testAnsiOutputProcessor() throws Exception {
+		MessageConsole console = new MessageConsole("Test Console 7", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IDocument document = console.getDocument();
+		try (IOConsoleOutputStream outStream = console.newOutputStream()) {
+			outStream.setOutputProcessor(new AnsiOutputProcessor());
+			outStream.write("plain \u001b[1;31mred\u001b[0m \u001b]0;title\u0007done\n"); //$NON-NLS-1$
+			// sequences and line delimiters split between writes
+			outStream.write("a\u001b[3".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			outStream.write("8;5;46mgreen\u001b"); //$NON-NLS-1$
+			outStream.write("[2K\u001b[m\r".getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+			outStream.write("\n\u00e4nd"); //$NON-NLS-1$
+		}
+		TestHelper.waitForJobs();
+		assertEquals("plain red done\nagreen\r\n\u00e4nd", document.get()); //$NON-NLS-1$
+		IOConsolePartitioner partitioner = (IOConsolePartitioner) document.getDocumentPartitioner();
+		StyleRange[] styles = partitioner.getStyleRanges(6, 3);
+		assertEquals(1, styles.length);
+		assertEquals(new RGB(205, 0, 0), styles[0].foreground.getRGB());
+		assertEquals(SWT.BOLD, styles[0].fontStyle);
+		styles = partitioner.getStyleRanges(16, 5);
+		assertEquals(1, styles.length);
+		assertEquals(new RGB(0, 255, 0), styles[0].foreground.getRGB());
+		assertEquals(SWT.NORMAL, styles[0].fontStyle);
+		styles = partitioner.getStyleRanges(0, 6);
+		assertEquals(1, styles.length);
+		assertNull(styles[0].foreground);
+	}
+
+	public void testAnsiTrueColor() throws Exception {
+		MessageConsole console = new MessageConsole("Test Console 9", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IDocument document = console.getDocument();
+		try (IOConsoleOutputStream outStream = console.newOutputStream()) {
+			outStream.setOutputProcessor(new AnsiOutputProcessor());
+			outStream.write("\u001b[38;2;250;10;10mred\u001b[38;2;1;2;3mblack\u001b[48;2;100;100;101mgray\u001b[0m\n"); //$NON-NLS-1$
+		}
+		TestHelper.waitForJobs();
+		assertEquals("redblackgray\n", document.get()); //$NON-NLS-1$
+		IOConsolePartitioner partitioner = (IOConsolePartitioner) document.getDocumentPartitioner();
+		// 24 bit colors are shown in the closest palette color
+		assertEquals(new RGB(255, 0, 0), partitioner.getStyleRanges(0, 3)[0].foreground.getRGB());
+		assertEquals(new RGB(0, 0, 0), partitioner.getStyleRanges(3, 5)[0].foreground.getRGB());
+		assertEquals(new RGB(98, 98, 98), partitioner.getStyleRanges(8, 4)[0].background.getRGB());
+	}
+
+	public void testChunkSlices() throws Exception {
+		MessageConsole console = new MessageConsole("Test Console 10", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, StandardCharsets.UTF_8.name(), true);
+		IDocument document = console.getDocument();
+		IOConsolePartitioner partitioner = (IOConsolePartitioner) document.getDocumentPartitioner();
+		try (IOConsoleOutputStream outStream = console.newOutputStream()) {
+			CharBuffer chunk = partitioner.allocateChunk();
+			chunk.put("first "); //$NON-NLS-1$
+			partitioner.streamAppended(outStream, partitioner.sliceChunk(chunk, 0, chunk.position()));
+			int start = chunk.position();
+			chunk.put("second"); //$NON-NLS-1$
+			partitioner.streamAppended(outStream, partitioner.sliceChunk(chunk, start, chunk.position()));
+			partitioner.releaseChunk(chunk);
+			// the slices are still pending, so the chunk must not be reused
+			for (int i = 0; i < 64; i++) {
+				assertNotSame("chunk was reused while its slices are pending", chunk, partitioner.allocateChunk()); //$NON-NLS-1$
+			}
+			TestHelper.waitForJobs();
+			assertEquals("first second", document.get()); //$NON-NLS-1$
+			assertEquals(0, partitioner.getSharedChunkCount());
+			// the chunk has returned to the pool
+			boolean pooled = false;
+			for (int i = 0; i < 64 && !pooled; i++) {
+				pooled = partitioner.allocateChunk() == chunk;
+			}
+			assertTrue("chunk of the slices was not returned to the pool", pooled); //$NON-NLS-1$
+		}
+	}
+
+	/**
+	 * Records the text of the matches of "ERROR n".
+	 */
+	private static class MatchRecorder implements IPatternMatchListener {
+
+		private final List<String> fMatches = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public String getPattern() {
+			return "ERROR \\d+"; //$NON-NLS-1$
+		}
+
+		@Override
+		public int getCompilerFlags() {
+			return 0;
+		}
+
+		@Override
+		public String getLineQualifier() {
+			return null;
+		}
+
+		@Override
+		public void connect(TextConsole console) {
+		}
+
+		@Override
+		public void disconnect() {
+		}
+
+		@Override
+		public void matchFound(PatternMatchEvent event) {
+			IDocument document = ((TextConsole) event.getSource()).getDocument();
+			try {
+				matched(document.get(event.getOffset(), event.getLength()));
+			} catch (BadLocationException e) {
+				matched(e.toString());
+			}
+		}
+
+		void matched(String text) {
+			fMatches.add(text);
+		}
+
+		List<String> getMatches() {
+			synchronized (fMatches) {
+				return new ArrayList<String>(fMatches);
+			}
+		}
+	}
+
+	private static TextConsole createTextConsole(String name) {
+		return new TextConsole(name, null, null, true) {
+			@Override
+			protected IConsoleDocumentPartitioner getPartitioner() {
+				return null;
+			}
+		};
+	}
+
+	/**
+	 * Returns a matcher of the given console that defers matching, as the
+	 * console is not shown.
+	 */
+	private static ConsolePatternMatcher createDeferredMatcher(TextConsole console, IPatternMatchListener listener) throws InterruptedException {
+		ConsolePatternMatcher matcher = new ConsolePatternMatcher(console);
+		matcher.setDeferred(true);
+		matcher.addPatternMatchListener(listener);
+		console.getDocument().addDocumentListener(matcher);
+		Job.getJobManager().join(console, null);
+		return matcher;
+	}
+
+	/**
+	 * Returns the given number of lines, every tenth of them an error.
+	 */
+	private static String createErrorLines(int lines) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < lines; i++) {
+			text.append(i % 10 == 0 ? "ERROR " : "line ").append(i).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Checks that each error of the lines created by
+	 * {@link #createErrorLines(int)} was matched once.
+	 */
+	private static void assertMatchedOnce(int lines, List<String> matches) {
+		Set<String> expected = new HashSet<String>();
+		for (int i = 0; i < lines; i += 10) {
+			expected.add("ERROR " + i); //$NON-NLS-1$
+		}
+		assertEquals("errors were matched more than once", expected.size(), matches.size()); //$NON-NLS-1$
+		assertEquals(expected, new HashSet<String>(matches));
+	}
 }
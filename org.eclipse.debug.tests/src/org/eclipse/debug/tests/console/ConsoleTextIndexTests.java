@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.internal.console.ConsoleTextIndex;
+import org.eclipse.ui.internal.console.IOConsolePartitioner;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the index used to find text in consoles.
+ */
+public class ConsoleTextIndexTests extends TestCase {
+
+	private ConsoleTextIndex fIndex;
+
+	private Document fDocument;
+
+	public ConsoleTextIndexTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fIndex = new ConsoleTextIndex();
+		fDocument = new Document();
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fIndex.dispose();
+		super.tearDown();
+	}
+
+	private void append(String text) throws Exception {
+		fDocument.replace(fDocument.getLength(), 0, text);
+		fIndex.textAppended(text);
+	}
+
+	private void appendLines(int count) throws Exception {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			text.append(i % 1000 == 500 ? "Exception in line " : "line ").append(i).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		append(text.toString());
+	}
+
+	/**
+	 * Searches the index once it has indexed all changes.
+	 */
+	private static ConsoleTextIndex.Matches find(ConsoleTextIndex index, IDocument document, Pattern pattern) throws Exception {
+		ConsoleTextIndex.Matches matches = index.find(document, pattern);
+		if (matches == null) {
+			TestHelper.waitForJobs();
+			matches = index.find(document, pattern);
+		}
+		assertNotNull("the index is not complete", matches); //$NON-NLS-1$
+		return matches;
+	}
+
+	private ConsoleTextIndex.Matches find(Pattern pattern) throws Exception {
+		return find(fIndex, fDocument, pattern);
+	}
+
+	public void testLazyBuild() throws Exception {
+		appendLines(10000);
+		assertNull(fIndex.find(fDocument, Pattern.compile("Exception"))); //$NON-NLS-1$
+		TestHelper.waitForJobs();
+		assertEquals(10, fIndex.find(fDocument, Pattern.compile("Exception")).getCount()); //$NON-NLS-1$
+		append("Exception\n"); //$NON-NLS-1$
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("Exception")); //$NON-NLS-1$
+		assertEquals(11, matches.getCount());
+		assertFalse(matches.isOutdated());
+	}
+
+	public void testFind() throws Exception {
+		appendLines(10000);
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("exception", Pattern.CASE_INSENSITIVE)); //$NON-NLS-1$
+		assertEquals(10, matches.getCount());
+		for (int i = 0; i < matches.getCount(); i++) {
+			int line = fDocument.getLineOfOffset(matches.getOffset(i));
+			assertEquals(i * 1000 + 500, line);
+			assertEquals(9, matches.getLength(i));
+		}
+		assertEquals(0, find(Pattern.compile("exception")).getCount()); //$NON-NLS-1$
+		assertEquals(0, find(Pattern.compile("line 10000")).getCount()); //$NON-NLS-1$
+	}
+
+	public void testNext() throws Exception {
+		appendLines(10000);
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("Exception")); //$NON-NLS-1$
+		int offset = 0;
+		for (int i = 0; i < 10; i++) {
+			int match = matches.getNext(offset, true);
+			assertEquals(i, match);
+			offset = matches.getOffset(match) + matches.getLength(match);
+		}
+		assertEquals(-1, matches.getNext(offset, true));
+		offset = fDocument.getLength();
+		for (int i = 9; i >= 0; i--) {
+			int match = matches.getNext(offset, false);
+			assertEquals(i, match);
+			offset = matches.getOffset(match) - 1;
+		}
+		assertEquals(-1, matches.getNext(offset, false));
+		assertEquals(3, matches.getNext(matches.getOffset(3), true));
+		assertEquals(3, matches.getNext(matches.getOffset(3), false));
+	}
+
+	public void testRegex() throws Exception {
+		appendLines(10000);
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("^Exception in line \\d*5\\d\\d$", Pattern.MULTILINE)); //$NON-NLS-1$
+		assertEquals(10, matches.getCount());
+		matches = find(Pattern.compile("line 99\\d9$", Pattern.MULTILINE)); //$NON-NLS-1$
+		assertEquals(10, matches.getCount());
+		matches = find(Pattern.compile("Exception|99999")); //$NON-NLS-1$
+		assertEquals(10, matches.getCount());
+	}
+
+	public void testRequiredLiterals() throws Exception {
+		assertEquals(Arrays.asList("foo.bar", "qux", "abc"), //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				Arrays.asList(ConsoleTextIndex.getRequiredLiterals(Pattern.compile("foo\\.bar(baz)?qux+y*z{2,3}abc")))); //$NON-NLS-1$
+		assertEquals(Arrays.asList("a.b"), Arrays.asList(ConsoleTextIndex.getRequiredLiterals(Pattern.compile(Pattern.quote("a.b"))))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(0, ConsoleTextIndex.getRequiredLiterals(Pattern.compile("first|second")).length); //$NON-NLS-1$
+		assertEquals(0, ConsoleTextIndex.getRequiredLiterals(Pattern.compile("[abc]+\\d*")).length); //$NON-NLS-1$
+		assertEquals(0, ConsoleTextIndex.getRequiredLiterals(Pattern.compile("\\x41bcd")).length); //$NON-NLS-1$
+	}
+
+	public void testFindsAll() throws Exception {
+		assertTrue(ConsoleTextIndex.findsAll(Pattern.compile(Pattern.quote("a.b\\E[^x]")))); //$NON-NLS-1$
+		assertTrue(ConsoleTextIndex.findsAll(Pattern.compile("\\bException: \\w+\\d*$", Pattern.MULTILINE))); //$NON-NLS-1$
+		// matches may span lines
+		assertFalse(ConsoleTextIndex.findsAll(Pattern.compile("foo\\s+bar"))); //$NON-NLS-1$
+		assertFalse(ConsoleTextIndex.findsAll(Pattern.compile("foo[^x]bar"))); //$NON-NLS-1$
+		assertFalse(ConsoleTextIndex.findsAll(Pattern.compile("(?s)foo.bar"))); //$NON-NLS-1$
+		assertFalse(ConsoleTextIndex.findsAll(Pattern.compile(Pattern.quote("foo\nbar")))); //$NON-NLS-1$
+		// empty matches
+		assertFalse(ConsoleTextIndex.findsAll(Pattern.compile("^", Pattern.MULTILINE))); //$NON-NLS-1$
+	}
+
+	public void testTrim() throws Exception {
+		appendLines(10000);
+		int cutOffset = fDocument.getLineOffset(5000);
+		fDocument.replace(0, cutOffset, ""); //$NON-NLS-1$
+		fIndex.textTrimmed(cutOffset);
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("Exception")); //$NON-NLS-1$
+		assertEquals(5, matches.getCount());
+		assertEquals(500, fDocument.getLineOfOffset(matches.getOffset(0)));
+		cutOffset = fDocument.getLineOffset(1000);
+		fDocument.replace(0, cutOffset, ""); //$NON-NLS-1$
+		fIndex.textTrimmed(cutOffset);
+		assertTrue(matches.isOutdated());
+		TestHelper.waitForJobs();
+		assertEquals(-1, matches.getNext(0, false));
+		assertEquals(1, matches.getNext(0, true));
+		assertEquals(500, fDocument.getLineOfOffset(matches.getOffset(1)));
+	}
+
+	public void testChange() throws Exception {
+		append("first line\nsecond "); //$NON-NLS-1$
+		fDocument.replace(11, 0, "input\n"); //$NON-NLS-1$
+		fIndex.textChanged(fDocument, 11);
+		assertEquals(11, find(Pattern.compile("input")).getOffset(0)); //$NON-NLS-1$
+		assertEquals(17, find(Pattern.compile("second")).getOffset(0)); //$NON-NLS-1$
+		assertEquals(1, find(Pattern.compile("e\ninp")).getCount()); //$NON-NLS-1$
+	}
+
+	public void testClear() throws Exception {
+		appendLines(1000);
+		fDocument.set(""); //$NON-NLS-1$
+		fIndex.textCleared();
+		assertEquals(0, find(Pattern.compile("line")).getCount()); //$NON-NLS-1$
+		append("\u00c4rger line\n"); //$NON-NLS-1$
+		ConsoleTextIndex.Matches matches = find(Pattern.compile("\u00e4rger", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE)); //$NON-NLS-1$
+		assertEquals(1, matches.getCount());
+		assertEquals(0, matches.getOffset(0));
+	}
+
+	public void testConsoleOutput() throws Exception {
+		MessageConsole console = new MessageConsole("Text Index Console", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, "UTF-8", true); //$NON-NLS-1$
+		try {
+			console.setWaterMarks(50000, 100000);
+			try (IOConsoleOutputStream stream = console.newOutputStream()) {
+				for (int i = 0; i < 20000; i++) {
+					stream.write((i % 100 == 0 ? "BUILD FAILED " : "output ") + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				}
+			}
+			TestHelper.waitForJobs();
+			IDocument document = console.getDocument();
+			ConsoleTextIndex index = ((IOConsolePartitioner) document.getDocumentPartitioner()).getTextIndex();
+			ConsoleTextIndex.Matches matches = find(index, document, Pattern.compile("BUILD FAILED \\d+")); //$NON-NLS-1$
+			int expected = 0;
+			for (int line = 0; line < document.getNumberOfLines(); line++) {
+				if (document.get(document.getLineOffset(line), document.getLineLength(line)).startsWith("BUILD FAILED")) { //$NON-NLS-1$
+					expected++;
+				}
+			}
+			assertTrue("no output was indexed", expected > 0); //$NON-NLS-1$
+			assertEquals(expected, matches.getCount());
+			console.clearConsole();
+			TestHelper.waitForJobs();
+			assertEquals(0, find(index, document, Pattern.compile("BUILD")).getCount()); //$NON-NLS-1$
+		} finally {
+			console.destroy();
+		}
+	}
+}
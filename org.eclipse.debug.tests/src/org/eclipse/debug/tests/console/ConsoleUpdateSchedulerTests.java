@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.internal.console.ConsoleManager;
+import org.eclipse.ui.internal.console.ConsoleUpdateScheduler;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the scheduler that shares the UI thread among console updates.
+ */
+public class ConsoleUpdateSchedulerTests extends TestCase {
+
+	public ConsoleUpdateSchedulerTests(String name) {
+		super(name);
+	}
+
+	public void testBatchSize() throws Exception {
+		ConsoleUpdateScheduler fast = new ConsoleUpdateScheduler();
+		ConsoleUpdateScheduler slow = new ConsoleUpdateScheduler();
+		long millisecond = TimeUnit.MILLISECONDS.toNanos(1);
+		for (int i = 0; i < 10; i++) {
+			fast.updated(1000000, millisecond, millisecond);
+			slow.updated(10000, millisecond, millisecond);
+		}
+		assertTrue(fast.getThroughput() > slow.getThroughput());
+		assertTrue(fast.getBatchSize(true) > slow.getBatchSize(true));
+		assertTrue(fast.getBatchSize(false) <= Math.max(fast.getBatchSize(true), ConsoleUpdateScheduler.MIN_HIDDEN_BATCH));
+		assertTrue(slow.getBatchSize(false) >= ConsoleUpdateScheduler.MIN_HIDDEN_BATCH);
+	}
+
+	public void testBudget() throws Exception {
+		ConsoleUpdateScheduler scheduler = new ConsoleUpdateScheduler();
+		assertEquals(0, scheduler.getDelay(100000, true));
+		assertEquals(ConsoleUpdateScheduler.FRAME_PERIOD, scheduler.getDelay(10, true));
+		// use up the budget of the current frame
+		scheduler.updated(100000, TimeUnit.MILLISECONDS.toNanos(ConsoleUpdateScheduler.FRAME_BUDGET), 0);
+		assertEquals(ConsoleUpdateScheduler.MIN_BATCH, scheduler.getBatchSize(true));
+		assertTrue(scheduler.getDelay(100000, true) > 0);
+		// consoles that are not visible stay within the budget, with a bounded batch
+		assertTrue(scheduler.getDelay(100000, false) > 0);
+		assertEquals(ConsoleUpdateScheduler.MIN_HIDDEN_BATCH, scheduler.getBatchSize(false));
+		Thread.sleep(ConsoleUpdateScheduler.FRAME_PERIOD * 2);
+		assertEquals(0, scheduler.getDelay(100000, true));
+		assertEquals(ConsoleUpdateScheduler.FRAME_BUDGET, scheduler.getFrameTime());
+	}
+
+	public void testMetrics() throws Exception {
+		ConsoleUpdateScheduler scheduler = ((ConsoleManager) ConsolePlugin.getDefault().getConsoleManager()).getUpdateScheduler();
+		MessageConsole console = new MessageConsole("Update Scheduler Console", //$NON-NLS-1$
+				IConsoleConstants.MESSAGE_CONSOLE_TYPE, null, "UTF-8", true); //$NON-NLS-1$
+		try {
+			try (IOConsoleOutputStream stream = console.newOutputStream()) {
+				for (int i = 0; i < 10000; i++) {
+					stream.write("output line " + i + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+			TestHelper.waitForJobs();
+			assertEquals(0, scheduler.getBacklog());
+			assertTrue(scheduler.getMaxLatency() >= 0);
+			assertTrue(scheduler.getThroughput() > 0);
+			assertTrue(console.getDocument().getLength() > 0);
+		} finally {
+			console.destroy();
+		}
+	}
+}
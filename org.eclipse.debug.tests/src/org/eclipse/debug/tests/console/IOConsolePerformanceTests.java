@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.console;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.debug.internal.core.InputStreamMonitor;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.ui.IWorkbenchPage;
+import org.eclipse.ui.PlatformUI;
+import org.eclipse.ui.console.AnsiOutputProcessor;
+import org.eclipse.ui.console.ConsolePlugin;
+import org.eclipse.ui.console.IConsole;
+import org.eclipse.ui.console.IConsoleConstants;
+import org.eclipse.ui.console.IConsoleManager;
+import org.eclipse.ui.console.IOConsoleInputStream;
+import org.eclipse.ui.console.IPatternMatchListener;
+import org.eclipse.ui.console.MessageConsole;
+import org.eclipse.ui.console.MessageConsoleStream;
+import org.eclipse.ui.console.PatternMatchEvent;
+import org.eclipse.ui.console.TextConsole;
+
+import junit.framework.TestCase;
+
+/**
+ * Measures the throughput of output printed to a message console that is
+ * shown in the console view, from the stream to the document. Each run prints
+ * the same 8 MB, so the elapsed time translates to MB/s.
+ * <p>
+ * Also measures the throughput of console input, from the input stream of a
+ * console to the standard input of a process. Each run types the same 100 MB.
+ * </p>
+ * <p>
+ * Compares coloring output by ANSI escape sequences with an output processor,
+ * which strips the sequences before the output reaches the document, to a
+ * pattern match listener that finds the sequences in the document afterwards.
+ * </p>
+ */
+public class IOConsolePerformanceTests extends TestCase {
+
+	/**
+	 * Lines printed per run, 8 MB of characters
+	 */
+	private static final int LINES = 100000;
+
+	private static final String LINE = "0123456789012345678901234567890123456789012345678901234567890123456789012345678\n"; //$NON-NLS-1$
+
+	/**
+	 * Line colored by ANSI escape sequences, which are 9 of its 80 characters
+	 */
+	private static final String ANSI_LINE = "\u001b[32mINFO\u001b[0m 01234567890123456789012345678901234567890123456789012345678901234\n"; //$NON-NLS-1$
+
+	/**
+	 * Length of {@link #ANSI_LINE} without the escape sequences
+	 */
+	private static final int ANSI_TEXT_LENGTH = ANSI_LINE.length() - 9;
+
+	/**
+	 * Bytes of console input per run, 100 MB
+	 */
+	private static final int INPUT_BYTES = 100 * 1024 * 1024;
+
+	private static final int INPUT_CHUNK = 64 * 1024;
+
+	private IConsoleManager fManager;
+
+	/**
+	 * Standard input of a process that only counts the bytes written to it
+	 */
+	private static class CountingOutputStream extends OutputStream {
+
+		private volatile long fCount = 0;
+
+		@Override
+		public void write(int b) {
+			fCount++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			fCount += len;
+		}
+	}
+
+	public IOConsolePerformanceTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		assertNotNull("Must run in UI thread", Display.getCurrent()); //$NON-NLS-1$
+		fManager = ConsolePlugin.getDefault().getConsoleManager();
+		IWorkbenchPage page = PlatformUI.getWorkbench().getActiveWorkbenchWindow().getActivePage();
+		page.showView(IConsoleConstants.ID_CONSOLE_VIEW);
+		TestHelper.processUIEvents(100);
+	}
+
+	/**
+	 * Finds ANSI color sequences in the document and reads the color, the
+	 * way coloring works without an output processor.
+	 */
+	private static class AnsiPatternListener implements IPatternMatchListener {
+
+		private final AtomicInteger fMatches = new AtomicInteger();
+
+		private TextConsole fConsole;
+
+		@Override
+		public String getPattern() {
+			return "\u001b\\[[\\d;]*m"; //$NON-NLS-1$
+		}
+
+		@Override
+		public int getCompilerFlags() {
+			return 0;
+		}
+
+		@Override
+		public String getLineQualifier() {
+			return "\u001b"; //$NON-NLS-1$
+		}
+
+		@Override
+		public void connect(TextConsole console) {
+			fConsole = console;
+		}
+
+		@Override
+		public void disconnect() {
+			fConsole = null;
+		}
+
+		@Override
+		public void matchFound(PatternMatchEvent event) {
+			try {
+				String sequence = fConsole.getDocument().get(event.getOffset(), event.getLength());
+				if (sequence.length() > 3) {
+					Integer.parseInt(sequence.substring(2, sequence.length() - 1));
+				}
+				fMatches.incrementAndGet();
+			} catch (BadLocationException e) {
+				// the missing match fails the test
+			}
+		}
+	}
+
+	/**
+	 * Prints the lines from a background thread and waits until the
+	 * document of the visible console holds all of them.
+	 */
+	private void print(MessageConsole console) throws Exception {
+		print(console, console.newMessageStream(), LINE, LINE.length());
+	}
+
+	/**
+	 * Prints the given line from a background thread and waits until the
+	 * document of the visible console holds all of them.
+	 *
+	 * @param length the length of the line in the document
+	 */
+	private void print(MessageConsole console, final MessageConsoleStream stream, final String line, int length) throws Exception {
+		Thread writer = new Thread("Console Writer") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				for (int i = 0; i < LINES; i++) {
+					stream.print(line);
+				}
+			}
+		};
+		writer.start();
+		IDocument document = console.getDocument();
+		int expected = LINES * length;
+		long timeout = System.currentTimeMillis() + 120000;
+		while (document.getLength() < expected && System.currentTimeMillis() < timeout) {
+			TestHelper.processUIEvents(10);
+		}
+		writer.join();
+		stream.close();
+		assertEquals("output is missing", expected, document.getLength()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Appends the input to the input stream of the console, as typing does,
+	 * and waits until the input stream monitor has written all of it.
+	 */
+	private void type(MessageConsole console) throws Exception {
+		final IOConsoleInputStream input = console.getInputStream();
+		final CountingOutputStream stdin = new CountingOutputStream();
+		final InputStreamMonitor monitor = new InputStreamMonitor(stdin, StandardCharsets.US_ASCII.name());
+		monitor.startMonitoring();
+		// the same bulk reads as the input job of process consoles
+		Thread reader = new Thread("Console Input Reader") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				byte[] buffer = new byte[8192];
+				try {
+					int read;
+					while ((read = input.read(buffer)) >= 0) {
+						monitor.write(buffer, 0, read);
+					}
+				} catch (IOException e) {
+					// the missing input fails the test
+				}
+			}
+		};
+		reader.start();
+		char[] chunk = new char[INPUT_CHUNK];
+		for (int i = 0; i < chunk.length; i++) {
+			chunk[i] = i % 80 == 79 ? '\n' : (char) ('a' + i % 26);
+		}
+		String text = new String(chunk);
+		for (int i = 0; i < INPUT_BYTES / INPUT_CHUNK; i++) {
+			input.appendData(text);
+		}
+		long timeout = System.currentTimeMillis() + 120000;
+		while (stdin.fCount < INPUT_BYTES && System.currentTimeMillis() < timeout) {
+			Thread.sleep(10);
+		}
+		input.close();
+		reader.join();
+		monitor.close();
+		assertEquals("input is missing", INPUT_BYTES, stdin.fCount); //$NON-NLS-1$
+	}
+
+	public void testInputThroughput() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 4; i++) {
+				MessageConsole console = new MessageConsole("Input Performance Console " + i, null); //$NON-NLS-1$
+				// the first run warms up
+				if (i > 0) {
+					meter.start();
+				}
+				type(console);
+				if (i > 0) {
+					meter.stop();
+				}
+				console.destroy();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	public void testPrintThroughput() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 6; i++) {
+				MessageConsole console = new MessageConsole("Performance Console " + i, null); //$NON-NLS-1$
+				fManager.addConsoles(new IConsole[] { console });
+				fManager.showConsoleView(console);
+				TestHelper.processUIEvents(100);
+				// the first run warms up
+				if (i > 0) {
+					meter.start();
+				}
+				print(console);
+				if (i > 0) {
+					meter.stop();
+				}
+				fManager.removeConsoles(new IConsole[] { console });
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	public void testAnsiProcessorThroughput() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 6; i++) {
+				MessageConsole console = new MessageConsole("ANSI Processor Performance Console " + i, null); //$NON-NLS-1$
+				fManager.addConsoles(new IConsole[] { console });
+				fManager.showConsoleView(console);
+				TestHelper.processUIEvents(100);
+				MessageConsoleStream stream = console.newMessageStream();
+				stream.setOutputProcessor(new AnsiOutputProcessor());
+				// the first run warms up
+				if (i > 0) {
+					meter.start();
+				}
+				print(console, stream, ANSI_LINE, ANSI_TEXT_LENGTH);
+				if (i > 0) {
+					meter.stop();
+				}
+				fManager.removeConsoles(new IConsole[] { console });
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	public void testAnsiPatternListenerThroughput() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 6; i++) {
+				MessageConsole console = new MessageConsole("ANSI Listener Performance Console " + i, null); //$NON-NLS-1$
+				AnsiPatternListener listener = new AnsiPatternListener();
+				console.addPatternMatchListener(listener);
+				fManager.addConsoles(new IConsole[] { console });
+				fManager.showConsoleView(console);
+				TestHelper.processUIEvents(100);
+				// the first run warms up
+				if (i > 0) {
+					meter.start();
+				}
+				print(console, console.newMessageStream(), ANSI_LINE, ANSI_LINE.length());
+				long timeout = System.currentTimeMillis() + 120000;
+				while (listener.fMatches.get() < 2 * LINES && System.currentTimeMillis() < timeout) {
+					TestHelper.processUIEvents(10);
+				}
+				if (i > 0) {
+					meter.stop();
+				}
+				assertEquals("sequences were not matched", 2 * LINES, listener.fMatches.get()); //$NON-NLS-1$
+				fManager.removeConsoles(new IConsole[] { console });
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2008, 2013 IBM Corporation and others.
+ * Copyright (c) 2008, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,11 @@ public class DebugFileSystem extends FileSystem {
 	 */
 	private final Map<URI, byte[]> files = new HashMap<URI, byte[]>();
 
+	/**
+	 * Time in milliseconds it takes to fetch file info
+	 */
+	private volatile long latency = 0;
+
 	/**
 	 * Constructs the singleton
 	 */
@@ -109,6 +114,25 @@ public class DebugFileSystem extends FileSystem {
 		files.put(uri, bytes);
 	}
 
+	/**
+	 * Sets the time it takes to fetch file info, to simulate a slow (network)
+	 * file system.
+	 *
+	 * @param millis latency in milliseconds
+	 */
+	public void setLatency(long millis) {
+		latency = millis;
+	}
+
+	/**
+	 * Returns the time it takes to fetch file info.
+	 *
+	 * @return latency in milliseconds
+	 */
+	public long getLatency() {
+		return latency;
+	}
+
 	/**
 	 * Returns URIs of all existing files.
 	 *
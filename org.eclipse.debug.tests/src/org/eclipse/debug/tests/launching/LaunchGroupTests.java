@@ -15,12 +15,15 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.ILaunch;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
@@ -33,6 +36,8 @@ import org.eclipse.debug.core.model.IStreamMonitor;
 import org.eclipse.debug.core.model.IStreamsProxy;
 import org.eclipse.debug.internal.core.groups.GroupLaunchConfigurationDelegate;
 import org.eclipse.debug.internal.core.groups.GroupLaunchElement;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependency;
+import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementDependencyCondition;
 import org.eclipse.debug.internal.core.groups.GroupLaunchElement.GroupElementPostLaunchAction;
 import org.eclipse.debug.internal.ui.launchConfigurations.LaunchHistory;
 import org.eclipse.debug.ui.IDebugUIConstants;
@@ -285,6 +290,117 @@ public class LaunchGroupTests extends AbstractLaunchTest {
 		assertTrue("history[2] should be Test1", history[2].contentsEqual(t1)); //$NON-NLS-1$
 	}
 
+	public void testDependencies() throws Exception {
+		final ILaunchConfiguration t1 = getLaunchConfiguration("Test1"); //$NON-NLS-1$
+		final ILaunchConfiguration t2 = getLaunchConfiguration("Test2"); //$NON-NLS-1$
+		final ILaunchConfiguration t3 = getLaunchConfiguration("Test3"); //$NON-NLS-1$
+
+		// Test2 waits for the output of Test1, Test1 and Test3 are launched
+		// right away
+		GroupLaunchElement e1 = createLaunchGroupElement(t1, GroupElementPostLaunchAction.NONE, null, false);
+		e1.dependencies = Collections.emptyList();
+		GroupLaunchElement e2 = createLaunchGroupElement(t2, GroupElementPostLaunchAction.NONE, null, false);
+		e2.dependencies = Arrays.asList(createDependency(t1, GroupElementDependencyCondition.OUTPUT_REGEXP, "Test.*put")); //$NON-NLS-1$
+		GroupLaunchElement e3 = createLaunchGroupElement(t3, GroupElementPostLaunchAction.NONE, null, false);
+		e3.dependencies = Collections.emptyList();
+		ILaunchConfiguration grp = createLaunchGroup(DEF_GRP_NAME, e1, e2, e3);
+
+		final DummyAttachListener attachListener = new DummyAttachListener(t1);
+		getLaunchManager().addLaunchListener(attachListener);
+		final List<String> launched = Collections.synchronizedList(new ArrayList<String>());
+		ILaunchListener orderListener = new ILaunchListener() {
+			@Override
+			public void launchRemoved(ILaunch launch) {
+			}
+
+			@Override
+			public void launchChanged(ILaunch launch) {
+			}
+
+			@Override
+			public void launchAdded(ILaunch launch) {
+				launched.add(launch.getLaunchConfiguration().getName());
+			}
+		};
+		getLaunchManager().addLaunchListener(orderListener);
+
+		final AtomicBoolean parallel = new AtomicBoolean();
+		long start = System.currentTimeMillis();
+		new Thread("Output Producer") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(2000);
+					// Test3 did not wait for Test2
+					parallel.set(launched.contains(t3.getName()) && !launched.contains(t2.getName()));
+					attachListener.getStream().write("TestOutput"); //$NON-NLS-1$
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}.start();
+
+		try {
+			grp.launch(ILaunchManager.RUN_MODE, new NullProgressMonitor());
+		} finally {
+			getLaunchManager().removeLaunchListener(attachListener);
+			getLaunchManager().removeLaunchListener(orderListener);
+		}
+
+		assertTrue("output was not awaited", (System.currentTimeMillis() - start) >= 2000); //$NON-NLS-1$
+		assertTrue("independent members were not launched right away", parallel.get()); //$NON-NLS-1$
+		assertEquals("Test2 should be launched last", t2.getName(), launched.get(launched.size() - 1)); //$NON-NLS-1$
+		assertEquals(4, launched.size());
+	}
+
+	public void testUnknownDependency() throws Exception {
+		ILaunchConfiguration t1 = getLaunchConfiguration("Test1"); //$NON-NLS-1$
+		ILaunchConfiguration t2 = getLaunchConfiguration("Test2"); //$NON-NLS-1$
+		GroupLaunchElement e1 = createLaunchGroupElement(t1, GroupElementPostLaunchAction.NONE, null, false);
+		e1.enabled = false;
+		GroupLaunchElement e2 = createLaunchGroupElement(t2, GroupElementPostLaunchAction.NONE, null, false);
+		e2.dependencies = Arrays.asList(createDependency(t1, GroupElementDependencyCondition.LAUNCHED, null));
+		ILaunchConfiguration grp = createLaunchGroup(DEF_GRP_NAME, e1, e2);
+
+		lcToCount = t2;
+		getLaunchManager().addLaunchListener(lcListener);
+		try {
+			grp.launch(ILaunchManager.RUN_MODE, new NullProgressMonitor());
+			fail("a dependency on a disabled member should be reported"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertTrue(e.getStatus().getMessage(), e.getStatus().getMessage().indexOf(t1.getName()) >= 0);
+		} finally {
+			getLaunchManager().removeLaunchListener(lcListener);
+		}
+		assertEquals("Test2 should not be launched", 0, launchCount.get()); //$NON-NLS-1$
+	}
+
+	public void testStoreDependencies() throws Exception {
+		ILaunchConfiguration t1 = getLaunchConfiguration("Test1"); //$NON-NLS-1$
+		ILaunchConfiguration t2 = getLaunchConfiguration("Test2"); //$NON-NLS-1$
+		GroupLaunchElement e2 = createLaunchGroupElement(t2, GroupElementPostLaunchAction.NONE, null, false);
+		e2.dependencies = Arrays.asList(createDependency(t1, GroupElementDependencyCondition.EXIT_OK, null), createDependency(t1, GroupElementDependencyCondition.OUTPUT_REGEXP, "a:b")); //$NON-NLS-1$
+		ILaunchConfiguration grp = createLaunchGroup(DEF_GRP_NAME, createLaunchGroupElement(t1, GroupElementPostLaunchAction.NONE, null, false), e2);
+
+		List<GroupLaunchElement> elements = GroupLaunchConfigurationDelegate.createLaunchElements(grp);
+		assertNull("elements without dependencies follow the previous one", elements.get(0).dependencies); //$NON-NLS-1$
+		List<GroupElementDependency> dependencies = elements.get(1).dependencies;
+		assertEquals(2, dependencies.size());
+		assertEquals(t1.getName(), dependencies.get(0).name);
+		assertEquals(GroupElementDependencyCondition.EXIT_OK, dependencies.get(0).condition);
+		assertNull(dependencies.get(0).param);
+		assertEquals(GroupElementDependencyCondition.OUTPUT_REGEXP, dependencies.get(1).condition);
+		assertEquals("a:b", dependencies.get(1).param); //$NON-NLS-1$
+	}
+
+	private GroupElementDependency createDependency(ILaunchConfiguration source, GroupElementDependencyCondition condition, String param) {
+		GroupElementDependency d = new GroupElementDependency();
+		d.name = source.getName();
+		d.condition = condition;
+		d.param = param;
+		return d;
+	}
+
 	public void testRename() throws Exception {
 		ILaunchConfiguration t1 = getLaunchConfiguration("Test1"); //$NON-NLS-1$
 		ILaunchConfiguration t2 = getLaunchConfiguration("Test2"); //$NON-NLS-1$
@@ -342,6 +458,9 @@ public class LaunchGroupTests extends AbstractLaunchTest {
 				}
 				if (name.equals("terminate")) { //$NON-NLS-1$
 					terminated = true;
+					// like real processes, notify about termination
+					DebugPlugin.getDefault().fireDebugEventSet(new DebugEvent[] {
+							new DebugEvent(proxy, DebugEvent.TERMINATE) });
 				}
 				if (name.equals("getAdapter")) { //$NON-NLS-1$
 					return null;
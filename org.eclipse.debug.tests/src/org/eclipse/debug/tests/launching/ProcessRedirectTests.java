@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.launching;
+
+import java.io.File;
+import java.lang.ProcessBuilder.Redirect;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.Path;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunchConfigurationWorkingCopy;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.Launch;
+import org.eclipse.debug.core.TerminationNotifier;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStreamsProxy;
+import org.eclipse.debug.internal.core.ProcessRedirects;
+import org.eclipse.debug.internal.core.StreamsProxy;
+import org.eclipse.debug.ui.IDebugUIConstants;
+
+/**
+ * Tests the stream redirection of processes started with a
+ * {@link ProcessBuilder}.
+ *
+ * @since 3.10
+ */
+public class ProcessRedirectTests extends AbstractLaunchTest {
+
+	public ProcessRedirectTests(String name) {
+		super(name);
+	}
+
+	/**
+	 * Returns a command line that prints the version of the running Java
+	 * runtime to the error output.
+	 */
+	private String[] getCommandLine() {
+		return new String[] {
+				new Path(System.getProperty("java.home")).append("bin/java").toOSString(), //$NON-NLS-1$ //$NON-NLS-2$
+				"-version" }; //$NON-NLS-1$
+	}
+
+	private Launch newLaunch(String attribute, Object value) throws Exception {
+		ILaunchConfigurationWorkingCopy workingCopy = getLaunchConfiguration("Test1").getWorkingCopy(); //$NON-NLS-1$
+		if (value instanceof Boolean) {
+			workingCopy.setAttribute(attribute, ((Boolean) value).booleanValue());
+		} else {
+			workingCopy.setAttribute(attribute, (String) value);
+		}
+		return new Launch(workingCopy, ILaunchManager.RUN_MODE, null);
+	}
+
+	private IProcess run(Launch launch, Process process) throws Exception {
+		IProcess runtimeProcess = DebugPlugin.newProcess(launch, process, "java"); //$NON-NLS-1$
+		TerminationNotifier.whenTerminated(runtimeProcess).get(30, TimeUnit.SECONDS);
+		return runtimeProcess;
+	}
+
+	public void testMergedOutput() throws Exception {
+		Launch launch = newLaunch(DebugPlugin.ATTR_MERGE_OUTPUT, Boolean.TRUE);
+		Process process = DebugPlugin.exec(DebugPlugin.newProcessBuilder(launch, getCommandLine(), null, null));
+		assertTrue(ProcessRedirects.isOutputPiped(process));
+		assertFalse(ProcessRedirects.isErrorPiped(process));
+		IStreamsProxy proxy = run(launch, process).getStreamsProxy();
+		assertTrue("error output was not merged", proxy.getOutputStreamMonitor().getContents().contains("version")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("", proxy.getErrorStreamMonitor().getContents()); //$NON-NLS-1$
+	}
+
+	public void testDiscardedOutput() throws Exception {
+		Launch launch = newLaunch(DebugPlugin.ATTR_MERGE_OUTPUT, Boolean.FALSE);
+		launch.setAttribute(DebugPlugin.ATTR_CAPTURE_OUTPUT, Boolean.FALSE.toString());
+		ProcessBuilder builder = DebugPlugin.newProcessBuilder(launch, getCommandLine(), null, null);
+		assertEquals(Redirect.Type.WRITE, builder.redirectOutput().type());
+		assertEquals(Redirect.Type.WRITE, builder.redirectError().type());
+		Process process = DebugPlugin.exec(builder);
+		assertFalse(ProcessRedirects.isOutputPiped(process));
+		assertFalse(ProcessRedirects.isErrorPiped(process));
+		IStreamsProxy proxy = run(launch, process).getStreamsProxy();
+		assertEquals("", proxy.getErrorStreamMonitor().getContents()); //$NON-NLS-1$
+	}
+
+	public void testOutputToFile() throws Exception {
+		File file = File.createTempFile("redirect", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+		try {
+			Launch launch = newLaunch(IDebugUIConstants.ATTR_CAPTURE_IN_CONSOLE, Boolean.FALSE);
+			((ILaunchConfigurationWorkingCopy) launch.getLaunchConfiguration()).setAttribute(IDebugUIConstants.ATTR_CAPTURE_IN_FILE, file.getAbsolutePath());
+			Process process = DebugPlugin.exec(DebugPlugin.newProcessBuilder(launch, getCommandLine(), null, null));
+			assertNull("the launch was changed", launch.getAttribute(DebugPlugin.ATTR_CAPTURE_OUTPUT)); //$NON-NLS-1$
+			assertFalse(ProcessRedirects.isOutputPiped(process));
+			assertFalse(ProcessRedirects.isErrorPiped(process));
+			IStreamsProxy proxy = run(launch, process).getStreamsProxy();
+			assertFalse(((StreamsProxy) proxy).isOutputPiped());
+			String contents = new String(Files.readAllBytes(file.toPath()), Charset.defaultCharset());
+			assertTrue("output was not written to the file", contents.contains("version")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			file.delete();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2013 IBM Corporation and others.
+ *  Copyright (c) 2000, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 package org.eclipse.debug.tests.launching;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
@@ -20,6 +22,7 @@ import org.eclipse.core.resources.IWorkspaceRoot;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.RefreshUtil;
+import org.eclipse.debug.core.ResourceSnapshot;
 import org.eclipse.debug.internal.core.RefreshScopeComparator;
 import org.eclipse.debug.tests.TestsPlugin;
 import org.eclipse.debug.ui.RefreshTab;
@@ -201,4 +204,50 @@ public class RefreshTabTests extends AbstractLaunchTest {
 		assertNotNull(resources);
 		assertEquals("Should be empty", 0, resources.length); //$NON-NLS-1$
 	}
+
+	/**
+	 * Tests that only resources changed since a snapshot are refreshed.
+	 *
+	 * @throws Exception
+	 */
+	public void testIncrementalRefresh() throws Exception {
+		IProject project = getProject();
+		ResourceSnapshot snapshot = ResourceSnapshot.take(new IResource[] { project }, IResource.DEPTH_INFINITE, null);
+		assertEquals("Nothing changed", 0, snapshot.refreshChanged(null)); //$NON-NLS-1$
+
+		IFolder folder = project.getFolder("generated"); //$NON-NLS-1$
+		File directory = folder.getLocation().toFile();
+		assertTrue(directory.mkdir());
+		File file = new File(directory, "tool.out"); //$NON-NLS-1$
+		try (FileOutputStream stream = new FileOutputStream(file)) {
+			stream.write("output".getBytes()); //$NON-NLS-1$
+		}
+		try {
+			// the project learns about the folder, which is refreshed with its
+			// members, all of them count
+			int refreshed = snapshot.refreshChanged(null);
+			assertEquals(1 + project.members().length + 2, refreshed);
+			assertTrue("Folder should be refreshed", folder.exists()); //$NON-NLS-1$
+			assertTrue("File should be refreshed", folder.getFile("tool.out").exists()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertTrue(project.getFile("some.file").isSynchronized(IResource.DEPTH_ZERO)); //$NON-NLS-1$
+		} finally {
+			folder.delete(true, null);
+		}
+	}
+
+	/**
+	 * Tests that files removed since a snapshot are refreshed.
+	 *
+	 * @throws Exception
+	 */
+	public void testIncrementalRefreshRemoved() throws Exception {
+		IProject project = getProject();
+		IFile file = project.getFile("removed.file"); //$NON-NLS-1$
+		file.create(new ByteArrayInputStream("content".getBytes()), true, null); //$NON-NLS-1$
+		ResourceSnapshot snapshot = ResourceSnapshot.take(new IResource[] { project }, IResource.DEPTH_INFINITE, null);
+		assertTrue(file.getLocation().toFile().delete());
+		// the project learns about the removal
+		assertTrue("Project should be refreshed", snapshot.refreshChanged(null) > 0); //$NON-NLS-1$
+		assertFalse("File should be removed", file.exists()); //$NON-NLS-1$
+	}
 }
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.launching;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.VariablesPlugin;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the substitution of variables in compiled expressions, and the cache
+ * of dynamic variable values.
+ *
+ * @since 3.10
+ */
+public class StringSubstitutionTests extends TestCase {
+
+	private static final String PROPERTY = "org.eclipse.debug.tests.substitution"; //$NON-NLS-1$
+
+	private IValueVariable[] fVariables;
+
+	public StringSubstitutionTests(String name) {
+		super(name);
+	}
+
+	private IStringVariableManager getManager() {
+		return VariablesPlugin.getDefault().getStringVariableManager();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		IStringVariableManager manager = getManager();
+		fVariables = new IValueVariable[] {
+				manager.newValueVariable("substitution_a", null, true, "A"), //$NON-NLS-1$ //$NON-NLS-2$
+				manager.newValueVariable("substitution_b", null, true, "${substitution_a}B"), //$NON-NLS-1$ //$NON-NLS-2$
+				manager.newValueVariable("substitution_name", null, true, "substitution_a"), //$NON-NLS-1$ //$NON-NLS-2$
+				manager.newValueVariable("substitution_c", null, true, "${substitution_d}"), //$NON-NLS-1$ //$NON-NLS-2$
+				manager.newValueVariable("substitution_d", null, true, "${substitution_c}") //$NON-NLS-1$ //$NON-NLS-2$
+		};
+		manager.addVariables(fVariables);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getManager().removeVariables(fVariables);
+		System.getProperties().remove(PROPERTY);
+	}
+
+	private String substitute(String expression) throws CoreException {
+		return getManager().performStringSubstitution(expression, false);
+	}
+
+	/**
+	 * Nested and recursive references are resolved, the same expression gives
+	 * the same result when it is substituted again.
+	 */
+	public void testNestedReferences() throws Exception {
+		for (int i = 0; i < 2; i++) {
+			assertEquals("xAy", substitute("x${substitution_a}y")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("AB", substitute("${substitution_b}")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("A-A", substitute("${${substitution_name}}-${substitution_a}")); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals("no variables", substitute("no variables")); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+	}
+
+	/**
+	 * Incomplete and unknown references are left as is.
+	 */
+	public void testIncompleteReferences() throws Exception {
+		assertEquals("${A", substitute("${${substitution_a}")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("${x ${A", substitute("${x ${${substitution_a}")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals("${substitution_unknown}A}", substitute("${substitution_unknown}${substitution_a}}")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * References in a cycle are reported.
+	 */
+	public void testCycle() throws Exception {
+		try {
+			substitute("${substitution_c}"); //$NON-NLS-1$
+			fail("cycle not reported"); //$NON-NLS-1$
+		} catch (CoreException e) {
+			assertEquals(VariablesPlugin.REFERENCE_CYCLE_ERROR, e.getStatus().getCode());
+		}
+	}
+
+	/**
+	 * Values of variables with the launch cache scope are kept while a launch
+	 * scope is open in the thread, and resolved every time otherwise.
+	 */
+	public void testLaunchCacheScope() throws Exception {
+		String expression = "${system_property:" + PROPERTY + "}"; //$NON-NLS-1$ //$NON-NLS-2$
+		System.setProperty(PROPERTY, "first"); //$NON-NLS-1$
+		assertEquals("first", substitute(expression)); //$NON-NLS-1$
+		System.setProperty(PROPERTY, "second"); //$NON-NLS-1$
+		assertEquals("Values should not be cached outside of a launch", "second", substitute(expression)); //$NON-NLS-1$ //$NON-NLS-2$
+
+		getManager().beginLaunchScope();
+		try {
+			assertEquals("second", substitute(expression)); //$NON-NLS-1$
+			System.setProperty(PROPERTY, "third"); //$NON-NLS-1$
+			assertEquals("second", substitute(expression)); //$NON-NLS-1$
+			getManager().clearDynamicVariableCache(IStringVariableManager.CACHE_SCOPE_BUILD);
+			assertEquals("second", substitute(expression)); //$NON-NLS-1$
+			getManager().beginLaunchScope();
+			getManager().endLaunchScope();
+			assertEquals("Values should be kept until the outermost scope ends", "second", substitute(expression)); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			getManager().endLaunchScope();
+		}
+		assertEquals("third", substitute(expression)); //$NON-NLS-1$
+	}
+}
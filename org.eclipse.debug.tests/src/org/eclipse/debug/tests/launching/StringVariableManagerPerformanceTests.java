@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.launching;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.core.variables.IStringVariableManager;
+import org.eclipse.core.variables.IValueVariable;
+import org.eclipse.core.variables.VariablesPlugin;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import junit.framework.TestCase;
+
+/**
+ * Measures 32 threads substituting variables concurrently, while another
+ * thread changes a value variable.
+ *
+ * @since 3.10
+ */
+public class StringVariableManagerPerformanceTests extends TestCase {
+
+	private static final int THREADS = 32;
+
+	private static final int SUBSTITUTIONS = 2000;
+
+	private static final String EXPRESSION = "-Dhome=${eclipse_home} -Dname=${benchmark_name} ${benchmark_args}"; //$NON-NLS-1$
+
+	private IValueVariable[] fVariables;
+
+	public StringVariableManagerPerformanceTests(String name) {
+		super(name);
+	}
+
+	private IStringVariableManager getManager() {
+		return VariablesPlugin.getDefault().getStringVariableManager();
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		IStringVariableManager manager = getManager();
+		fVariables = new IValueVariable[] {
+				manager.newValueVariable("benchmark_name", null, true, "benchmark"), //$NON-NLS-1$ //$NON-NLS-2$
+				manager.newValueVariable("benchmark_args", null, false, "-Dvalue=${benchmark_name}") //$NON-NLS-1$ //$NON-NLS-2$
+		};
+		manager.addVariables(fVariables);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		getManager().removeVariables(fVariables);
+	}
+
+	/**
+	 * Substitutes the expression from all threads at once, and returns the
+	 * first failure.
+	 */
+	private Throwable substitute() throws Exception {
+		final IStringVariableManager manager = getManager();
+		final CountDownLatch start = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(THREADS);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int i = 0; i < THREADS; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						for (int j = 0; j < SUBSTITUTIONS; j++) {
+							String result = manager.performStringSubstitution(EXPRESSION);
+							if (!result.endsWith("-Dvalue=benchmark")) { //$NON-NLS-1$
+								throw new IllegalStateException(result);
+							}
+						}
+					} catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}, "Substitution " + i); //$NON-NLS-1$
+			thread.start();
+		}
+		start.countDown();
+		// changes made meanwhile do not block substitutions
+		while (!done.await(1, TimeUnit.MILLISECONDS)) {
+			fVariables[1].setValue("-Dvalue=${benchmark_name}"); //$NON-NLS-1$
+		}
+		return failure.get();
+	}
+
+	public void testConcurrentSubstitution() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			// warm up
+			assertNull(substitute());
+			for (int i = 0; i < 10; i++) {
+				meter.start();
+				Throwable failure = substitute();
+				meter.stop();
+				assertNull(String.valueOf(failure), failure);
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+}
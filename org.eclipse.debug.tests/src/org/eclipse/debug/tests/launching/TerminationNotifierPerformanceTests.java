@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.launching;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.eclipse.core.runtime.PlatformObject;
+import org.eclipse.debug.core.DebugEvent;
+import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchConfiguration;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.Launch;
+import org.eclipse.debug.core.TerminationNotifier;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStreamsProxy;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+/**
+ * Chains short launches, each one started when the previous one terminated,
+ * and measures the end-to-end latency.
+ *
+ * @since 3.10
+ */
+public class TerminationNotifierPerformanceTests extends AbstractLaunchTest {
+
+	private static final int CHAIN = 500;
+
+	private final List<Launch> fLaunches = Collections.synchronizedList(new ArrayList<Launch>());
+
+	private ILaunchConfiguration fConfiguration;
+
+	public TerminationNotifierPerformanceTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fConfiguration = getLaunchConfiguration("Test1"); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		releaseLaunches();
+		super.tearDown();
+	}
+
+	private void releaseLaunches() {
+		// the launches are not registered with the launch manager, release
+		// them as if they were removed from it
+		synchronized (fLaunches) {
+			for (Launch launch : fLaunches) {
+				launch.launchRemoved(launch);
+			}
+			fLaunches.clear();
+		}
+	}
+
+	/**
+	 * Returns a new launch with a process that terminates when asked to.
+	 */
+	private ShortProcess newLaunch() {
+		Launch launch = new Launch(fConfiguration, ILaunchManager.RUN_MODE, null);
+		fLaunches.add(launch);
+		ShortProcess process = new ShortProcess(launch);
+		launch.addProcess(process);
+		return process;
+	}
+
+	/**
+	 * Launches the chain and waits for its last launch to terminate.
+	 */
+	private void runChain() throws Exception {
+		final CountDownLatch done = new CountDownLatch(1);
+		Consumer<ILaunch> next = new Consumer<ILaunch>() {
+			private int fCount = 0;
+
+			@Override
+			public void accept(ILaunch terminated) {
+				if (++fCount == CHAIN) {
+					done.countDown();
+					return;
+				}
+				ShortProcess process = newLaunch();
+				TerminationNotifier.whenTerminated(process.getLaunch()).thenAccept(this);
+				process.terminate();
+			}
+		};
+		ShortProcess first = newLaunch();
+		TerminationNotifier.whenTerminated(first.getLaunch()).thenAccept(next);
+		first.terminate();
+		assertTrue("chain did not complete", done.await(60, TimeUnit.SECONDS)); //$NON-NLS-1$
+	}
+
+	public void testChainedLaunches() throws Exception {
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			// warm up
+			runChain();
+			releaseLaunches();
+			for (int i = 0; i < 10; i++) {
+				meter.start();
+				runChain();
+				meter.stop();
+				releaseLaunches();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	/**
+	 * Waiting for launches to terminate does not occupy a thread per launch.
+	 */
+	public void testNoBlockedThreads() throws Exception {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		threads.resetPeakThreadCount();
+		int before = threads.getThreadCount();
+		List<ShortProcess> processes = new ArrayList<ShortProcess>();
+		final CountDownLatch done = new CountDownLatch(CHAIN);
+		for (int i = 0; i < CHAIN; i++) {
+			ShortProcess process = newLaunch();
+			processes.add(process);
+			CompletableFuture<IProcess> terminated = TerminationNotifier.whenTerminated(process);
+			terminated.thenRun(new Runnable() {
+				@Override
+				public void run() {
+					done.countDown();
+				}
+			});
+		}
+		for (ShortProcess process : processes) {
+			process.terminate();
+		}
+		assertTrue("not all terminations were notified", done.await(60, TimeUnit.SECONDS)); //$NON-NLS-1$
+		int added = threads.getPeakThreadCount() - before;
+		assertTrue("waiting used " + added + " threads", added < CHAIN / 10); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * A process that terminates right away when asked to, and notifies about
+	 * it like system processes do.
+	 */
+	static class ShortProcess extends PlatformObject implements IProcess {
+
+		private final ILaunch fLaunch;
+		private volatile boolean fTerminated = false;
+
+		ShortProcess(ILaunch launch) {
+			fLaunch = launch;
+		}
+
+		@Override
+		public boolean canTerminate() {
+			return !fTerminated;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return fTerminated;
+		}
+
+		@Override
+		public void terminate() {
+			fTerminated = true;
+			DebugPlugin.getDefault().fireDebugEventSet(new DebugEvent[] {
+					new DebugEvent(this, DebugEvent.TERMINATE) });
+		}
+
+		@Override
+		public String getLabel() {
+			return "Short"; //$NON-NLS-1$
+		}
+
+		@Override
+		public ILaunch getLaunch() {
+			return fLaunch;
+		}
+
+		@Override
+		public IStreamsProxy getStreamsProxy() {
+			return null;
+		}
+
+		@Override
+		public void setAttribute(String key, String value) {
+		}
+
+		@Override
+		public String getAttribute(String key) {
+			return null;
+		}
+
+		@Override
+		public int getExitValue() {
+			return 0;
+		}
+	}
+}
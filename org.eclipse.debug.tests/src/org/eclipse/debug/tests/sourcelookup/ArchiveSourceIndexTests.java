@@ -0,0 +1,205 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.eclipse.debug.core.sourcelookup.containers.ExternalArchiveSourceContainer;
+import org.eclipse.debug.core.sourcelookup.containers.ZipEntryStorage;
+import org.eclipse.debug.internal.core.sourcelookup.ArchiveSourceIndex;
+import org.eclipse.debug.internal.core.sourcelookup.SourceLookupUtils;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the index of archives searched by archive source containers.
+ *
+ * @since 3.10
+ */
+public class ArchiveSourceIndexTests extends TestCase {
+
+	private File fArchive;
+
+	public ArchiveSourceIndexTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fArchive = File.createTempFile("sourceIndex", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		SourceLookupUtils.closeArchives();
+		fArchive.delete();
+	}
+
+	private void createArchive(String comment, String... names) throws IOException {
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(fArchive))) {
+			if (comment != null) {
+				out.setComment(comment);
+			}
+			for (int i = 0; i < names.length; i++) {
+				out.putNextEntry(new ZipEntry(names[i]));
+				out.write(names[i].getBytes("UTF-8")); //$NON-NLS-1$
+				out.closeEntry();
+			}
+		}
+	}
+
+	/**
+	 * The central directory is found before the archive comment, and the
+	 * index has the file entries of the archive.
+	 */
+	public void testCentralDirectory() throws Exception {
+		createArchive("comment", "a/", "a/b/X.java", "c/X.java", "X.java", "\u00e9/\u00dc.java"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$
+		ArchiveSourceIndex index = ArchiveSourceIndex.build(fArchive);
+		assertEquals(4, index.getEntryCount());
+		assertTrue(index.contains("\u00e9/\u00dc.java")); //$NON-NLS-1$
+		assertTrue(index.contains("c/X.java")); //$NON-NLS-1$
+		assertFalse(index.contains("a/")); //$NON-NLS-1$
+		assertFalse(index.contains("X.jav")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Archives with more entries than the end record can count are indexed
+	 * from their zip64 records.
+	 */
+	public void testZip64() throws Exception {
+		String[] names = new String[70000];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = "p" + (i % 100) + "/C" + i + ".java"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		createArchive(null, names);
+		ArchiveSourceIndex index = ArchiveSourceIndex.build(fArchive);
+		try (ZipFile file = new ZipFile(fArchive)) {
+			assertEquals(file.size(), index.getEntryCount());
+			Enumeration<? extends ZipEntry> entries = file.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				assertTrue(name, index.contains(name));
+			}
+		}
+	}
+
+	/**
+	 * Entries are found in the order of the archive, unqualified names only
+	 * at the start of a segment.
+	 */
+	public void testFindEntries() throws Exception {
+		createArchive(null, "a/b/X.java", "c/X.java", "xa/b/X.java", "cX.java"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		ArchiveSourceIndex index = ArchiveSourceIndex.build(fArchive);
+		String[] entries = index.findEntries("X.java", false); //$NON-NLS-1$
+		assertEquals(3, entries.length);
+		assertEquals("a/b/X.java", entries[0]); //$NON-NLS-1$
+		assertEquals("c/X.java", entries[1]); //$NON-NLS-1$
+		assertEquals("xa/b/X.java", entries[2]); //$NON-NLS-1$
+		assertEquals(2, index.findEntries("a/b/X.java", true).length); //$NON-NLS-1$
+		assertEquals(1, index.findEntries("a/b/X.java", false).length); //$NON-NLS-1$
+		assertEquals(0, index.findEntries("Y.java", true).length); //$NON-NLS-1$
+	}
+
+	/**
+	 * A container detects a root once and finds the other names relative to
+	 * it.
+	 */
+	public void testDetectRoots() throws Exception {
+		createArchive(null, "r/a/b/X.java", "s/a/b/Y.java", "r/a/b/Y.java"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		ExternalArchiveSourceContainer container = new ExternalArchiveSourceContainer(fArchive.getAbsolutePath(), true);
+		try {
+			Object[] found = container.findSourceElements("a/b/X.java"); //$NON-NLS-1$
+			assertEquals(1, found.length);
+			assertEquals("r/a/b/X.java", ((ZipEntryStorage) found[0]).getZipEntry().getName()); //$NON-NLS-1$
+			found = container.findSourceElements("a/b/Y.java"); //$NON-NLS-1$
+			assertEquals(1, found.length);
+			assertEquals("r/a/b/Y.java", ((ZipEntryStorage) found[0]).getZipEntry().getName()); //$NON-NLS-1$
+			assertEquals(0, container.findSourceElements("a/b/Z.java").length); //$NON-NLS-1$
+		} finally {
+			container.dispose();
+		}
+	}
+
+	/**
+	 * Source elements remain readable when the shared archives are closed.
+	 */
+	public void testClosedArchive() throws Exception {
+		createArchive(null, "a/X.java"); //$NON-NLS-1$
+		ExternalArchiveSourceContainer container = new ExternalArchiveSourceContainer(fArchive.getAbsolutePath(), false);
+		try {
+			Object[] found = container.findSourceElements("X.java"); //$NON-NLS-1$
+			assertEquals(1, found.length);
+			SourceLookupUtils.closeArchives();
+			StringBuilder contents = new StringBuilder();
+			try (InputStream stream = ((ZipEntryStorage) found[0]).getContents()) {
+				int read;
+				while ((read = stream.read()) >= 0) {
+					contents.append((char) read);
+				}
+			}
+			assertEquals("a/X.java", contents.toString()); //$NON-NLS-1$
+			assertEquals(found[0], container.findSourceElements("X.java")[0]); //$NON-NLS-1$
+		} finally {
+			container.dispose();
+		}
+	}
+
+	/**
+	 * A shared archive removed from the cache of open archives is closed only
+	 * once the entry streams opened from it are closed.
+	 */
+	public void testEvictedArchive() throws Exception {
+		createArchive(null, "a/X.java"); //$NON-NLS-1$
+		ZipFile archive = SourceLookupUtils.getZipFile(fArchive.getAbsolutePath());
+		ZipEntryStorage storage = new ZipEntryStorage(archive, archive.getEntry("a/X.java")); //$NON-NLS-1$
+		File[] others = new File[40];
+		try {
+			try (InputStream stream = storage.getContents()) {
+				for (int i = 0; i < others.length; i++) {
+					others[i] = File.createTempFile("sourceIndex", ".zip"); //$NON-NLS-1$ //$NON-NLS-2$
+					try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(others[i]))) {
+						out.putNextEntry(new ZipEntry("Y.java")); //$NON-NLS-1$
+						out.closeEntry();
+					}
+					SourceLookupUtils.getZipFile(others[i].getAbsolutePath());
+				}
+				assertNotSame(archive, SourceLookupUtils.getZipFile(fArchive.getAbsolutePath()));
+				StringBuilder contents = new StringBuilder();
+				int read;
+				while ((read = stream.read()) >= 0) {
+					contents.append((char) read);
+				}
+				assertEquals("a/X.java", contents.toString()); //$NON-NLS-1$
+				assertNotNull(archive.getEntry("a/X.java")); //$NON-NLS-1$
+			}
+			try {
+				archive.getEntry("a/X.java"); //$NON-NLS-1$
+				fail("evicted archive should be closed"); //$NON-NLS-1$
+			} catch (IllegalStateException e) {
+				// expected
+			}
+		} finally {
+			SourceLookupUtils.closeArchives();
+			for (int i = 0; i < others.length; i++) {
+				if (others[i] != null) {
+					others[i].delete();
+				}
+			}
+		}
+	}
+}
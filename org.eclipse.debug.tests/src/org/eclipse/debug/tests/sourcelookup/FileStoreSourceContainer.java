@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.debug.core.sourcelookup.ISourceContainerType;
+import org.eclipse.debug.core.sourcelookup.containers.AbstractSourceContainer;
+
+/**
+ * Source container for a directory of a file store, which finds the file
+ * stores with a given name the way a directory source container finds files.
+ */
+public class FileStoreSourceContainer extends AbstractSourceContainer {
+
+	private final IFileStore fDirectory;
+
+	/**
+	 * Counts the probes
+	 */
+	private int fProbes = 0;
+
+	public FileStoreSourceContainer(IFileStore directory) {
+		fDirectory = directory;
+	}
+
+	@Override
+	public Object[] findSourceElements(String name) throws CoreException {
+		synchronized (this) {
+			fProbes++;
+		}
+		IFileStore file = fDirectory.getFileStore(new Path(name));
+		if (file.fetchInfo().exists()) {
+			return new Object[] { file };
+		}
+		return EMPTY;
+	}
+
+	/**
+	 * Returns the number of times this container was searched.
+	 *
+	 * @return number of searches
+	 */
+	public synchronized int getProbes() {
+		return fProbes;
+	}
+
+	@Override
+	public String getName() {
+		return fDirectory.getName();
+	}
+
+	@Override
+	public ISourceContainerType getType() {
+		return null;
+	}
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupDirector;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupParticipant;
+import org.eclipse.debug.core.sourcelookup.ISourceLookupParticipant;
+
+/**
+ * Source lookup director that looks up strings as source names.
+ */
+public class NameSourceLookupDirector extends AbstractSourceLookupDirector {
+
+	@Override
+	public void initializeParticipants() {
+		addParticipants(new ISourceLookupParticipant[] { new AbstractSourceLookupParticipant() {
+			@Override
+			public String getSourceName(Object object) throws CoreException {
+				return object instanceof String ? (String) object : null;
+			}
+		} });
+	}
+}
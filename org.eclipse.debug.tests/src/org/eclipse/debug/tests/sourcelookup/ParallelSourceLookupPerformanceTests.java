@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.tests.launching.DebugFileSystem;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+
+import junit.framework.TestCase;
+
+/**
+ * Measures source lookup in 50 directories of a slow file system, with the
+ * source in the 41st directory.
+ *
+ * @since 3.10
+ */
+public class ParallelSourceLookupPerformanceTests extends TestCase {
+
+	private static final int DIRECTORIES = 50;
+
+	private static final int HIT = 40;
+
+	/**
+	 * Time in milliseconds to probe a directory
+	 */
+	private static final long LATENCY = 10;
+
+	private DebugFileSystem fFileSystem;
+
+	private NameSourceLookupDirector fDirector;
+
+	private IFileStore[] fDirectories;
+
+	public ParallelSourceLookupPerformanceTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFileSystem = (DebugFileSystem) EFS.getFileSystem("debug"); //$NON-NLS-1$
+		fDirectories = ParallelSourceLookupTests.createDirectories(DIRECTORIES, new int[] { HIT });
+		fDirector = new NameSourceLookupDirector();
+		fDirector.initializeParticipants();
+		ISourceContainer[] containers = new ISourceContainer[DIRECTORIES];
+		for (int i = 0; i < DIRECTORIES; i++) {
+			containers[i] = new FileStoreSourceContainer(fDirectories[i]);
+		}
+		fDirector.setSourceContainers(containers);
+		fFileSystem.setLatency(LATENCY);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fDirector.dispose();
+		fFileSystem.setLatency(0);
+		ParallelSourceLookupTests.deleteDirectories(fFileSystem);
+	}
+
+	private long lookup() throws Exception {
+		long start = System.nanoTime();
+		Object[] elements = fDirector.findSourceElements(ParallelSourceLookupTests.FILE_NAME);
+		long time = System.nanoTime() - start;
+		assertEquals(1, elements.length);
+		assertEquals(fDirectories[HIT].getChild(ParallelSourceLookupTests.FILE_NAME).toURI(), ((IFileStore) elements[0]).toURI());
+		return time;
+	}
+
+	private void measure(boolean parallel) throws Exception {
+		fDirector.setParallelLookup(parallel);
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 20; i++) {
+				meter.start();
+				lookup();
+				meter.stop();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	public void testSequentialLookup() throws Exception {
+		measure(false);
+	}
+
+	public void testParallelLookup() throws Exception {
+		measure(true);
+	}
+
+	/**
+	 * Concurrent lookup is faster than sequential lookup.
+	 */
+	public void testParallelFaster() throws Exception {
+		fDirector.setParallelLookup(false);
+		long sequential = lookup();
+		fDirector.setParallelLookup(true);
+		lookup();
+		long parallel = lookup();
+		assertTrue("Parallel " + parallel + "ns, sequential " + sequential + "ns", parallel < sequential); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,177 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.tests.launching.DebugFileSystem;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests concurrent searches of source containers.
+ *
+ * @since 3.10
+ */
+public class ParallelSourceLookupTests extends TestCase {
+
+	/**
+	 * Root of the test directories in the debug file system
+	 */
+	static final String ROOT = "/parallelLookup"; //$NON-NLS-1$
+
+	static final String FILE_NAME = "Foo.txt"; //$NON-NLS-1$
+
+	private DebugFileSystem fFileSystem;
+
+	private NameSourceLookupDirector fDirector;
+
+	public ParallelSourceLookupTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fFileSystem = (DebugFileSystem) EFS.getFileSystem("debug"); //$NON-NLS-1$
+		fDirector = new NameSourceLookupDirector();
+		fDirector.initializeParticipants();
+		fDirector.setParallelLookup(true);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fDirector.dispose();
+		fFileSystem.setLatency(0);
+		deleteDirectories(fFileSystem);
+	}
+
+	/**
+	 * Creates the given number of directories in the debug file system, with
+	 * the test file in the directories of the given indexes.
+	 *
+	 * @param count number of directories
+	 * @param withFile indexes of the directories that contain the test file
+	 * @return the directories
+	 */
+	static IFileStore[] createDirectories(int count, int[] withFile) throws Exception {
+		IFileStore[] directories = new IFileStore[count];
+		for (int i = 0; i < count; i++) {
+			directories[i] = EFS.getStore(new URI("debug", ROOT + "/dir" + i, null)); //$NON-NLS-1$ //$NON-NLS-2$
+			directories[i].mkdir(EFS.NONE, null);
+		}
+		for (int i = 0; i < withFile.length; i++) {
+			OutputStream stream = directories[withFile[i]].getChild(FILE_NAME).openOutputStream(EFS.NONE, null);
+			stream.write(withFile[i]);
+			stream.close();
+		}
+		return directories;
+	}
+
+	/**
+	 * Deletes the directories created by {@link #createDirectories(int, int[])}.
+	 */
+	static void deleteDirectories(DebugFileSystem fileSystem) {
+		URI[] uris = fileSystem.getFileURIs();
+		for (int i = 0; i < uris.length; i++) {
+			if (uris[i].getPath().startsWith(ROOT)) {
+				fileSystem.delete(uris[i]);
+			}
+		}
+	}
+
+	private FileStoreSourceContainer[] setSourceContainers(IFileStore[] directories) {
+		FileStoreSourceContainer[] containers = new FileStoreSourceContainer[directories.length];
+		for (int i = 0; i < directories.length; i++) {
+			containers[i] = new FileStoreSourceContainer(directories[i]);
+		}
+		fDirector.setSourceContainers(containers);
+		return containers;
+	}
+
+	/**
+	 * The source element of the first container with a hit is found.
+	 */
+	public void testFirstHit() throws Exception {
+		IFileStore[] directories = createDirectories(10, new int[] { 3, 7 });
+		setSourceContainers(directories);
+		Object[] elements = fDirector.findSourceElements(FILE_NAME);
+		assertEquals(1, elements.length);
+		assertEquals(directories[3].getChild(FILE_NAME).toURI(), ((IFileStore) elements[0]).toURI());
+	}
+
+	/**
+	 * The first container with a hit wins, even if a container after it
+	 * answers first.
+	 */
+	public void testPrecedence() throws Exception {
+		final IFileStore[] directories = createDirectories(10, new int[] { 3, 7 });
+		ISourceContainer[] containers = new ISourceContainer[directories.length];
+		for (int i = 0; i < directories.length; i++) {
+			if (i == 3) {
+				containers[i] = new FileStoreSourceContainer(directories[i]) {
+					@Override
+					public Object[] findSourceElements(String name) throws CoreException {
+						try {
+							Thread.sleep(300);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return super.findSourceElements(name);
+					}
+				};
+			} else {
+				containers[i] = new FileStoreSourceContainer(directories[i]);
+			}
+		}
+		fDirector.setSourceContainers(containers);
+		Object[] elements = fDirector.findSourceElements(FILE_NAME);
+		assertEquals(1, elements.length);
+		assertEquals(directories[3].getChild(FILE_NAME).toURI(), ((IFileStore) elements[0]).toURI());
+	}
+
+	/**
+	 * All hits are found, in the order of the containers, when searching for
+	 * duplicates.
+	 */
+	public void testDuplicates() throws Exception {
+		IFileStore[] directories = createDirectories(10, new int[] { 7, 3 });
+		setSourceContainers(directories);
+		fDirector.setFindDuplicates(true);
+		Object[] elements = fDirector.findSourceElements(FILE_NAME);
+		assertEquals(2, elements.length);
+		assertEquals(directories[3].getChild(FILE_NAME).toURI(), ((IFileStore) elements[0]).toURI());
+		assertEquals(directories[7].getChild(FILE_NAME).toURI(), ((IFileStore) elements[1]).toURI());
+	}
+
+	/**
+	 * Containers after the first hit are not all searched.
+	 */
+	public void testLowerPriorityCancelled() throws Exception {
+		IFileStore[] directories = createDirectories(64, new int[] { 0 });
+		FileStoreSourceContainer[] containers = setSourceContainers(directories);
+		fFileSystem.setLatency(50);
+		Object[] elements = fDirector.findSourceElements(FILE_NAME);
+		assertEquals(1, elements.length);
+		assertEquals(directories[0].getChild(FILE_NAME).toURI(), ((IFileStore) elements[0]).toURI());
+		// let the running probes finish
+		Thread.sleep(200);
+		int probes = 0;
+		for (int i = 0; i < containers.length; i++) {
+			probes += containers[i].getProbes();
+		}
+		assertTrue("Searched " + probes + " containers", probes < containers.length); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.sourcelookup;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.core.sourcelookup.containers.DirectorySourceContainer;
+import org.eclipse.debug.core.sourcelookup.containers.LocalFileStorage;
+import org.eclipse.debug.internal.core.sourcelookup.SourceContainerIndex;
+import org.eclipse.debug.internal.core.sourcelookup.SourceNameIndex;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the name indexes of source containers.
+ *
+ * @since 3.10
+ */
+public class SourceContainerIndexTests extends TestCase {
+
+	private File fRoot;
+
+	public SourceContainerIndexTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fRoot = File.createTempFile("sourceIndex", ""); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(fRoot.delete());
+		assertTrue(fRoot.mkdirs());
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(fRoot);
+	}
+
+	private void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (int i = 0; i < children.length; i++) {
+				delete(children[i]);
+			}
+		}
+		file.delete();
+	}
+
+	private File createFile(String path) throws IOException {
+		File file = new File(fRoot, path);
+		file.getParentFile().mkdirs();
+		assertTrue(file.createNewFile());
+		return file;
+	}
+
+	private SourceNameIndex createIndex(boolean caseSensitive) {
+		SourceNameIndex index = new SourceNameIndex(100, caseSensitive);
+		index.addFolder(""); //$NON-NLS-1$
+		index.addFolder("a"); //$NON-NLS-1$
+		index.addFolder("a/b"); //$NON-NLS-1$
+		index.addFolder("c"); //$NON-NLS-1$
+		index.addFile("c/X.java"); //$NON-NLS-1$
+		index.addFile("a/b/X.java"); //$NON-NLS-1$
+		index.addFile("X.java"); //$NON-NLS-1$
+		return index;
+	}
+
+	/**
+	 * Matches are ordered by the rank of the folder the name is relative to.
+	 */
+	public void testLookupOrder() {
+		SourceNameIndex index = createIndex(true);
+		String[] paths = index.lookup("X.java"); //$NON-NLS-1$
+		assertEquals(3, paths.length);
+		assertEquals("X.java", paths[0]); //$NON-NLS-1$
+		assertEquals("a/b/X.java", paths[1]); //$NON-NLS-1$
+		assertEquals("c/X.java", paths[2]); //$NON-NLS-1$
+
+		paths = index.lookup("b/X.java"); //$NON-NLS-1$
+		assertEquals(1, paths.length);
+		assertEquals("a/b/X.java", paths[0]); //$NON-NLS-1$
+
+		assertEquals(0, index.lookup("Y.java").length); //$NON-NLS-1$
+		assertEquals(0, index.lookup("x.java").length); //$NON-NLS-1$
+	}
+
+	/**
+	 * Names the index cannot resolve are not looked up.
+	 */
+	public void testUnresolvedNames() {
+		SourceNameIndex index = createIndex(true);
+		assertNull(index.lookup("../X.java")); //$NON-NLS-1$
+		assertNull(index.lookup("./X.java")); //$NON-NLS-1$
+		assertNull(index.lookup("/X.java")); //$NON-NLS-1$
+		assertNull(index.lookup("a//X.java")); //$NON-NLS-1$
+		assertNull(index.lookup("")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Removed files are no longer found, names may ignore case.
+	 */
+	public void testRemoveFileIgnoringCase() {
+		SourceNameIndex index = createIndex(false);
+		index.removeFile("X.java"); //$NON-NLS-1$
+		String[] paths = index.lookup("B/x.JAVA"); //$NON-NLS-1$
+		assertEquals(1, paths.length);
+		assertEquals("a/b/X.java", paths[0]); //$NON-NLS-1$
+		assertEquals(2, index.getFileCount());
+	}
+
+	/**
+	 * A directory container finds the same source element with and without
+	 * its index, and its index follows changes of the file system.
+	 */
+	public void testDirectorySourceContainer() throws Exception {
+		createFile("a/b/X.java"); //$NON-NLS-1$
+		createFile("c/X.java"); //$NON-NLS-1$
+		DirectorySourceContainer container = new DirectorySourceContainer(fRoot, true);
+		try {
+			Object[] probed = container.findSourceElements("X.java"); //$NON-NLS-1$
+			Job.getJobManager().join(SourceContainerIndex.FAMILY, null);
+			Object[] indexed = container.findSourceElements("X.java"); //$NON-NLS-1$
+			assertEquals(1, probed.length);
+			assertEquals(1, indexed.length);
+			assertEquals(probed[0], indexed[0]);
+			assertEquals(0, container.findSourceElements("Y.java").length); //$NON-NLS-1$
+
+			// a file added before the next validation is found in the file system
+			File fresh = createFile("c/Z.java"); //$NON-NLS-1$
+			Object[] freshFound = container.findSourceElements("Z.java"); //$NON-NLS-1$
+			assertEquals(1, freshFound.length);
+			assertEquals(new LocalFileStorage(fresh), freshFound[0]);
+
+			File added = createFile("X.java"); //$NON-NLS-1$
+			long end = System.currentTimeMillis() + 20000;
+			Object[] found = container.findSourceElements("X.java"); //$NON-NLS-1$
+			while (!new LocalFileStorage(added).equals(found[0]) && System.currentTimeMillis() < end) {
+				Thread.sleep(50);
+				Job.getJobManager().join(SourceContainerIndex.FAMILY, null);
+				found = container.findSourceElements("X.java"); //$NON-NLS-1$
+			}
+			assertEquals(new LocalFileStorage(added), found[0]);
+
+			// a new directory invalidates the index
+			File nested = createFile("d/Y.java"); //$NON-NLS-1$
+			end = System.currentTimeMillis() + 20000;
+			found = container.findSourceElements("Y.java"); //$NON-NLS-1$
+			while (found.length == 0 && System.currentTimeMillis() < end) {
+				Thread.sleep(50);
+				Job.getJobManager().join(SourceContainerIndex.FAMILY, null);
+				found = container.findSourceElements("Y.java"); //$NON-NLS-1$
+			}
+			assertEquals(1, found.length);
+			assertEquals(new LocalFileStorage(nested), found[0]);
+		} finally {
+			container.dispose();
+		}
+	}
+}
@@ -10,13 +10,22 @@
  *******************************************************************************/
 package org.eclipse.debug.tests.sourcelookup;
 
+import java.io.OutputStream;
 import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 
+import org.eclipse.core.filesystem.EFS;
+import org.eclipse.core.filesystem.IFileStore;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.debug.core.model.IStackFrame;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupDirector;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupParticipant;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
+import org.eclipse.debug.core.sourcelookup.ISourceLookupParticipant;
 import org.eclipse.debug.internal.ui.sourcelookup.SourceLookupFacility;
 import org.eclipse.debug.internal.ui.sourcelookup.SourceLookupResult;
+import org.eclipse.debug.tests.launching.DebugFileSystem;
 import org.eclipse.debug.ui.sourcelookup.ISourceLookupResult;
 
 import junit.framework.TestCase;
@@ -336,4 +345,117 @@ public class SourceLookupFacilityTests extends TestCase {
 			SourceLookupFacility.shutdown();
 		}
 	}
+
+	/**
+	 * Tests that a source name not found is not searched again for another
+	 * artifact, until the source containers change.
+	 *
+	 * @throws Exception
+	 */
+	public void testMissingSource() throws Exception {
+		AbstractSourceLookupDirector director = new AbstractSourceLookupDirector() {
+			@Override
+			public void initializeParticipants() {
+				addParticipants(new ISourceLookupParticipant[] { new AbstractSourceLookupParticipant() {
+					@Override
+					public String getSourceName(Object object) throws CoreException {
+						// artifacts are source names followed by a frame number
+						String artifact = (String) object;
+						return artifact.substring(0, artifact.indexOf('#'));
+					}
+				} });
+			}
+		};
+		director.initializeParticipants();
+		try {
+			IFileStore[] directories = ParallelSourceLookupTests.createDirectories(1, new int[0]);
+			FileStoreSourceContainer container = new FileStoreSourceContainer(directories[0]);
+			director.setSourceContainers(new ISourceContainer[] { container });
+			SourceLookupFacility facility = SourceLookupFacility.getDefault();
+			int missingSourceHits = facility.getMissingSourceHits();
+
+			String name = ParallelSourceLookupTests.FILE_NAME;
+			assertNull(facility.lookup(name + "#1", director, false).getSourceElement()); //$NON-NLS-1$
+			assertEquals(1, container.getProbes());
+			assertNull(facility.lookup(name + "#2", director, false).getSourceElement()); //$NON-NLS-1$
+			assertEquals("The missing source should not be searched again", 1, container.getProbes()); //$NON-NLS-1$
+			assertEquals(missingSourceHits + 1, facility.getMissingSourceHits());
+
+			OutputStream stream = directories[0].getChild(name).openOutputStream(EFS.NONE, null);
+			stream.close();
+			assertNull(facility.lookup(name + "#3", director, false).getSourceElement()); //$NON-NLS-1$
+			container = new FileStoreSourceContainer(directories[0]);
+			director.setSourceContainers(new ISourceContainer[] { container });
+			assertNotNull("The source should be found in the new containers", facility.lookup(name + "#4", director, false).getSourceElement()); //$NON-NLS-1$ //$NON-NLS-2$
+			assertEquals(1, container.getProbes());
+		} finally {
+			director.dispose();
+			ParallelSourceLookupTests.deleteDirectories((DebugFileSystem) EFS.getFileSystem("debug")); //$NON-NLS-1$
+			SourceLookupFacility.shutdown();
+		}
+	}
+
+	/**
+	 * Tests that source not found is searched again when a participant finds
+	 * source from the artifact rather than from its source name.
+	 *
+	 * @throws Exception
+	 */
+	public void testMissingSourceOfArtifactLookup() throws Exception {
+		AbstractSourceLookupDirector director = new AbstractSourceLookupDirector() {
+			@Override
+			public void initializeParticipants() {
+				addParticipants(new ISourceLookupParticipant[] { new AbstractSourceLookupParticipant() {
+					@Override
+					public String getSourceName(Object object) throws CoreException {
+						String artifact = (String) object;
+						return artifact.substring(0, artifact.indexOf('#'));
+					}
+
+					@Override
+					public Object[] findSourceElements(Object object) throws CoreException {
+						// may depend on more than the source name
+						return super.findSourceElements(object);
+					}
+				} });
+			}
+		};
+		director.initializeParticipants();
+		try {
+			IFileStore[] directories = ParallelSourceLookupTests.createDirectories(1, new int[0]);
+			FileStoreSourceContainer container = new FileStoreSourceContainer(directories[0]);
+			director.setSourceContainers(new ISourceContainer[] { container });
+			SourceLookupFacility facility = SourceLookupFacility.getDefault();
+
+			String name = ParallelSourceLookupTests.FILE_NAME;
+			assertNull(facility.lookup(name + "#1", director, false).getSourceElement()); //$NON-NLS-1$
+			assertNull(facility.lookup(name + "#2", director, false).getSourceElement()); //$NON-NLS-1$
+			assertEquals("The artifact should be searched again", 2, container.getProbes()); //$NON-NLS-1$
+		} finally {
+			director.dispose();
+			ParallelSourceLookupTests.deleteDirectories((DebugFileSystem) EFS.getFileSystem("debug")); //$NON-NLS-1$
+			SourceLookupFacility.shutdown();
+		}
+	}
+
+	/**
+	 * Tests the cache hit and miss counts.
+	 *
+	 * @throws Exception
+	 */
+	public void testCacheMetrics() throws Exception {
+		try {
+			SourceLookupFacility facility = SourceLookupFacility.getDefault();
+			int hits = facility.getCacheHits();
+			int misses = facility.getCacheMisses();
+			String artifact = "Metrics"; //$NON-NLS-1$
+			facility.lookup(artifact, fTestLocator, false);
+			facility.lookup(artifact, fTestLocator, false);
+			facility.lookup(artifact, fTestLocator, true);
+			assertEquals(hits + 1, facility.getCacheHits());
+			assertEquals(misses + 2, facility.getCacheMisses());
+		} finally {
+			SourceLookupFacility.shutdown();
+		}
+	}
 }
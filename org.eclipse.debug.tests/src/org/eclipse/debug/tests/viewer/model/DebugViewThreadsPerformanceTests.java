@@ -0,0 +1,543 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.viewer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IMarkerDelta;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.ILaunch;
+import org.eclipse.debug.core.ILaunchManager;
+import org.eclipse.debug.core.Launch;
+import org.eclipse.debug.core.model.DebugElement;
+import org.eclipse.debug.core.model.IBreakpoint;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.debug.core.model.IMemoryBlock;
+import org.eclipse.debug.core.model.IProcess;
+import org.eclipse.debug.core.model.IStackFrame;
+import org.eclipse.debug.core.model.IThread;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.model.elements.ThreadRanges;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroup;
+import org.eclipse.debug.internal.ui.viewers.model.ILabelUpdateListener;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ILabelUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdateListener;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.PresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.VirtualTreeModelViewer;
+import org.eclipse.debug.ui.IDebugUIConstants;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.test.performance.Performance;
+import org.eclipse.test.performance.PerformanceMeter;
+import org.eclipse.ui.PlatformUI;
+
+/**
+ * Measures how the debug view content providers scale with the number of
+ * threads of a debug target. The target provides its threads in ranges, the
+ * viewer shows a window of 100 threads.
+ *
+ * @since 3.10
+ */
+public class DebugViewThreadsPerformanceTests extends TestCase {
+
+	private static final int THREAD_COUNT = 10000;
+
+	private static final int VISIBLE_THREADS = 100;
+
+	private Display fDisplay;
+	private PresentationContext fContext;
+	private VirtualTreeModelViewer fViewer;
+	private UpdatesListener fListener;
+	private TestTarget fTarget;
+
+	/**
+	 * Waits for content and label updates of the viewer.
+	 */
+	static class UpdatesListener implements IViewerUpdateListener, ILabelUpdateListener {
+
+		private int fPending = 0;
+		private int fCompleted = 0;
+
+		synchronized void reset() {
+			fCompleted = 0;
+		}
+
+		synchronized boolean isFinished() {
+			return fPending == 0 && fCompleted > 0;
+		}
+
+		@Override
+		public synchronized void viewerUpdatesBegin() {
+		}
+
+		@Override
+		public synchronized void viewerUpdatesComplete() {
+		}
+
+		@Override
+		public synchronized void updateStarted(IViewerUpdate update) {
+			fPending++;
+		}
+
+		@Override
+		public synchronized void updateComplete(IViewerUpdate update) {
+			fPending--;
+			fCompleted++;
+		}
+
+		@Override
+		public synchronized void labelUpdatesBegin() {
+		}
+
+		@Override
+		public synchronized void labelUpdatesComplete() {
+		}
+
+		@Override
+		public synchronized void labelUpdateStarted(ILabelUpdate update) {
+			fPending++;
+		}
+
+		@Override
+		public synchronized void labelUpdateComplete(ILabelUpdate update) {
+			fPending--;
+			fCompleted++;
+		}
+	}
+
+	/**
+	 * Debug target that provides its threads in ranges and counts the threads
+	 * it returned.
+	 */
+	static class TestTarget extends DebugElement implements IDebugTarget, IThreadRangeProvider {
+
+		private final ILaunch fLaunch;
+		private final IThread[] fThreads;
+		private int fThreadsReturned = 0;
+
+		TestTarget(int threadCount) {
+			super(null);
+			fLaunch = new Launch(null, ILaunchManager.DEBUG_MODE, null);
+			fThreads = new IThread[threadCount];
+			for (int i = 0; i < threadCount; i++) {
+				// every fourth thread is suspended
+				fThreads[i] = new TestThread(this, "Worker-" + i, i % 4 == 0); //$NON-NLS-1$
+			}
+		}
+
+		synchronized int getThreadsReturned() {
+			return fThreadsReturned;
+		}
+
+		synchronized void resetThreadsReturned() {
+			fThreadsReturned = 0;
+		}
+
+		@Override
+		public int getThreadCount(int stateMask, String namePattern) throws DebugException {
+			int count = 0;
+			for (int i = 0; i < fThreads.length; i++) {
+				if (ThreadRanges.matches(fThreads[i], stateMask, namePattern)) {
+					count++;
+				}
+			}
+			return count;
+		}
+
+		@Override
+		public IThread[] getThreads(int offset, int length, int stateMask, String namePattern) throws DebugException {
+			List<IThread> range = new ArrayList<IThread>();
+			int index = 0;
+			for (int i = 0; i < fThreads.length && range.size() < length; i++) {
+				if (ThreadRanges.matches(fThreads[i], stateMask, namePattern)) {
+					if (index >= offset) {
+						range.add(fThreads[i]);
+					}
+					index++;
+				}
+			}
+			synchronized (this) {
+				fThreadsReturned += range.size();
+			}
+			return range.toArray(new IThread[range.size()]);
+		}
+
+		@Override
+		public int indexOf(IThread thread, int stateMask, String namePattern) throws DebugException {
+			int index = 0;
+			for (int i = 0; i < fThreads.length; i++) {
+				boolean match = ThreadRanges.matches(fThreads[i], stateMask, namePattern);
+				if (fThreads[i] == thread) {
+					return match ? index : -1;
+				}
+				if (match) {
+					index++;
+				}
+			}
+			return -1;
+		}
+
+		@Override
+		public IDebugTarget getDebugTarget() {
+			return this;
+		}
+
+		@Override
+		public ILaunch getLaunch() {
+			return fLaunch;
+		}
+
+		@Override
+		public String getModelIdentifier() {
+			return "org.eclipse.debug.tests.threads"; //$NON-NLS-1$
+		}
+
+		@Override
+		public IProcess getProcess() {
+			return null;
+		}
+
+		@Override
+		public IThread[] getThreads() throws DebugException {
+			return fThreads;
+		}
+
+		@Override
+		public boolean hasThreads() throws DebugException {
+			return fThreads.length > 0;
+		}
+
+		@Override
+		public String getName() throws DebugException {
+			return "Target"; //$NON-NLS-1$
+		}
+
+		@Override
+		public boolean supportsBreakpoint(IBreakpoint breakpoint) {
+			return false;
+		}
+
+		@Override
+		public boolean canTerminate() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public void terminate() throws DebugException {
+		}
+
+		@Override
+		public boolean canResume() {
+			return false;
+		}
+
+		@Override
+		public boolean canSuspend() {
+			return false;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return false;
+		}
+
+		@Override
+		public void resume() throws DebugException {
+		}
+
+		@Override
+		public void suspend() throws DebugException {
+		}
+
+		@Override
+		public void breakpointAdded(IBreakpoint breakpoint) {
+		}
+
+		@Override
+		public void breakpointRemoved(IBreakpoint breakpoint, IMarkerDelta delta) {
+		}
+
+		@Override
+		public void breakpointChanged(IBreakpoint breakpoint, IMarkerDelta delta) {
+		}
+
+		@Override
+		public boolean canDisconnect() {
+			return false;
+		}
+
+		@Override
+		public void disconnect() throws DebugException {
+		}
+
+		@Override
+		public boolean isDisconnected() {
+			return false;
+		}
+
+		@Override
+		public boolean supportsStorageRetrieval() {
+			return false;
+		}
+
+		@Override
+		public IMemoryBlock getMemoryBlock(long startAddress, long length) throws DebugException {
+			return null;
+		}
+	}
+
+	/**
+	 * Thread without stack frames.
+	 */
+	static class TestThread extends DebugElement implements IThread {
+
+		private final String fName;
+		private final boolean fSuspended;
+
+		TestThread(IDebugTarget target, String name, boolean suspended) {
+			super(target);
+			fName = name;
+			fSuspended = suspended;
+		}
+
+		@Override
+		public String getModelIdentifier() {
+			return getDebugTarget().getModelIdentifier();
+		}
+
+		@Override
+		public IStackFrame[] getStackFrames() throws DebugException {
+			return new IStackFrame[0];
+		}
+
+		@Override
+		public boolean hasStackFrames() throws DebugException {
+			return false;
+		}
+
+		@Override
+		public int getPriority() throws DebugException {
+			return 0;
+		}
+
+		@Override
+		public IStackFrame getTopStackFrame() throws DebugException {
+			return null;
+		}
+
+		@Override
+		public String getName() throws DebugException {
+			return fName;
+		}
+
+		@Override
+		public IBreakpoint[] getBreakpoints() {
+			return new IBreakpoint[0];
+		}
+
+		@Override
+		public boolean canResume() {
+			return false;
+		}
+
+		@Override
+		public boolean canSuspend() {
+			return false;
+		}
+
+		@Override
+		public boolean isSuspended() {
+			return fSuspended;
+		}
+
+		@Override
+		public void resume() throws DebugException {
+		}
+
+		@Override
+		public void suspend() throws DebugException {
+		}
+
+		@Override
+		public boolean canStepInto() {
+			return false;
+		}
+
+		@Override
+		public boolean canStepOver() {
+			return false;
+		}
+
+		@Override
+		public boolean canStepReturn() {
+			return false;
+		}
+
+		@Override
+		public boolean isStepping() {
+			return false;
+		}
+
+		@Override
+		public void stepInto() throws DebugException {
+		}
+
+		@Override
+		public void stepOver() throws DebugException {
+		}
+
+		@Override
+		public void stepReturn() throws DebugException {
+		}
+
+		@Override
+		public boolean canTerminate() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public void terminate() throws DebugException {
+		}
+	}
+
+	public DebugViewThreadsPerformanceTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		fDisplay = PlatformUI.getWorkbench().getDisplay();
+		fContext = new PresentationContext(IDebugUIConstants.ID_DEBUG_VIEW);
+		fViewer = new VirtualTreeModelViewer(fDisplay, SWT.VIRTUAL, fContext, new VisibleVirtualItemValidator(0, VISIBLE_THREADS));
+		fListener = new UpdatesListener();
+		fViewer.addViewerUpdateListener(fListener);
+		fViewer.addLabelUpdateListener(fListener);
+		fTarget = new TestTarget(THREAD_COUNT);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		fViewer.removeLabelUpdateListener(fListener);
+		fViewer.removeViewerUpdateListener(fListener);
+		fViewer.dispose();
+		fContext.dispose();
+	}
+
+	private void waitForUpdates() throws InterruptedException {
+		// updates may be queued for the next UI cycle, so wait for two idle
+		// cycles in a row
+		int idle = 0;
+		while (idle < 2) {
+			if (!fDisplay.readAndDispatch()) {
+				Thread.sleep(0);
+				idle = fListener.isFinished() ? idle + 1 : 0;
+			}
+		}
+	}
+
+	private void populate() throws InterruptedException {
+		fListener.reset();
+		fTarget.resetThreadsReturned();
+		fViewer.setInput(null);
+		fViewer.setInput(fTarget);
+		waitForUpdates();
+	}
+
+	/**
+	 * Shows a target with 10k threads. Only the visible threads should be
+	 * retrieved.
+	 */
+	public void testPagedThreads() throws InterruptedException {
+		populate();
+		assertEquals(THREAD_COUNT, fViewer.getChildCount(TreePath.EMPTY));
+		assertTrue("Retrieved " + fTarget.getThreadsReturned() + " threads", fTarget.getThreadsReturned() < THREAD_COUNT / 2); //$NON-NLS-1$ //$NON-NLS-2$
+
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 10; i++) {
+				meter.start();
+				populate();
+				meter.stop();
+				System.gc();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	/**
+	 * Shows the suspended threads of a target with 10k threads.
+	 */
+	public void testSuspendedThreadsFilter() throws InterruptedException {
+		fContext.setProperty(ThreadRanges.PROP_STATE_FILTER, Integer.valueOf(IThreadRangeProvider.SUSPENDED));
+		populate();
+		assertEquals(THREAD_COUNT / 4, fViewer.getChildCount(TreePath.EMPTY));
+
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 10; i++) {
+				meter.start();
+				populate();
+				meter.stop();
+				System.gc();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+
+	/**
+	 * Shows the threads of a target with 10k threads grouped by state.
+	 */
+	public void testThreadsGroupedByState() throws InterruptedException {
+		fContext.setProperty(ThreadRanges.PROP_GROUP_BY_STATE, Boolean.TRUE);
+		fViewer.setAutoExpandLevel(2);
+		populate();
+		assertEquals(2, fViewer.getChildCount(TreePath.EMPTY));
+		assertEquals(new ThreadStateGroup(fTarget, IThreadRangeProvider.SUSPENDED), fViewer.getChildElement(TreePath.EMPTY, 0));
+
+		Performance perf = Performance.getDefault();
+		PerformanceMeter meter = perf.createPerformanceMeter(perf.getDefaultScenarioId(this));
+		try {
+			for (int i = 0; i < 10; i++) {
+				meter.start();
+				populate();
+				meter.stop();
+				System.gc();
+			}
+			meter.commit();
+			perf.assertPerformance(meter);
+		} finally {
+			meter.dispose();
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.viewer.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.debug.internal.ui.viewers.model.HeadlessTreeModelWalker;
+import org.eclipse.debug.internal.ui.viewers.model.HeadlessTreeModelWalker.IElementCollector;
+import org.eclipse.debug.internal.ui.viewers.model.HeadlessTreeModelWalker.WalkedElement;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.PresentationContext;
+import org.eclipse.debug.tests.viewer.model.TestModel.TestElement;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Tests walking a model without a viewer.
+ *
+ * @since 3.10
+ */
+public class HeadlessTreeModelWalkerTests extends TestCase {
+
+	public HeadlessTreeModelWalkerTests(String name) {
+		super(name);
+	}
+
+	private ModelDelta createExpansionState(TestModel model) {
+		TestElement root = model.getRootElement();
+		ModelDelta delta = new ModelDelta(root, IModelDelta.NO_CHANGE);
+		TestElement three = root.getChildren()[2];
+		ModelDelta threeDelta = delta.addNode(three, 2, IModelDelta.EXPAND, 3);
+		threeDelta.addNode(three.getChildren()[1], 1, IModelDelta.EXPAND, 3);
+		return delta;
+	}
+
+	private List<WalkedElement> walk(TestModel model, final int limit) {
+		HeadlessTreeModelWalker walker = new HeadlessTreeModelWalker(Display.getDefault(), new PresentationContext("TestViewer"), model.getRootElement(), createExpansionState(model), null); //$NON-NLS-1$
+		final List<WalkedElement> elements = new ArrayList<WalkedElement>();
+		walker.walk(new IElementCollector() {
+			@Override
+			public boolean elementFound(WalkedElement element) {
+				elements.add(element);
+				return elements.size() < limit;
+			}
+		}, new NullProgressMonitor());
+		assertEquals(elements.size(), walker.getElementCount());
+		return elements;
+	}
+
+	/**
+	 * Tests that the expanded elements are walked in tree order.
+	 */
+	public void testWalkExpanded() {
+		List<WalkedElement> elements = walk(TestModel.simpleMultiLevel(), Integer.MAX_VALUE);
+		String[] expected = new String[] { "1", "2", "3", "3.1", "3.2", "3.2.1", "3.2.2", "3.2.3", "3.3" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$ //$NON-NLS-8$ //$NON-NLS-9$
+		assertEquals(expected.length, elements.size());
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i], elements.get(i).getLabels()[0]);
+			assertEquals(expected[i], ((TestElement) elements.get(i).getElement()).getID());
+		}
+	}
+
+	/**
+	 * Tests that a walk started in a background thread calls the collector,
+	 * like the providers, in the display thread.
+	 */
+	public void testWalkInBackground() throws Exception {
+		final Display display = Display.getDefault();
+		TestModel model = TestModel.simpleMultiLevel();
+		final HeadlessTreeModelWalker walker = new HeadlessTreeModelWalker(display, new PresentationContext("TestViewer"), model.getRootElement(), createExpansionState(model), null); //$NON-NLS-1$
+		final List<WalkedElement> elements = new ArrayList<WalkedElement>();
+		final boolean[] inDisplayThread = new boolean[] { true };
+		Thread thread = new Thread("Walker") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				walker.walk(new IElementCollector() {
+					@Override
+					public boolean elementFound(WalkedElement element) {
+						inDisplayThread[0] &= Thread.currentThread() == display.getThread();
+						elements.add(element);
+						return true;
+					}
+				}, new NullProgressMonitor());
+			}
+		};
+		thread.start();
+		long end = System.currentTimeMillis() + 10000;
+		while (thread.isAlive() && System.currentTimeMillis() < end) {
+			if (!display.readAndDispatch()) {
+				Thread.sleep(0);
+			}
+		}
+		assertFalse("Walk did not complete", thread.isAlive()); //$NON-NLS-1$
+		assertEquals(9, elements.size());
+		assertTrue("Collector called outside of the display thread", inDisplayThread[0]); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that the collector can stop the walk.
+	 */
+	public void testStopWalk() {
+		List<WalkedElement> elements = walk(TestModel.simpleMultiLevel(), 4);
+		assertEquals(4, elements.size());
+		assertEquals("3.1", elements.get(3).getLabels()[0]); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tests that the delta created for a walked element addresses the
+	 * element by its model indexes.
+	 */
+	public void testCreateDelta() {
+		TestModel model = TestModel.simpleMultiLevel();
+		List<WalkedElement> elements = walk(model, Integer.MAX_VALUE);
+		WalkedElement element = elements.get(6);
+		assertEquals("3.2.2", element.getLabels()[0]); //$NON-NLS-1$
+
+		ModelDelta delta = element.createDelta(model.getRootElement(), IModelDelta.SELECT);
+		int[] indexes = new int[] { 2, 1, 1 };
+		IModelDelta node = delta;
+		for (int i = 0; i < indexes.length; i++) {
+			assertEquals(1, node.getChildDeltas().length);
+			node = node.getChildDeltas()[0];
+			assertEquals(indexes[i], node.getIndex());
+		}
+		assertEquals(element.getElement(), node.getElement());
+		assertEquals(IModelDelta.SELECT, node.getFlags());
+	}
+}
@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.viewer.model;
+
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+import org.eclipse.debug.internal.ui.viewers.update.ModelDeltaAggregator;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the merging of model deltas fired in quick succession.
+ */
+public class ModelDeltaAggregatorTests extends TestCase {
+
+	private static final String ROOT = "root"; //$NON-NLS-1$
+	private static final String THREAD1 = "thread1"; //$NON-NLS-1$
+	private static final String THREAD2 = "thread2"; //$NON-NLS-1$
+	private static final String FRAME1 = "frame1"; //$NON-NLS-1$
+	private static final String FRAME2 = "frame2"; //$NON-NLS-1$
+
+	private ModelDeltaAggregator fAggregator;
+
+	public ModelDeltaAggregatorTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fAggregator = new ModelDeltaAggregator();
+	}
+
+	/**
+	 * The flags of deltas of the same element are combined.
+	 */
+	public void testMergedFlags() {
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.CONTENT)));
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.STATE)));
+		assertEquals(2, fAggregator.getMergeCount());
+		ModelDelta delta = fAggregator.remove();
+		IModelDelta[] children = delta.getChildDeltas();
+		assertEquals(1, children.length);
+		assertEquals(THREAD1, children[0].getElement());
+		assertEquals(IModelDelta.CONTENT | IModelDelta.STATE, children[0].getFlags());
+	}
+
+	/**
+	 * Nested deltas are merged into the same parents, keeping the order in
+	 * which their elements were first seen.
+	 */
+	public void testNestedDeltas() {
+		ModelDelta first = new ModelDelta(ROOT, IModelDelta.NO_CHANGE);
+		first.addNode(THREAD1, IModelDelta.NO_CHANGE).addNode(FRAME1, IModelDelta.CONTENT);
+		ModelDelta second = new ModelDelta(ROOT, IModelDelta.NO_CHANGE);
+		second.addNode(THREAD2, IModelDelta.STATE);
+		second.addNode(THREAD1, IModelDelta.NO_CHANGE).addNode(FRAME2, IModelDelta.STATE);
+		assertTrue(fAggregator.add(first));
+		assertTrue(fAggregator.add(second));
+
+		IModelDelta[] threads = fAggregator.remove().getChildDeltas();
+		assertEquals(2, threads.length);
+		assertEquals(THREAD1, threads[0].getElement());
+		assertEquals(THREAD2, threads[1].getElement());
+		assertEquals(IModelDelta.STATE, threads[1].getFlags());
+		IModelDelta[] frames = threads[0].getChildDeltas();
+		assertEquals(2, frames.length);
+		assertEquals(FRAME1, frames[0].getElement());
+		assertEquals(IModelDelta.CONTENT, frames[0].getFlags());
+		assertEquals(FRAME2, frames[1].getElement());
+		assertEquals(IModelDelta.STATE, frames[1].getFlags());
+	}
+
+	/**
+	 * The index and child count of a later delta replace the earlier ones,
+	 * unless they are unknown.
+	 */
+	public void testIndexAndChildCount() {
+		ModelDelta first = new ModelDelta(ROOT, IModelDelta.NO_CHANGE);
+		first.addNode(THREAD1, 0, IModelDelta.CONTENT, 3);
+		ModelDelta second = new ModelDelta(ROOT, IModelDelta.NO_CHANGE);
+		second.addNode(THREAD1, 1, IModelDelta.CONTENT, -1);
+		assertTrue(fAggregator.add(first));
+		assertTrue(fAggregator.add(second));
+		IModelDelta thread = fAggregator.remove().getChildDeltas()[0];
+		assertEquals(1, thread.getIndex());
+		assertEquals(3, thread.getChildCount());
+	}
+
+	/**
+	 * The last selection wins, as if the deltas were fired one by one.
+	 */
+	public void testLastSelectionWins() {
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.STATE | IModelDelta.SELECT)));
+		assertTrue(fAggregator.add(createDelta(THREAD2, IModelDelta.SELECT)));
+		IModelDelta[] threads = fAggregator.remove().getChildDeltas();
+		assertEquals(2, threads.length);
+		assertEquals(IModelDelta.STATE, threads[0].getFlags());
+		assertEquals(IModelDelta.SELECT, threads[1].getFlags());
+	}
+
+	/**
+	 * Deltas that change the structure end the aggregate.
+	 */
+	public void testStructuralDeltas() {
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.CONTENT)));
+		int[] structural = new int[] { IModelDelta.ADDED, IModelDelta.REMOVED, IModelDelta.INSERTED, IModelDelta.REPLACED, IModelDelta.INSTALL, IModelDelta.UNINSTALL };
+		for (int i = 0; i < structural.length; i++) {
+			assertFalse(fAggregator.canMerge(createDelta(THREAD2, structural[i])));
+			assertFalse(fAggregator.add(createDelta(THREAD2, structural[i])));
+		}
+		assertEquals(1, fAggregator.getMergeCount());
+		assertEquals(1, fAggregator.remove().getChildDeltas().length);
+		// not even into an empty aggregate
+		assertFalse(fAggregator.add(createDelta(THREAD1, IModelDelta.ADDED)));
+		assertTrue(fAggregator.isEmpty());
+	}
+
+	/**
+	 * Deltas that expand and collapse the same element, or that have another
+	 * root, are not merged.
+	 */
+	public void testIncompatibleDeltas() {
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.EXPAND)));
+		assertFalse(fAggregator.add(createDelta(THREAD1, IModelDelta.COLLAPSE)));
+		assertTrue(fAggregator.add(createDelta(THREAD2, IModelDelta.COLLAPSE)));
+		ModelDelta other = new ModelDelta("other root", IModelDelta.NO_CHANGE); //$NON-NLS-1$
+		other.addNode(THREAD1, IModelDelta.CONTENT);
+		assertFalse(fAggregator.add(other));
+		assertEquals(2, fAggregator.getMergeCount());
+	}
+
+	/**
+	 * Removing the aggregate resets the aggregator.
+	 */
+	public void testRemove() {
+		assertTrue(fAggregator.isEmpty());
+		assertNull(fAggregator.remove());
+		assertTrue(fAggregator.add(createDelta(THREAD1, IModelDelta.CONTENT)));
+		assertFalse(fAggregator.isEmpty());
+		assertNotNull(fAggregator.remove());
+		assertTrue(fAggregator.isEmpty());
+		assertEquals(0, fAggregator.getMergeCount());
+		// a delta of another root starts a new aggregate
+		ModelDelta other = new ModelDelta("other root", IModelDelta.NO_CHANGE); //$NON-NLS-1$
+		other.addNode(THREAD1, IModelDelta.CONTENT);
+		assertTrue(fAggregator.add(other));
+	}
+
+	private static ModelDelta createDelta(String thread, int flags) {
+		ModelDelta delta = new ModelDelta(ROOT, IModelDelta.NO_CHANGE);
+		delta.addNode(thread, flags);
+		return delta;
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.viewer.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.debug.internal.ui.viewers.update.ModelProxyScheduler;
+import org.eclipse.debug.internal.ui.viewers.update.ModelProxyScheduler.ScheduledTask;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the timer shared by the event handler model proxies: tasks run in
+ * the order of their deadlines, not before them, and canceled tasks do not
+ * run.
+ */
+public class ModelProxySchedulerTests extends TestCase {
+
+	/**
+	 * Length of a tick of the scheduler, tasks may run up to a tick early
+	 */
+	private static final long TICK = 10;
+
+	/**
+	 * Records the order in which tasks ran and when.
+	 */
+	private static class Recorder {
+
+		final List<Integer> fOrder = Collections.synchronizedList(new ArrayList<Integer>());
+		final long fStart = System.nanoTime();
+		final long[] fElapsed;
+		final CountDownLatch fLatch;
+
+		Recorder(int tasks, int expected) {
+			fElapsed = new long[tasks];
+			fLatch = new CountDownLatch(expected);
+		}
+
+		Runnable task(final int id) {
+			return new Runnable() {
+				@Override
+				public void run() {
+					fElapsed[id] = (System.nanoTime() - fStart) / 1000000L;
+					fOrder.add(Integer.valueOf(id));
+					fLatch.countDown();
+				}
+			};
+		}
+
+		void await() throws InterruptedException {
+			assertTrue("tasks did not run", fLatch.await(10, TimeUnit.SECONDS)); //$NON-NLS-1$
+		}
+	}
+
+	public ModelProxySchedulerTests(String name) {
+		super(name);
+	}
+
+	/**
+	 * Tasks run in the order of their deadlines, not in the order they were
+	 * scheduled.
+	 */
+	public void testOrder() throws Exception {
+		ModelProxyScheduler scheduler = ModelProxyScheduler.getDefault();
+		Recorder recorder = new Recorder(3, 3);
+		scheduler.schedule(recorder.task(2), 150);
+		scheduler.schedule(recorder.task(0), 10);
+		scheduler.schedule(recorder.task(1), 80);
+		recorder.await();
+		assertEquals("[0, 1, 2]", recorder.fOrder.toString()); //$NON-NLS-1$
+		assertTrue("task ran too early", recorder.fElapsed[2] >= 150 - TICK); //$NON-NLS-1$
+	}
+
+	/**
+	 * Tasks with delays beyond the first wheel are moved to the inner wheels
+	 * and run on time.
+	 */
+	public void testLongDelay() throws Exception {
+		ModelProxyScheduler scheduler = ModelProxyScheduler.getDefault();
+		Recorder recorder = new Recorder(2, 2);
+		scheduler.schedule(recorder.task(1), 1000);
+		scheduler.schedule(recorder.task(0), 700);
+		recorder.await();
+		assertEquals("[0, 1]", recorder.fOrder.toString()); //$NON-NLS-1$
+		assertTrue("task ran too early", recorder.fElapsed[0] >= 700 - TICK); //$NON-NLS-1$
+		assertTrue("task ran too early", recorder.fElapsed[1] >= 1000 - TICK); //$NON-NLS-1$
+	}
+
+	/**
+	 * Canceled tasks do not run, and tasks that ran cannot be canceled.
+	 */
+	public void testCancel() throws Exception {
+		ModelProxyScheduler scheduler = ModelProxyScheduler.getDefault();
+		Recorder recorder = new Recorder(2, 1);
+		ScheduledTask canceled = scheduler.schedule(recorder.task(0), 50);
+		ScheduledTask run = scheduler.schedule(recorder.task(1), 100);
+		assertTrue(canceled.cancel());
+		assertFalse("task was canceled twice", canceled.cancel()); //$NON-NLS-1$
+		recorder.await();
+		assertFalse(run.cancel());
+		assertEquals("[1]", recorder.fOrder.toString()); //$NON-NLS-1$
+	}
+
+	/**
+	 * Of many tasks scheduled at once, the ones that are not canceled run
+	 * once each, in the order of their deadlines.
+	 */
+	public void testManyTasks() throws Exception {
+		ModelProxyScheduler scheduler = ModelProxyScheduler.getDefault();
+		int count = 1000;
+		Random random = new Random(42);
+		long[] delays = new long[count];
+		Recorder recorder = new Recorder(count, count / 2);
+		ScheduledTask[] tasks = new ScheduledTask[count];
+		long start = System.nanoTime();
+		for (int i = 0; i < count; i++) {
+			// long enough for the tasks to be canceled before they run
+			delays[i] = 200 + random.nextInt(300);
+			tasks[i] = scheduler.schedule(recorder.task(i), delays[i]);
+		}
+		// tasks scheduled later may have later deadlines for the same delay
+		long tolerance = (System.nanoTime() - start) / 1000000L + 2 * TICK;
+		for (int i = 1; i < count; i += 2) {
+			assertTrue(tasks[i].cancel());
+		}
+		recorder.await();
+		// let canceled tasks run if they were not canceled
+		Thread.sleep(600);
+		List<Integer> order = new ArrayList<Integer>(recorder.fOrder);
+		assertEquals(count / 2, order.size());
+		for (int i = 0; i < order.size(); i++) {
+			int id = order.get(i).intValue();
+			assertEquals("canceled task ran", 0, id % 2); //$NON-NLS-1$
+			if (i > 0) {
+				// tasks of the same tick run in any order
+				long previous = delays[order.get(i - 1).intValue()];
+				assertTrue("tasks ran out of order", previous <= delays[id] + tolerance); //$NON-NLS-1$
+			}
+		}
+	}
+}
@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.tests.viewer.model;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.eclipse.debug.internal.ui.viewers.model.ViewerStateStore;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+import org.eclipse.ui.IMemento;
+import org.eclipse.ui.XMLMemento;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the store of saved viewer states: states are restored as they were
+ * saved, also from the state file, the least recently used states are
+ * evicted, and damaged or unwritable state files do not lose the states in
+ * memory.
+ */
+public class ViewerStateStoreTests extends TestCase {
+
+	private File fDirectory;
+
+	public ViewerStateStoreTests(String name) {
+		super(name);
+	}
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		fDirectory = Files.createTempDirectory("viewerStates").toFile(); //$NON-NLS-1$
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		delete(fDirectory);
+		super.tearDown();
+	}
+
+	/**
+	 * A state is restored with the attributes and elements it was saved
+	 * with, and only once.
+	 */
+	public void testRoundTrip() {
+		ViewerStateStore store = new ViewerStateStore();
+		store.put("input", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(store.contains("input")); //$NON-NLS-1$
+		assertFalse(store.contains("other")); //$NON-NLS-1$
+		assertState("a", store.remove("input")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(store.contains("input")); //$NON-NLS-1$
+		assertNull(store.remove("input")); //$NON-NLS-1$
+	}
+
+	/**
+	 * Saving a state again replaces the previous state of the input.
+	 */
+	public void testReplace() {
+		ViewerStateStore store = new ViewerStateStore();
+		store.put("input", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.put("input", createState("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertState("b", store.remove("input")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * States with elements that are not mementos are not stored.
+	 */
+	public void testNotEncoded() {
+		ViewerStateStore store = new ViewerStateStore();
+		ModelDelta state = new ModelDelta(XMLMemento.createWriteRoot("INPUT"), 0, IModelDelta.NO_CHANGE, 1); //$NON-NLS-1$
+		state.addNode(new Object(), 0, IModelDelta.EXPAND, 0);
+		store.put("input", state); //$NON-NLS-1$
+		assertFalse(store.contains("input")); //$NON-NLS-1$
+	}
+
+	/**
+	 * The least recently saved state is evicted when the store is full, and
+	 * saving an unchanged state makes it the most recent one.
+	 */
+	public void testEvictLeastRecent() {
+		ViewerStateStore store = new ViewerStateStore();
+		for (int i = 0; i < ViewerStateStore.MAX_TRANSIENT_ENTRIES; i++) {
+			store.put("input" + i, createState("s" + i)); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		store.put("input0", createState("s0")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.put("new", createState("new")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(store.contains("input0")); //$NON-NLS-1$
+		assertFalse(store.contains("input1")); //$NON-NLS-1$
+		assertTrue(store.contains("input2")); //$NON-NLS-1$
+		assertTrue(store.contains("new")); //$NON-NLS-1$
+	}
+
+	/**
+	 * States are evicted when their subtrees exceed the size of the store.
+	 */
+	public void testEvictBySize() {
+		ViewerStateStore store = new ViewerStateStore();
+		// each state has three elements with the name
+		char[] chars = new char[ViewerStateStore.MAX_CHARS / 5];
+		Arrays.fill(chars, 'x');
+		String large = new String(chars);
+		store.put("first", createState("first" + large)); //$NON-NLS-1$ //$NON-NLS-2$
+		store.put("second", createState("second" + large)); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(store.contains("first")); //$NON-NLS-1$
+		assertState("second" + large, store.remove("second")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * States written to the state file, also by appending, are read by a
+	 * new store.
+	 */
+	public void testPersistentRoundTrip() {
+		File file = new File(fDirectory, "states.dat"); //$NON-NLS-1$
+		ViewerStateStore store = new ViewerStateStore(file, 10);
+		store.load();
+		store.put("input1", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+		store.put("input2", createState("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.put("input1", createState("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+
+		ViewerStateStore restored = new ViewerStateStore(file, 10);
+		assertFalse("states are known before the file is read", restored.contains("input1")); //$NON-NLS-1$ //$NON-NLS-2$
+		restored.load();
+		assertState("c", restored.remove("input1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertState("b", restored.remove("input2")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * States evicted from a store are removed from its state file.
+	 */
+	public void testPersistentEviction() {
+		File file = new File(fDirectory, "states.dat"); //$NON-NLS-1$
+		ViewerStateStore store = new ViewerStateStore(file, 2);
+		store.load();
+		store.put("input1", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.put("input2", createState("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+		store.put("input3", createState("c")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+
+		ViewerStateStore restored = new ViewerStateStore(file, 2);
+		restored.load();
+		assertFalse(restored.contains("input1")); //$NON-NLS-1$
+		assertTrue(restored.contains("input2")); //$NON-NLS-1$
+		assertTrue(restored.contains("input3")); //$NON-NLS-1$
+	}
+
+	/**
+	 * A state file that is not a state file is ignored and rewritten.
+	 */
+	public void testDamagedFile() throws Exception {
+		File file = new File(fDirectory, "states.dat"); //$NON-NLS-1$
+		try (FileOutputStream out = new FileOutputStream(file)) {
+			out.write("not a state file".getBytes()); //$NON-NLS-1$
+		}
+		ViewerStateStore store = new ViewerStateStore(file, 10);
+		store.load();
+		store.put("input", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+
+		ViewerStateStore restored = new ViewerStateStore(file, 10);
+		restored.load();
+		assertState("a", restored.remove("input")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * The records of a state file before a record that was not completely
+	 * written are read, and the file is rewritten on the next flush.
+	 */
+	public void testTruncatedFile() throws Exception {
+		File file = new File(fDirectory, "states.dat"); //$NON-NLS-1$
+		ViewerStateStore store = new ViewerStateStore(file, 10);
+		store.load();
+		store.put("input1", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+		store.put("input2", createState("b")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) { //$NON-NLS-1$
+			raf.setLength(raf.length() - 3);
+		}
+
+		ViewerStateStore truncated = new ViewerStateStore(file, 10);
+		truncated.load();
+		assertTrue(truncated.contains("input1")); //$NON-NLS-1$
+		assertFalse(truncated.contains("input2")); //$NON-NLS-1$
+		truncated.flush();
+
+		ViewerStateStore restored = new ViewerStateStore(file, 10);
+		restored.load();
+		assertState("a", restored.remove("input1")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertFalse(restored.contains("input2")); //$NON-NLS-1$
+	}
+
+	/**
+	 * A state file that cannot be written does not lose the states in
+	 * memory.
+	 */
+	public void testUnwritableFile() throws Exception {
+		File notADirectory = new File(fDirectory, "file"); //$NON-NLS-1$
+		assertTrue(notADirectory.createNewFile());
+		File file = new File(notADirectory, "states.dat"); //$NON-NLS-1$
+		ViewerStateStore store = new ViewerStateStore(file, 10);
+		store.load();
+		store.put("input", createState("a")); //$NON-NLS-1$ //$NON-NLS-2$
+		store.flush();
+		assertFalse(file.exists());
+		assertTrue(store.contains("input")); //$NON-NLS-1$
+
+		// the states are written once the file can be written
+		assertTrue(notADirectory.delete());
+		store.flush();
+		ViewerStateStore restored = new ViewerStateStore(file, 10);
+		restored.load();
+		assertState("a", restored.remove("input")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns a state with two top level elements, the first one expanded with
+	 * a selected child.
+	 */
+	private static ModelDelta createState(String name) {
+		ModelDelta state = new ModelDelta(XMLMemento.createWriteRoot("INPUT"), 0, IModelDelta.NO_CHANGE, 2); //$NON-NLS-1$
+		ModelDelta first = state.addNode(createElement(name + ".0"), 0, IModelDelta.EXPAND, 1); //$NON-NLS-1$
+		first.addNode(createElement(name + ".0.0"), 0, IModelDelta.SELECT, 0); //$NON-NLS-1$
+		state.addNode(createElement(name + ".1"), 1, IModelDelta.NO_CHANGE, 0); //$NON-NLS-1$
+		return state;
+	}
+
+	private static IMemento createElement(String name) {
+		XMLMemento memento = XMLMemento.createWriteRoot("ELEMENT"); //$NON-NLS-1$
+		memento.putString("name", name); //$NON-NLS-1$
+		return memento;
+	}
+
+	/**
+	 * Checks that the given state was restored from a state created by
+	 * {@link #createState(String)} with the given name.
+	 */
+	private static void assertState(String name, ModelDelta state) {
+		assertNotNull("state was not restored", state); //$NON-NLS-1$
+		assertEquals(0, state.getIndex());
+		assertEquals(2, state.getChildCount());
+		IModelDelta[] children = state.getChildDeltas();
+		assertEquals(2, children.length);
+		assertDelta(name + ".0", 0, IModelDelta.EXPAND, 1, children[0]); //$NON-NLS-1$
+		assertDelta(name + ".1", 1, IModelDelta.NO_CHANGE, 0, children[1]); //$NON-NLS-1$
+		IModelDelta[] grandChildren = children[0].getChildDeltas();
+		assertEquals(1, grandChildren.length);
+		assertDelta(name + ".0.0", 0, IModelDelta.SELECT, 0, grandChildren[0]); //$NON-NLS-1$
+		assertEquals(0, grandChildren[0].getChildDeltas().length);
+	}
+
+	private static void assertDelta(String name, int index, int flags, int childCount, IModelDelta delta) {
+		assertTrue("element is not a memento", delta.getElement() instanceof IMemento); //$NON-NLS-1$
+		assertEquals(name, ((IMemento) delta.getElement()).getString("name")); //$NON-NLS-1$
+		assertEquals(index, delta.getIndex());
+		assertEquals(flags, delta.getFlags());
+		assertEquals(childCount, delta.getChildCount());
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
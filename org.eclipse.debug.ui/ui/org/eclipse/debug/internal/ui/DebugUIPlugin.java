@@ -71,6 +71,7 @@ import org.eclipse.debug.internal.ui.launchConfigurations.PerspectiveManager;
 import org.eclipse.debug.internal.ui.sourcelookup.SourceLookupFacility;
 import org.eclipse.debug.internal.ui.sourcelookup.SourceLookupManager;
 import org.eclipse.debug.internal.ui.stringsubstitution.SelectedResourceManager;
+import org.eclipse.debug.internal.ui.viewers.model.ViewerStateStore;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
 import org.eclipse.debug.internal.ui.views.breakpoints.BreakpointOrganizerManager;
 import org.eclipse.debug.internal.ui.views.console.ProcessConsoleManager;
@@ -460,6 +461,8 @@ public class DebugUIPlugin extends AbstractUIPlugin implements ILaunchListener,
 
             SourceLookupFacility.shutdown();
 
+            ViewerStateStore.shutdown();
+
 			DebugElementHelper.dispose();
 
 			fSaveParticipants.clear();
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2006, 2010 IBM Corporation and others.
+ * Copyright (c) 2006, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -19,6 +19,10 @@ import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
 import org.eclipse.debug.ui.IDebugUIConstants;
 
 /**
+ * Content provider for debug targets. In the debug view the threads of a
+ * target are retrieved in ranges, see {@link ThreadRanges}, and grouped by
+ * state when {@link ThreadRanges#PROP_GROUP_BY_STATE} is set.
+ *
  * @since 3.3
  */
 public class DebugTargetContentProvider extends ElementContentProvider {
@@ -31,7 +35,11 @@ public class DebugTargetContentProvider extends ElementContentProvider {
 		String id = context.getId();
 		if (id.equals(IDebugUIConstants.ID_DEBUG_VIEW))
 		{
-			return ((IDebugTarget)element).getThreads().length;
+			IDebugTarget target = (IDebugTarget) element;
+			if (ThreadRanges.isGroupedByState(context)) {
+				return ThreadStateGroup.getGroups(target, context).length;
+			}
+			return ThreadRanges.getThreadCount(target, ThreadRanges.getStateMask(context), ThreadRanges.getNamePattern(context));
 		}
 		else if (id.equals(IDebugUIConstants.ID_MEMORY_VIEW))
 		{
@@ -53,6 +61,9 @@ public class DebugTargetContentProvider extends ElementContentProvider {
 	 */
 	@Override
 	protected Object[] getChildren(Object parent, int index, int length, IPresentationContext context, IViewerUpdate monitor) throws CoreException {
+		if (context.getId().equals(IDebugUIConstants.ID_DEBUG_VIEW) && !ThreadRanges.isGroupedByState(context)) {
+			return ThreadRanges.getThreads((IDebugTarget) parent, index, length, ThreadRanges.getStateMask(context), ThreadRanges.getNamePattern(context));
+		}
 		return getElements(getAllChildren(parent, context, monitor), index, length);
 	}
 
@@ -83,7 +94,11 @@ public class DebugTargetContentProvider extends ElementContentProvider {
 		String id = context.getId();
 		if (id.equals(IDebugUIConstants.ID_DEBUG_VIEW))
 		{
-			return ((IDebugTarget)parent).getThreads();
+			if (ThreadRanges.isGroupedByState(context)) {
+				return ThreadStateGroup.getGroups((IDebugTarget) parent, context);
+			}
+			IDebugTarget target = (IDebugTarget) parent;
+			return ThreadRanges.getThreads(target, 0, Integer.MAX_VALUE, ThreadRanges.getStateMask(context), ThreadRanges.getNamePattern(context));
 		}
 		else if (id.equals(IDebugUIConstants.ID_MEMORY_VIEW))
         {
@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.model.elements;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.debug.core.DebugException;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.debug.core.model.IThread;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+
+/**
+ * Retrieves the threads of a debug target shown in the debug view, in ranges
+ * and filtered as specified by the presentation context.
+ * <p>
+ * Targets that provide an {@link IThreadRangeProvider} are asked for the
+ * requested range only. For other targets the threads are retrieved with
+ * {@link IDebugTarget#getThreads()} and filtered here.
+ * </p>
+ *
+ * @since 3.12
+ */
+public class ThreadRanges {
+
+	/**
+	 * Presentation context property for the states of the threads shown in
+	 * the debug view. The value is an <code>Integer</code> combination of
+	 * {@link IThreadRangeProvider#SUSPENDED} and
+	 * {@link IThreadRangeProvider#RUNNING}, all threads are shown when not
+	 * set.
+	 */
+	public static final String PROP_STATE_FILTER = "org.eclipse.debug.ui.threadStateFilter"; //$NON-NLS-1$
+
+	/**
+	 * Presentation context property for the name pattern of the threads shown
+	 * in the debug view. The value is a <code>String</code> as described in
+	 * {@link IThreadRangeProvider}, all threads are shown when not set.
+	 */
+	public static final String PROP_NAME_FILTER = "org.eclipse.debug.ui.threadNameFilter"; //$NON-NLS-1$
+
+	/**
+	 * Presentation context property for whether the threads of a target are
+	 * grouped by state in the debug view. The value is a <code>Boolean</code>.
+	 */
+	public static final String PROP_GROUP_BY_STATE = "org.eclipse.debug.ui.groupThreadsByState"; //$NON-NLS-1$
+
+	private static final IThread[] EMPTY = new IThread[0];
+
+	/**
+	 * Returns the thread states shown in the given context.
+	 *
+	 * @param context presentation context
+	 * @return state mask
+	 */
+	public static int getStateMask(IPresentationContext context) {
+		Object mask = context.getProperty(PROP_STATE_FILTER);
+		if (mask instanceof Integer) {
+			return ((Integer) mask).intValue() & IThreadRangeProvider.ALL;
+		}
+		return IThreadRangeProvider.ALL;
+	}
+
+	/**
+	 * Returns the thread name pattern of the given context or
+	 * <code>null</code>.
+	 *
+	 * @param context presentation context
+	 * @return name pattern or <code>null</code>
+	 */
+	public static String getNamePattern(IPresentationContext context) {
+		Object pattern = context.getProperty(PROP_NAME_FILTER);
+		if (pattern instanceof String && ((String) pattern).length() > 0) {
+			return (String) pattern;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether threads are grouped by state in the given context.
+	 *
+	 * @param context presentation context
+	 * @return whether threads are grouped by state
+	 */
+	public static boolean isGroupedByState(IPresentationContext context) {
+		return Boolean.TRUE.equals(context.getProperty(PROP_GROUP_BY_STATE));
+	}
+
+	/**
+	 * Returns the thread range provider of the given target or
+	 * <code>null</code>.
+	 *
+	 * @param target debug target
+	 * @return range provider or <code>null</code>
+	 */
+	public static IThreadRangeProvider getRangeProvider(IDebugTarget target) {
+		if (target instanceof IThreadRangeProvider) {
+			return (IThreadRangeProvider) target;
+		}
+		return Platform.getAdapterManager().getAdapter(target, IThreadRangeProvider.class);
+	}
+
+	/**
+	 * Returns the number of threads of the target that match the filter.
+	 *
+	 * @param target debug target
+	 * @param stateMask thread states
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return number of matching threads
+	 * @throws DebugException if the threads cannot be retrieved
+	 */
+	public static int getThreadCount(IDebugTarget target, int stateMask, String namePattern) throws DebugException {
+		IThreadRangeProvider provider = getRangeProvider(target);
+		if (provider != null) {
+			return provider.getThreadCount(stateMask, namePattern);
+		}
+		IThread[] threads = target.getThreads();
+		if (isUnfiltered(stateMask, namePattern)) {
+			return threads.length;
+		}
+		Pattern pattern = compile(namePattern);
+		int count = 0;
+		for (int i = 0; i < threads.length; i++) {
+			if (matches(threads[i], stateMask, pattern)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the matching threads in the given range.
+	 *
+	 * @param target debug target
+	 * @param offset index of the first matching thread
+	 * @param length maximum number of threads
+	 * @param stateMask thread states
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return matching threads in the range
+	 * @throws DebugException if the threads cannot be retrieved
+	 */
+	public static IThread[] getThreads(IDebugTarget target, int offset, int length, int stateMask, String namePattern) throws DebugException {
+		IThreadRangeProvider provider = getRangeProvider(target);
+		if (provider != null) {
+			return provider.getThreads(offset, length, stateMask, namePattern);
+		}
+		IThread[] threads = target.getThreads();
+		if (isUnfiltered(stateMask, namePattern)) {
+			if (offset >= threads.length) {
+				return EMPTY;
+			}
+			IThread[] range = new IThread[Math.min(length, threads.length - offset)];
+			System.arraycopy(threads, offset, range, 0, range.length);
+			return range;
+		}
+		Pattern pattern = compile(namePattern);
+		List<IThread> range = new ArrayList<IThread>(Math.min(length, threads.length));
+		int index = 0;
+		for (int i = 0; i < threads.length && range.size() < length; i++) {
+			if (matches(threads[i], stateMask, pattern)) {
+				if (index >= offset) {
+					range.add(threads[i]);
+				}
+				index++;
+			}
+		}
+		return range.toArray(new IThread[range.size()]);
+	}
+
+	/**
+	 * Returns the index of the thread among the matching threads or
+	 * <code>-1</code>.
+	 *
+	 * @param target debug target
+	 * @param thread thread
+	 * @param stateMask thread states
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return index or <code>-1</code>
+	 * @throws DebugException if the threads cannot be retrieved
+	 */
+	public static int indexOf(IDebugTarget target, IThread thread, int stateMask, String namePattern) throws DebugException {
+		IThreadRangeProvider provider = getRangeProvider(target);
+		if (provider != null) {
+			return provider.indexOf(thread, stateMask, namePattern);
+		}
+		IThread[] threads = target.getThreads();
+		Pattern pattern = compile(namePattern);
+		int index = 0;
+		for (int i = 0; i < threads.length; i++) {
+			boolean match = matches(threads[i], stateMask, pattern);
+			if (threads[i].equals(thread)) {
+				return match ? index : -1;
+			}
+			if (match) {
+				index++;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether the thread is in one of the given states and its name
+	 * matches the given pattern.
+	 *
+	 * @param thread thread
+	 * @param stateMask thread states
+	 * @param namePattern thread name pattern or <code>null</code>
+	 * @return whether the thread matches
+	 */
+	public static boolean matches(IThread thread, int stateMask, String namePattern) {
+		return matches(thread, stateMask, compile(namePattern));
+	}
+
+	private static boolean isUnfiltered(int stateMask, String namePattern) {
+		return (stateMask & IThreadRangeProvider.ALL) == IThreadRangeProvider.ALL && namePattern == null;
+	}
+
+	private static boolean matches(IThread thread, int stateMask, Pattern pattern) {
+		int state = thread.isSuspended() ? IThreadRangeProvider.SUSPENDED : IThreadRangeProvider.RUNNING;
+		if ((stateMask & state) == 0) {
+			return false;
+		}
+		if (pattern == null) {
+			return true;
+		}
+		try {
+			return pattern.matcher(thread.getName()).matches();
+		} catch (DebugException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Translates a pattern with <code>*</code> and <code>?</code> wildcards
+	 * into a case insensitive regular expression.
+	 */
+	private static Pattern compile(String namePattern) {
+		if (namePattern == null) {
+			return null;
+		}
+		StringBuffer regex = new StringBuffer(namePattern.length() + 8);
+		int start = 0;
+		for (int i = 0; i < namePattern.length(); i++) {
+			char c = namePattern.charAt(i);
+			if (c == '*' || c == '?') {
+				if (i > start) {
+					regex.append(Pattern.quote(namePattern.substring(start, i)));
+				}
+				regex.append(c == '*' ? ".*" : "."); //$NON-NLS-1$ //$NON-NLS-2$
+				start = i + 1;
+			}
+		}
+		if (start < namePattern.length()) {
+			regex.append(Pattern.quote(namePattern.substring(start)));
+		}
+		return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	}
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.model.elements;
+
+import org.eclipse.core.runtime.PlatformObject;
+import org.eclipse.debug.core.model.IDebugTarget;
+import org.eclipse.debug.core.model.IThread;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+
+/**
+ * Group of the threads of a debug target in one state, shown in the debug
+ * view when threads are grouped by state.
+ *
+ * @see ThreadRanges#PROP_GROUP_BY_STATE
+ * @since 3.12
+ */
+public class ThreadStateGroup extends PlatformObject {
+
+	private static final int[] STATES = new int[] {
+			IThreadRangeProvider.SUSPENDED, IThreadRangeProvider.RUNNING };
+
+	private final IDebugTarget fTarget;
+	private final int fState;
+
+	/**
+	 * Constructs the group of threads in the given state.
+	 *
+	 * @param target debug target
+	 * @param state {@link IThreadRangeProvider#SUSPENDED} or
+	 *            {@link IThreadRangeProvider#RUNNING}
+	 */
+	public ThreadStateGroup(IDebugTarget target, int state) {
+		fTarget = target;
+		fState = state;
+	}
+
+	/**
+	 * Returns the groups of the given target shown in the given context.
+	 *
+	 * @param target debug target
+	 * @param context presentation context
+	 * @return thread groups
+	 */
+	public static ThreadStateGroup[] getGroups(IDebugTarget target, IPresentationContext context) {
+		int mask = ThreadRanges.getStateMask(context);
+		int count = 0;
+		for (int i = 0; i < STATES.length; i++) {
+			if ((mask & STATES[i]) != 0) {
+				count++;
+			}
+		}
+		ThreadStateGroup[] groups = new ThreadStateGroup[count];
+		count = 0;
+		for (int i = 0; i < STATES.length; i++) {
+			if ((mask & STATES[i]) != 0) {
+				groups[count++] = new ThreadStateGroup(target, STATES[i]);
+			}
+		}
+		return groups;
+	}
+
+	/**
+	 * Returns the group the given thread is shown in.
+	 *
+	 * @param thread thread
+	 * @return group of the thread
+	 */
+	public static ThreadStateGroup getGroup(IThread thread) {
+		return new ThreadStateGroup(thread.getDebugTarget(), thread.isSuspended() ? IThreadRangeProvider.SUSPENDED : IThreadRangeProvider.RUNNING);
+	}
+
+	/**
+	 * Returns the index of this group among the groups of its target in the
+	 * given context, or <code>-1</code> if it is not shown.
+	 *
+	 * @param context presentation context
+	 * @return index of this group or <code>-1</code>
+	 */
+	public int getIndex(IPresentationContext context) {
+		ThreadStateGroup[] groups = getGroups(fTarget, context);
+		for (int i = 0; i < groups.length; i++) {
+			if (equals(groups[i])) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the debug target of this group.
+	 *
+	 * @return debug target
+	 */
+	public IDebugTarget getDebugTarget() {
+		return fTarget;
+	}
+
+	/**
+	 * Returns the state of the threads in this group.
+	 *
+	 * @return {@link IThreadRangeProvider#SUSPENDED} or
+	 *         {@link IThreadRangeProvider#RUNNING}
+	 */
+	public int getState() {
+		return fState;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof ThreadStateGroup) {
+			ThreadStateGroup group = (ThreadStateGroup) obj;
+			return fState == group.fState && fTarget.equals(group.fTarget);
+		}
+		return false;
+	}
+
+	@Override
+	public int hashCode() {
+		return fTarget.hashCode() * 31 + fState;
+	}
+
+	@Override
+	public String toString() {
+		return fTarget + (fState == IThreadRangeProvider.SUSPENDED ? " [suspended]" : " [running]"); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.model.elements;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
+import org.eclipse.debug.ui.IDebugUIConstants;
+
+/**
+ * Content provider for the threads of a debug target in one state.
+ *
+ * @since 3.12
+ */
+public class ThreadStateGroupContentProvider extends ElementContentProvider {
+
+	@Override
+	protected int getChildCount(Object element, IPresentationContext context, IViewerUpdate monitor) throws CoreException {
+		ThreadStateGroup group = (ThreadStateGroup) element;
+		return ThreadRanges.getThreadCount(group.getDebugTarget(), getStateMask(group, context), ThreadRanges.getNamePattern(context));
+	}
+
+	@Override
+	protected Object[] getChildren(Object parent, int index, int length, IPresentationContext context, IViewerUpdate monitor) throws CoreException {
+		ThreadStateGroup group = (ThreadStateGroup) parent;
+		return ThreadRanges.getThreads(group.getDebugTarget(), index, length, getStateMask(group, context), ThreadRanges.getNamePattern(context));
+	}
+
+	@Override
+	protected boolean supportsContextId(String id) {
+		return IDebugUIConstants.ID_DEBUG_VIEW.equals(id);
+	}
+
+	private int getStateMask(ThreadStateGroup group, IPresentationContext context) {
+		return group.getState() & ThreadRanges.getStateMask(context);
+	}
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.model.elements;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.views.launch.LaunchViewMessages;
+import org.eclipse.debug.ui.DebugUITools;
+import org.eclipse.debug.ui.IDebugUIConstants;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * Label provider for groups of threads in the same state.
+ *
+ * @since 3.12
+ */
+public class ThreadStateGroupLabelProvider extends ElementLabelProvider {
+
+	@Override
+	protected String getLabel(TreePath elementPath, IPresentationContext presentationContext, String columnId) throws CoreException {
+		ThreadStateGroup group = (ThreadStateGroup) elementPath.getLastSegment();
+		int mask = group.getState() & ThreadRanges.getStateMask(presentationContext);
+		int count = ThreadRanges.getThreadCount(group.getDebugTarget(), mask, ThreadRanges.getNamePattern(presentationContext));
+		if (group.getState() == IThreadRangeProvider.SUSPENDED) {
+			return NLS.bind(LaunchViewMessages.ThreadStateGroup_suspended, Integer.toString(count));
+		}
+		return NLS.bind(LaunchViewMessages.ThreadStateGroup_running, Integer.toString(count));
+	}
+
+	@Override
+	protected ImageDescriptor getImageDescriptor(TreePath elementPath, IPresentationContext presentationContext, String columnId) throws CoreException {
+		ThreadStateGroup group = (ThreadStateGroup) elementPath.getLastSegment();
+		if (group.getState() == IThreadRangeProvider.SUSPENDED) {
+			return DebugUITools.getImageDescriptor(IDebugUIConstants.IMG_OBJS_THREAD_SUSPENDED);
+		}
+		return DebugUITools.getImageDescriptor(IDebugUIConstants.IMG_OBJS_THREAD_RUNNING);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2016 IBM Corporation and others.
+ *  Copyright (c) 2000, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -12,10 +12,22 @@
  *******************************************************************************/
 package org.eclipse.debug.internal.ui.sourcelookup;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IResourceDeltaVisitor;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -32,7 +44,10 @@ import org.eclipse.debug.core.model.ISourceLocator;
 import org.eclipse.debug.core.model.IStackFrame;
 import org.eclipse.debug.core.model.IThread;
 import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupDirector;
+import org.eclipse.debug.core.sourcelookup.AbstractSourceLookupParticipant;
+import org.eclipse.debug.core.sourcelookup.ISourceContainer;
 import org.eclipse.debug.core.sourcelookup.ISourceLookupDirector;
+import org.eclipse.debug.core.sourcelookup.ISourceLookupParticipant;
 import org.eclipse.debug.internal.ui.DebugUIPlugin;
 import org.eclipse.debug.internal.ui.DelegatingModelPresentation;
 import org.eclipse.debug.internal.ui.IInternalDebugUIConstants;
@@ -83,10 +98,9 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 	 *
 	 * @since 3.10
 	 */
-	static class LRU extends HashMap<Object, SourceLookupResult> {
+	static class LRU extends LinkedHashMap<Object, SourceLookupResult> {
 		private static final long serialVersionUID = 1L;
 
-		ArrayList<Object> fEntryStack = null;
 		int fSize;
 
 		/**
@@ -95,52 +109,217 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 		 * @param size The desired size
 		 */
 		LRU(int size) {
+			// access order, so the eldest entry is the least recently used
+			super(16, 0.75f, true);
 			fSize = size;
-			fEntryStack = new ArrayList<Object>();
 		}
 
 		/*
 		 * (non-Javadoc)
-		 * @see java.util.HashMap#put(java.lang.Object, java.lang.Object)
+		 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
 		 */
 		@Override
-		public SourceLookupResult put(Object key, SourceLookupResult value) {
-			shuffle(key);
-			return super.put(key, value);
+		protected boolean removeEldestEntry(Map.Entry<Object, SourceLookupResult> eldest) {
+			return size() > fSize;
+		}
+	}
+
+	/**
+	 * Source names the participants of a source lookup director did not find
+	 * for the artifacts of a debug target.
+	 *
+	 * @since 3.12
+	 */
+	static class MissingSource {
+
+		private final ISourceLookupDirector fDirector;
+		private final Object fTarget;
+		private final ISourceLookupParticipant[] fParticipants;
+		private final String[] fNames;
+
+		/**
+		 * Constructor
+		 *
+		 * @param director the director that searched the names
+		 * @param target the debug target of the artifacts, or <code>null</code>
+		 * @param participants the participants of the director
+		 * @param names the source names of the participants
+		 */
+		MissingSource(ISourceLookupDirector director, Object target, ISourceLookupParticipant[] participants, String[] names) {
+			fDirector = director;
+			fTarget = target;
+			fParticipants = participants;
+			fNames = names;
+		}
+
+		/**
+		 * Returns whether a file with the given name may be the source of one
+		 * of the source names.
+		 *
+		 * @param fileName simple name of a file
+		 * @return whether the file may be the source
+		 */
+		boolean matches(String fileName) {
+			for (int i = 0; i < fNames.length; i++) {
+				String name = fNames[i];
+				if (name != null && name.regionMatches(true, name.length() - fileName.length(), fileName, 0, fileName.length())) {
+					int separator = name.length() - fileName.length() - 1;
+					if (separator < 0 || name.charAt(separator) == '/' || name.charAt(separator) == '\\') {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(fDirector) * 31 + Arrays.hashCode(fNames);
 		}
 
 		/*
 		 * (non-Javadoc)
-		 * @see java.util.HashMap#remove(java.lang.Object)
+		 * @see java.lang.Object#equals(java.lang.Object)
 		 */
 		@Override
-		public SourceLookupResult remove(Object key) {
-			SourceLookupResult oldResult = super.remove(key);
-			fEntryStack.remove(key);
-			return oldResult;
+		public boolean equals(Object obj) {
+			if (!(obj instanceof MissingSource)) {
+				return false;
+			}
+			MissingSource other = (MissingSource) obj;
+			return fDirector == other.fDirector && fTarget == other.fTarget && Arrays.equals(fParticipants, other.fParticipants) && Arrays.equals(fNames, other.fNames);
+		}
+	}
+
+	/**
+	 * Discards the cached results of lookups that found no source when files
+	 * that may be their source are added to the workspace, or when projects
+	 * are opened. Changes of the source containers of a director are detected
+	 * when its source names are looked up; removed files cannot make missing
+	 * source appear.
+	 *
+	 * @since 3.12
+	 */
+	class MissingSourceCleaner implements IResourceChangeListener {
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.core.resources.IResourceChangeListener#resourceChanged(org.eclipse.core.resources.IResourceChangeEvent)
+		 */
+		@Override
+		public void resourceChanged(IResourceChangeEvent event) {
+			IResourceDelta delta = event.getDelta();
+			if (delta == null) {
+				return;
+			}
+			final Set<String> added = new HashSet<String>();
+			final boolean[] all = new boolean[1];
+			try {
+				delta.accept(new IResourceDeltaVisitor() {
+					@Override
+					public boolean visit(IResourceDelta child) throws CoreException {
+						if ((child.getFlags() & IResourceDelta.OPEN) != 0 || added.size() > MAX_ADDED_FILES) {
+							all[0] = true;
+						} else if (child.getResource().getType() == IResource.FILE && (child.getKind() == IResourceDelta.ADDED || (child.getFlags() & IResourceDelta.REPLACED) != 0)) {
+							added.add(child.getResource().getName());
+						}
+						return !all[0];
+					}
+				});
+			} catch (CoreException e) {
+				all[0] = true;
+			}
+			if (all[0]) {
+				clearMissingSources();
+			} else if (!added.isEmpty()) {
+				synchronized (fAddedFiles) {
+					fAddedFiles.addAll(added);
+					if (fAddedFiles.size() > MAX_ADDED_FILES) {
+						fAddedFiles.clear();
+						clearMissingSources();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Looks up the source of the top stack frames of the last suspended
+	 * thread in the background, so that the results are cached when the
+	 * frames are selected.
+	 *
+	 * @since 3.12
+	 */
+	class PrefetchJob extends Job {
+
+		/**
+		 * The thread to prefetch source for, or <code>null</code>
+		 */
+		private IThread fThread;
+
+		PrefetchJob() {
+			super("Debug Source Prefetch"); //$NON-NLS-1$
+			setSystem(true);
+			setPriority(Job.DECORATE);
 		}
 
 		/**
-		 * Shuffles the entry stack and removes mapped results as needed
+		 * Prefetches the source of the top frames of the given thread, after
+		 * the lookup for the selected frame had a chance to start.
 		 *
-		 * @param key
+		 * @param thread suspended thread
 		 */
-		void shuffle(Object key) {
-			int index = fEntryStack.indexOf(key);
-			if (index < 0) {
-				if (fEntryStack.size() >= fSize) {
-					remove(fEntryStack.get(fEntryStack.size() - 1));
-				}
-			} else {
-				fEntryStack.remove(index);
+		synchronized void prefetch(IThread thread) {
+			fThread = thread;
+			schedule(PREFETCH_DELAY);
+		}
+
+		/**
+		 * Stops prefetching source for the given thread or debug target.
+		 *
+		 * @param source resumed or terminated thread or debug target
+		 */
+		synchronized void stop(Object source) {
+			if (fThread != null && (fThread == source || fThread.getDebugTarget() == source)) {
+				fThread = null;
+				cancel();
 			}
-			fEntryStack.add(0, key);
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see org.eclipse.core.runtime.jobs.Job#run(org.eclipse.core.runtime.IProgressMonitor)
+		 */
 		@Override
-		public void clear() {
-			fEntryStack.clear();
-			super.clear();
+		protected IStatus run(IProgressMonitor monitor) {
+			IThread thread;
+			synchronized (this) {
+				thread = fThread;
+				fThread = null;
+			}
+			if (thread == null) {
+				return Status.OK_STATUS;
+			}
+			try {
+				IStackFrame[] frames = thread.getStackFrames();
+				for (int i = 0; i < frames.length && i < PREFETCH_FRAMES; i++) {
+					if (monitor.isCanceled() || !thread.isSuspended()) {
+						break;
+					}
+					ILaunch launch = frames[i].getLaunch();
+					if (launch != null && launch.getSourceLocator() != null) {
+						// same key as the lookups of source lookup jobs
+						lookup(frames[i], launch.getSourceLocator(), false);
+					}
+				}
+			} catch (DebugException e) {
+				// resumed or terminated meanwhile
+			}
+			return Status.OK_STATUS;
 		}
 	}
 
@@ -163,6 +342,83 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 	 */
 	private static LRU fLookupResults = new LRU(10);
 
+	/**
+	 * Maximum number of source names cached as not found.
+	 */
+	private static final int MAX_MISSING_SOURCES = 100;
+
+	/**
+	 * Maximum number of files added to the workspace at once that are
+	 * matched with the missing source names. All missing source names are
+	 * discarded when more files are added.
+	 */
+	private static final int MAX_ADDED_FILES = 1000;
+
+	/**
+	 * Number of top stack frames of a suspended thread whose source is looked
+	 * up in the background.
+	 */
+	private static final int PREFETCH_FRAMES = 5;
+
+	/**
+	 * Delay of the background lookups, in milliseconds.
+	 */
+	private static final long PREFETCH_DELAY = 100;
+
+	/**
+	 * Contains the source names that source lookup directors did not find,
+	 * mapped to the source containers the directors searched, guarded by the
+	 * lookup results. An entry no longer applies when the source containers
+	 * of its director change.
+	 *
+	 * @since 3.12
+	 */
+	private static Map<MissingSource, ISourceContainer[]> fMissingSources = new LinkedHashMap<MissingSource, ISourceContainer[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<MissingSource, ISourceContainer[]> eldest) {
+			return size() > MAX_MISSING_SOURCES;
+		}
+	};
+
+	/**
+	 * Lookups answered from the cached results, lookups that were not, and
+	 * lookups among those answered from the source names not found, guarded
+	 * by the lookup results.
+	 */
+	private int fCacheHits = 0;
+	private int fCacheMisses = 0;
+	private int fMissingSourceHits = 0;
+
+	/**
+	 * Whether the cached results of lookups that found no source are to be
+	 * discarded
+	 */
+	private volatile boolean fMissingSourcesChanged = false;
+
+	/**
+	 * Names of the files added to the workspace, matched with the missing
+	 * source names before the next lookup, guarded by itself
+	 */
+	private Set<String> fAddedFiles = new HashSet<String>();
+
+	/**
+	 * Whether the lookups of director and participant classes depend only on
+	 * the source names of the participants, by class. Guarded by the lookup
+	 * results.
+	 */
+	private static Map<Class<?>, Boolean> fNameLookups = new HashMap<Class<?>, Boolean>();
+
+	/**
+	 * Keys of the cached results to discard before the next lookup
+	 */
+	private Queue<Object> fChangedArtifacts = new ConcurrentLinkedQueue<Object>();
+
+	private MissingSourceCleaner fCleaner = new MissingSourceCleaner();
+
+	private PrefetchJob fPrefetchJob = new PrefetchJob();
+
 	/**
 	 * Used to generate annotations for stack frames
 	 */
@@ -204,6 +460,7 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 		fEditorsByPage = new HashMap<IWorkbenchPage, IEditorPart>();
 		DebugUIPlugin.getDefault().getPreferenceStore().addPropertyChangeListener(this);
 		DebugPlugin.getDefault().addDebugEventListener(this);
+		ResourcesPlugin.getWorkspace().addResourceChangeListener(fCleaner, IResourceChangeEvent.POST_CHANGE);
 	}
 
 	@Override
@@ -212,9 +469,15 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 		for (int i = 0; i < events.length; i++) {
 			final DebugEvent event = events[i];
 			switch (event.getKind()) {
+				case DebugEvent.SUSPEND:
+					if (!event.isEvaluation() && event.getSource() instanceof IThread) {
+						fPrefetchJob.prefetch((IThread) event.getSource());
+					}
+					break;
 				case DebugEvent.TERMINATE:
 				case DebugEvent.RESUME:
 					if (!event.isEvaluation()) {
+						fPrefetchJob.stop(event.getSource());
 						Job uijob = new UIJob("clear source selection") { //$NON-NLS-1$
 							@Override
 							public IStatus runInUIThread(IProgressMonitor monitor) {
@@ -231,7 +494,8 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 					if (event.getSource() instanceof IStackFrame) {
 						if (event.getDetail() == DebugEvent.CONTENT) {
 							frame = (IStackFrame) event.getSource();
-							fLookupResults.remove(new ArtifactWithLocator(frame, frame.getLaunch().getSourceLocator()));
+							// removed before the next lookup, without waiting for lookups in progress
+							fChangedArtifacts.add(new ArtifactWithLocator(frame, frame.getLaunch().getSourceLocator()));
 						}
 					}
 					break;
@@ -319,12 +583,23 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 		SourceLookupResult result = null;
 		synchronized (fLookupResults) {
 			ArtifactWithLocator key = new ArtifactWithLocator(artifact, locator);
+			Object changed;
+			while ((changed = fChangedArtifacts.poll()) != null) {
+				fLookupResults.remove(changed);
+			}
+			if (fMissingSourcesChanged) {
+				removeMissingSources();
+			} else {
+				removeMissingSources(fAddedFiles);
+			}
 			if (!force) {
 				result = fLookupResults.get(key);
 				if (result != null) {
+					fCacheHits++;
 					return result;
 				}
 			}
+			fCacheMisses++;
 			result = new SourceLookupResult(artifact, null, null, null);
 			IDebugElement debugElement = null;
 			if (artifact instanceof IDebugElement) {
@@ -346,7 +621,19 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 				Object sourceElement = null;
 				if (localLocator instanceof ISourceLookupDirector) {
 					ISourceLookupDirector director = (ISourceLookupDirector) localLocator;
-					sourceElement = director.getSourceElement(artifact);
+					MissingSource missing = getMissingSource(director, artifact);
+					if (!force && missing != null && isMissing(missing, director)) {
+						fMissingSourceHits++;
+					} else {
+						sourceElement = director.getSourceElement(artifact);
+						if (missing != null) {
+							if (sourceElement == null) {
+								fMissingSources.put(missing, director.getSourceContainers());
+							} else {
+								fMissingSources.remove(missing);
+							}
+						}
+					}
 				} else {
 					if (artifact instanceof IStackFrame) {
 						sourceElement = localLocator.getSourceElement((IStackFrame) artifact);
@@ -388,6 +675,199 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
 		return result;
     }
 
+	/**
+	 * Returns the key of the source names the given director searches for the
+	 * given artifact, or <code>null</code> if they cannot be computed.
+	 *
+	 * @param director source lookup director
+	 * @param artifact object for which source is to be resolved
+	 * @return key of the source names or <code>null</code>
+	 */
+	private MissingSource getMissingSource(ISourceLookupDirector director, Object artifact) {
+		if (!isNameLookup(director.getClass(), AbstractSourceLookupDirector.class, "getSourceElement", "doSourceLookup")) { //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		ISourceLookupParticipant[] participants = director.getParticipants();
+		if (participants.length == 0) {
+			return null;
+		}
+		for (int i = 0; i < participants.length; i++) {
+			if (!isNameLookup(participants[i].getClass(), AbstractSourceLookupParticipant.class, "findSourceElements")) { //$NON-NLS-1$
+				return null;
+			}
+		}
+		String[] names = new String[participants.length];
+		try {
+			for (int i = 0; i < participants.length; i++) {
+				names[i] = participants[i].getSourceName(artifact);
+			}
+		} catch (CoreException e) {
+			return null;
+		}
+		Object target = null;
+		if (artifact instanceof IDebugElement) {
+			target = ((IDebugElement) artifact).getDebugTarget();
+		}
+		return new MissingSource(director, target, participants, names);
+	}
+
+	/**
+	 * Returns whether the lookups of the given director or participant class
+	 * depend only on the source names of the participants, that is, whether
+	 * the class inherits the given lookup methods with an <code>Object</code>
+	 * parameter from the given base class. Directors and participants that
+	 * find source from the artifact itself do not use the missing source
+	 * names.
+	 *
+	 * @param type class of a director or participant
+	 * @param base base class implementing the lookup by source name
+	 * @param methods names of the lookup methods
+	 * @return whether lookups only depend on the source names
+	 */
+	private static boolean isNameLookup(Class<?> type, Class<?> base, String... methods) {
+		Boolean nameLookup = fNameLookups.get(type);
+		if (nameLookup == null) {
+			nameLookup = Boolean.valueOf(base.isAssignableFrom(type));
+			for (Class<?> current = type; nameLookup.booleanValue() && current != base; current = current.getSuperclass()) {
+				for (int i = 0; i < methods.length; i++) {
+					try {
+						current.getDeclaredMethod(methods[i], Object.class);
+						nameLookup = Boolean.FALSE;
+						break;
+					} catch (NoSuchMethodException e) {
+						// inherited
+					}
+				}
+			}
+			fNameLookups.put(type, nameLookup);
+		}
+		return nameLookup.booleanValue();
+	}
+
+	/**
+	 * Returns whether the given source names were not found by the given
+	 * director, with its current source containers.
+	 *
+	 * @param missing key of the source names
+	 * @param director source lookup director
+	 * @return whether the source names are known to be missing
+	 */
+	private boolean isMissing(MissingSource missing, ISourceLookupDirector director) {
+		ISourceContainer[] containers = fMissingSources.get(missing);
+		if (containers == null) {
+			return false;
+		}
+		if (!Arrays.equals(containers, director.getSourceContainers())) {
+			fMissingSources.remove(missing);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Discards the cached results of lookups that found no source, before the
+	 * next lookup. Does not wait for lookups in progress, so that listeners
+	 * never block on source lookup.
+	 */
+	void clearMissingSources() {
+		fMissingSourcesChanged = true;
+	}
+
+	/**
+	 * Removes the cached results of lookups that found no source. Called with
+	 * the lookup results locked.
+	 */
+	private void removeMissingSources() {
+		fMissingSourcesChanged = false;
+		synchronized (fAddedFiles) {
+			fAddedFiles.clear();
+		}
+		fMissingSources.clear();
+		removeLookupResultsWithoutSource();
+	}
+
+	/**
+	 * Removes the missing source names that may be found in the given added
+	 * files, and the cached results of lookups that found no source if there
+	 * are any. Called with the lookup results locked.
+	 *
+	 * @param added names of added files, consumed
+	 */
+	private void removeMissingSources(Set<String> added) {
+		String[] fileNames;
+		synchronized (added) {
+			if (added.isEmpty()) {
+				return;
+			}
+			fileNames = added.toArray(new String[added.size()]);
+			added.clear();
+		}
+		boolean removed = false;
+		for (String fileName : fileNames) {
+			Iterator<MissingSource> missing = fMissingSources.keySet().iterator();
+			while (missing.hasNext()) {
+				if (missing.next().matches(fileName)) {
+					missing.remove();
+					removed = true;
+				}
+			}
+		}
+		if (removed) {
+			removeLookupResultsWithoutSource();
+		}
+	}
+
+	/**
+	 * Removes the cached results of lookups that found no source. Called with
+	 * the lookup results locked.
+	 */
+	private void removeLookupResultsWithoutSource() {
+		Iterator<SourceLookupResult> results = fLookupResults.values().iterator();
+		while (results.hasNext()) {
+			if (results.next().getSourceElement() == null) {
+				results.remove();
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of lookups answered from the cached results.
+	 *
+	 * @return number of cache hits
+	 * @since 3.12
+	 */
+	public int getCacheHits() {
+		synchronized (fLookupResults) {
+			return fCacheHits;
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that were not answered from the cached
+	 * results.
+	 *
+	 * @return number of cache misses
+	 * @since 3.12
+	 */
+	public int getCacheMisses() {
+		synchronized (fLookupResults) {
+			return fCacheMisses;
+		}
+	}
+
+	/**
+	 * Returns the number of cache misses answered without searching, because
+	 * the source names of the artifact were not found before.
+	 *
+	 * @return number of missing source hits
+	 * @since 3.12
+	 */
+	public int getMissingSourceHits() {
+		synchronized (fLookupResults) {
+			return fMissingSourceHits;
+		}
+	}
+
     /**
      * Returns the model presentation for the given debug model, or <code>null</code>
      * if none.
@@ -704,9 +1184,14 @@ public class SourceLookupFacility implements IPageListener, IPartListener2, IPro
     protected void dispose() {
         DebugUIPlugin.getDefault().getPreferenceStore().removePropertyChangeListener(this);
 		DebugPlugin.getDefault().removeDebugEventListener(this);
+		ResourcesPlugin.getWorkspace().removeResourceChangeListener(fCleaner);
+		fPrefetchJob.cancel();
         fEditorsByPage.clear();
         fPresentation.dispose();
-		fLookupResults.clear();
+		synchronized (fLookupResults) {
+			fLookupResults.clear();
+			fMissingSources.clear();
+		}
     }
 
 	/**
@@ -1,5 +1,5 @@
 /**********************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others. All rights reserved.   This
+ * Copyright (c) 2000, 2017 IBM Corporation and others. All rights reserved.   This
  * program and the accompanying materials are made available under the terms of
  * the Eclipse Public License v1.0 which accompanies this distribution, and is
  * available at http://www.eclipse.org/legal/epl-v10.html
@@ -33,6 +33,7 @@ public class StringSubstitutionMessages extends NLS {
 	public static String RefreshTab_37;
 	public static String RefreshTab_40;
 	public static String RefreshTab_42;
+	public static String RefreshTab_43;
 
 	public static String ResourceSelector_0;
 
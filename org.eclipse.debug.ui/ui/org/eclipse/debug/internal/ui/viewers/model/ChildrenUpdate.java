@@ -52,6 +52,17 @@ public class ChildrenUpdate extends ViewerUpdateMonitor implements IChildrenUpda
 
 
 	protected void performUpdate(boolean updateFilterOnly) {
+		// collect the compare requests of all the children into a single batch
+		ViewerStateTracker stateTracker = getContentProvider().getStateTracker();
+		stateTracker.beginCompareBatch();
+		try {
+			doPerformUpdate(updateFilterOnly);
+		} finally {
+			stateTracker.endCompareBatch();
+		}
+	}
+
+	private void doPerformUpdate(boolean updateFilterOnly) {
 		TreeModelContentProvider provider = getContentProvider();
 		TreePath elementPath = getElementPath();
 		if (fElements != null) {
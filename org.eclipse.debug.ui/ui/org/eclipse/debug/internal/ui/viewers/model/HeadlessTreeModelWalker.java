@@ -0,0 +1,638 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.viewers.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.internal.core.commands.Request;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenCountUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IElementContentProvider;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IElementLabelProvider;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ILabelUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ITreeModelViewer;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.TreeModelViewerFilter;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.viewers.TreePath;
+import org.eclipse.jface.viewers.Viewer;
+import org.eclipse.jface.viewers.ViewerFilter;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Walks the elements of a tree model without realizing them in a viewer.
+ * <p>
+ * The walker retrieves children and labels from the element content and label
+ * providers, following the expansion state captured from a viewer with
+ * {@link ITreeModelViewer#saveElementState(TreePath, ModelDelta, int)}.  Like
+ * the viewer, it issues all updates and evaluates the viewer filters in the
+ * display thread, and continues in the display thread when an update is done,
+ * so providers are called exactly as they are by the viewer.  The display
+ * thread is never blocked: the walker advances one step each time an update
+ * it waits for is done.  The elements are streamed to a collector in tree
+ * order as soon as their labels are known, so that consumers such as the
+ * find action do not need to realize the whole tree in a virtual viewer.
+ * </p>
+ *
+ * @since 3.12
+ */
+public class HeadlessTreeModelWalker {
+
+	/**
+	 * Maximum number of children requested from a content provider in one
+	 * update.
+	 */
+	static final int CHILDREN_BATCH_SIZE = 500;
+
+	/**
+	 * Receives the elements found by the walker, in tree order.  Called in
+	 * the display thread.
+	 */
+	public interface IElementCollector {
+
+		/**
+		 * Notification that an element was found.
+		 *
+		 * @param element the element with its labels
+		 * @return whether the walker should continue
+		 */
+		public boolean elementFound(WalkedElement element);
+	}
+
+	/**
+	 * An element found by the walker.
+	 */
+	public static class WalkedElement {
+
+		private final TreePath fPath;
+		private final int[] fIndexes;
+		private final String[] fLabels;
+		private final ImageDescriptor fImage;
+
+		WalkedElement(TreePath path, int[] indexes, String[] labels, ImageDescriptor image) {
+			fPath = path;
+			fIndexes = indexes;
+			fLabels = labels;
+			fImage = image;
+		}
+
+		/**
+		 * @return path of the element
+		 */
+		public TreePath getPath() {
+			return fPath;
+		}
+
+		/**
+		 * @return the element
+		 */
+		public Object getElement() {
+			return fPath.getLastSegment();
+		}
+
+		/**
+		 * @return labels of the element, one per column
+		 */
+		public String[] getLabels() {
+			return fLabels;
+		}
+
+		/**
+		 * @return image of the element in the first column, or <code>null</code>
+		 */
+		public ImageDescriptor getImageDescriptor() {
+			return fImage;
+		}
+
+		/**
+		 * Creates a delta which applies the given flags to this element in a
+		 * viewer showing the walked model.
+		 *
+		 * @param input viewer input
+		 * @param flags flags to set on the element node
+		 * @return the root of the new delta
+		 */
+		public ModelDelta createDelta(Object input, int flags) {
+			ModelDelta root = new ModelDelta(input, IModelDelta.NO_CHANGE);
+			ModelDelta delta = root;
+			for (int i = 0; i < fPath.getSegmentCount(); i++) {
+				boolean last = i == fPath.getSegmentCount() - 1;
+				delta = delta.addNode(fPath.getSegment(i), fIndexes[i], last ? flags : IModelDelta.NO_CHANGE);
+			}
+			return root;
+		}
+
+		@Override
+		public String toString() {
+			return fLabels.length > 0 ? fLabels[0] : String.valueOf(getElement());
+		}
+	}
+
+	/**
+	 * Children of an element being walked.
+	 */
+	private static class Frame {
+
+		final TreePath fParentPath;
+		final int[] fParentIndexes;
+		final ModelDelta fParentDelta;
+		IElementContentProvider fContentProvider;
+		ChildrenCountRequest fCountRequest;
+		ChildrenRequest fChildrenRequest;
+		List<LabelRequest> fLabelRequests;
+		int fOffset = 0;
+		int fNext = 0;
+
+		Frame(TreePath parentPath, int[] parentIndexes, ModelDelta parentDelta) {
+			fParentPath = parentPath;
+			fParentIndexes = parentIndexes;
+			fParentDelta = parentDelta;
+		}
+	}
+
+	private final Display fDisplay;
+	private final IPresentationContext fContext;
+	private final Object fInput;
+	private final ModelDelta fExpansionState;
+	private final String[] fColumnIds;
+	private final ViewerFilter[] fFilters;
+	private final ITreeModelViewer fFilterViewer;
+	private int fElementCount = 0;
+
+	/**
+	 * Lock guarding the completion of updates and of the walk.
+	 */
+	private final Object fLock = new Object();
+
+	/**
+	 * Children being walked, the innermost last.  Only accessed in the
+	 * display thread.
+	 */
+	private final LinkedList<Frame> fFrames = new LinkedList<Frame>();
+
+	private IElementCollector fCollector;
+	private IProgressMonitor fMonitor;
+
+	/**
+	 * Update the walker waits for, guarded by the lock.
+	 */
+	private WalkerUpdate fWaitingFor;
+
+	private boolean fFinished = true;
+
+	private final Runnable fAdvance = new Runnable() {
+		@Override
+		public void run() {
+			advance();
+		}
+	};
+
+	/**
+	 * Creates a walker for the model shown in the given viewer.  Must be
+	 * called in the viewer's UI thread.
+	 *
+	 * @param viewer viewer to take the input, columns, filters and expansion
+	 * state from
+	 */
+	public HeadlessTreeModelWalker(ITreeModelViewer viewer) {
+		fDisplay = viewer.getDisplay();
+		fContext = viewer.getPresentationContext();
+		fInput = viewer.getInput();
+		fExpansionState = new ModelDelta(fInput, IModelDelta.NO_CHANGE);
+		viewer.saveElementState(TreePath.EMPTY, fExpansionState, IModelDelta.EXPAND);
+		fColumnIds = viewer instanceof IInternalTreeModelViewer ? ((IInternalTreeModelViewer) viewer).getVisibleColumns() : null;
+		fFilters = viewer.getFilters();
+		fFilterViewer = viewer;
+	}
+
+	/**
+	 * Creates a walker for the given input and expansion state.
+	 *
+	 * @param display display in whose thread the providers are called
+	 * @param context presentation context to retrieve the model in
+	 * @param input root element
+	 * @param expansionState delta with {@link IModelDelta#EXPAND} flags on the
+	 * elements whose children should be walked
+	 * @param columnIds visible columns or <code>null</code>
+	 */
+	public HeadlessTreeModelWalker(Display display, IPresentationContext context, Object input, ModelDelta expansionState, String[] columnIds) {
+		fDisplay = display;
+		fContext = context;
+		fInput = input;
+		fExpansionState = expansionState;
+		fColumnIds = columnIds;
+		fFilters = new ViewerFilter[0];
+		fFilterViewer = null;
+	}
+
+	/**
+	 * Walks the expanded elements of the model in tree order, passing each
+	 * element to the collector.  Blocks until the walk is complete, canceled
+	 * or stopped by the collector.  When called in the display thread, events
+	 * are dispatched while the walk is running.
+	 *
+	 * @param collector collector to stream the elements to
+	 * @param monitor progress monitor, the walker reports one unit of work per
+	 * element
+	 * @return the status of the walk
+	 */
+	public IStatus walk(IElementCollector collector, IProgressMonitor monitor) {
+		synchronized (fLock) {
+			fElementCount = 0;
+			fCollector = collector;
+			fMonitor = monitor;
+			fFinished = false;
+		}
+		if (Thread.currentThread() == fDisplay.getThread()) {
+			start();
+			while (!isFinished()) {
+				if (monitor.isCanceled()) {
+					cancel();
+				} else if (!fDisplay.readAndDispatch()) {
+					fDisplay.sleep();
+				}
+			}
+		} else {
+			try {
+				fDisplay.asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						start();
+					}
+				});
+			} catch (RuntimeException e) {
+				// the display has been disposed
+				cancel();
+				return Status.CANCEL_STATUS;
+			}
+			synchronized (fLock) {
+				while (!fFinished) {
+					if (monitor.isCanceled()) {
+						break;
+					}
+					try {
+						fLock.wait(50);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+				}
+			}
+			cancel();
+		}
+		return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+	}
+
+	/**
+	 * @return the number of elements found by the last walk
+	 */
+	public int getElementCount() {
+		return fElementCount;
+	}
+
+	private boolean isFinished() {
+		synchronized (fLock) {
+			return fFinished;
+		}
+	}
+
+	private void start() {
+		fFrames.clear();
+		fFrames.add(new Frame(TreePath.EMPTY, new int[0], fExpansionState));
+		advance();
+	}
+
+	/**
+	 * Stops the walk and cancels the update the walker waits for.
+	 */
+	private void cancel() {
+		WalkerUpdate update;
+		synchronized (fLock) {
+			if (fFinished) {
+				return;
+			}
+			fFinished = true;
+			update = fWaitingFor;
+			fWaitingFor = null;
+			fLock.notifyAll();
+		}
+		if (update != null) {
+			update.cancel();
+		}
+	}
+
+	private void finish() {
+		synchronized (fLock) {
+			fFinished = true;
+			fWaitingFor = null;
+			fLock.notifyAll();
+		}
+		fFrames.clear();
+		fDisplay.wake();
+	}
+
+	/**
+	 * Returns whether the given update is done.  If not, the walker is
+	 * advanced when it is done.
+	 */
+	private boolean isDone(WalkerUpdate update) {
+		synchronized (fLock) {
+			if (update.fDone) {
+				return true;
+			}
+			fWaitingFor = update;
+			return false;
+		}
+	}
+
+	/**
+	 * Advances the walk until it has to wait for an update.  Called in the
+	 * display thread.
+	 */
+	private void advance() {
+		while (true) {
+			if (isFinished()) {
+				fFrames.clear();
+				return;
+			}
+			if (fMonitor.isCanceled() || fFrames.isEmpty()) {
+				finish();
+				return;
+			}
+			Frame frame = fFrames.getLast();
+			if (frame.fCountRequest == null) {
+				Object parent = frame.fParentPath.getSegmentCount() == 0 ? fInput : frame.fParentPath.getLastSegment();
+				frame.fContentProvider = ViewerAdapterService.getContentProvider(parent);
+				if (frame.fContentProvider == null) {
+					fFrames.removeLast();
+					continue;
+				}
+				frame.fCountRequest = new ChildrenCountRequest(frame.fParentPath);
+				frame.fContentProvider.update(new IChildrenCountUpdate[] { frame.fCountRequest });
+			}
+			if (!isDone(frame.fCountRequest)) {
+				return;
+			}
+			if (frame.fLabelRequests != null && frame.fNext < frame.fLabelRequests.size()) {
+				LabelRequest labelRequest = frame.fLabelRequests.get(frame.fNext);
+				if (!isDone(labelRequest)) {
+					return;
+				}
+				frame.fNext++;
+				if (!elementFound(frame, labelRequest)) {
+					finish();
+					return;
+				}
+				continue;
+			}
+			if (frame.fChildrenRequest != null) {
+				if (!isDone(frame.fChildrenRequest)) {
+					return;
+				}
+				requestLabels(frame);
+				frame.fChildrenRequest = null;
+				continue;
+			}
+			int count = frame.fCountRequest.fCount;
+			if (frame.fOffset >= count) {
+				fFrames.removeLast();
+				continue;
+			}
+			int length = Math.min(CHILDREN_BATCH_SIZE, count - frame.fOffset);
+			frame.fChildrenRequest = new ChildrenRequest(frame.fParentPath, frame.fOffset, length);
+			frame.fOffset += length;
+			frame.fContentProvider.update(new IChildrenUpdate[] { frame.fChildrenRequest });
+		}
+	}
+
+	/**
+	 * Requests the labels of the unfiltered children of a frame, as one
+	 * batch per label provider.
+	 */
+	private void requestLabels(Frame frame) {
+		ChildrenRequest childrenRequest = frame.fChildrenRequest;
+		List<LabelRequest> labelRequests = new ArrayList<LabelRequest>(childrenRequest.fChildren.length);
+		Map<IElementLabelProvider, List<ILabelUpdate>> providers = new LinkedHashMap<IElementLabelProvider, List<ILabelUpdate>>();
+		for (int i = 0; i < childrenRequest.fChildren.length; i++) {
+			Object child = childrenRequest.fChildren[i];
+			if (child == null || isFiltered(frame.fParentPath, child)) {
+				continue;
+			}
+			LabelRequest labelRequest = new LabelRequest(frame.fParentPath.createChildPath(child), childrenRequest.getOffset() + i);
+			labelRequests.add(labelRequest);
+			IElementLabelProvider labelProvider = ViewerAdapterService.getLabelProvider(child);
+			if (labelProvider != null) {
+				List<ILabelUpdate> list = providers.get(labelProvider);
+				if (list == null) {
+					list = new ArrayList<ILabelUpdate>();
+					providers.put(labelProvider, list);
+				}
+				list.add(labelRequest);
+			} else {
+				labelRequest.done();
+			}
+		}
+		frame.fLabelRequests = labelRequests;
+		frame.fNext = 0;
+		for (Entry<IElementLabelProvider, List<ILabelUpdate>> entry : providers.entrySet()) {
+			List<ILabelUpdate> list = entry.getValue();
+			entry.getKey().update(list.toArray(new ILabelUpdate[list.size()]));
+		}
+	}
+
+	/**
+	 * Passes a child of the given frame to the collector and descends into
+	 * the child if it is expanded.
+	 *
+	 * @return whether the walk should continue
+	 */
+	private boolean elementFound(Frame frame, LabelRequest labelRequest) {
+		int[] indexes = new int[frame.fParentIndexes.length + 1];
+		System.arraycopy(frame.fParentIndexes, 0, indexes, 0, frame.fParentIndexes.length);
+		indexes[frame.fParentIndexes.length] = labelRequest.fModelIndex;
+		fElementCount++;
+		fMonitor.worked(1);
+		if (!fCollector.elementFound(new WalkedElement(labelRequest.getElementPath(), indexes, labelRequest.fLabels, labelRequest.fImage))) {
+			return false;
+		}
+		ModelDelta childDelta = frame.fParentDelta != null ? frame.fParentDelta.getChildDelta(labelRequest.getElement(), labelRequest.fModelIndex) : null;
+		if (childDelta != null && (childDelta.getFlags() & IModelDelta.EXPAND) != 0) {
+			fFrames.add(new Frame(labelRequest.getElementPath(), indexes, childDelta));
+		}
+		return true;
+	}
+
+	private boolean isFiltered(TreePath parentPath, Object element) {
+		for (int i = 0; i < fFilters.length; i++) {
+			if (fFilters[i] instanceof TreeModelViewerFilter) {
+				Object parentElement = parentPath.getSegmentCount() == 0 ? fInput : parentPath.getLastSegment();
+				if (!((TreeModelViewerFilter) fFilters[i]).isApplicable(fFilterViewer, parentElement)) {
+					continue;
+				}
+			}
+			Viewer viewer = fFilterViewer instanceof Viewer ? (Viewer) fFilterViewer : null;
+			if (!fFilters[i].select(viewer, parentPath, element)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Base class of the updates issued by the walker.  When the update the
+	 * walker waits for is done, the walker advances in the display thread.
+	 */
+	private abstract class WalkerUpdate extends Request implements IViewerUpdate {
+
+		private final TreePath fPath;
+		boolean fDone = false;
+
+		WalkerUpdate(TreePath path) {
+			fPath = path;
+		}
+
+		@Override
+		public IPresentationContext getPresentationContext() {
+			return fContext;
+		}
+
+		@Override
+		public Object getElement() {
+			return fPath.getSegmentCount() == 0 ? fInput : fPath.getLastSegment();
+		}
+
+		@Override
+		public TreePath getElementPath() {
+			return fPath;
+		}
+
+		@Override
+		public Object getViewerInput() {
+			return fInput;
+		}
+
+		@Override
+		public void done() {
+			synchronized (fLock) {
+				if (fDone) {
+					return;
+				}
+				fDone = true;
+				if (fWaitingFor != this) {
+					return;
+				}
+				fWaitingFor = null;
+			}
+			if (!fDisplay.isDisposed()) {
+				fDisplay.asyncExec(fAdvance);
+			}
+		}
+	}
+
+	private class ChildrenCountRequest extends WalkerUpdate implements IChildrenCountUpdate {
+
+		int fCount = 0;
+
+		ChildrenCountRequest(TreePath path) {
+			super(path);
+		}
+
+		@Override
+		public void setChildCount(int numChildren) {
+			fCount = numChildren;
+		}
+	}
+
+	private class ChildrenRequest extends WalkerUpdate implements IChildrenUpdate {
+
+		private final int fOffset;
+		final Object[] fChildren;
+
+		ChildrenRequest(TreePath path, int offset, int length) {
+			super(path);
+			fOffset = offset;
+			fChildren = new Object[length];
+		}
+
+		@Override
+		public int getOffset() {
+			return fOffset;
+		}
+
+		@Override
+		public int getLength() {
+			return fChildren.length;
+		}
+
+		@Override
+		public void setChild(Object child, int offset) {
+			int index = offset - fOffset;
+			if (index >= 0 && index < fChildren.length) {
+				fChildren[index] = child;
+			}
+		}
+	}
+
+	private class LabelRequest extends WalkerUpdate implements ILabelUpdate {
+
+		final int fModelIndex;
+		final String[] fLabels;
+		ImageDescriptor fImage;
+
+		LabelRequest(TreePath path, int modelIndex) {
+			super(path);
+			fModelIndex = modelIndex;
+			fLabels = new String[fColumnIds != null ? fColumnIds.length : 1];
+		}
+
+		@Override
+		public String[] getColumnIds() {
+			return fColumnIds;
+		}
+
+		@Override
+		public void setLabel(String text, int columnIndex) {
+			fLabels[columnIndex] = text;
+		}
+
+		@Override
+		public void setImageDescriptor(ImageDescriptor image, int columnIndex) {
+			if (columnIndex == 0) {
+				fImage = image;
+			}
+		}
+
+		@Override
+		public void setFontData(FontData fontData, int columnIndex) {
+		}
+
+		@Override
+		public void setForeground(RGB foreground, int columnIndex) {
+		}
+
+		@Override
+		public void setBackground(RGB background, int columnIndex) {
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.viewers.model;
+
+/**
+ * Statistics of the label updates which a {@link TreeModelLabelProvider}
+ * applied to its viewer.  Completed label updates are applied in batches,
+ * one batch per UI cycle.  The statistics are updated in the UI thread.
+ *
+ * @since 3.12
+ */
+public class LabelUpdateStatistics {
+
+	private long fBatches;
+	private long fApplied;
+	private long fCanceled;
+	private long fTotalTime;
+	private long fMaxTime;
+
+	/**
+	 * Records a batch of completed label updates.
+	 *
+	 * @param applied number of labels applied to the viewer
+	 * @param canceled number of canceled updates in the batch
+	 * @param time time in milliseconds spent in the UI thread
+	 */
+	synchronized void batchApplied(int applied, int canceled, long time) {
+		fBatches++;
+		fApplied += applied;
+		fCanceled += canceled;
+		fTotalTime += time;
+		fMaxTime = Math.max(fMaxTime, time);
+	}
+
+	/**
+	 * @return the number of batches applied
+	 */
+	public synchronized long getBatchCount() {
+		return fBatches;
+	}
+
+	/**
+	 * @return the number of labels applied to the viewer
+	 */
+	public synchronized long getAppliedCount() {
+		return fApplied;
+	}
+
+	/**
+	 * @return the number of label updates that were canceled when completed
+	 */
+	public synchronized long getCanceledCount() {
+		return fCanceled;
+	}
+
+	/**
+	 * @return the average number of labels applied per batch
+	 */
+	public synchronized double getLabelsPerBatch() {
+		return fBatches == 0 ? 0 : (double) fApplied / fBatches;
+	}
+
+	/**
+	 * @return the fraction of completed label updates which were canceled
+	 */
+	public synchronized double getCancelRate() {
+		long total = fApplied + fCanceled;
+		return total == 0 ? 0 : (double) fCanceled / total;
+	}
+
+	/**
+	 * @return the average time in milliseconds spent applying a batch
+	 */
+	public synchronized double getAverageBatchTime() {
+		return fBatches == 0 ? 0 : (double) fTotalTime / fBatches;
+	}
+
+	/**
+	 * @return the longest time in milliseconds spent applying a batch
+	 */
+	public synchronized long getMaxBatchTime() {
+		return fMaxTime;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuffer buf = new StringBuffer();
+		buf.append("LabelUpdateStatistics: "); //$NON-NLS-1$
+		buf.append(fBatches).append(" batches, "); //$NON-NLS-1$
+		buf.append(fApplied).append(" applied, "); //$NON-NLS-1$
+		buf.append(fCanceled).append(" canceled, "); //$NON-NLS-1$
+		buf.append(fMaxTime).append(" ms max"); //$NON-NLS-1$
+		return buf.toString();
+	}
+}
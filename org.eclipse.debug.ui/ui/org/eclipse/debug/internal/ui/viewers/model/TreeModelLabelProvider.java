@@ -54,7 +54,7 @@ public class TreeModelLabelProvider extends ColumnLabelProvider
 	/**
 	 * Note: access this variable should be synchronized with <code>this</code>.
 	 */
-	private List<ILabelUpdate> fComplete;
+	private LinkedList<ILabelUpdate> fComplete;
 
 	/**
 	 * Cache of images used for elements in this label provider. Label updates
@@ -100,6 +100,17 @@ public class TreeModelLabelProvider extends ColumnLabelProvider
 	 */
 	private List<ILabelUpdate> fUpdatesInProgress = new ArrayList<ILabelUpdate>();
 
+	/**
+	 * Maximum time in milliseconds spent applying completed label updates in
+	 * a single UI cycle.
+	 */
+	static final long LABEL_BATCH_TIME_LIMIT = 30;
+
+	/**
+	 * Statistics of the completed label updates applied to the viewer.
+	 */
+	private final LabelUpdateStatistics fStatistics = new LabelUpdateStatistics();
+
     /**
      * Delta visitor actively cancels the outstanding label updates for
      * elements that are changed and are about to be updated.
@@ -277,16 +288,19 @@ public class TreeModelLabelProvider extends ColumnLabelProvider
 		        fPendingUpdates.put(presentation, updates);
 		    }
 		    updates.add(new LabelUpdate(fViewer.getInput(), elementPath, this, visibleColumns, fViewer.getPresentationContext()));
-		    fPendingUpdatesRunnable = new Runnable() {
-		        @Override
-				public void run() {
-		            if (isDisposed()) {
-						return;
-					}
-                    startRequests(this);
-		        }
-		    };
-		    fViewer.getDisplay().asyncExec(fPendingUpdatesRunnable);
+		    // All the updates requested in this UI cycle are sent by a single runnable
+		    if (fPendingUpdatesRunnable == null) {
+		        fPendingUpdatesRunnable = new Runnable() {
+		            @Override
+		            public void run() {
+		                if (isDisposed()) {
+		                    return;
+		                }
+		                startRequests(this);
+		            }
+		        };
+		        fViewer.getDisplay().asyncExec(fPendingUpdatesRunnable);
+		    }
 			return true;
 		} else {
 		    return false;
@@ -399,30 +413,83 @@ public class TreeModelLabelProvider extends ColumnLabelProvider
 
 		if (fComplete == null) {
 			fComplete = new LinkedList<ILabelUpdate>();
-			fViewer.getDisplay().asyncExec(new Runnable() {
-			    @Override
-				public void run() {
-			        if (isDisposed()) {
-						return;
-					}
-					List<ILabelUpdate> updates = null;
-                    synchronized (TreeModelLabelProvider.this) {
-                        updates = fComplete;
-                        fComplete = null;
-                    }
-					for (ILabelUpdate itrUpdate : updates) {
-                        if (itrUpdate.isCanceled()) {
-                            updateComplete(itrUpdate);
-                        } else {
-							((LabelUpdate) itrUpdate).performUpdate();
-                        }
-                    }
-			    }
-			});
+			scheduleCompletedUpdates();
 		}
 		fComplete.add(update);
     }
 
+    /**
+     * Schedules a runnable to apply the completed updates to the viewer.
+     * Note: must be called while synchronized on <code>this</code>.
+     */
+    private void scheduleCompletedUpdates() {
+		fViewer.getDisplay().asyncExec(new Runnable() {
+		    @Override
+			public void run() {
+		        if (isDisposed()) {
+					return;
+				}
+				LinkedList<ILabelUpdate> updates = null;
+                synchronized (TreeModelLabelProvider.this) {
+                    updates = fComplete;
+                    fComplete = null;
+                }
+                if (updates != null) {
+                    performCompletedUpdates(updates);
+                }
+		    }
+		});
+    }
+
+    /**
+     * Applies a batch of completed updates to the viewer.  If applying the
+     * batch takes longer than {@link #LABEL_BATCH_TIME_LIMIT}, the rest of
+     * the batch is deferred to a later cycle so that the viewer can paint in
+     * between.
+     *
+     * @param updates completed updates, in the order they completed
+     */
+    private void performCompletedUpdates(LinkedList<ILabelUpdate> updates) {
+        long start = System.currentTimeMillis();
+        int applied = 0;
+        int canceled = 0;
+        while (!updates.isEmpty() && !isDisposed()) {
+            ILabelUpdate update = updates.removeFirst();
+            if (update.isCanceled()) {
+                updateComplete(update);
+                canceled++;
+            } else {
+                ((LabelUpdate) update).performUpdate();
+                applied++;
+            }
+            if (!updates.isEmpty() && !isDisposed() && System.currentTimeMillis() - start >= LABEL_BATCH_TIME_LIMIT) {
+                synchronized (this) {
+                    if (fComplete == null) {
+                        fComplete = updates;
+                        scheduleCompletedUpdates();
+                    } else {
+                        fComplete.addAll(0, updates);
+                    }
+                }
+                break;
+            }
+        }
+        long time = System.currentTimeMillis() - start;
+        fStatistics.batchApplied(applied, canceled, time);
+        if (DebugUIPlugin.DEBUG_UPDATE_SEQUENCE && !isDisposed() && DebugUIPlugin.DEBUG_TEST_PRESENTATION_ID(getPresentationContext())) {
+            DebugUIPlugin.trace("LABEL BATCH: " + applied + " applied, " + canceled + " canceled, " + time + " ms"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+    }
+
+    /**
+     * Returns the statistics of label updates applied by this provider.
+     *
+     * @return label update statistics
+     */
+    public LabelUpdateStatistics getStatistics() {
+        return fStatistics;
+    }
+
 	@Override
 	public void addLabelUpdateListener(ILabelUpdateListener listener) {
 		fLabelListeners.add(listener);
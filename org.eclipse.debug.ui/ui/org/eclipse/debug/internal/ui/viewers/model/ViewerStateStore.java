@@ -0,0 +1,776 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.viewers.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.internal.ui.DebugUIPlugin;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+import org.eclipse.ui.IMemento;
+import org.eclipse.ui.WorkbenchException;
+import org.eclipse.ui.XMLMemento;
+
+/**
+ * Size bounded store of saved viewer states used by the {@link ViewerStateTracker}.
+ * <p>
+ * Viewer states are model deltas whose elements have been replaced by element
+ * mementos.  The store keeps each state in serialized form, keyed by a digest
+ * of the viewer input memento.  A state is split into the subtrees of the
+ * top level elements, which are serialized separately and shared by digest
+ * between all states of the store.  When a state is saved again, only the
+ * subtrees that have changed are added, and if no subtree has changed the
+ * store is left untouched.  States are parsed back into a fresh delta only
+ * when they are restored.
+ * </p><p>
+ * Stores obtained through {@link #getPersistentStore(String)} are shared by
+ * all viewers with the same presentation context id and are kept in the
+ * plug-in state location, so that the expansion and selection state of a
+ * view survives a restart of the workbench.  The state file is a log which is
+ * read by a background job when the store is created.  Until it has been
+ * read, the store answers as if it was empty.  Changes are appended to the
+ * log by a delayed background job, one record per changed state and new
+ * subtree, and the log is compacted once most of its records are obsolete.
+ * </p>
+ *
+ * @since 3.12
+ */
+public class ViewerStateStore {
+
+    /**
+     * Maximum number of states kept by a store.
+     */
+    static final int MAX_PERSISTENT_ENTRIES = 100;
+
+    /**
+     * Maximum number of states kept by a store that is not persisted.  This
+     * matches the size of the cache used before states were persisted.
+     */
+    public static final int MAX_TRANSIENT_ENTRIES = 20;
+
+    /**
+     * Maximum number of characters of serialized subtrees kept by a store.
+     */
+    public static final int MAX_CHARS = 512 * 1024;
+
+    /**
+     * Number of obsolete records in the state file after which it is
+     * compacted, in addition to one obsolete record per live record.
+     */
+    private static final int MIN_OBSOLETE_RECORDS = 64;
+
+    /**
+     * Delay before changes to a persistent store are written to disk.
+     */
+    private static final long SAVE_DELAY = 2000;
+
+    private static final String STATES_DIRECTORY = "viewerStates"; //$NON-NLS-1$
+    private static final String STATES_FILE_EXTENSION = ".dat"; //$NON-NLS-1$
+    private static final int FILE_MAGIC = 0x56535453;
+    private static final int FILE_VERSION = 2;
+
+    /**
+     * Record types of the state file.
+     */
+    private static final byte RECORD_SUBTREE = 1;
+    private static final byte RECORD_STATE = 2;
+    private static final byte RECORD_REMOVE = 3;
+
+    private static final String TAG_STATE = "STATE"; //$NON-NLS-1$
+    private static final String TAG_NODE = "NODE"; //$NON-NLS-1$
+    private static final String TAG_ELEMENT = "ELEMENT"; //$NON-NLS-1$
+    private static final String ATTR_FLAGS = "flags"; //$NON-NLS-1$
+    private static final String ATTR_INDEX = "index"; //$NON-NLS-1$
+    private static final String ATTR_CHILD_COUNT = "childCount"; //$NON-NLS-1$
+
+    /**
+     * Saved state of one viewer input: the attributes of the root delta and
+     * the digests of the serialized subtrees of its children.
+     */
+    private static class State {
+        final int fFlags;
+        final int fIndex;
+        final int fChildCount;
+        final String[] fSubtrees;
+
+        State(int flags, int index, int childCount, String[] subtrees) {
+            fFlags = flags;
+            fIndex = index;
+            fChildCount = childCount;
+            fSubtrees = subtrees;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            State other = (State) obj;
+            return fFlags == other.fFlags && fIndex == other.fIndex && fChildCount == other.fChildCount && Arrays.equals(fSubtrees, other.fSubtrees);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(fSubtrees) + fFlags;
+        }
+    }
+
+    /**
+     * A serialized subtree with the number of states that refer to it.
+     */
+    private static class Subtree {
+        final String fSerialized;
+        int fReferences;
+
+        Subtree(String serialized) {
+            fSerialized = serialized;
+        }
+    }
+
+    /**
+     * Persistent stores keyed by presentation context id.
+     */
+    private static final Map<String, ViewerStateStore> fgPersistentStores = new HashMap<String, ViewerStateStore>();
+
+    /**
+     * States keyed by input memento digest, in access order.
+     */
+    private final LinkedHashMap<String, State> fStates = new LinkedHashMap<String, State>(16, 0.75f, true);
+
+    /**
+     * States which have been removed to be restored, keyed by input memento
+     * digest.  They are kept in the state file, so that saving the same state
+     * again when the viewer input changes does not have to write it.
+     */
+    private final LinkedHashMap<String, State> fRestoredStates = new LinkedHashMap<String, State>();
+
+    /**
+     * Serialized subtrees keyed by their digest.
+     */
+    private final Map<String, Subtree> fSubtrees = new HashMap<String, Subtree>();
+
+    /**
+     * Digests of the input mementos whose state has changed since the store
+     * was last written.
+     */
+    private final Set<String> fChangedStates = new LinkedHashSet<String>();
+
+    /**
+     * Digests of the subtrees contained in the state file.
+     */
+    private final Set<String> fWrittenSubtrees = new HashSet<String>();
+
+    /**
+     * File the store is written to, <code>null</code> if not persisted.
+     */
+    private final File fFile;
+
+    /**
+     * Lock held while the state file is read or written.
+     */
+    private final Object fFileLock = new Object();
+
+    private final int fMaxEntries;
+
+    private int fChars = 0;
+
+    private boolean fLoaded = false;
+
+    /**
+     * Number of records in the state file, and whether it has to be
+     * rewritten instead of appended to.
+     */
+    private int fFileRecords = 0;
+
+    private boolean fCompact = false;
+
+    private Job fSaveJob;
+
+    /**
+     * Creates a store which is not persisted.
+     */
+    public ViewerStateStore() {
+        this(null, MAX_TRANSIENT_ENTRIES);
+    }
+
+    /**
+     * Creates a store which is persisted in the given file.  The file is
+     * read by {@link #load()}.
+     *
+     * @param file state file
+     * @param maxEntries maximum number of states kept by the store
+     */
+    public ViewerStateStore(File file, int maxEntries) {
+        fFile = file;
+        fMaxEntries = maxEntries;
+        fLoaded = file == null;
+    }
+
+    /**
+     * Returns the persistent store for the given presentation context id,
+     * or <code>null</code> if the plug-in state location is not available.
+     * A new store starts reading its state file in the background.
+     *
+     * @param contextId presentation context id
+     * @return shared persistent store or <code>null</code>
+     */
+    static ViewerStateStore getPersistentStore(String contextId) {
+        synchronized (fgPersistentStores) {
+            ViewerStateStore store = fgPersistentStores.get(contextId);
+            if (store == null) {
+                DebugUIPlugin plugin = DebugUIPlugin.getDefault();
+                if (plugin == null) {
+                    return null;
+                }
+                IPath path = plugin.getStateLocation().append(STATES_DIRECTORY).append(digest(contextId) + STATES_FILE_EXTENSION);
+                store = new ViewerStateStore(path.toFile(), MAX_PERSISTENT_ENTRIES);
+                fgPersistentStores.put(contextId, store);
+                store.scheduleLoad();
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Writes out all persistent stores with pending changes.  Called when the
+     * debug UI plug-in is shut down.
+     */
+    public static void shutdown() {
+        List<ViewerStateStore> stores;
+        synchronized (fgPersistentStores) {
+            stores = new ArrayList<ViewerStateStore>(fgPersistentStores.values());
+            fgPersistentStores.clear();
+        }
+        for (ViewerStateStore store : stores) {
+            store.flush();
+        }
+    }
+
+    /**
+     * Stores the given encoded state for the given input memento.  Only the
+     * subtrees that are not yet in the store are added.  If the state is the
+     * same as the one already in the store, only its recency is updated.
+     *
+     * @param inputMemento serialized memento of the viewer input
+     * @param state state delta with elements encoded as mementos
+     */
+    public void put(String inputMemento, ModelDelta state) {
+        IModelDelta[] children = state.getChildDeltas();
+        String[] serialized = new String[children.length];
+        for (int i = 0; i < children.length; i++) {
+            serialized[i] = serialize(children[i]);
+            if (serialized[i] == null) {
+                return;
+            }
+        }
+        String[] digests = new String[serialized.length];
+        for (int i = 0; i < serialized.length; i++) {
+            digests[i] = digest(serialized[i]);
+        }
+        String key = digest(inputMemento);
+        State newState = new State(state.getFlags(), state.getIndex(), state.getChildCount(), digests);
+        synchronized (this) {
+            State previous = fStates.get(key);
+            if (previous == null) {
+                previous = fRestoredStates.remove(key);
+            }
+            if (newState.equals(previous)) {
+                fStates.put(key, previous);
+                return;
+            }
+            for (int i = 0; i < digests.length; i++) {
+                Subtree subtree = fSubtrees.get(digests[i]);
+                if (subtree == null) {
+                    subtree = new Subtree(serialized[i]);
+                    fSubtrees.put(digests[i], subtree);
+                    fChars += serialized[i].length();
+                }
+                subtree.fReferences++;
+            }
+            fStates.put(key, newState);
+            if (previous != null) {
+                release(previous);
+            }
+            trim();
+            changed(key);
+        }
+    }
+
+    /**
+     * Returns whether a state is stored for the given input memento.  Returns
+     * <code>false</code> while the state file is being read.
+     *
+     * @param inputMemento serialized memento of the viewer input
+     * @return whether a state is stored
+     */
+    public synchronized boolean contains(String inputMemento) {
+        return fStates.containsKey(digest(inputMemento));
+    }
+
+    /**
+     * Removes the state stored for the given input memento and returns it as
+     * a new delta, or <code>null</code> if there is none.  The state file is
+     * not changed until a different state is stored for the input memento.
+     *
+     * @param inputMemento serialized memento of the viewer input
+     * @return restored state delta or <code>null</code>
+     */
+    public ModelDelta remove(String inputMemento) {
+        String key = digest(inputMemento);
+        State state;
+        String[] subtrees;
+        synchronized (this) {
+            state = fStates.remove(key);
+            if (state == null) {
+                return null;
+            }
+            subtrees = new String[state.fSubtrees.length];
+            for (int i = 0; i < subtrees.length; i++) {
+                subtrees[i] = fSubtrees.get(state.fSubtrees[i]).fSerialized;
+            }
+            fRestoredStates.put(key, state);
+            trim();
+        }
+        return deserialize(state, subtrees);
+    }
+
+    /**
+     * Releases the subtrees of a state which has been removed from the store.
+     */
+    private void release(State state) {
+        for (int i = 0; i < state.fSubtrees.length; i++) {
+            Subtree subtree = fSubtrees.get(state.fSubtrees[i]);
+            if (subtree != null && --subtree.fReferences <= 0) {
+                fSubtrees.remove(state.fSubtrees[i]);
+                fChars -= subtree.fSerialized.length();
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used states until the store is within its
+     * size bounds.
+     */
+    private void trim() {
+        trim(fRestoredStates);
+        trim(fStates);
+    }
+
+    private void trim(Map<String, State> states) {
+        Iterator<Entry<String, State>> itr = states.entrySet().iterator();
+        while (itr.hasNext() && (fStates.size() + fRestoredStates.size() > fMaxEntries || fChars > MAX_CHARS)) {
+            Entry<String, State> entry = itr.next();
+            itr.remove();
+            release(entry.getValue());
+            changed(entry.getKey());
+        }
+    }
+
+    private void changed(String key) {
+        if (fFile == null) {
+            return;
+        }
+        fChangedStates.add(key);
+        if (fSaveJob == null) {
+            fSaveJob = new Job("Viewer State Save Job") { //$NON-NLS-1$
+                @Override
+                protected IStatus run(IProgressMonitor monitor) {
+                    flush();
+                    return Status.OK_STATUS;
+                }
+            };
+            fSaveJob.setSystem(true);
+        }
+        fSaveJob.schedule(SAVE_DELAY);
+    }
+
+    private void scheduleLoad() {
+        Job job = new Job("Viewer State Load Job") { //$NON-NLS-1$
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                load();
+                return Status.OK_STATUS;
+            }
+        };
+        job.setSystem(true);
+        job.schedule();
+    }
+
+    /**
+     * Reads the state file, if not yet done.  States saved before the file
+     * has been read take precedence over the states read from the file.
+     */
+    public void load() {
+        synchronized (fFileLock) {
+            if (fLoaded) {
+                return;
+            }
+            LinkedHashMap<String, State> states = new LinkedHashMap<String, State>();
+            Map<String, String> subtrees = new HashMap<String, String>();
+            int records = 0;
+            boolean damaged = false;
+            if (fFile.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fFile)))) {
+                    if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+                        damaged = true;
+                    } else {
+                        records = readRecords(in, states, subtrees);
+                    }
+                } catch (EOFException e) {
+                    // a record was not completely written, the file is rewritten
+                    damaged = true;
+                } catch (IOException e) {
+                    damaged = true;
+                    DebugUIPlugin.log(e);
+                }
+            }
+            synchronized (this) {
+                // states read from the file are less recent than the states
+                // saved in the mean time
+                LinkedHashMap<String, State> saved = new LinkedHashMap<String, State>(fStates);
+                fStates.clear();
+                for (Entry<String, State> entry : states.entrySet()) {
+                    if (saved.containsKey(entry.getKey()) || fRestoredStates.containsKey(entry.getKey())) {
+                        continue;
+                    }
+                    State state = entry.getValue();
+                    if (!addSubtrees(state, subtrees)) {
+                        damaged = true;
+                        continue;
+                    }
+                    fStates.put(entry.getKey(), state);
+                }
+                fStates.putAll(saved);
+                fWrittenSubtrees.addAll(subtrees.keySet());
+                fFileRecords = records;
+                fCompact = damaged;
+                fLoaded = true;
+                trim();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of the state file into the given maps.
+     *
+     * @return the number of records read
+     */
+    private static int readRecords(DataInputStream in, Map<String, State> states, Map<String, String> subtrees) throws IOException {
+        int records = 0;
+        int type;
+        while ((type = in.read()) != -1) {
+            String key = in.readUTF();
+            if (type == RECORD_SUBTREE) {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                subtrees.put(key, new String(bytes, StandardCharsets.UTF_8));
+            } else if (type == RECORD_STATE) {
+                int flags = in.readInt();
+                int index = in.readInt();
+                int childCount = in.readInt();
+                String[] digests = new String[in.readInt()];
+                for (int i = 0; i < digests.length; i++) {
+                    digests[i] = in.readUTF();
+                }
+                // move the state to the end, as the most recently saved one
+                states.remove(key);
+                states.put(key, new State(flags, index, childCount, digests));
+            } else if (type == RECORD_REMOVE) {
+                states.remove(key);
+            } else {
+                throw new IOException("Invalid viewer state record type: " + type); //$NON-NLS-1$
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Adds the subtrees of a state read from the state file to the store.
+     *
+     * @return whether all subtrees of the state were found
+     */
+    private boolean addSubtrees(State state, Map<String, String> subtrees) {
+        for (int i = 0; i < state.fSubtrees.length; i++) {
+            if (!fSubtrees.containsKey(state.fSubtrees[i]) && !subtrees.containsKey(state.fSubtrees[i])) {
+                return false;
+            }
+        }
+        for (int i = 0; i < state.fSubtrees.length; i++) {
+            Subtree subtree = fSubtrees.get(state.fSubtrees[i]);
+            if (subtree == null) {
+                String serialized = subtrees.get(state.fSubtrees[i]);
+                subtree = new Subtree(serialized);
+                fSubtrees.put(state.fSubtrees[i], subtree);
+                fChars += serialized.length();
+            }
+            subtree.fReferences++;
+        }
+        return true;
+    }
+
+    /**
+     * Writes the states that have changed since the store was last written.
+     * The records of the changed states, and of their subtrees which are not
+     * yet in the file, are appended to the state file.  The file is rewritten
+     * when it contains too many obsolete records.
+     */
+    public void flush() {
+        if (fFile == null) {
+            return;
+        }
+        synchronized (fFileLock) {
+            load();
+            Map<String, State> states = new LinkedHashMap<String, State>();
+            Map<String, String> subtrees = new LinkedHashMap<String, String>();
+            boolean rewrite;
+            synchronized (this) {
+                if (fChangedStates.isEmpty() && !fCompact) {
+                    return;
+                }
+                int live = fStates.size() + fRestoredStates.size() + fSubtrees.size();
+                rewrite = fCompact || fFileRecords + fChangedStates.size() > 2 * live + MIN_OBSOLETE_RECORDS;
+                if (rewrite) {
+                    fWrittenSubtrees.clear();
+                }
+                // copy the states so that their access order is not changed
+                Map<String, State> current = new LinkedHashMap<String, State>(fRestoredStates);
+                current.putAll(fStates);
+                for (String key : rewrite ? current.keySet() : fChangedStates) {
+                    State state = current.get(key);
+                    states.put(key, state);
+                    if (state == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < state.fSubtrees.length; i++) {
+                        String digest = state.fSubtrees[i];
+                        if (fWrittenSubtrees.add(digest)) {
+                            subtrees.put(digest, fSubtrees.get(digest).fSerialized);
+                        }
+                    }
+                }
+                fChangedStates.clear();
+                fCompact = false;
+                fFileRecords = (rewrite ? 0 : fFileRecords) + states.size() + subtrees.size();
+            }
+            if (!write(states, subtrees, !rewrite)) {
+                synchronized (this) {
+                    fCompact = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes records for the given states and subtrees to the state file.
+     * A <code>null</code> state is written as a removal.
+     *
+     * @return whether the records were written
+     */
+    private boolean write(Map<String, State> states, Map<String, String> subtrees, boolean append) {
+        File dir = fFile.getParentFile();
+        if (!dir.exists() && !dir.mkdirs()) {
+            return false;
+        }
+        boolean header = !append || !fFile.exists() || fFile.length() == 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fFile, !header)))) {
+            if (header) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+            }
+            for (Entry<String, String> entry : subtrees.entrySet()) {
+                out.writeByte(RECORD_SUBTREE);
+                out.writeUTF(entry.getKey());
+                byte[] bytes = entry.getValue().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            for (Entry<String, State> entry : states.entrySet()) {
+                State state = entry.getValue();
+                if (state == null) {
+                    out.writeByte(RECORD_REMOVE);
+                    out.writeUTF(entry.getKey());
+                    continue;
+                }
+                out.writeByte(RECORD_STATE);
+                out.writeUTF(entry.getKey());
+                out.writeInt(state.fFlags);
+                out.writeInt(state.fIndex);
+                out.writeInt(state.fChildCount);
+                out.writeInt(state.fSubtrees.length);
+                for (int i = 0; i < state.fSubtrees.length; i++) {
+                    out.writeUTF(state.fSubtrees[i]);
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            DebugUIPlugin.log(e);
+            return false;
+        }
+    }
+
+    /**
+     * Serializes the subtree of a top level delta of a state.  Returns
+     * <code>null</code> if the subtree contains elements which are not
+     * encoded as mementos.
+     *
+     * @param delta delta to serialize
+     * @return serialized delta or <code>null</code>
+     */
+    static String serialize(IModelDelta delta) {
+        XMLMemento root = XMLMemento.createWriteRoot(TAG_STATE);
+        if (!serialize(delta, root)) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        try {
+            root.save(writer);
+        } catch (IOException e) {
+            DebugUIPlugin.log(e);
+            return null;
+        }
+        return writer.toString();
+    }
+
+    private static boolean serialize(IModelDelta delta, IMemento parent) {
+        if (!(delta.getElement() instanceof IMemento)) {
+            return false;
+        }
+        IMemento node = parent.createChild(TAG_NODE);
+        node.putInteger(ATTR_FLAGS, delta.getFlags());
+        node.putInteger(ATTR_INDEX, delta.getIndex());
+        node.putInteger(ATTR_CHILD_COUNT, delta.getChildCount());
+        node.createChild(TAG_ELEMENT).putMemento((IMemento) delta.getElement());
+        IModelDelta[] children = delta.getChildDeltas();
+        for (int i = 0; i < children.length; i++) {
+            if (!serialize(children[i], node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses a stored state into a new delta.  The root element of the
+     * returned delta is a place holder, to be replaced with the viewer input.
+     *
+     * @param state stored state
+     * @param subtrees serialized subtrees of the state
+     * @return new state delta or <code>null</code> if it could not be parsed
+     */
+    private static ModelDelta deserialize(State state, String[] subtrees) {
+        try {
+            ModelDelta delta = new ModelDelta(XMLMemento.createWriteRoot(TAG_STATE), state.fIndex, state.fFlags, state.fChildCount);
+            for (int i = 0; i < subtrees.length; i++) {
+                deserialize(XMLMemento.createReadRoot(new StringReader(subtrees[i])), delta);
+            }
+            return delta;
+        } catch (WorkbenchException e) {
+            DebugUIPlugin.log(e);
+            return null;
+        }
+    }
+
+    private static void deserialize(IMemento parentNode, ModelDelta parent) {
+        IMemento[] nodes = parentNode.getChildren(TAG_NODE);
+        for (int i = 0; i < nodes.length; i++) {
+            ModelDelta delta = parent.addNode(nodes[i].getChild(TAG_ELEMENT), getInt(nodes[i], ATTR_INDEX), getInt(nodes[i], ATTR_FLAGS), getInt(nodes[i], ATTR_CHILD_COUNT));
+            deserialize(nodes[i], delta);
+        }
+    }
+
+    private static int getInt(IMemento memento, String key) {
+        Integer value = memento.getInteger(key);
+        return value != null ? value.intValue() : -1;
+    }
+
+    /**
+     * Returns a key for the contents of the given element memento: its type,
+     * attributes, text data and children.  Mementos with the same contents
+     * have the same key.
+     *
+     * @param memento element memento
+     * @return key of the memento contents
+     */
+    static String getMementoKey(IMemento memento) {
+        StringBuffer buf = new StringBuffer();
+        appendMemento(memento, buf);
+        return buf.toString();
+    }
+
+    private static void appendMemento(IMemento memento, StringBuffer buf) {
+        buf.append('<').append(memento.getType());
+        String[] keys = memento.getAttributeKeys();
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            buf.append(' ').append(keys[i]).append('=').append(memento.getString(keys[i]).length()).append(':').append(memento.getString(keys[i]));
+        }
+        String text = memento.getTextData();
+        if (text != null) {
+            buf.append('#').append(text.length()).append(':').append(text);
+        }
+        IMemento[] children = memento.getChildren();
+        for (int i = 0; i < children.length; i++) {
+            appendMemento(children[i], buf);
+        }
+        buf.append('>');
+    }
+
+    /**
+     * Returns a compact, file name safe digest of the given string.
+     *
+     * @param string string to digest
+     * @return hex digest
+     */
+    static String digest(String string) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(string.getBytes(StandardCharsets.UTF_8)); //$NON-NLS-1$
+            StringBuffer buf = new StringBuffer(hash.length * 2);
+            for (int i = 0; i < hash.length; i++) {
+                buf.append(Character.forDigit((hash[i] >> 4) & 0xF, 16));
+                buf.append(Character.forDigit(hash[i] & 0xF, 16));
+            }
+            return buf.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-1 is required to be present on every Java platform
+            return Integer.toHexString(string.hashCode()) + Integer.toHexString(string.length());
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.eclipse.debug.internal.ui.viewers.model.provisional.IElementMementoPr
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IElementMementoRequest;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDeltaVisitor;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IStateUpdateListener;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.ITreeModelViewer;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
@@ -117,25 +118,6 @@ class ViewerStateTracker {
         public void cancel();
     }
 
-    /**
-     * LRU cache for viewer states
-     */
-	class LRUMap<K, V> extends LinkedHashMap<K, V> {
-        private static final long serialVersionUID = 1L;
-
-        private int fMaxSize;
-
-        LRUMap(int maxSize) {
-            super();
-            fMaxSize = maxSize;
-        }
-
-        @Override
-		protected boolean removeEldestEntry(Entry<K, V> eldest) {
-            return size() > fMaxSize;
-        }
-    }
-
     /**
      * Content provider that is using this state tracker.
      */
@@ -146,9 +128,9 @@ class ViewerStateTracker {
     }
 
     /**
-     * Map of viewer states keyed by viewer input mementos
+     * Store of viewer states keyed by viewer input mementos, created lazily.
      */
-	private Map<String, ModelDelta> fViewerStates = new LRUMap<String, ModelDelta>(20);
+    private ViewerStateStore fViewerStates = null;
 
     /**
      * Pending viewer state to be restored
@@ -215,6 +197,90 @@ class ViewerStateTracker {
      */
 	private Map<CompareRequestKey, ElementCompareRequest> fCompareRequestsInProgress = new LinkedHashMap<CompareRequestKey, ElementCompareRequest>();
 
+    /**
+     * Key of the compare requests in a batch: the element to compare and the
+     * key of the memento's contents.
+     */
+    private static class CompareBatchKey {
+
+        CompareBatchKey(Object element, IMemento memento) {
+            fElement = element;
+            fMementoKey = ViewerStateStore.getMementoKey(memento);
+        }
+
+        Object fElement;
+        String fMementoKey;
+
+        @Override
+		public boolean equals(Object obj) {
+            if (obj instanceof CompareBatchKey) {
+                CompareBatchKey key = (CompareBatchKey) obj;
+                return key.fElement.equals(fElement) && key.fMementoKey.equals(fMementoKey);
+            }
+            return false;
+        }
+
+        @Override
+		public int hashCode() {
+            return fElement.hashCode() + fMementoKey.hashCode();
+        }
+    }
+
+    /**
+     * Compare requests of a batch which compare the same element with equal
+     * mementos.  Only the first request is sent to the memento provider, its
+     * result is applied to the duplicates.
+     */
+    private static class CompareGroup {
+
+        CompareGroup(IElementMementoProvider provider, ElementCompareRequest request) {
+            fProvider = provider;
+            fRequest = request;
+        }
+
+        IElementMementoProvider fProvider;
+        ElementCompareRequest fRequest;
+        List<ElementCompareRequest> fDuplicates = new ArrayList<ElementCompareRequest>(1);
+    }
+
+    /**
+     * Compare requests collected while a compare batch is in progress, grouped
+     * by the memento provider which is to perform them, and by element and
+     * memento key.
+     */
+	private Map<IElementMementoProvider, Map<CompareBatchKey, CompareGroup>> fBatchedCompareRequests = new LinkedHashMap<IElementMementoProvider, Map<CompareBatchKey, CompareGroup>>();
+
+    /**
+     * Groups with duplicate requests whose first request is running, keyed by
+     * that request.
+     */
+	private Map<ElementCompareRequest, CompareGroup> fCompareGroups = new HashMap<ElementCompareRequest, CompareGroup>();
+
+    /**
+     * Nesting depth of compare batches.
+     */
+    private int fCompareBatchDepth = 0;
+
+
+    /**
+     * Returns the store of saved viewer states.  Viewers which are shown in a
+     * workbench part share a persistent store with other viewers of the same
+     * presentation context, other viewers keep their states in memory only.
+     *
+     * @return the viewer state store
+     */
+    private ViewerStateStore getViewerStates() {
+        if (fViewerStates == null) {
+            IPresentationContext context = fContentProvider.getPresentationContext();
+            if (context != null && context.getPart() != null) {
+                fViewerStates = ViewerStateStore.getPersistentStore(context.getId());
+            }
+            if (fViewerStates == null) {
+                fViewerStates = new ViewerStateStore();
+            }
+        }
+        return fViewerStates;
+    }
 
     /**
      * Cancels pending updates.
@@ -229,6 +295,7 @@ class ViewerStateTracker {
 			ecr.cancel();
         }
         fCompareRequestsInProgress.clear();
+        fCompareGroups.clear();
 
         if (fPendingSetTopItem != null) {
             fPendingSetTopItem.dispose();
@@ -247,6 +314,9 @@ class ViewerStateTracker {
         fPendingState = null;
         final IElementMementoProvider defaultProvider = ViewerAdapterService.getMementoProvider(input);
         if (defaultProvider != null) {
+            // a persistent store starts reading its states while the input is encoded
+            getViewerStates();
+
             // build a model delta representing expansion and selection state
             final ModelDelta delta = new ModelDelta(input, IModelDelta.NO_CHANGE);
             final XMLMemento inputMemento = XMLMemento.createWriteRoot("VIEWER_INPUT_MEMENTO"); //$NON-NLS-1$
@@ -277,8 +347,7 @@ class ViewerStateTracker {
                         try {
                             keyMemento.save(writer);
                             final String keyMementoString = writer.toString();
-                            ModelDelta stateDelta = fViewerStates.get(keyMementoString);
-                            if (stateDelta != null) {
+                            if (getViewerStates().contains(keyMementoString)) {
                                 if (DebugUIPlugin.DEBUG_STATE_SAVE_RESTORE && DebugUIPlugin.DEBUG_TEST_PRESENTATION_ID(fContentProvider.getPresentationContext()))  {
                                 	DebugUIPlugin.trace("STATE RESTORE INPUT COMARE ENDED : " + fRequest + " - MATCHING STATE FOUND"); //$NON-NLS-1$ //$NON-NLS-2$
                                 }
@@ -289,7 +358,7 @@ class ViewerStateTracker {
                                     @Override
 									public void run() {
                                         if (!fContentProvider.isDisposed() && input.equals(fContentProvider.getViewer().getInput())) {
-                                            ModelDelta stateDelta2 = fViewerStates.remove(keyMementoString);
+                                            ModelDelta stateDelta2 = getViewerStates().remove(keyMementoString);
                                             if (stateDelta2 != null) {
                                                 if (DebugUIPlugin.DEBUG_STATE_SAVE_RESTORE && DebugUIPlugin.DEBUG_TEST_PRESENTATION_ID(fContentProvider.getPresentationContext()))  {
                                                 	DebugUIPlugin.trace("STATE RESTORE BEGINS"); //$NON-NLS-1$
@@ -514,6 +583,7 @@ class ViewerStateTracker {
             itr.next().cancel();
             itr.remove();
         }
+        fCompareGroups.clear();
 
         IElementMementoProvider stateProvider = ViewerAdapterService.getMementoProvider(input);
         if (stateProvider != null) {
@@ -735,7 +805,7 @@ class ViewerStateTracker {
                         StringWriter writer = new StringWriter();
                         try {
                             keyMemento.save(writer);
-                            fViewerStates.put(writer.toString(), rootDelta);
+                            getViewerStates().put(writer.toString(), rootDelta);
                         } catch (IOException e) {
                             DebugUIPlugin.log(e);
                         }
@@ -1053,7 +1123,7 @@ class ViewerStateTracker {
                                 	DebugUIPlugin.trace("\tSTATE BEGIN: " + compareRequest); //$NON-NLS-1$
                                 }
                                 notifyStateUpdate(element, TreeModelContentProvider.UPDATE_BEGINS, compareRequest);
-                                provider.compareElements(new IElementCompareRequest[] { compareRequest });
+                                addCompareRequest(provider, compareRequest);
                             }
                         }
                     } else if (element.equals(potentialMatch)) {
@@ -1069,16 +1139,87 @@ class ViewerStateTracker {
             }
         };
 
+        beginCompareBatch();
         try {
             fInStateRestore = true;
             fPendingState.accept(visitor);
         }
         finally {
             fInStateRestore = false;
+            endCompareBatch();
         }
         checkIfRestoreComplete();
     }
 
+    /**
+     * Starts collecting compare requests instead of sending them to their
+     * memento providers right away.  Batches may be nested, the requests are
+     * sent when the outermost batch ends.
+     */
+    void beginCompareBatch() {
+        fCompareBatchDepth++;
+    }
+
+    /**
+     * Ends a batch started with {@link #beginCompareBatch()}.  When the
+     * outermost batch ends, all collected compare requests are sent to their
+     * memento providers, with one call per provider.
+     */
+    void endCompareBatch() {
+        fCompareBatchDepth--;
+        if (fCompareBatchDepth == 0 && !fBatchedCompareRequests.isEmpty()) {
+			Map<IElementMementoProvider, Map<CompareBatchKey, CompareGroup>> batch = fBatchedCompareRequests;
+			fBatchedCompareRequests = new LinkedHashMap<IElementMementoProvider, Map<CompareBatchKey, CompareGroup>>();
+			for (Entry<IElementMementoProvider, Map<CompareBatchKey, CompareGroup>> entry : batch.entrySet()) {
+				List<IElementCompareRequest> reqs = new ArrayList<IElementCompareRequest>(entry.getValue().size());
+				for (CompareGroup group : entry.getValue().values()) {
+					reqs.add(group.fRequest);
+					if (!group.fDuplicates.isEmpty()) {
+						fCompareGroups.put(group.fRequest, group);
+					}
+				}
+				entry.getKey().compareElements(reqs.toArray(new IElementCompareRequest[reqs.size()]));
+            }
+        }
+    }
+
+    private void addCompareRequest(IElementMementoProvider provider, ElementCompareRequest request) {
+		Map<CompareBatchKey, CompareGroup> groups = fBatchedCompareRequests.get(provider);
+        if (groups == null) {
+			groups = new LinkedHashMap<CompareBatchKey, CompareGroup>();
+            fBatchedCompareRequests.put(provider, groups);
+        }
+        CompareBatchKey key = new CompareBatchKey(request.getElement(), request.getMemento());
+        CompareGroup group = groups.get(key);
+        if (group == null) {
+            groups.put(key, new CompareGroup(provider, request));
+        } else {
+            group.fDuplicates.add(request);
+        }
+    }
+
+    /**
+     * Sends the duplicates of a canceled compare request, which have not been
+     * canceled themselves, to their memento provider.
+     *
+     * @param request canceled compare request
+     */
+    private void compareDuplicates(ElementCompareRequest request) {
+        CompareGroup group = fCompareGroups.remove(request);
+        if (group == null) {
+            return;
+        }
+		List<IElementCompareRequest> reqs = new ArrayList<IElementCompareRequest>(group.fDuplicates.size());
+        for (ElementCompareRequest duplicate : group.fDuplicates) {
+            if (!duplicate.isCanceled()) {
+                reqs.add(duplicate);
+            }
+        }
+        if (!reqs.isEmpty()) {
+            group.fProvider.compareElements(reqs.toArray(new IElementCompareRequest[reqs.size()]));
+        }
+    }
+
     /**
      * Checks whether restoring pending state is already complete.
      */
@@ -1421,11 +1562,16 @@ class ViewerStateTracker {
         // empty, so in most cases the code below does not do anything.
         // Instead doRestore() is called when various updates complete.
         int count = fContentProvider.getViewer().getChildCount(TreePath.EMPTY);
-        for (int i = 0; i < count; i++) {
-            Object data = fContentProvider.getViewer().getChildElement(TreePath.EMPTY, i);
-            if (data != null) {
-                restorePendingStateOnUpdate(new TreePath(new Object[]{data}), i, false, false, false);
+        beginCompareBatch();
+        try {
+            for (int i = 0; i < count; i++) {
+                Object data = fContentProvider.getViewer().getChildElement(TreePath.EMPTY, i);
+                if (data != null) {
+                    restorePendingStateOnUpdate(new TreePath(new Object[]{data}), i, false, false, false);
+                }
             }
+        } finally {
+            endCompareBatch();
         }
 
     }
@@ -1501,14 +1647,19 @@ class ViewerStateTracker {
      * @param path Path of element to cancel updates for.
      */
     void cancelStateSubtreeUpdates(TreePath path) {
+		List<ElementCompareRequest> canceled = new ArrayList<ElementCompareRequest>();
 		for (Iterator<CompareRequestKey> itr = fCompareRequestsInProgress.keySet().iterator(); itr.hasNext();) {
 			CompareRequestKey key = itr.next();
             if (key.fPath.startsWith(path, null)) {
                 ElementCompareRequest compareRequest = fCompareRequestsInProgress.get(key);
                 compareRequest.cancel();
                 itr.remove();
+                canceled.add(compareRequest);
             }
         }
+        for (ElementCompareRequest compareRequest : canceled) {
+            compareDuplicates(compareRequest);
+        }
     }
 
     void compareFinished(ElementCompareRequest request, ModelDelta delta) {
@@ -1533,6 +1684,17 @@ class ViewerStateTracker {
                 }
             }
         }
+        CompareGroup group = fCompareGroups.remove(request);
+        if (group != null) {
+            // apply the result to the requests comparing the same element with an equal memento
+            for (ElementCompareRequest duplicate : group.fDuplicates) {
+                duplicate.setEqual(request.isEqual());
+                if (request.isCanceled()) {
+                    duplicate.cancel();
+                }
+                compareFinished(duplicate, duplicate.getDelta());
+            }
+        }
         checkIfRestoreComplete();
     }
 
@@ -9,42 +9,40 @@
  *     IBM Corporation - initial implementation
  *     Pawel Piech (Wind River) - added a breadcrumb mode to Debug view (Bug 252677)
  *     Wind River Systems - refactored on top of VirtualTreeModelViewer
+ *     IBM Corporation - walk the model in a background thread
  *******************************************************************************/
 package org.eclipse.debug.internal.ui.viewers.model;
 
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.debug.internal.core.IInternalDebugCoreConstants;
 import org.eclipse.debug.internal.ui.DebugUIPlugin;
 import org.eclipse.debug.internal.ui.IDebugHelpContextIds;
 import org.eclipse.debug.internal.ui.actions.ActionMessages;
 import org.eclipse.debug.internal.ui.viewers.FindElementDialog;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.IChildrenUpdate;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.ILabelUpdate;
+import org.eclipse.debug.internal.ui.viewers.model.HeadlessTreeModelWalker.IElementCollector;
+import org.eclipse.debug.internal.ui.viewers.model.HeadlessTreeModelWalker.WalkedElement;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDeltaVisitor;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdate;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.IViewerUpdateListener;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.TreeModelViewer;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.VirtualItem;
-import org.eclipse.debug.internal.ui.viewers.model.provisional.VirtualTreeModelViewer;
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.dialogs.ProgressMonitorDialog;
 import org.eclipse.jface.operation.IRunnableWithProgress;
+import org.eclipse.jface.resource.ImageDescriptor;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.resource.LocalResourceManager;
+import org.eclipse.jface.resource.ResourceManager;
 import org.eclipse.jface.viewers.ILabelProvider;
 import org.eclipse.jface.viewers.ISelection;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.LabelProvider;
 import org.eclipse.jface.viewers.TreePath;
 import org.eclipse.jface.window.Window;
-import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.ui.IWorkbenchCommandConstants;
 import org.eclipse.ui.PlatformUI;
@@ -61,90 +59,25 @@ public class VirtualFindAction extends Action implements IUpdate {
 
     private TreeModelViewer fClientViewer;
 
-	private class VirtualViewerListener implements IViewerUpdateListener, ILabelUpdateListener {
-
-	    private boolean fViewerUpdatesComplete = false;
-	    private boolean fLabelUpdatesComplete = false;
-	    private IProgressMonitor fProgressMonitor;
-	    private int fRemainingUpdatesCount = 0;
-
-        @Override
-		public void labelUpdateStarted(ILabelUpdate update) {}
-        @Override
-		public void labelUpdateComplete(ILabelUpdate update) {
-            incrementProgress(1);
-        }
-	    @Override
-		public void labelUpdatesBegin() {
-            fLabelUpdatesComplete = false;
-	    }
-	    @Override
-		public void labelUpdatesComplete() {
-            fLabelUpdatesComplete = true;
-            completeProgress();
-	    }
-
-        @Override
-		public void updateStarted(IViewerUpdate update) {}
-	    @Override
-		public void updateComplete(IViewerUpdate update) {
-	        if (update instanceof IChildrenUpdate) {
-	            incrementProgress(((IChildrenUpdate)update).getLength());
-	        }
-	    }
-        @Override
-		public void viewerUpdatesBegin() {
-            fViewerUpdatesComplete = false;
-        }
-        @Override
-		public void viewerUpdatesComplete() {
-            fViewerUpdatesComplete = true;
-            completeProgress();
-        }
-
-        private void completeProgress() {
-            IProgressMonitor pm;
-            synchronized (this) {
-                pm = fProgressMonitor;
-            }
-            if (pm != null && fLabelUpdatesComplete && fViewerUpdatesComplete) {
-                pm.done();
-            }
-        }
-
-        private void incrementProgress(int count) {
-            IProgressMonitor pm;
-            synchronized (this) {
-                pm = fProgressMonitor;
-                fRemainingUpdatesCount -= count;
-            }
-            if (pm != null && fLabelUpdatesComplete && fViewerUpdatesComplete) {
-                pm.worked(count);
-            }
-        }
-
-	}
-
 	private static class FindLabelProvider extends LabelProvider {
-		private VirtualTreeModelViewer fVirtualViewer;
-		private Map<VirtualItem, String> fTextCache = new HashMap<VirtualItem, String>();
-
-		public FindLabelProvider(VirtualTreeModelViewer viewer, List<VirtualItem> items) {
-		    fVirtualViewer = viewer;
-		    for (int i = 0; i < items.size(); i++) {
-        		VirtualItem item = items.get(i);
-		        fTextCache.put(item, fVirtualViewer.getText(item, 0));
-		    }
-		}
+		private ResourceManager fImageCache = new LocalResourceManager(JFaceResources.getResources());
 
 		@Override
 		public Image getImage(Object element) {
-		    return fVirtualViewer.getImage((VirtualItem) element, 0);
+			ImageDescriptor descriptor = ((WalkedElement) element).getImageDescriptor();
+			return descriptor != null ? fImageCache.createImage(descriptor) : null;
 		}
 
 		@Override
 		public String getText(Object element) {
-		    return fTextCache.get(element);
+			String text = ((WalkedElement) element).getLabels()[0];
+			return text != null ? text : IInternalDebugCoreConstants.EMPTY_STRING;
+		}
+
+		@Override
+		public void dispose() {
+			fImageCache.dispose();
+			super.dispose();
 		}
 	}
 
@@ -158,32 +91,12 @@ public class VirtualFindAction extends Action implements IUpdate {
 		fClientViewer = viewer;
 	}
 
-	private VirtualTreeModelViewer initVirtualViewer(TreeModelViewer clientViewer, VirtualViewerListener listener) {
-        Object input = clientViewer.getInput();
-        ModelDelta stateDelta = new ModelDelta(input, IModelDelta.NO_CHANGE);
-        clientViewer.saveElementState(TreePath.EMPTY, stateDelta, IModelDelta.EXPAND);
-        listener.fRemainingUpdatesCount = calcUpdatesCount(stateDelta);
-        VirtualTreeModelViewer fVirtualViewer = new VirtualTreeModelViewer(
-            clientViewer.getDisplay(),
-            SWT.NONE,
-            clientViewer.getPresentationContext());
-        fVirtualViewer.setFilters(clientViewer.getFilters());
-        fVirtualViewer.addViewerUpdateListener(listener);
-        fVirtualViewer.addLabelUpdateListener(listener);
-        String[] columns = clientViewer.getPresentationContext().getColumns();
-        fVirtualViewer.setInput(input);
-        if (fVirtualViewer.canToggleColumns()) {
-            fVirtualViewer.setShowColumns(clientViewer.isShowColumns());
-            fVirtualViewer.setVisibleColumns(columns);
-        }
-        fVirtualViewer.updateViewer(stateDelta);
-        return fVirtualViewer;
-	}
-
 	@Override
 	public void run() {
-	    final VirtualViewerListener listener = new VirtualViewerListener();
-	    VirtualTreeModelViewer virtualViewer = initVirtualViewer(fClientViewer, listener);
+		// The walker calls the providers in the UI thread, as the viewer does,
+		// while the forked thread of the progress dialog waits for the walk.
+		final HeadlessTreeModelWalker walker = new HeadlessTreeModelWalker(fClientViewer);
+		final List<WalkedElement> elements = new ArrayList<WalkedElement>();
 
 		ProgressMonitorDialog dialog = new TimeTriggeredProgressMonitorDialog(fClientViewer.getControl().getShell(), 500);
 		final IProgressMonitor monitor = dialog.getProgressMonitor();
@@ -195,17 +108,15 @@ public class VirtualFindAction extends Action implements IUpdate {
 			    new IRunnableWithProgress() {
     		        @Override
 					public void run(final IProgressMonitor m) throws InvocationTargetException, InterruptedException {
-    		            synchronized(listener) {
-    		                listener.fProgressMonitor = m;
-    		                listener.fProgressMonitor.beginTask(DebugUIPlugin.removeAccelerators(getText()), listener.fRemainingUpdatesCount);
-    		            }
-
-    		            while ((!listener.fLabelUpdatesComplete || !listener.fViewerUpdatesComplete) && !listener.fProgressMonitor.isCanceled()) {
-    		                Thread.sleep(1);
-    		            }
-    		            synchronized(listener) {
-    		                listener.fProgressMonitor = null;
-    		            }
+    		            m.beginTask(DebugUIPlugin.removeAccelerators(getText()), IProgressMonitor.UNKNOWN);
+    		            walker.walk(new IElementCollector() {
+    		                @Override
+    		                public boolean elementFound(WalkedElement element) {
+    		                    elements.add(element);
+    		                    return true;
+    		                }
+    		            }, m);
+    		            m.done();
     		        }
     		    });
 		} catch (InvocationTargetException e) {
@@ -215,92 +126,49 @@ public class VirtualFindAction extends Action implements IUpdate {
 			return;
 		}
 
-		VirtualItem root = virtualViewer.getTree();
 		if (!monitor.isCanceled()) {
-			List<VirtualItem> list = new ArrayList<VirtualItem>();
-			collectAllChildren(root, list);
-			FindLabelProvider labelProvider = new FindLabelProvider(virtualViewer, list);
-			VirtualItem result = performFind(list, labelProvider);
-			if (result != null) {
-			    setSelectionToClient(virtualViewer, labelProvider, result);
-			}
-		}
-
-        virtualViewer.removeLabelUpdateListener(listener);
-        virtualViewer.removeViewerUpdateListener(listener);
-        virtualViewer.dispose();
-	}
-
-	private int calcUpdatesCount(IModelDelta stateDelta) {
-	    final int[] count = new int[] {0};
-	    stateDelta.accept( new IModelDeltaVisitor() {
-            @Override
-			public boolean visit(IModelDelta delta, int depth) {
-                if ((delta.getFlags() & IModelDelta.EXPAND) != 0) {
-                    count[0] += delta.getChildCount();
-                    return true;
-                }
-                return false;
-            }
-        });
-
-	    // Double it to account for separate element and label update ticks.
-	    return count[0] * 2;
-	}
-
-	private void collectAllChildren(VirtualItem element, List<VirtualItem> collect) {
-		VirtualItem[] children = element.getItems();
-		if (children != null) {
-			for (int i = 0; i < children.length; i++) {
-				if (!children[i].needsLabelUpdate()) {
-					collect.add(children[i]);
-					collectAllChildren(children[i], collect);
+			FindLabelProvider labelProvider = new FindLabelProvider();
+			try {
+				WalkedElement result = performFind(elements, labelProvider);
+				if (result != null) {
+					setSelectionToClient(labelProvider, result);
 				}
+			} finally {
+				labelProvider.dispose();
 			}
 		}
 	}
 
-	protected VirtualItem performFind(List<VirtualItem> items, FindLabelProvider labelProvider) {
+	protected WalkedElement performFind(List<WalkedElement> elements, ILabelProvider labelProvider) {
 		FindElementDialog dialog = new FindElementDialog(
 		    fClientViewer.getControl().getShell(),
 		    labelProvider,
-		    items.toArray());
+		    elements.toArray());
 		dialog.setTitle(ActionMessages.FindDialog_3);
 		dialog.setMessage(ActionMessages.FindDialog_1);
 		if (dialog.open() == Window.OK) {
-			Object[] elements = dialog.getResult();
-			if (elements.length == 1) {
-			    return (VirtualItem)elements[0];
+			Object[] result = dialog.getResult();
+			if (result.length == 1) {
+			    return (WalkedElement) result[0];
 			}
 		}
 		return null;
 	}
 
-	protected void setSelectionToClient(VirtualTreeModelViewer virtualViewer, ILabelProvider labelProvider, VirtualItem findItem) {
-        virtualViewer.getTree().setSelection(new VirtualItem[] { findItem } );
-        ModelDelta stateDelta = new ModelDelta(virtualViewer.getInput(), IModelDelta.NO_CHANGE);
-        virtualViewer.saveElementState(TreePath.EMPTY, stateDelta, IModelDelta.SELECT);
-        // Set the force flag to all select delta in order to override model's selection policy.
-        stateDelta.accept(new IModelDeltaVisitor() {
-            @Override
-			public boolean visit(IModelDelta delta, int depth) {
-                if ((delta.getFlags() & IModelDelta.SELECT) != 0) {
-                    ((ModelDelta)delta).setFlags(delta.getFlags() | IModelDelta.FORCE);
-                }
-                return true;
-            }
-        });
+	protected void setSelectionToClient(ILabelProvider labelProvider, WalkedElement findElement) {
+        // Set the force flag to the select delta in order to override model's selection policy.
+        ModelDelta stateDelta = findElement.createDelta(fClientViewer.getInput(), IModelDelta.SELECT | IModelDelta.FORCE);
         fClientViewer.updateViewer(stateDelta);
 
         ISelection selection = fClientViewer.getSelection();
         if (!selection.isEmpty() &&
             selection instanceof IStructuredSelection &&
-            ((IStructuredSelection)selection).getFirstElement().equals(findItem.getData()) ) {
+            ((IStructuredSelection)selection).getFirstElement().equals(findElement.getElement()) ) {
         } else {
             DebugUIPlugin.errorDialog(
                 fClientViewer.getControl().getShell(),
                 ActionMessages.VirtualFindAction_0,
- MessageFormat.format(ActionMessages.VirtualFindAction_1, new Object[] { labelProvider.getText(findItem) }),
+ MessageFormat.format(ActionMessages.VirtualFindAction_1, new Object[] { labelProvider.getText(findElement) }),
                 new Status(IStatus.ERROR, DebugUIPlugin.getUniqueIdentifier(), ActionMessages.VirtualFindAction_1));
         }
 	}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2011 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -156,13 +156,17 @@ public abstract class DebugEventHandler {
 	}
 
 	/**
-	 * Fires the given delta, unless this handler has been disposed.
+	 * Fires the given delta, unless this handler has been disposed. Deltas
+	 * fired through an {@link EventHandlerModelProxy} may be merged with other
+	 * deltas fired shortly after.
 	 *
 	 * @param delta the delta to fire in the backing model proxy
 	 */
 	protected void fireDelta(IModelDelta delta) {
 		AbstractModelProxy modelProxy = getModelProxy();
-		if (modelProxy != null) {
+		if (modelProxy instanceof EventHandlerModelProxy) {
+			((EventHandlerModelProxy) modelProxy).postModelChanged(delta);
+		} else if (modelProxy != null) {
 			modelProxy.fireModelChanged(delta);
 		}
 	}
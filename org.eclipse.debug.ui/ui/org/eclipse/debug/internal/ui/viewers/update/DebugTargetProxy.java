@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2005, 2009 IBM Corporation and others.
+ *  Copyright (c) 2005, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -20,7 +20,11 @@ import org.eclipse.debug.core.model.IDebugElement;
 import org.eclipse.debug.core.model.IDebugTarget;
 import org.eclipse.debug.core.model.IStackFrame;
 import org.eclipse.debug.core.model.IThread;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.model.elements.ThreadRanges;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroup;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
 import org.eclipse.jface.viewers.Viewer;
 
@@ -62,6 +66,15 @@ public class DebugTargetProxy extends EventHandlerModelProxy {
         return false;
     }
 
+    /*
+     * Threads of a target often change state together (resume all, suspend
+     * all), merge their deltas.
+     */
+    @Override
+	protected boolean isDeltaAggregationEnabled() {
+		return true;
+	}
+
     /* (non-Javadoc)
      * @see org.eclipse.debug.internal.ui.viewers.update.EventHandlerModelProxy#createEventHandlers()
      */
@@ -139,7 +152,23 @@ public class DebugTargetProxy extends EventHandlerModelProxy {
                     if (frame != null) {
                         ModelDelta delta = new ModelDelta(manager, IModelDelta.NO_CHANGE);
                         ModelDelta node = delta.addNode(launch, launchIndex, IModelDelta.NO_CHANGE, target.getLaunch().getChildren().length);
-                        node = node.addNode(target, targetIndex, IModelDelta.NO_CHANGE, threads.length);
+                        IPresentationContext context = getPresentationContext();
+                        if (context == null) {
+                            return null;
+                        }
+                        int stateMask = ThreadRanges.getStateMask(context);
+                        String namePattern = ThreadRanges.getNamePattern(context);
+                        if (ThreadRanges.isGroupedByState(context)) {
+                            ThreadStateGroup group = ThreadStateGroup.getGroup(chosen);
+                            node = node.addNode(target, targetIndex, IModelDelta.NO_CHANGE, ThreadStateGroup.getGroups(target, context).length);
+                            node = node.addNode(group, group.getIndex(context), IModelDelta.NO_CHANGE | IModelDelta.EXPAND, -1);
+                            threadIndex = ThreadRanges.indexOf(target, chosen, stateMask & group.getState(), namePattern);
+                        } else if (stateMask != IThreadRangeProvider.ALL || namePattern != null) {
+                            node = node.addNode(target, targetIndex, IModelDelta.NO_CHANGE, ThreadRanges.getThreadCount(target, stateMask, namePattern));
+                            threadIndex = ThreadRanges.indexOf(target, chosen, stateMask, namePattern);
+                        } else {
+                            node = node.addNode(target, targetIndex, IModelDelta.NO_CHANGE, threads.length);
+                        }
                         node = node.addNode(chosen, threadIndex, IModelDelta.NO_CHANGE | IModelDelta.EXPAND, chosen.getStackFrames().length);
                         node = node.addNode(frame, 0, IModelDelta.NO_CHANGE | IModelDelta.SELECT, 0);
                         return delta;
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,29 +12,55 @@ package org.eclipse.debug.internal.ui.viewers.update;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugPlugin;
 import org.eclipse.debug.core.IDebugEventSetListener;
+import org.eclipse.debug.internal.ui.DebugUIPlugin;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
 import org.eclipse.debug.internal.ui.viewers.provisional.AbstractModelProxy;
+import org.eclipse.debug.internal.ui.viewers.update.ModelProxyScheduler.ScheduledTask;
 
 /**
  * @since 3.2
  */
 public abstract class EventHandlerModelProxy extends AbstractModelProxy implements IDebugEventSetListener {
 
+    /**
+     * Time in milliseconds after which a step or evaluation that did not
+     * suspend is reported as a suspend timeout.
+     */
+    private static final long SUSPEND_TIMEOUT = 500;
+
+    /**
+     * Time in milliseconds during which deltas fired by event handlers are
+     * merged into a single delta, when delta aggregation is enabled.
+     */
+    private static final long DELTA_FRAME_BUDGET = 16;
+
     /**
      * Map of elements to timer tasks
      */
 	private Map<Object, PendingSuspendTask> fTimerTasks = new HashMap<Object, PendingSuspendTask>();
 
     /**
-     * Timer for timer tasks
+     * Pending deltas fired by the event handlers, or <code>null</code> if
+     * delta aggregation is not enabled.
      */
-    private Timer fTimer = new Timer(true);
+    private ModelDeltaAggregator fPendingDeltas;
+
+    /**
+     * Task that fires the pending deltas
+     */
+    private ScheduledTask fFlushTask;
+
+    /**
+     * Lock held while firing deltas of event handlers, so that pending deltas
+     * are fired before the deltas that follow them.
+     */
+    private final Object fFireLock = new Object();
 
     /**
      * Map of event source to resume events with a pending suspend that timed
@@ -51,12 +77,14 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
      * Task used to update an element that resumed for a step or evaluation that
      * took too long to suspend.
      */
-    private class PendingSuspendTask extends TimerTask {
+    private class PendingSuspendTask implements Runnable {
 
         private DebugEvent fEvent;
 
         private DebugEventHandler fHandler;
 
+        private ScheduledTask fScheduledTask;
+
         /**
          * Resume event for which there is a pending suspend.
          *
@@ -68,13 +96,15 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
             fEvent = resume;
         }
 
-        /*
-         * (non-Javadoc)
-         *
-         * @see java.util.TimerTask#run()
-         */
         @Override
 		public void run() {
+            synchronized (EventHandlerModelProxy.this) {
+                if (fTimerTasks.get(fEvent.getSource()) != this) {
+                    // suspended, resumed again or disposed meanwhile
+                    return;
+                }
+                fTimerTasks.remove(fEvent.getSource());
+            }
             synchronized (fPendingSuspends) {
                 fPendingSuspends.put(fEvent.getSource(), fEvent);
             }
@@ -93,8 +123,17 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
     @Override
 	public synchronized void dispose() {
     	super.dispose();
-        fTimer.cancel();
+        for (PendingSuspendTask task : fTimerTasks.values()) {
+            task.fScheduledTask.cancel();
+        }
         fTimerTasks.clear();
+        if (fFlushTask != null) {
+            fFlushTask.cancel();
+            fFlushTask = null;
+        }
+        if (fPendingDeltas != null) {
+            fPendingDeltas.remove();
+        }
         DebugPlugin.getDefault().removeDebugEventListener(this);
         for (int i = 0; i < fHandlers.length; i++) {
             DebugEventHandler handler = fHandlers[i];
@@ -105,6 +144,11 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
     @Override
 	public void init(IPresentationContext context) {
     	super.init(context);
+        if (isDeltaAggregationEnabled()) {
+            synchronized (this) {
+                fPendingDeltas = new ModelDeltaAggregator();
+            }
+        }
         DebugPlugin.getDefault().addDebugEventListener(this);
         fHandlers = createEventHandlers();
     }
@@ -190,9 +234,9 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
     protected void dispatchSuspend(DebugEventHandler handler, DebugEvent event) {
         // stop timer, if any
         synchronized (this) {
-            TimerTask task = fTimerTasks.remove(event.getSource());
+            PendingSuspendTask task = fTimerTasks.remove(event.getSource());
             if (task != null) {
-                task.cancel();
+                task.fScheduledTask.cancel();
             }
         }
         DebugEvent resume = null;
@@ -221,8 +265,11 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
         	synchronized (this) {
         		if (!isDisposed()) {
                     PendingSuspendTask task = new PendingSuspendTask(handler, event);
-                    fTimerTasks.put(event.getSource(), task);
-                    fTimer.schedule(task, 500);
+                    task.fScheduledTask = ModelProxyScheduler.getDefault().schedule(task, SUSPEND_TIMEOUT);
+                    PendingSuspendTask previous = fTimerTasks.put(event.getSource(), task);
+                    if (previous != null) {
+                        previous.fScheduledTask.cancel();
+                    }
         		}
 			}
         	if (!isDisposed()) {
@@ -262,6 +309,88 @@ public abstract class EventHandlerModelProxy extends AbstractModelProxy implemen
         handler.handleSuspendTimeout(resume);
     }
 
+    /**
+     * Returns whether deltas fired by the event handlers of this proxy are
+     * merged for a short period of time before they are sent to the viewer.
+     * Proxies for elements with many children that change state together
+     * (like the threads of a debug target) should enable aggregation, so a
+     * resume or suspend of all threads results in a few deltas rather than
+     * one per thread. Subclasses may override, default is <code>false</code>.
+     *
+     * @return whether deltas of event handlers are aggregated
+     * @since 3.12
+     */
+    protected boolean isDeltaAggregationEnabled() {
+        return false;
+    }
+
+    /**
+     * Fires the given delta of an event handler. If delta aggregation is
+     * enabled, the delta is merged with other deltas fired during the frame
+     * budget, otherwise it is fired immediately.
+     *
+     * @param delta delta to fire
+     * @since 3.12
+     */
+    protected void postModelChanged(IModelDelta delta) {
+        synchronized (fFireLock) {
+            IModelDelta root = getRootDelta(delta);
+            ModelDelta pending = null;
+            boolean queued = false;
+            synchronized (this) {
+                if (fPendingDeltas != null && !isDisposed()) {
+                    if (!fPendingDeltas.canMerge(root)) {
+                        // fire in order: the pending deltas first, then the new one
+                        pending = fPendingDeltas.remove();
+                        if (fFlushTask != null) {
+                            fFlushTask.cancel();
+                            fFlushTask = null;
+                        }
+                    }
+                    queued = fPendingDeltas.add(root);
+                    if (queued && fFlushTask == null) {
+                        fFlushTask = ModelProxyScheduler.getDefault().schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                flushPendingDeltas();
+                            }
+                        }, DELTA_FRAME_BUDGET);
+                    }
+                }
+            }
+            if (pending != null) {
+                fireModelChanged(pending);
+            }
+            if (!queued) {
+                fireModelChanged(root);
+            }
+        }
+    }
+
+    /**
+     * Fires the deltas merged so far.
+     */
+    private void flushPendingDeltas() {
+        synchronized (fFireLock) {
+            ModelDelta pending = null;
+            int count = 0;
+            synchronized (this) {
+                fFlushTask = null;
+                if (fPendingDeltas == null || isDisposed()) {
+                    return;
+                }
+                count = fPendingDeltas.getMergeCount();
+                pending = fPendingDeltas.remove();
+            }
+            if (pending != null) {
+                if (DebugUIPlugin.DEBUG_DELTAS && DebugUIPlugin.DEBUG_TEST_PRESENTATION_ID(getPresentationContext())) {
+                    DebugUIPlugin.trace("AGGREGATED " + count + " DELTAS"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                fireModelChanged(pending);
+            }
+        }
+    }
+
     /**
      * Returns the index of the given element in the list or -1 if
      * not present.
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.viewers.update;
+
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
+
+/**
+ * Merges model deltas fired in quick succession into a single delta tree.
+ * <p>
+ * Only deltas that describe updates of existing elements are merged. Deltas
+ * that add, remove, insert, replace, install or uninstall elements change the
+ * indexes of their siblings, so they are never merged and end the current
+ * aggregate. When a merged delta selects an element, selections of the
+ * pending delta are dropped so the last selection wins, as it would have if
+ * the deltas were fired one by one.
+ * </p>
+ *
+ * @since 3.12
+ */
+public class ModelDeltaAggregator {
+
+	/**
+	 * Flags of deltas that are not merged.
+	 */
+	private static final int STRUCTURAL_FLAGS = IModelDelta.ADDED | IModelDelta.REMOVED | IModelDelta.INSERTED | IModelDelta.REPLACED | IModelDelta.INSTALL | IModelDelta.UNINSTALL;
+
+	private ModelDelta fDelta;
+
+	private int fMergeCount = 0;
+
+	/**
+	 * Adds the given root delta to the aggregate.
+	 *
+	 * @param delta root delta to add
+	 * @return whether the delta was added, <code>false</code> if it cannot
+	 *         be merged with the pending delta
+	 */
+	public boolean add(IModelDelta delta) {
+		if (!canMerge(delta)) {
+			return false;
+		}
+		if (fDelta == null) {
+			fDelta = new ModelDelta(delta.getElement(), delta.getIndex(), delta.getFlags(), delta.getChildCount());
+		} else if (hasFlag(delta, IModelDelta.SELECT)) {
+			clearFlag(fDelta, IModelDelta.SELECT);
+		}
+		merge(fDelta, delta);
+		fMergeCount++;
+		return true;
+	}
+
+	/**
+	 * Returns whether the given delta can be added to the aggregate.
+	 *
+	 * @param delta root delta
+	 * @return whether the delta can be added
+	 */
+	public boolean canMerge(IModelDelta delta) {
+		if (hasFlag(delta, STRUCTURAL_FLAGS)) {
+			return false;
+		}
+		if (fDelta == null) {
+			return true;
+		}
+		return fDelta.getElement().equals(delta.getElement()) && isCompatible(fDelta, delta);
+	}
+
+	/**
+	 * Returns the aggregated delta and resets this aggregator, or
+	 * <code>null</code> if no delta is pending.
+	 *
+	 * @return aggregated delta or <code>null</code>
+	 */
+	public ModelDelta remove() {
+		ModelDelta delta = fDelta;
+		fDelta = null;
+		fMergeCount = 0;
+		return delta;
+	}
+
+	/**
+	 * Returns whether a delta is pending.
+	 *
+	 * @return whether a delta is pending
+	 */
+	public boolean isEmpty() {
+		return fDelta == null;
+	}
+
+	/**
+	 * Returns the number of deltas merged into the pending delta.
+	 *
+	 * @return number of merged deltas
+	 */
+	public int getMergeCount() {
+		return fMergeCount;
+	}
+
+	private static boolean isCompatible(ModelDelta target, IModelDelta source) {
+		int flags = target.getFlags() | source.getFlags();
+		if ((flags & IModelDelta.EXPAND) != 0 && (flags & IModelDelta.COLLAPSE) != 0) {
+			return false;
+		}
+		IModelDelta[] children = source.getChildDeltas();
+		for (int i = 0; i < children.length; i++) {
+			ModelDelta existing = target.getChildDelta(children[i].getElement());
+			if (existing != null && !isCompatible(existing, children[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static void merge(ModelDelta target, IModelDelta source) {
+		target.setFlags(target.getFlags() | source.getFlags());
+		if (source.getIndex() >= 0) {
+			target.setIndex(source.getIndex());
+		}
+		if (source.getChildCount() >= 0) {
+			target.setChildCount(source.getChildCount());
+		}
+		IModelDelta[] children = source.getChildDeltas();
+		for (int i = 0; i < children.length; i++) {
+			IModelDelta child = children[i];
+			ModelDelta existing = target.getChildDelta(child.getElement());
+			if (existing == null) {
+				existing = target.addNode(child.getElement(), child.getIndex(), child.getFlags(), child.getChildCount());
+			}
+			merge(existing, child);
+		}
+	}
+
+	private static boolean hasFlag(IModelDelta delta, int flag) {
+		if ((delta.getFlags() & flag) != 0) {
+			return true;
+		}
+		IModelDelta[] children = delta.getChildDeltas();
+		for (int i = 0; i < children.length; i++) {
+			if (hasFlag(children[i], flag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void clearFlag(ModelDelta delta, int flag) {
+		delta.setFlags(delta.getFlags() & ~flag);
+		IModelDelta[] children = delta.getChildDeltas();
+		for (int i = 0; i < children.length; i++) {
+			clearFlag((ModelDelta) children[i], flag);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.viewers.update;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.debug.internal.ui.DebugUIPlugin;
+
+/**
+ * Timer shared by all event handler model proxies. Replaces a
+ * <code>java.util.Timer</code> (and its thread) per proxy.
+ * <p>
+ * Tasks are kept in hierarchical timing wheels: the first wheel has one slot
+ * per tick, each slot of the next wheel spans a full revolution of the
+ * previous one. Scheduling and canceling a task are constant time operations,
+ * which matters when hundreds of threads resume for a step at once and each
+ * of them schedules (and shortly after cancels) a suspend timeout.
+ * </p>
+ * <p>
+ * Tasks are run on a single daemon thread and should be short.
+ * </p>
+ *
+ * @since 3.12
+ */
+public class ModelProxyScheduler {
+
+	/**
+	 * Task scheduled with the scheduler.
+	 */
+	public class ScheduledTask {
+
+		private final Runnable fRunnable;
+		private long fDeadline;
+		private int fLevel = -1;
+		private int fSlot;
+		private ScheduledTask fPrev;
+		private ScheduledTask fNext;
+
+		ScheduledTask(Runnable runnable, long deadline) {
+			fRunnable = runnable;
+			fDeadline = deadline;
+		}
+
+		/**
+		 * Cancels this task if it has not been run yet.
+		 *
+		 * @return whether the task was canceled before it was run
+		 */
+		public boolean cancel() {
+			synchronized (ModelProxyScheduler.this) {
+				if (fLevel < 0) {
+					return false;
+				}
+				unlink(this);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Length of a tick in milliseconds.
+	 */
+	private static final long TICK = 10;
+
+	private static final long TICK_NANOS = TICK * 1000000L;
+
+	/**
+	 * Number of slots per wheel, must be a power of two.
+	 */
+	private static final int WHEEL_BITS = 6;
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/**
+	 * Number of wheels. Three wheels of 64 slots at 10ms cover about 43
+	 * minutes, longer delays are re-inserted when their slot comes up.
+	 */
+	private static final int LEVELS = 3;
+
+	private static final long MAX_DELAY_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+	private static ModelProxyScheduler fgDefault;
+
+	private final ScheduledTask[][] fWheels = new ScheduledTask[LEVELS][WHEEL_SIZE];
+
+	/**
+	 * Number of tasks in the wheels
+	 */
+	private int fTaskCount = 0;
+
+	/**
+	 * Current tick and the time at which tick 0 started.
+	 */
+	private long fTick = 0;
+	private long fStartTime = System.nanoTime();
+
+	private Thread fThread;
+
+	/**
+	 * Returns the scheduler shared by all model proxies.
+	 *
+	 * @return shared scheduler
+	 */
+	public static synchronized ModelProxyScheduler getDefault() {
+		if (fgDefault == null) {
+			fgDefault = new ModelProxyScheduler();
+		}
+		return fgDefault;
+	}
+
+	/**
+	 * Schedules the given runnable to run after the given delay.
+	 *
+	 * @param runnable runnable to run
+	 * @param delay delay in milliseconds
+	 * @return scheduled task, which can be used to cancel the runnable
+	 */
+	public synchronized ScheduledTask schedule(Runnable runnable, long delay) {
+		if (fTaskCount == 0) {
+			// the wheels were idle, move the current tick to now
+			fStartTime = System.nanoTime() - fTick * TICK_NANOS;
+		}
+		long ticks = Math.max(1, (delay + TICK - 1) / TICK);
+		ScheduledTask task = new ScheduledTask(runnable, fTick + ticks);
+		insert(task);
+		if (fThread == null) {
+			fThread = new Thread("Debug Model Proxy Scheduler") { //$NON-NLS-1$
+				@Override
+				public void run() {
+					runLoop();
+				}
+			};
+			fThread.setDaemon(true);
+			fThread.start();
+		} else {
+			notifyAll();
+		}
+		return task;
+	}
+
+	/**
+	 * Inserts the task in the wheel that covers its deadline.
+	 */
+	private void insert(ScheduledTask task) {
+		long deadline = Math.max(task.fDeadline, fTick);
+		long delay = Math.min(deadline - fTick, MAX_DELAY_TICKS);
+		deadline = fTick + delay;
+		int level = 0;
+		while (level < LEVELS - 1 && delay >= (1L << (WHEEL_BITS * (level + 1)))) {
+			level++;
+		}
+		int slot = (int) ((deadline >> (WHEEL_BITS * level)) & WHEEL_MASK);
+		ScheduledTask head = fWheels[level][slot];
+		task.fLevel = level;
+		task.fSlot = slot;
+		task.fPrev = null;
+		task.fNext = head;
+		if (head != null) {
+			head.fPrev = task;
+		}
+		fWheels[level][slot] = task;
+		fTaskCount++;
+	}
+
+	private void unlink(ScheduledTask task) {
+		if (task.fPrev != null) {
+			task.fPrev.fNext = task.fNext;
+		} else {
+			fWheels[task.fLevel][task.fSlot] = task.fNext;
+		}
+		if (task.fNext != null) {
+			task.fNext.fPrev = task.fPrev;
+		}
+		task.fPrev = null;
+		task.fNext = null;
+		task.fLevel = -1;
+		fTaskCount--;
+	}
+
+	/**
+	 * Removes all tasks from the given slot and returns them as a linked list.
+	 */
+	private ScheduledTask drain(int level, int slot) {
+		ScheduledTask head = fWheels[level][slot];
+		fWheels[level][slot] = null;
+		for (ScheduledTask task = head; task != null; task = task.fNext) {
+			task.fLevel = -1;
+			fTaskCount--;
+		}
+		return head;
+	}
+
+	/**
+	 * Advances the wheels by one tick and adds the tasks that are due to the
+	 * given list.
+	 */
+	private void advance(List<ScheduledTask> due) {
+		fTick++;
+		// cascade tasks from the outer wheels when the inner wheel wraps
+		for (int level = LEVELS - 1; level > 0; level--) {
+			if ((fTick & ((1L << (WHEEL_BITS * level)) - 1)) == 0) {
+				int slot = (int) ((fTick >> (WHEEL_BITS * level)) & WHEEL_MASK);
+				ScheduledTask task = drain(level, slot);
+				while (task != null) {
+					ScheduledTask next = task.fNext;
+					insert(task);
+					task = next;
+				}
+			}
+		}
+		ScheduledTask task = drain(0, (int) (fTick & WHEEL_MASK));
+		while (task != null) {
+			ScheduledTask next = task.fNext;
+			task.fPrev = null;
+			task.fNext = null;
+			due.add(task);
+			task = next;
+		}
+	}
+
+	private void runLoop() {
+		List<ScheduledTask> due = new ArrayList<ScheduledTask>();
+		while (true) {
+			synchronized (this) {
+				try {
+					while (fTaskCount == 0) {
+						wait();
+					}
+					long now = System.nanoTime();
+					long nextTick = fStartTime + (fTick + 1) * TICK_NANOS;
+					if (now < nextTick) {
+						long millis = (nextTick - now) / 1000000L;
+						wait(millis, (int) ((nextTick - now) % 1000000L));
+						continue;
+					}
+					long elapsed = (now - fStartTime) / TICK_NANOS;
+					while (fTick < elapsed && fTaskCount > 0) {
+						advance(due);
+					}
+					if (fTaskCount == 0) {
+						fTick = elapsed;
+					}
+				} catch (InterruptedException e) {
+					// keep going, the scheduler lives as long as the VM
+				}
+			}
+			for (int i = 0; i < due.size(); i++) {
+				try {
+					due.get(i).fRunnable.run();
+				} catch (RuntimeException e) {
+					DebugUIPlugin.log(e);
+				}
+			}
+			due.clear();
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2005, 2013 IBM Corporation and others.
+ * Copyright (c) 2005, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,7 +24,11 @@ import org.eclipse.debug.core.ILaunchManager;
 import org.eclipse.debug.core.model.IDebugTarget;
 import org.eclipse.debug.core.model.IStackFrame;
 import org.eclipse.debug.core.model.IThread;
+import org.eclipse.debug.core.model.IThreadRangeProvider;
+import org.eclipse.debug.internal.ui.model.elements.ThreadRanges;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroup;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.IModelDelta;
+import org.eclipse.debug.internal.ui.viewers.model.provisional.IPresentationContext;
 import org.eclipse.debug.internal.ui.viewers.model.provisional.ModelDelta;
 import org.eclipse.debug.internal.ui.viewers.provisional.AbstractModelProxy;
 
@@ -105,7 +109,7 @@ public class ThreadEventHandler extends DebugEventHandler {
 			// event, see bug 491174 comment 1
 			waitForProxyInitialization();
 
-        	fireDeltaUpdatingSelectedFrame(thread, IModelDelta.NO_CHANGE | extras, event);
+        	fireDeltaUpdatingSelectedFrame(thread, IModelDelta.NO_CHANGE | extras, event, true);
         }
 	}
 
@@ -142,7 +146,7 @@ public class ThreadEventHandler extends DebugEventHandler {
 		fireDeltaAndClearTopFrame(thread, IModelDelta.STATE | IModelDelta.CONTENT | IModelDelta.SELECT);
 		thread = getNextSuspendedThread();
 		if (thread != null) {
-			fireDeltaUpdatingSelectedFrame(thread, IModelDelta.NO_CHANGE | IModelDelta.REVEAL, event);
+			fireDeltaUpdatingSelectedFrame(thread, IModelDelta.NO_CHANGE | IModelDelta.REVEAL, event, false);
 		}
 	}
 
@@ -187,7 +191,7 @@ public class ThreadEventHandler extends DebugEventHandler {
 			} catch (DebugException e) {
 			}
         } else {
-        	fireDeltaUpdatingSelectedFrame(thread, IModelDelta.STATE | IModelDelta.EXPAND, suspend);
+        	fireDeltaUpdatingSelectedFrame(thread, IModelDelta.STATE | IModelDelta.EXPAND, suspend, true);
         }
 	}
 
@@ -223,17 +227,92 @@ public class ThreadEventHandler extends DebugEventHandler {
 		Object[] children = launch.getChildren();
 		delta = delta.addNode(launch, indexOf(getLaunchManager().getLaunches(), launch), IModelDelta.NO_CHANGE, children.length);
 		IDebugTarget debugTarget = thread.getDebugTarget();
+		IPresentationContext context = getPresentationContext();
+		if (context != null && ThreadRanges.isGroupedByState(context)) {
+			ThreadStateGroup[] groups = ThreadStateGroup.getGroups(debugTarget, context);
+			delta = delta.addNode(debugTarget, indexOf(children, debugTarget), IModelDelta.NO_CHANGE, groups.length);
+			ThreadStateGroup threadGroup = ThreadStateGroup.getGroup(thread);
+			for (int i = 0; i < groups.length; i++) {
+				if (groups[i].equals(threadGroup)) {
+					return delta.addNode(groups[i], i, IModelDelta.NO_CHANGE, childCount(groups[i], context));
+				}
+			}
+			// thread is filtered out, address it below the target
+			return delta;
+		}
 		int numThreads = -1;
+		if (context != null) {
+			try {
+				numThreads = ThreadRanges.getThreadCount(debugTarget, ThreadRanges.getStateMask(context), ThreadRanges.getNamePattern(context));
+			} catch (DebugException e) {
+			}
+		}
+		return delta.addNode(debugTarget, indexOf(children, debugTarget), IModelDelta.NO_CHANGE, numThreads);
+	}
+
+	/**
+	 * Adds the nodes to refresh when the state of the given thread changed to
+	 * the path of the thread, which has been added with
+	 * {@link #addPathToThread(ModelDelta, IThread)}.  When the view shows
+	 * threads by state, the thread may have moved to another group or out of
+	 * the filtered range, so the groups or the target are refreshed.  Nothing
+	 * is added if the path does not lead through the thread's launch and
+	 * target.
+	 *
+	 * @param delta root delta for the view (includes viewer input)
+	 * @param thread thread whose state changed
+	 */
+	private void addStateChangeToPath(ModelDelta delta, IThread thread) {
+		IPresentationContext context = getPresentationContext();
+		if (context == null) {
+			return;
+		}
+		ModelDelta launchNode = delta.getChildDelta(thread.getLaunch());
+		IDebugTarget debugTarget = thread.getDebugTarget();
+		ModelDelta targetNode = launchNode != null ? launchNode.getChildDelta(debugTarget) : null;
+		if (targetNode == null) {
+			return;
+		}
+		if (ThreadRanges.isGroupedByState(context)) {
+			ThreadStateGroup[] groups = ThreadStateGroup.getGroups(debugTarget, context);
+			for (int i = 0; i < groups.length; i++) {
+				ModelDelta node = targetNode.getChildDelta(groups[i]);
+				if (node == null) {
+					node = targetNode.addNode(groups[i], i, IModelDelta.NO_CHANGE, childCount(groups[i], context));
+				}
+				node.setFlags(node.getFlags() | IModelDelta.CONTENT | IModelDelta.STATE);
+			}
+		} else if (ThreadRanges.getStateMask(context) != IThreadRangeProvider.ALL) {
+			targetNode.setFlags(targetNode.getFlags() | IModelDelta.CONTENT);
+		}
+	}
+
+	/**
+	 * Returns the presentation context of the backing proxy or
+	 * <code>null</code> if disposed.
+	 *
+	 * @return presentation context or <code>null</code>
+	 */
+	private IPresentationContext getPresentationContext() {
+		AbstractModelProxy modelProxy = getModelProxy();
+		if (modelProxy != null) {
+			return modelProxy.getPresentationContext();
+		}
+		return null;
+	}
+
+	private int childCount(ThreadStateGroup group, IPresentationContext context) {
 		try {
-			numThreads = debugTarget.getThreads().length;
+			return ThreadRanges.getThreadCount(group.getDebugTarget(), group.getState() & ThreadRanges.getStateMask(context), ThreadRanges.getNamePattern(context));
 		} catch (DebugException e) {
 		}
-		return delta.addNode(debugTarget, indexOf(children, debugTarget), IModelDelta.NO_CHANGE, numThreads);
+		return -1;
 	}
 
 	private void fireDeltaAndClearTopFrame(IThread thread, int flags) {
 		ModelDelta delta = buildRootDelta();
 		ModelDelta node = addPathToThread(delta, thread);
+		addStateChangeToPath(delta, thread);
 		node.addNode(thread, indexOf(thread), flags);
 		synchronized (this) {
 			fLastTopFrame.remove(thread);
@@ -241,9 +320,12 @@ public class ThreadEventHandler extends DebugEventHandler {
 		fireDelta(delta);
 	}
 
-	private void fireDeltaUpdatingSelectedFrame(IThread thread, int flags, DebugEvent event) {
+	private void fireDeltaUpdatingSelectedFrame(IThread thread, int flags, DebugEvent event, boolean stateChanged) {
 		ModelDelta delta = buildRootDelta();
 		ModelDelta node = addPathToThread(delta, thread);
+		if (stateChanged) {
+			addStateChangeToPath(delta, thread);
+		}
     	IStackFrame prev = null;
     	synchronized (this) {
     		 prev = fLastTopFrame.get(thread);
@@ -300,7 +382,15 @@ public class ThreadEventHandler extends DebugEventHandler {
 	 */
 	protected int indexOf(IThread thread) {
 		try {
-			return indexOf(thread.getDebugTarget().getThreads(), thread);
+			IPresentationContext context = getPresentationContext();
+			if (context == null) {
+				return indexOf(thread.getDebugTarget().getThreads(), thread);
+			}
+			int stateMask = ThreadRanges.getStateMask(context);
+			if (ThreadRanges.isGroupedByState(context)) {
+				stateMask = stateMask & ThreadStateGroup.getGroup(thread).getState();
+			}
+			return ThreadRanges.indexOf(thread.getDebugTarget(), thread, stateMask, ThreadRanges.getNamePattern(context));
 		} catch (DebugException e) {
 		}
 		return -1;
@@ -347,6 +437,9 @@ public class ThreadEventHandler extends DebugEventHandler {
 	private void fireDeltaUpdatingThread(IThread thread, int flags) {
 		ModelDelta delta = buildRootDelta();
 		ModelDelta node = addPathToThread(delta, thread);
+		if ((flags & IModelDelta.STATE) != 0) {
+			addStateChangeToPath(delta, thread);
+		}
 	    node = node.addNode(thread, flags);
     	fireDelta(delta);
 	}
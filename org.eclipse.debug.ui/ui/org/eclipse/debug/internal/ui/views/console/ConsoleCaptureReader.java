@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.views.console;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a capture file written by {@link ConsoleCaptureWriter}.
+ * <p>
+ * Opening a capture file only reads the block headers. The columns and output
+ * of a block are memory mapped when a {@link Cursor} reaches the block, and
+ * blocks without records of the requested streams are skipped without being
+ * mapped. A block that was not completely written, for example because the
+ * process was killed, ends the file.
+ * </p>
+ *
+ * @see ConsoleCaptureWriter
+ * @since 3.12
+ */
+public class ConsoleCaptureReader implements Closeable {
+
+	/**
+	 * Header of a block of records.
+	 */
+	private static class Block {
+		long position;
+		int length;
+		int count;
+		long firstTime;
+		long lastTime;
+		String[] streams;
+		int columns;
+	}
+
+	private final FileChannel fChannel;
+
+	private final String fEncoding;
+
+	private final List<Block> fBlocks = new ArrayList<Block>();
+
+	private final long fValidLength;
+
+	/**
+	 * Opens the given capture file.
+	 *
+	 * @param file the capture file
+	 * @throws IOException if the file cannot be read or is not a capture file
+	 */
+	public ConsoleCaptureReader(File file) throws IOException {
+		fChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = fChannel.size();
+			ByteBuffer header = read(0, (int) Math.min(size, 8 + 2 + 0xffff));
+			if (header.remaining() < 10 || header.getInt() != ConsoleCaptureWriter.MAGIC) {
+				throw new IOException("Not a console capture file: " + file); //$NON-NLS-1$
+			}
+			if (header.getInt() != ConsoleCaptureWriter.VERSION) {
+				throw new IOException("Unsupported console capture file version: " + file); //$NON-NLS-1$
+			}
+			int nameLength = header.getShort() & 0xffff;
+			if (header.remaining() < nameLength) {
+				throw new IOException("Not a console capture file: " + file); //$NON-NLS-1$
+			}
+			fEncoding = readUTF(header, nameLength);
+			long position = 10 + nameLength;
+			while (position + ConsoleCaptureWriter.BLOCK_HEADER <= size) {
+				Block block = readBlock(position, size);
+				if (block == null) {
+					break;
+				}
+				fBlocks.add(block);
+				position += 4 + block.length;
+			}
+			fValidLength = position;
+		} catch (IOException e) {
+			fChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Reads the header of the block at the given position, or returns
+	 * <code>null</code> if the block is not complete.
+	 */
+	private Block readBlock(long position, long size) throws IOException {
+		ByteBuffer buffer = read(position, ConsoleCaptureWriter.BLOCK_HEADER);
+		Block block = new Block();
+		block.position = position;
+		block.length = buffer.getInt();
+		block.count = buffer.getInt();
+		block.firstTime = buffer.getLong();
+		block.lastTime = buffer.getLong();
+		int dictionaryLength = buffer.getInt();
+		block.columns = ConsoleCaptureWriter.BLOCK_HEADER + dictionaryLength;
+		if (block.count <= 0 || dictionaryLength <= 0 || position + 4 + block.length > size || (long) block.columns + block.count * 9L > 4L + block.length) {
+			return null;
+		}
+		buffer = read(position + ConsoleCaptureWriter.BLOCK_HEADER, dictionaryLength);
+		if (buffer.remaining() < dictionaryLength) {
+			return null;
+		}
+		block.streams = new String[buffer.get() & 0xff];
+		for (int i = 0; i < block.streams.length; i++) {
+			block.streams[i] = readUTF(buffer, buffer.getShort() & 0xffff);
+		}
+		return block;
+	}
+
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (fChannel.read(buffer, position + buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static String readUTF(ByteBuffer buffer, int length) throws IOException {
+		byte[] bytes = new byte[length + 2];
+		bytes[0] = (byte) (length >> 8);
+		bytes[1] = (byte) length;
+		buffer.get(bytes, 2, length);
+		return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+	}
+
+	/**
+	 * Returns the encoding of the captured output.
+	 *
+	 * @return the encoding name, or <code>null</code> for the platform encoding
+	 */
+	public String getEncoding() {
+		return fEncoding.isEmpty() ? null : fEncoding;
+	}
+
+	/**
+	 * Returns the encoding name stored in the file header, empty for the
+	 * platform encoding.
+	 */
+	String getEncodingName() {
+		return fEncoding;
+	}
+
+	/**
+	 * Returns the length of the completely written part of the file.
+	 */
+	long getValidLength() {
+		return fValidLength;
+	}
+
+	/**
+	 * Returns the number of captured records.
+	 *
+	 * @return the number of records
+	 */
+	public long getRecordCount() {
+		long count = 0;
+		for (Block block : fBlocks) {
+			count += block.count;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the time of the first record.
+	 *
+	 * @return the time in milliseconds, or <code>-1</code> if there are no
+	 *         records
+	 */
+	public long getStartTime() {
+		return fBlocks.isEmpty() ? -1 : fBlocks.get(0).firstTime;
+	}
+
+	/**
+	 * Returns the time of the last record.
+	 *
+	 * @return the time in milliseconds, or <code>-1</code> if there are no
+	 *         records
+	 */
+	public long getEndTime() {
+		return fBlocks.isEmpty() ? -1 : fBlocks.get(fBlocks.size() - 1).lastTime;
+	}
+
+	/**
+	 * Returns the identifiers of all captured streams.
+	 *
+	 * @return the stream identifiers in order of their first output
+	 */
+	public Set<String> getStreamIds() {
+		Set<String> streams = new LinkedHashSet<String>();
+		for (Block block : fBlocks) {
+			streams.addAll(Arrays.asList(block.streams));
+		}
+		return streams;
+	}
+
+	/**
+	 * Returns a cursor over the records of the given streams written at or
+	 * after the given time.
+	 *
+	 * @param time the time in milliseconds
+	 * @param streamIds the streams to read, or <code>null</code> for all
+	 *            streams
+	 * @return a cursor positioned before the first matching record
+	 */
+	public Cursor seek(long time, Collection<String> streamIds) {
+		int low = 0;
+		int high = fBlocks.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (fBlocks.get(mid).lastTime < time) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return new Cursor(low, time, streamIds);
+	}
+
+	/**
+	 * Writes the output of the records of the given streams written at or after
+	 * the given time to the output stream of their stream.
+	 *
+	 * @param time the time in milliseconds
+	 * @param streams the output streams by stream identifier. Streams without
+	 *            an output stream are skipped.
+	 * @throws IOException if reading or writing fails
+	 */
+	public void replay(long time, Map<String, ? extends OutputStream> streams) throws IOException {
+		Cursor cursor = seek(time, streams.keySet());
+		byte[] buffer = new byte[8192];
+		while (cursor.next()) {
+			OutputStream out = streams.get(cursor.getStreamId());
+			ByteBuffer data = cursor.getData();
+			while (data.hasRemaining()) {
+				int length = Math.min(buffer.length, data.remaining());
+				data.get(buffer, 0, length);
+				out.write(buffer, 0, length);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		fChannel.close();
+	}
+
+	/**
+	 * Iterates over the records of a capture file in order of time.
+	 */
+	public class Cursor {
+
+		private final long fTime;
+
+		private final Collection<String> fStreamIds;
+
+		private int fBlockIndex;
+
+		private Block fBlock;
+
+		private MappedByteBuffer fBuffer;
+
+		/**
+		 * Whether each stream of the current block is read
+		 */
+		private boolean[] fReadStreams;
+
+		private int fRecord;
+
+		private int fDataStart;
+
+		Cursor(int blockIndex, long time, Collection<String> streamIds) {
+			fBlockIndex = blockIndex;
+			fTime = time;
+			fStreamIds = streamIds;
+		}
+
+		/**
+		 * Advances to the next matching record.
+		 *
+		 * @return whether there is a next record
+		 * @throws IOException if the file cannot be mapped
+		 */
+		public boolean next() throws IOException {
+			while (true) {
+				if (fBlock != null) {
+					while (++fRecord < fBlock.count) {
+						int stream = fBuffer.get(fBlock.columns + fRecord) & 0xff;
+						if (fReadStreams[stream] && getTime() >= fTime) {
+							return true;
+						}
+					}
+					fBlock = null;
+					fBuffer = null;
+				}
+				if (fBlockIndex >= fBlocks.size()) {
+					return false;
+				}
+				Block block = fBlocks.get(fBlockIndex++);
+				boolean[] read = new boolean[block.streams.length];
+				boolean any = false;
+				for (int i = 0; i < read.length; i++) {
+					read[i] = fStreamIds == null || fStreamIds.contains(block.streams[i]);
+					any |= read[i];
+				}
+				if (any && block.lastTime >= fTime) {
+					fBlock = block;
+					fBuffer = fChannel.map(MapMode.READ_ONLY, block.position, 4L + block.length);
+					fReadStreams = read;
+					fRecord = -1;
+					fDataStart = block.columns + block.count * 9;
+				}
+			}
+		}
+
+		/**
+		 * Returns the stream of the current record.
+		 *
+		 * @return the stream identifier
+		 */
+		public String getStreamId() {
+			return fBlock.streams[fBuffer.get(fBlock.columns + fRecord) & 0xff];
+		}
+
+		/**
+		 * Returns the time the output of the current record was written.
+		 *
+		 * @return the time in milliseconds
+		 */
+		public long getTime() {
+			return fBlock.firstTime + fBuffer.getInt(fBlock.columns + fBlock.count + fRecord * 4);
+		}
+
+		/**
+		 * Returns the output of the current record. The buffer is a view of the
+		 * mapped file and remains valid after the cursor moves on.
+		 *
+		 * @return the output bytes
+		 */
+		public ByteBuffer getData() {
+			int ends = fBlock.columns + fBlock.count * 5;
+			int start = fRecord == 0 ? 0 : fBuffer.getInt(ends + (fRecord - 1) * 4);
+			int end = fBuffer.getInt(ends + fRecord * 4);
+			ByteBuffer data = fBuffer.duplicate();
+			data.position(fDataStart + start);
+			data.limit(fDataStart + end);
+			return data.slice();
+		}
+	}
+}
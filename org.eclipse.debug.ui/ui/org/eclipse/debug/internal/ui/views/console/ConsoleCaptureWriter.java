@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.views.console;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.debug.internal.ui.DebugUIPlugin;
+
+/**
+ * Writes process output to a structured capture file.
+ * <p>
+ * The file starts with a header holding {@link #MAGIC}, {@link #VERSION} and
+ * the name of the encoding of the captured bytes. It is followed by blocks of
+ * records, each record being one piece of output of one stream. The columns of
+ * a block are stored one after another, so a reader can filter by stream or
+ * seek by time without touching the output itself:
+ * </p>
+ *
+ * <pre>
+ * int    length of the block following this field
+ * int    number of records
+ * long   time of the first record
+ * long   time of the last record
+ * int    length of the stream dictionary
+ * byte   number of streams, followed by the stream identifiers
+ * byte[] stream of each record, as an index into the dictionary
+ * int[]  time of each record, relative to the first record
+ * int[]  end of the output of each record in the data section
+ * byte[] data section holding the output of all records
+ * </pre>
+ * <p>
+ * Records are buffered and written as one block when the block is full, by a
+ * job {@link #FLUSH_DELAY} milliseconds after the first record was buffered,
+ * and on {@link #flush()}.
+ * </p>
+ *
+ * @see ConsoleCaptureReader
+ * @since 3.12
+ */
+public class ConsoleCaptureWriter implements Closeable {
+
+	/**
+	 * Identifies capture files
+	 */
+	public static final int MAGIC = 0x45434346;
+
+	/**
+	 * Version of the capture file format
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Maximum number of records per block
+	 */
+	static final int MAX_RECORDS = 4096;
+
+	/**
+	 * Data section size after which a block is written
+	 */
+	static final int MAX_DATA = 256 * 1024;
+
+	/**
+	 * Age of the oldest buffered record after which a block is written
+	 */
+	public static final long FLUSH_DELAY = 1000;
+
+	/**
+	 * Size of the fixed fields of a block header, including the length field
+	 */
+	static final int BLOCK_HEADER = 28;
+
+	private final FileChannel fChannel;
+
+	private final List<String> fStreams = new ArrayList<String>();
+
+	private byte[] fStreamColumn = new byte[64];
+
+	private int[] fTimeColumn = new int[64];
+
+	private int[] fEndColumn = new int[64];
+
+	private byte[] fData = new byte[8192];
+
+	private int fDataLength = 0;
+
+	private int fCount = 0;
+
+	private long fFirstTime;
+
+	private long fLastTime = Long.MIN_VALUE;
+
+	private boolean fClosed = false;
+
+	/**
+	 * Writes the buffered records once they are {@link #FLUSH_DELAY}
+	 * milliseconds old, so that output is recorded when the process is quiet
+	 */
+	private final Job fFlushJob = new Job("Console Capture Flush") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			try {
+				flush();
+			} catch (IOException e) {
+				DebugUIPlugin.log(e);
+			}
+			return Status.OK_STATUS;
+		}
+	};
+
+	/**
+	 * Creates a writer for the given file.
+	 *
+	 * @param file the capture file
+	 * @param encoding the encoding of the captured output, or <code>null</code>
+	 *            for the platform encoding
+	 * @param append whether to append to an existing capture file. Files that
+	 *            are not capture files or use a different encoding are
+	 *            overwritten.
+	 * @throws IOException if the file cannot be opened
+	 */
+	public ConsoleCaptureWriter(File file, String encoding, boolean append) throws IOException {
+		String name = encoding == null ? "" : encoding; //$NON-NLS-1$
+		long validLength = -1;
+		if (append && file.length() > 0) {
+			try (ConsoleCaptureReader reader = new ConsoleCaptureReader(file)) {
+				if (name.equals(reader.getEncodingName())) {
+					validLength = reader.getValidLength();
+				}
+			} catch (IOException e) {
+				// not a capture file, start a new one
+			}
+		}
+		fFlushJob.setSystem(true);
+		fChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		if (validLength < 0) {
+			fChannel.truncate(0);
+			ByteArrayOutputStream header = new ByteArrayOutputStream();
+			try (DataOutputStream out = new DataOutputStream(header)) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeUTF(name);
+			}
+			writeFully(ByteBuffer.wrap(header.toByteArray()));
+		} else {
+			// drop a block that was not completely written
+			fChannel.truncate(validLength);
+			fChannel.position(validLength);
+		}
+	}
+
+	/**
+	 * Records output of the given stream written now.
+	 *
+	 * @param streamId the stream identifier
+	 * @param data the output
+	 * @throws IOException if writing fails
+	 */
+	public void write(String streamId, byte[] data) throws IOException {
+		write(streamId, System.currentTimeMillis(), data, 0, data.length);
+	}
+
+	/**
+	 * Records output of the given stream. Times earlier than the time of the
+	 * previous record are recorded as the previous time, so records are ordered
+	 * by time.
+	 *
+	 * @param streamId the stream identifier
+	 * @param time the time the output was written in milliseconds
+	 * @param data buffer holding the output
+	 * @param offset start of the output in the buffer
+	 * @param length length of the output
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void write(String streamId, long time, byte[] data, int offset, int length) throws IOException {
+		if (fClosed) {
+			return;
+		}
+		time = Math.max(time, fLastTime);
+		int stream = fStreams.indexOf(streamId);
+		if (fCount > 0 && (fCount == MAX_RECORDS || fDataLength + length > MAX_DATA || time - fFirstTime > Integer.MAX_VALUE || (stream < 0 && fStreams.size() == 255))) {
+			writeBlock();
+			stream = -1;
+		}
+		if (stream < 0) {
+			stream = fStreams.size();
+			fStreams.add(streamId);
+		}
+		if (fCount == 0) {
+			fFirstTime = time;
+			fFlushJob.schedule(FLUSH_DELAY);
+		}
+		if (fCount == fStreamColumn.length) {
+			int capacity = Math.min(fCount * 2, MAX_RECORDS);
+			fStreamColumn = Arrays.copyOf(fStreamColumn, capacity);
+			fTimeColumn = Arrays.copyOf(fTimeColumn, capacity);
+			fEndColumn = Arrays.copyOf(fEndColumn, capacity);
+		}
+		if (fDataLength + length > fData.length) {
+			fData = Arrays.copyOf(fData, Math.max(fData.length * 2, fDataLength + length));
+		}
+		System.arraycopy(data, offset, fData, fDataLength, length);
+		fDataLength += length;
+		fStreamColumn[fCount] = (byte) stream;
+		fTimeColumn[fCount] = (int) (time - fFirstTime);
+		fEndColumn[fCount] = fDataLength;
+		fCount++;
+		fLastTime = time;
+		if (fCount == MAX_RECORDS || fDataLength >= MAX_DATA) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Writes all buffered records to the file.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public synchronized void flush() throws IOException {
+		if (!fClosed) {
+			writeBlock();
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (fClosed) {
+			return;
+		}
+		fFlushJob.cancel();
+		try {
+			writeBlock();
+		} finally {
+			fClosed = true;
+			fChannel.close();
+		}
+	}
+
+	/**
+	 * Writes the buffered records as one block.
+	 */
+	private void writeBlock() throws IOException {
+		if (fCount == 0) {
+			return;
+		}
+		ByteArrayOutputStream dictionary = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(dictionary)) {
+			out.writeByte(fStreams.size());
+			for (String stream : fStreams) {
+				out.writeUTF(stream);
+			}
+		}
+		int length = BLOCK_HEADER - 4 + dictionary.size() + fCount * 9 + fDataLength;
+		ByteBuffer block = ByteBuffer.allocate(length + 4);
+		block.putInt(length);
+		block.putInt(fCount);
+		block.putLong(fFirstTime);
+		block.putLong(fLastTime);
+		block.putInt(dictionary.size());
+		block.put(dictionary.toByteArray());
+		block.put(fStreamColumn, 0, fCount);
+		block.asIntBuffer().put(fTimeColumn, 0, fCount);
+		block.position(block.position() + fCount * 4);
+		block.asIntBuffer().put(fEndColumn, 0, fCount);
+		block.position(block.position() + fCount * 4);
+		block.put(fData, 0, fDataLength);
+		block.flip();
+		fCount = 0;
+		fDataLength = 0;
+		fStreams.clear();
+		if (fData.length > MAX_DATA * 2) {
+			fData = new byte[8192];
+		}
+		writeFully(block);
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			fChannel.write(buffer);
+		}
+	}
+}
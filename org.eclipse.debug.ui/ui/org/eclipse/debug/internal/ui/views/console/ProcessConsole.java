@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2015 IBM Corporation and others.
+ *  Copyright (c) 2000, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IStorage;
@@ -37,16 +38,19 @@ import org.eclipse.core.variables.IStringVariableManager;
 import org.eclipse.core.variables.VariablesPlugin;
 import org.eclipse.debug.core.DebugEvent;
 import org.eclipse.debug.core.DebugPlugin;
+import org.eclipse.debug.core.IBinaryStreamListener;
 import org.eclipse.debug.core.IDebugEventSetListener;
 import org.eclipse.debug.core.ILaunchConfiguration;
 import org.eclipse.debug.core.ILaunchConfigurationType;
 import org.eclipse.debug.core.IStreamListener;
+import org.eclipse.debug.core.model.IBinaryStreamMonitor;
 import org.eclipse.debug.core.model.IFlushableStreamMonitor;
 import org.eclipse.debug.core.model.IProcess;
 import org.eclipse.debug.core.model.IStreamMonitor;
 import org.eclipse.debug.core.model.IStreamsProxy;
 import org.eclipse.debug.core.sourcelookup.containers.LocalFileStorage;
 import org.eclipse.debug.internal.core.IInternalDebugCoreConstants;
+import org.eclipse.debug.internal.core.StreamsProxy;
 import org.eclipse.debug.internal.ui.DebugPluginImages;
 import org.eclipse.debug.internal.ui.DebugUIPlugin;
 import org.eclipse.debug.internal.ui.IDebugHelpContextIds;
@@ -102,6 +106,8 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 
     private FileOutputStream fFileOutputStream;
 
+	private ConsoleCaptureWriter fCaptureWriter;
+
     private boolean fAllocateConsole = true;
 	private String fStdInFile = null;
 
@@ -126,15 +132,22 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 
         ILaunchConfiguration configuration = process.getLaunch().getLaunchConfiguration();
         String file = null;
+		String captureFile = null;
         boolean append = false;
         if (configuration != null) {
             try {
 				file = configuration.getAttribute(IDebugUIConstants.ATTR_CAPTURE_IN_FILE, (String) null);
+				captureFile = configuration.getAttribute(IDebugUIConstants.ATTR_CAPTURE_IN_STRUCTURED_FILE, (String) null);
 				fStdInFile = configuration.getAttribute(IDebugUIConstants.ATTR_CAPTURE_STDIN_FILE, (String) null);
-				if (file != null || fStdInFile != null) {
+				if (file != null || captureFile != null || fStdInFile != null) {
 					IStringVariableManager stringVariableManager = VariablesPlugin.getDefault().getStringVariableManager();
 					if (file != null) {
 						file = stringVariableManager.performStringSubstitution(file);
+					}
+					if (captureFile != null) {
+						captureFile = stringVariableManager.performStringSubstitution(captureFile);
+					}
+					if (file != null || captureFile != null) {
 						append = configuration.getAttribute(IDebugUIConstants.ATTR_APPEND_TO_FILE, false);
 					}
 
@@ -144,6 +157,18 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
                 }
             } catch (CoreException e) {
             }
+            IStreamsProxy proxy = process.getStreamsProxy();
+            if (proxy instanceof StreamsProxy) {
+                // the process writes to and reads from the files itself, see
+                // DebugPlugin.newProcessBuilder(...)
+                if (!((StreamsProxy) proxy).isOutputPiped()) {
+                    file = null;
+                    captureFile = null;
+                }
+                if (!((StreamsProxy) proxy).isInputPiped()) {
+                    fStdInFile = null;
+                }
+            }
         }
 
         if (file != null && configuration != null) {
@@ -208,6 +233,17 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 				}
 			}
 		}
+		if (captureFile != null) {
+			try {
+				fCaptureWriter = new ConsoleCaptureWriter(new File(captureFile), getEncoding(), append);
+			} catch (IOException e) {
+				try (IOConsoleOutputStream stream = newOutputStream()) {
+					stream.write(MessageFormat.format(ConsoleMessages.ProcessConsole_2, new Object[] { captureFile }));
+				} catch (IOException e1) {
+					DebugUIPlugin.log(e1);
+				}
+			}
+		}
         fColorProvider = colorProvider;
 		if (fInput == null) {
 			fInput = getInputStream();
@@ -411,6 +447,13 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 	            }
 	        }
         }
+		if (fCaptureWriter != null) {
+			try {
+				fCaptureWriter.close();
+			} catch (IOException e) {
+				DebugUIPlugin.log(e);
+			}
+		}
         try {
             fInput.close();
         } catch (IOException e) {
@@ -427,6 +470,7 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
             listener.dispose();
         }
         fFileOutputStream = null;
+		fCaptureWriter = null;
         fInput = null;
     }
 
@@ -600,7 +644,7 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
     /**
      * This class listens to a specified IO stream
      */
-    private class StreamListener implements IStreamListener {
+    private class StreamListener implements IStreamListener, IBinaryStreamListener {
 
         private IOConsoleOutputStream fStream;
 
@@ -612,6 +656,12 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 
         private boolean fListenerRemoved = false;
 
+		/**
+		 * Whether the bytes read by the stream monitor are captured, rather
+		 * than the decoded text
+		 */
+		private boolean fCaptureBytes = false;
+
         public StreamListener(String streamIdentifier, IStreamMonitor monitor, IOConsoleOutputStream stream) {
             this.fStreamId = streamIdentifier;
             this.fStreamMonitor = monitor;
@@ -648,6 +698,9 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 							}
                         }
                     }
+					if (!fCaptureBytes) {
+						capture(text, encoding);
+					}
                 } catch (IOException e) {
                     DebugUIPlugin.log(e);
                 }
@@ -656,6 +709,11 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
                 synchronized (fStreamMonitor) {
                     fFlushed = true;
                     contents = fStreamMonitor.getContents();
+					// output read from now on is captured as it was written by the process
+					if (fCaptureWriter != null && fStreamId != null && fStreamMonitor instanceof IBinaryStreamMonitor) {
+						((IBinaryStreamMonitor) fStreamMonitor).addBinaryListener(this);
+						fCaptureBytes = true;
+					}
                     if (fStreamMonitor instanceof IFlushableStreamMonitor) {
                         IFlushableStreamMonitor m = (IFlushableStreamMonitor) fStreamMonitor;
                         m.flushContents();
@@ -672,6 +730,7 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
                                 fFileOutputStream.write(contents.getBytes());
                             }
                         }
+						capture(contents, encoding);
                     }
                 } catch (IOException e) {
                     DebugUIPlugin.log(e);
@@ -679,12 +738,45 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
             }
         }
 
+		/*
+		 * (non-Javadoc)
+		 *
+		 * @see org.eclipse.debug.core.IBinaryStreamListener#streamAppended(byte[], int, int,
+		 *      org.eclipse.debug.core.model.IBinaryStreamMonitor)
+		 */
+		@Override
+		public void streamAppended(byte[] data, int offset, int length, IBinaryStreamMonitor monitor) {
+			ConsoleCaptureWriter writer = fCaptureWriter;
+			if (writer != null) {
+				try {
+					writer.write(fStreamId, System.currentTimeMillis(), data, offset, length);
+				} catch (IOException e) {
+					DebugUIPlugin.log(e);
+				}
+			}
+		}
+
+		/**
+		 * Records the given output in the structured capture file, if any. Only
+		 * used for output that is not captured from the bytes read by the
+		 * stream monitor.
+		 */
+		private void capture(String text, String encoding) throws IOException {
+			ConsoleCaptureWriter writer = fCaptureWriter;
+			if (writer != null && fStreamId != null) {
+				writer.write(fStreamId, encoding == null ? text.getBytes() : text.getBytes(encoding));
+			}
+		}
+
         public void closeStream() {
             if (fStreamMonitor == null) {
                 return;
             }
             synchronized (fStreamMonitor) {
                 fStreamMonitor.removeListener(this);
+				if (fCaptureBytes) {
+					((IBinaryStreamMonitor) fStreamMonitor).removeBinaryListener(this);
+				}
                 if (!fFlushed) {
                     String contents = fStreamMonitor.getContents();
                     streamAppended(contents, fStreamMonitor);
@@ -726,12 +818,19 @@ public class ProcessConsole extends IOConsole implements IConsole, IDebugEventSe
 		@Override
 		protected IStatus run(IProgressMonitor monitor) {
             String encoding = getEncoding();
+            // bytes in the encoding of the process are passed on without decoding
+            StreamsProxy bytesProxy = null;
+            if (streamsProxy instanceof StreamsProxy && Objects.equals(encoding, ((StreamsProxy) streamsProxy).getEncoding())) {
+                bytesProxy = (StreamsProxy) streamsProxy;
+            }
             try {
-                byte[] b = new byte[1024];
+                byte[] b = new byte[8192];
                 int read = 0;
                 while (fInput != null && read >= 0) {
                     read = fInput.read(b);
-                    if (read > 0) {
+                    if (read > 0 && bytesProxy != null) {
+                        bytesProxy.write(b, 0, read);
+                    } else if (read > 0) {
                         String s;
                         if (encoding != null) {
 							s = new String(b, 0, read, encoding);
@@ -67,6 +67,9 @@ import org.eclipse.debug.internal.ui.model.elements.RegisterGroupMementoProvider
 import org.eclipse.debug.internal.ui.model.elements.StackFrameContentProvider;
 import org.eclipse.debug.internal.ui.model.elements.StackFrameMementoProvider;
 import org.eclipse.debug.internal.ui.model.elements.ThreadContentProvider;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroup;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroupContentProvider;
+import org.eclipse.debug.internal.ui.model.elements.ThreadStateGroupLabelProvider;
 import org.eclipse.debug.internal.ui.model.elements.VariableContentProvider;
 import org.eclipse.debug.internal.ui.model.elements.VariableEditor;
 import org.eclipse.debug.internal.ui.model.elements.VariableLabelProvider;
@@ -107,6 +110,7 @@ public class DebugElementAdapterFactory implements IAdapterFactory {
     private static IElementLabelProvider fgLPMemoryBlock = new MemoryBlockLabelProvider();
     private static IElementLabelProvider fgLPBreakpoint = new BreakpointLabelProvider();
     private static IElementLabelProvider fgLPBreakpointContainer = new BreakpointContainerLabelProvider();
+    private static IElementLabelProvider fgLPThreadStateGroup = new ThreadStateGroupLabelProvider();
     private static IElementEditor fgEEVariable = new VariableEditor();
     private static IElementEditor fgEEWatchExpression = new WatchExpressionEditor();
 
@@ -118,6 +122,7 @@ public class DebugElementAdapterFactory implements IAdapterFactory {
     private static IElementContentProvider fgCPProcess = new ProcessContentProvider();
     private static IElementContentProvider fgCPTarget = new DebugTargetContentProvider();
     private static IElementContentProvider fgCPThread = new ThreadContentProvider();
+    private static IElementContentProvider fgCPThreadStateGroup = new ThreadStateGroupContentProvider();
     private static IElementContentProvider fgCPFrame = new StackFrameContentProvider();
     private static IElementContentProvider fgCPVariable = new VariableContentProvider();
     private static IElementContentProvider fgCPExpressionManager = new ExpressionManagerContentProvider();
@@ -182,6 +187,9 @@ public class DebugElementAdapterFactory implements IAdapterFactory {
             if (adaptableObject instanceof IThread) {
 				return (T) fgCPThread;
             }
+            if (adaptableObject instanceof ThreadStateGroup) {
+				return (T) fgCPThreadStateGroup;
+            }
             if (adaptableObject instanceof IStackFrame) {
 				return (T) fgCPFrame;
             }
@@ -237,6 +245,9 @@ public class DebugElementAdapterFactory implements IAdapterFactory {
         	}
         	if (adaptableObject instanceof IBreakpointContainer) {
 				return (T) fgLPBreakpointContainer;
+        	}
+        	if (adaptableObject instanceof ThreadStateGroup) {
+				return (T) fgLPThreadStateGroup;
         	}
 			return (T) fgLPDebugElement;
         }
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.debug.internal.ui.views.launch;
+
+import org.eclipse.debug.internal.core.IInternalDebugCoreConstants;
+import org.eclipse.jface.action.Action;
+
+/**
+ * Action that controls whether the threads of a debug target are grouped by
+ * state in the Debug view.
+ *
+ * @since 3.12
+ */
+class GroupThreadsByStateAction extends Action {
+
+	private final LaunchView fLaunchView;
+
+	/**
+	 * Creates a new action to group threads by state.
+	 *
+	 * @param view Reference to the debug view.
+	 */
+	public GroupThreadsByStateAction(LaunchView view) {
+		super(IInternalDebugCoreConstants.EMPTY_STRING, AS_CHECK_BOX);
+		fLaunchView = view;
+
+		setText(LaunchViewMessages.GroupThreadsByStateAction_label);
+		setToolTipText(LaunchViewMessages.GroupThreadsByStateAction_tooltip);
+		setDescription(LaunchViewMessages.GroupThreadsByStateAction_description);
+
+		setChecked(fLaunchView.getGroupThreadsByState());
+	}
+
+	@Override
+	public void run() {
+		fLaunchView.setGroupThreadsByState(isChecked());
+	}
+}
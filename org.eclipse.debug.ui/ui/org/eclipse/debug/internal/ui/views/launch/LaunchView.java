@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -58,6 +58,7 @@ import org.eclipse.debug.internal.ui.commands.actions.TerminateAndRelaunchAction
 import org.eclipse.debug.internal.ui.commands.actions.TerminateAndRemoveAction;
 import org.eclipse.debug.internal.ui.commands.actions.TerminateCommandAction;
 import org.eclipse.debug.internal.ui.commands.actions.ToggleStepFiltersAction;
+import org.eclipse.debug.internal.ui.model.elements.ThreadRanges;
 import org.eclipse.debug.internal.ui.preferences.IDebugPreferenceConstants;
 import org.eclipse.debug.internal.ui.sourcelookup.EditSourceLookupPathAction;
 import org.eclipse.debug.internal.ui.sourcelookup.LookupSourceAction;
@@ -249,6 +250,21 @@ public class LaunchView extends AbstractDebugView
      */
     private boolean fBreadcrumbDropDownAutoExpand = false;
 
+    /**
+     * Key for a view preference for whether the threads of a debug target
+     * are grouped by state.
+     *
+     * @since 3.12
+     */
+    private static final String GROUP_THREADS_BY_STATE = DebugUIPlugin.getUniqueIdentifier() + ".GROUP_THREADS_BY_STATE"; //$NON-NLS-1$
+
+    /**
+     * Whether the threads of a debug target are grouped by state.
+     *
+     * @since 3.12
+     */
+    private boolean fGroupThreadsByState = false;
+
     /**
      * Action handlers. Maps action identifiers to IHandler's.
      *
@@ -784,6 +800,7 @@ public class LaunchView extends AbstractDebugView
 
         fDebugToolBarAction = new DebugToolBarAction(this);
         viewMenu.add(fDebugToolBarAction);
+        viewMenu.add(new GroupThreadsByStateAction(this));
         updateCheckedDebugToolBarAction();
     }
 
@@ -881,6 +898,7 @@ public class LaunchView extends AbstractDebugView
 	protected Viewer createViewer(Composite parent) {
 		fPresentation = new DelegatingModelPresentation();
 		fPresentationContext = new DebugModelPresentationContext(IDebugUIConstants.ID_DEBUG_VIEW, this, fPresentation);
+		fPresentationContext.setProperty(ThreadRanges.PROP_GROUP_BY_STATE, Boolean.valueOf(fGroupThreadsByState));
 		TreeModelViewer viewer = new TreeModelViewer(parent,
 				SWT.MULTI | SWT.H_SCROLL | SWT.V_SCROLL | SWT.VIRTUAL,
 				fPresentationContext);
@@ -921,6 +939,10 @@ public class LaunchView extends AbstractDebugView
             if(auto != null) {
                 setBreadcrumbDropDownAutoExpand(auto.booleanValue());
             }
+            Boolean group = mem.getBoolean(GROUP_THREADS_BY_STATE);
+            if (group != null) {
+                fGroupThreadsByState = group.booleanValue();
+            }
         }
 
         String preference = DebugUIPlugin.getDefault().getPreferenceStore().getString(
@@ -988,6 +1010,7 @@ public class LaunchView extends AbstractDebugView
      */
     public void saveViewerState(IMemento memento) {
         memento.putBoolean(BREADCRUMB_DROPDOWN_AUTO_EXPAND, getBreadcrumbDropDownAutoExpand());
+        memento.putBoolean(GROUP_THREADS_BY_STATE, getGroupThreadsByState());
     }
 
 	/* (non-Javadoc)
@@ -1573,4 +1596,30 @@ public class LaunchView extends AbstractDebugView
         fBreadcrumbDropDownAutoExpand = expand;
     }
 
+    /**
+     * Returns whether the threads of a debug target are grouped by state.
+     *
+     * @since 3.12
+     */
+    boolean getGroupThreadsByState() {
+        return fGroupThreadsByState;
+    }
+
+    /**
+     * Sets whether the threads of a debug target are grouped by state and
+     * refreshes the view.
+     *
+     * @since 3.12
+     */
+    void setGroupThreadsByState(boolean group) {
+        fGroupThreadsByState = group;
+        if (fPresentationContext != null) {
+            fPresentationContext.setProperty(ThreadRanges.PROP_GROUP_BY_STATE, Boolean.valueOf(group));
+            Viewer viewer = getViewer();
+            if (viewer != null) {
+                viewer.refresh();
+            }
+        }
+    }
+
 }
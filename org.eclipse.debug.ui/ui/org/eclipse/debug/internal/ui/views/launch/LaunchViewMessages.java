@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2011 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -36,6 +36,13 @@ public class LaunchViewMessages extends NLS {
     public static String DebugToolBarAction_View_tooltip;
     public static String DebugToolBarAction_View_description;
 
+    public static String GroupThreadsByStateAction_label;
+    public static String GroupThreadsByStateAction_tooltip;
+    public static String GroupThreadsByStateAction_description;
+
+    public static String ThreadStateGroup_suspended;
+    public static String ThreadStateGroup_running;
+
 	static {
 		// load message values from bundle file
 		NLS.initializeMessages(BUNDLE_NAME, LaunchViewMessages.class);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2014 IBM Corporation and others.
+ *  Copyright (c) 2000, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -958,7 +958,7 @@ public interface IDebugUIConstants {
 	 *
 	 * @since 3.1
 	 */
-	public static final String ATTR_CAPTURE_IN_CONSOLE = PLUGIN_ID + ".ATTR_CONSOLE_OUTPUT_ON"; //$NON-NLS-1$
+	public static final String ATTR_CAPTURE_IN_CONSOLE = DebugPlugin.ATTR_CAPTURE_IN_CONSOLE;
 
 	/**
 	 * Launch configuration boolean attribute specifying whether input for the
@@ -967,7 +967,7 @@ public interface IDebugUIConstants {
 	 *
 	 * @since 3.11
 	 */
-	public static final String ATTR_CAPTURE_STDIN_FILE = PLUGIN_ID + ".ATTR_CAPTURE_STDIN_FILE"; //$NON-NLS-1$
+	public static final String ATTR_CAPTURE_STDIN_FILE = DebugPlugin.ATTR_CAPTURE_STDIN_FILE;
 
 	/**
 	 * Launch configuration attribute specifying a file name that console output
@@ -979,7 +979,7 @@ public interface IDebugUIConstants {
 	 *
 	 * @since 3.1
 	 */
-	public static final String ATTR_CAPTURE_IN_FILE = PLUGIN_ID + ".ATTR_CAPTURE_IN_FILE"; //$NON-NLS-1$
+	public static final String ATTR_CAPTURE_IN_FILE = DebugPlugin.ATTR_CAPTURE_IN_FILE;
 
 	/**
 	 * Launch configuration attribute specifying whether process output will be appended to the
@@ -988,7 +988,22 @@ public interface IDebugUIConstants {
 	 *
 	 * @since 3.1
 	 */
-	public static final String ATTR_APPEND_TO_FILE = PLUGIN_ID + ".ATTR_APPEND_TO_FILE"; //$NON-NLS-1$
+	public static final String ATTR_APPEND_TO_FILE = DebugPlugin.ATTR_APPEND_TO_FILE;
+
+	/**
+	 * Launch configuration attribute specifying a file name that console output
+	 * should be captured to in a structured binary format or <code>null</code>
+	 * if none. Default value is <code>null</code>. The file records the stream,
+	 * time and bytes of each piece of output, so the output can be filtered by
+	 * stream, searched by time and replayed into a console later. Output is
+	 * appended to an existing capture file when
+	 * <code>ATTR_APPEND_TO_FILE</code> is <code>true</code>. The file name
+	 * attribute may contain variables which will be resolved by the
+	 * {@link org.eclipse.core.variables.IStringVariableManager}.
+	 *
+	 * @since 3.12
+	 */
+	public static final String ATTR_CAPTURE_IN_STRUCTURED_FILE = PLUGIN_ID + ".ATTR_CAPTURE_IN_STRUCTURED_FILE"; //$NON-NLS-1$
 
 	// Extension points
 
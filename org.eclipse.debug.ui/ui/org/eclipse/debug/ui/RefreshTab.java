@@ -1,5 +1,5 @@
 /*******************************************************************************
- *  Copyright (c) 2000, 2011 IBM Corporation and others.
+ *  Copyright (c) 2000, 2017 IBM Corporation and others.
  *  All rights reserved. This program and the accompanying materials
  *  are made available under the terms of the Eclipse Public License v1.0
  *  which accompanies this distribution, and is available at
@@ -72,6 +72,7 @@ public class RefreshTab extends AbstractLaunchConfigurationTab {
 	// Check Buttons
 	private Button fRefreshButton;
 	private Button fRecursiveButton;
+	private Button fIncrementalButton;
 
 	// Group box
 	private Group fGroup;
@@ -221,6 +222,16 @@ public class RefreshTab extends AbstractLaunchConfigurationTab {
 				updateLaunchConfigurationDialog();
 			}
 		});
+		fIncrementalButton = createCheckButton(parent, StringSubstitutionMessages.RefreshTab_43);
+		data = new GridData(GridData.HORIZONTAL_ALIGN_FILL);
+		data.horizontalSpan = 2;
+		fIncrementalButton.setLayoutData(data);
+		fIncrementalButton.addSelectionListener(new SelectionAdapter() {
+			@Override
+			public void widgetSelected(SelectionEvent e) {
+				updateLaunchConfigurationDialog();
+			}
+		});
 	}
 
 	/**
@@ -296,6 +307,13 @@ public class RefreshTab extends AbstractLaunchConfigurationTab {
 			DebugUIPlugin.log(DebugUIPlugin.newErrorStatus("Exception reading launch configuration", ce)); //$NON-NLS-1$
 		}
 		fRecursiveButton.setSelection(recursive);
+		boolean incremental = false;
+		try {
+			incremental = configuration.getAttribute(RefreshUtil.ATTR_REFRESH_INCREMENTAL, false);
+		} catch (CoreException ce) {
+			DebugUIPlugin.log(DebugUIPlugin.newErrorStatus("Exception reading launch configuration", ce)); //$NON-NLS-1$
+		}
+		fIncrementalButton.setSelection(incremental);
 	}
 	/**
 	 * Method updateRefresh.
@@ -320,10 +338,12 @@ public class RefreshTab extends AbstractLaunchConfigurationTab {
 			String scope = generateScopeMemento();
 			configuration.setAttribute(ATTR_REFRESH_SCOPE, scope);
 			setAttribute(ATTR_REFRESH_RECURSIVE, configuration, fRecursiveButton.getSelection(), true);
+			setAttribute(RefreshUtil.ATTR_REFRESH_INCREMENTAL, configuration, fIncrementalButton.getSelection(), false);
 		} else {
 			//clear the refresh attributes
 			configuration.setAttribute(ATTR_REFRESH_SCOPE, (String)null);
 			setAttribute(ATTR_REFRESH_RECURSIVE, configuration, true, true);
+			setAttribute(RefreshUtil.ATTR_REFRESH_INCREMENTAL, configuration, false, false);
 		}
 	}
 
@@ -366,6 +386,7 @@ public class RefreshTab extends AbstractLaunchConfigurationTab {
 	private void updateEnabledState() {
 		boolean enabled= fRefreshButton.getSelection();
 		fRecursiveButton.setEnabled(enabled);
+		fIncrementalButton.setEnabled(enabled);
 		fGroup.setEnabled(enabled);
 		fWorkspaceButton.setEnabled(enabled);
 		fResourceButton.setEnabled(enabled);
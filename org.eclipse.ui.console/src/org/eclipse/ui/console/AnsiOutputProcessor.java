@@ -0,0 +1,362 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.console;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.eclipse.jface.resource.ColorRegistry;
+import org.eclipse.jface.resource.JFaceResources;
+import org.eclipse.jface.text.TextAttribute;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.RGB;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * An output processor that interprets ANSI escape sequences.
+ * <p>
+ * Select Graphic Rendition sequences (<code>ESC [ ... m</code>) set the style
+ * of the following output: the 16 basic colors, the 256 color palette and 24
+ * bit colors for foreground and background, bold, italic, underline and
+ * strikethrough. 24 bit colors are shown in the closest color of the 256 color
+ * palette, whose colors are kept in the JFace color registry. All other
+ * control sequences and operating system commands are removed from the
+ * output, as are the escape sequences themselves.
+ * </p>
+ * <p>
+ * Clients may instantiate this class.
+ * </p>
+ *
+ * @see IOConsoleOutputStream#setOutputProcessor(IConsoleOutputProcessor)
+ * @since 3.7
+ * @noextend This class is not intended to be subclassed by clients.
+ */
+public class AnsiOutputProcessor implements IConsoleOutputProcessor {
+
+	private static final char ESC = '\u001b';
+
+	private static final char BEL = '\u0007';
+
+	/**
+	 * Sequences with longer parameters are dropped
+	 */
+	private static final int MAX_PARAMETERS = 64;
+
+	/**
+	 * Prefix of the keys of the palette colors in the color registry
+	 */
+	private static final String COLOR_KEY = "org.eclipse.ui.console.ansi."; //$NON-NLS-1$
+
+	/**
+	 * The 16 basic colors
+	 */
+	private static final int[] BASIC_COLORS = { 0x000000, 0xcd0000, 0x00cd00, 0xcdcd00, 0x0000ee, 0xcd00cd, 0x00cdcd, 0xe5e5e5,
+			0x7f7f7f, 0xff0000, 0x00ff00, 0xffff00, 0x5c5cff, 0xff00ff, 0x00ffff, 0xffffff };
+
+	/**
+	 * Colors of the 256 color palette, looked up in the color registry in the
+	 * UI thread when the first processor is created, or <code>null</code>
+	 * until then
+	 */
+	private static volatile Color[] palette;
+
+	private static final int TEXT = 0;
+	private static final int ESCAPE = 1;
+	private static final int CONTROL = 2;
+	private static final int COMMAND = 3;
+	private static final int COMMAND_ESCAPE = 4;
+
+	/**
+	 * State of the parser, one of the constants above
+	 */
+	private int state = TEXT;
+
+	/**
+	 * Parameters of the control sequence being parsed
+	 */
+	private final StringBuilder parameters = new StringBuilder();
+
+	/**
+	 * Palette indexes of the colors, or -1 for the color of the stream
+	 */
+	private int foreground = -1;
+	private int background = -1;
+	private int fontStyle;
+
+	/**
+	 * Creates a processor. Colors are shown once the palette has been looked
+	 * up in the UI thread, which happens right away if the processor is
+	 * created in the UI thread.
+	 */
+	public AnsiOutputProcessor() {
+		if (palette == null) {
+			Display display = ConsolePlugin.getStandardDisplay();
+			Runnable lookup = new Runnable() {
+				@Override
+				public void run() {
+					lookupPalette();
+				}
+			};
+			if (Display.getCurrent() == display) {
+				lookup.run();
+			} else if (!display.isDisposed()) {
+				display.asyncExec(lookup);
+			}
+		}
+	}
+
+	/**
+	 * Registers the palette in the color registry and looks up its colors.
+	 * Must be called in the UI thread.
+	 */
+	private static void lookupPalette() {
+		if (palette != null) {
+			return;
+		}
+		ColorRegistry registry = JFaceResources.getColorRegistry();
+		Color[] colors = new Color[256];
+		for (int i = 0; i < colors.length; i++) {
+			String key = COLOR_KEY + i;
+			if (!registry.hasValueFor(key)) {
+				registry.put(key, getPaletteRGB(i));
+			}
+			colors[i] = registry.get(key);
+		}
+		palette = colors;
+	}
+
+	@Override
+	public void process(CharBuffer text, IConsoleStyledOutput output) throws IOException {
+		while (text.hasRemaining()) {
+			if (state == TEXT) {
+				appendText(text, output);
+				continue;
+			}
+			char c = text.get();
+			switch (state) {
+				case ESCAPE:
+					if (c == '[') {
+						parameters.setLength(0);
+						state = CONTROL;
+					} else if (c == ']') {
+						state = COMMAND;
+					} else {
+						// two character sequence
+						state = TEXT;
+					}
+					break;
+				case CONTROL:
+					if (c >= 0x40 && c <= 0x7e) {
+						if (c == 'm') {
+							applyGraphicRendition(output);
+						}
+						state = TEXT;
+					} else if (parameters.length() < MAX_PARAMETERS) {
+						parameters.append(c);
+					} else {
+						state = TEXT;
+					}
+					break;
+				case COMMAND:
+					if (c == BEL) {
+						state = TEXT;
+					} else if (c == ESC) {
+						state = COMMAND_ESCAPE;
+					}
+					break;
+				case COMMAND_ESCAPE:
+					state = c == ESC ? COMMAND_ESCAPE : (c == '\\' ? TEXT : COMMAND);
+					break;
+				default:
+					state = TEXT;
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Appends the text up to the next escape character, which is consumed.
+	 */
+	private void appendText(CharBuffer text, IConsoleStyledOutput output) throws IOException {
+		int start = text.position();
+		int end = text.limit();
+		int escape = start;
+		if (text.hasArray()) {
+			char[] array = text.array();
+			int offset = text.arrayOffset();
+			while (escape < end && array[offset + escape] != ESC) {
+				escape++;
+			}
+		} else {
+			while (escape < end && text.get(escape) != ESC) {
+				escape++;
+			}
+		}
+		if (escape > start) {
+			text.limit(escape);
+			output.append(text);
+			text.limit(end);
+		}
+		if (escape < end) {
+			text.position(escape + 1);
+			state = ESCAPE;
+		}
+	}
+
+	@Override
+	public void flush(IConsoleStyledOutput output) throws IOException {
+		// incomplete sequences are dropped
+		state = TEXT;
+	}
+
+	/**
+	 * Applies the parameters of a Select Graphic Rendition sequence to the
+	 * style of the output.
+	 */
+	private void applyGraphicRendition(IConsoleStyledOutput output) {
+		String[] codes = parameters.toString().split("[;:]", -1); //$NON-NLS-1$
+		for (int i = 0; i < codes.length; i++) {
+			int code = parseCode(codes[i]);
+			if (code == 0) {
+				foreground = -1;
+				background = -1;
+				fontStyle = SWT.NORMAL;
+			} else if (code == 1) {
+				fontStyle |= SWT.BOLD;
+			} else if (code == 3) {
+				fontStyle |= SWT.ITALIC;
+			} else if (code == 4) {
+				fontStyle |= TextAttribute.UNDERLINE;
+			} else if (code == 9) {
+				fontStyle |= TextAttribute.STRIKETHROUGH;
+			} else if (code == 22) {
+				fontStyle &= ~SWT.BOLD;
+			} else if (code == 23) {
+				fontStyle &= ~SWT.ITALIC;
+			} else if (code == 24) {
+				fontStyle &= ~TextAttribute.UNDERLINE;
+			} else if (code == 29) {
+				fontStyle &= ~TextAttribute.STRIKETHROUGH;
+			} else if (code >= 30 && code <= 37) {
+				foreground = code - 30;
+			} else if (code >= 90 && code <= 97) {
+				foreground = code - 90 + 8;
+			} else if (code == 39) {
+				foreground = -1;
+			} else if (code >= 40 && code <= 47) {
+				background = code - 40;
+			} else if (code >= 100 && code <= 107) {
+				background = code - 100 + 8;
+			} else if (code == 49) {
+				background = -1;
+			} else if (code == 38 || code == 48) {
+				int color = -1;
+				int mode = i + 1 < codes.length ? parseCode(codes[i + 1]) : -1;
+				if (mode == 5 && i + 2 < codes.length) {
+					color = parseCode(codes[i + 2]);
+					i += 2;
+				} else if (mode == 2 && i + 4 < codes.length) {
+					color = getClosestColor(parseCode(codes[i + 2]), parseCode(codes[i + 3]), parseCode(codes[i + 4]));
+					i += 4;
+				} else {
+					// malformed, ignore the rest of the sequence
+					break;
+				}
+				if (color >= 0 && color <= 255) {
+					if (code == 38) {
+						foreground = color;
+					} else {
+						background = color;
+					}
+				}
+			}
+		}
+		output.setStyle(createStyle());
+	}
+
+	private static int parseCode(String code) {
+		if (code.isEmpty()) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(code);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Returns a color of the 256 color palette.
+	 */
+	private static RGB getPaletteRGB(int index) {
+		if (index < 16) {
+			int value = BASIC_COLORS[index];
+			return new RGB(value >> 16, (value >> 8) & 0xff, value & 0xff);
+		}
+		if (index < 232) {
+			index -= 16;
+			return new RGB(getCubeLevel(index / 36), getCubeLevel(index / 6 % 6), getCubeLevel(index % 6));
+		}
+		int gray = 8 + (index - 232) * 10;
+		return new RGB(gray, gray, gray);
+	}
+
+	private static int getCubeLevel(int level) {
+		return level == 0 ? 0 : 55 + level * 40;
+	}
+
+	/**
+	 * Returns the palette index of the color of the color cube or the gray
+	 * ramp that is closest to a 24 bit color, or -1 if a component is out of
+	 * range.
+	 */
+	private static int getClosestColor(int red, int green, int blue) {
+		if ((red | green | blue) < 0 || red > 255 || green > 255 || blue > 255) {
+			return -1;
+		}
+		int cube = 16 + 36 * getCubeIndex(red) + 6 * getCubeIndex(green) + getCubeIndex(blue);
+		int gray = 232 + Math.max(0, Math.min((red + green + blue) / 3 - 3, 230)) / 10;
+		return getDistance(cube, red, green, blue) <= getDistance(gray, red, green, blue) ? cube : gray;
+	}
+
+	private static int getCubeIndex(int value) {
+		return value < 48 ? 0 : Math.min((value - 35) / 40, 5);
+	}
+
+	private static int getDistance(int index, int red, int green, int blue) {
+		RGB rgb = getPaletteRGB(index);
+		int r = rgb.red - red;
+		int g = rgb.green - green;
+		int b = rgb.blue - blue;
+		return r * r + g * g + b * b;
+	}
+
+	/**
+	 * Returns the style for the current state, or <code>null</code> if it is
+	 * the default.
+	 */
+	private TextAttribute createStyle() {
+		if (foreground < 0 && background < 0 && fontStyle == SWT.NORMAL) {
+			return null;
+		}
+		return new TextAttribute(getColor(foreground), getColor(background), fontStyle);
+	}
+
+	/**
+	 * Returns the color of a palette index, or <code>null</code> for the
+	 * color of the stream or if the palette has not been looked up yet.
+	 */
+	private static Color getColor(int index) {
+		Color[] colors = palette;
+		return index < 0 || colors == null ? null : colors[index];
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.console;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+/**
+ * An output processor transforms the output written to an
+ * <code>IOConsoleOutputStream</code> before it reaches the console's document.
+ * It reads the written characters once and appends the text to show, together
+ * with its style, to an {@link IConsoleStyledOutput}. Typical processors strip
+ * control sequences or color output by log level.
+ * <p>
+ * A processor runs in the thread writing to the stream, while the stream is
+ * locked, so it does not take time from the UI thread. Unlike an
+ * <code>IPatternMatchListener</code>, which matches the document after the
+ * output has been appended, a processor sees the output in the pieces it is
+ * written in. It has to keep state between calls, for example when an escape
+ * sequence is split between two writes, and may hold back incomplete input
+ * until {@link #flush(IConsoleStyledOutput)}.
+ * </p>
+ * <p>
+ * An instance processes the output of one stream. Clients may implement this
+ * interface.
+ * </p>
+ *
+ * @see IOConsoleOutputStream#setOutputProcessor(IConsoleOutputProcessor)
+ * @see AnsiOutputProcessor
+ * @since 3.7
+ */
+public interface IConsoleOutputProcessor {
+
+	/**
+	 * Processes characters written to the stream.
+	 *
+	 * @param text the written characters, from the position to the limit of
+	 *            the buffer. The buffer must not be kept after the call.
+	 * @param output receives the text to append to the document
+	 * @throws IOException if appending to the output fails
+	 */
+	public void process(CharBuffer text, IConsoleStyledOutput output) throws IOException;
+
+	/**
+	 * Appends input that has been held back to the output. Called when the
+	 * stream is closed or the processor is replaced.
+	 *
+	 * @param output receives the text to append to the document
+	 * @throws IOException if appending to the output fails
+	 */
+	public void flush(IConsoleStyledOutput output) throws IOException;
+}
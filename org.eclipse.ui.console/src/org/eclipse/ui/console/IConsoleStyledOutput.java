@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.console;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+
+import org.eclipse.jface.text.TextAttribute;
+
+/**
+ * Receives the text an {@link IConsoleOutputProcessor} appends to the
+ * console's document. Text is appended in the current style, which stays in
+ * effect until it is changed, also across calls of the processor.
+ * <p>
+ * The foreground color, background color and font style of a style are shown
+ * for the appended text. The <code>TextAttribute.UNDERLINE</code> and
+ * <code>TextAttribute.STRIKETHROUGH</code> style bits are supported as well. A
+ * style without foreground color uses the color of the stream, and the font
+ * style of the stream is always applied.
+ * </p>
+ *
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @since 3.7
+ */
+public interface IConsoleStyledOutput {
+
+	/**
+	 * Sets the style of the text appended next.
+	 *
+	 * @param style the style, or <code>null</code> for the style of the
+	 *            stream
+	 */
+	public void setStyle(TextAttribute style);
+
+	/**
+	 * Returns the style of the text appended next.
+	 *
+	 * @return the style, or <code>null</code> for the style of the stream
+	 */
+	public TextAttribute getStyle();
+
+	/**
+	 * Appends a character.
+	 *
+	 * @param c the character
+	 * @throws IOException if the console has been closed
+	 */
+	public void append(char c) throws IOException;
+
+	/**
+	 * Appends characters from the position to the limit of the given buffer.
+	 * The buffer's position is advanced to its limit.
+	 *
+	 * @param text the characters
+	 * @throws IOException if the console has been closed
+	 */
+	public void append(CharBuffer text) throws IOException;
+}
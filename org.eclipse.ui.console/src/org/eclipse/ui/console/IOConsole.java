@@ -22,6 +22,7 @@ import java.util.List;
 
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.ui.WorkbenchEncoding;
+import org.eclipse.ui.internal.console.ConsoleLogStore;
 import org.eclipse.ui.internal.console.IOConsolePage;
 import org.eclipse.ui.internal.console.IOConsolePartitioner;
 import org.eclipse.ui.part.IPageBookViewPage;
@@ -247,6 +248,42 @@ public class IOConsole extends TextConsole {
 		partitioner.setWaterMarks(low, high);
 	}
 
+	/**
+	 * Sets whether the output that is trimmed from this console when its high
+	 * water mark is exceeded is kept in a temporary file rather than
+	 * discarded. The console view shows the kept output when the view is
+	 * scrolled above the start of the buffer, and searches it with the
+	 * find/replace action, so that all output of the console can be viewed
+	 * while the memory used by the console remains bounded by its water
+	 * marks.
+	 *
+	 * @param enabled whether to keep the trimmed output
+	 * @since 3.7
+	 */
+	public void setLogStoreEnabled(boolean enabled) {
+		ConsoleLogStore store = partitioner.getLogStore();
+		if (enabled && store == null) {
+			try {
+				partitioner.setLogStore(new ConsoleLogStore());
+			} catch (IOException e) {
+				ConsolePlugin.log(e);
+			}
+		} else if (!enabled && store != null) {
+			partitioner.setLogStore(null);
+			store.dispose();
+		}
+	}
+
+	/**
+	 * Returns whether the output that is trimmed from this console is kept.
+	 *
+	 * @return whether the output that is trimmed from this console is kept
+	 * @since 3.7
+	 */
+	public boolean isLogStoreEnabled() {
+		return partitioner.getLogStore() != null;
+	}
+
     /**
      * Check if all streams connected to this console are closed. If so,
      * notify the partitioner that this console is finished.
@@ -298,6 +335,7 @@ public class IOConsole extends TextConsole {
 	protected void dispose() {
         super.dispose();
         partitioner.disconnect();
+        setLogStoreEnabled(false);
         //make a copy of the open streams and close them all
         //a copy is needed as close the streams results in a callback that
         //removes the streams from the openStreams collection (bug 152794)
@@ -13,7 +13,12 @@ package org.eclipse.ui.console;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 
 import org.eclipse.swt.SWT;
 import org.eclipse.swt.graphics.Color;
@@ -21,6 +26,8 @@ import org.eclipse.swt.graphics.Color;
 /**
  * InputStream used to read input from an {@link IOConsole}.
  * This stream will buffer input that it receives until it has been read.
+ * The input is kept in a ring buffer that doubles in size when it is full,
+ * so reading blocks of bytes does not depend on how the input was appended.
  * An input stream is available from its {@link IOConsole}.
  * @since 3.1
  * @noinstantiate This class is not intended to be instantiated by clients.
@@ -29,9 +36,9 @@ import org.eclipse.swt.graphics.Color;
  */
 public class IOConsoleInputStream extends InputStream {
     /**
-     * Buffer to hold data from console until it is read.
+     * Ring buffer to hold data from console until it is read.
      */
-    private byte[] input = new byte[100];
+    private byte[] input = new byte[1024];
 
     /**
      * Location in the buffer that the next byte of data from the
@@ -50,6 +57,27 @@ public class IOConsoleInputStream extends InputStream {
      */
     private int size = 0;
 
+    /**
+     * Encodes appended text, created on first use.
+     */
+    private CharsetEncoder encoder;
+
+    /**
+     * The start of a character that is split between appends, or
+     * <code>null</code>.
+     */
+    private String pendingChars;
+
+    /**
+     * Encoded bytes of the text being appended.
+     */
+    private ByteBuffer encoded = ByteBuffer.allocate(1024);
+
+    /**
+     * Number of readers waiting for data.
+     */
+    private int waiting = 0;
+
     /**
      * Flag to indicate that EOF has been sent already.
      */
@@ -91,23 +119,23 @@ public class IOConsoleInputStream extends InputStream {
      */
     @Override
 	public synchronized int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
         waitForData();
         if (available() == -1) {
             return -1;
         }
 
         int toCopy = Math.min(len, size);
-        if(input.length-outPointer > toCopy) {
+        int bytesToEnd = input.length - outPointer;
+        if (bytesToEnd >= toCopy) {
             System.arraycopy(input, outPointer, b, off, toCopy);
-            outPointer += toCopy;
-            size -= toCopy;
         } else {
-            int bytesToEnd = input.length-outPointer;
             System.arraycopy(input, outPointer, b, off, bytesToEnd);
-            System.arraycopy(input, 0, b, off+bytesToEnd, toCopy-bytesToEnd);
-            outPointer = toCopy-bytesToEnd;
-            size -=toCopy;
+            System.arraycopy(input, 0, b, off + bytesToEnd, toCopy - bytesToEnd);
         }
+        consumed(toCopy);
         return toCopy;
     }
 
@@ -131,13 +159,26 @@ public class IOConsoleInputStream extends InputStream {
             return -1;
         }
 
-        byte b = input[outPointer];
-        outPointer++;
-        if (outPointer == input.length) {
+        int b = input[outPointer] & 0xFF;
+        consumed(1);
+        return b;
+    }
+
+    /**
+     * Moves the read position after bytes that have been read. The positions
+     * start over when the buffer is empty, so that appended data is not
+     * split at the end of the buffer.
+     *
+     * @param count number of bytes read
+     */
+    private void consumed(int count) {
+        size -= count;
+        if (size == 0) {
             outPointer = 0;
+            inPointer = 0;
+        } else {
+            outPointer = (outPointer + count) % input.length;
         }
-        size -= 1;
-        return b;
     }
 
     /**
@@ -147,9 +188,12 @@ public class IOConsoleInputStream extends InputStream {
      */
     private void waitForData() {
         while (size == 0 && !closed) {
+            waiting++;
             try {
                 wait();
             } catch (InterruptedException e) {
+            } finally {
+                waiting--;
             }
         }
     }
@@ -160,59 +204,67 @@ public class IOConsoleInputStream extends InputStream {
      * @param text the text to append to the buffer.
      */
     public synchronized void appendData(String text) {
-    	String encoding = console.getEncoding();
-        byte[] newData;
-        if (encoding!=null) {
-			try {
-				newData = text.getBytes(encoding);
-			} catch (UnsupportedEncodingException e) {
-				newData = text.getBytes();
-			}
-		} else {
-			newData = text.getBytes();
-		}
-
-        while(input.length-size < newData.length) {
-            growArray();
+        if (encoder == null) {
+            Charset charset = console.getCharset();
+            encoder = (charset != null ? charset : Charset.defaultCharset()).newEncoder();
+            encoder.onMalformedInput(CodingErrorAction.REPLACE);
+            encoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        String chars = pendingChars != null ? pendingChars + text : text;
+        pendingChars = null;
+        int maxLength = (int) Math.ceil(chars.length() * (double) encoder.maxBytesPerChar());
+        if (encoded.capacity() < maxLength) {
+            encoded = ByteBuffer.allocate(Math.max(maxLength, encoded.capacity() * 2));
         }
+        encoded.clear();
+        CharBuffer buffer = CharBuffer.wrap(chars);
+        CoderResult result = encoder.encode(buffer, encoded, false);
+        assert result.isUnderflow();
+        if (buffer.hasRemaining()) {
+            // a high surrogate at the end is encoded with the next append
+            pendingChars = buffer.toString();
+        }
+        int length = encoded.position();
 
-        if (size == 0) { //inPointer == outPointer
-            System.arraycopy(newData, 0, input, 0, newData.length);
-            inPointer = newData.length;
-            size = newData.length;
-            outPointer = 0;
-        } else if (inPointer < outPointer || input.length - inPointer > newData.length) {
-            System.arraycopy(newData, 0, input, inPointer, newData.length);
-            inPointer += newData.length;
-            size += newData.length;
+        if (input.length - size < length) {
+            growArray(size + length);
+        }
+        int bytesToEnd = input.length - inPointer;
+        if (bytesToEnd >= length) {
+            System.arraycopy(encoded.array(), 0, input, inPointer, length);
         } else {
-            System.arraycopy(newData, 0, input, inPointer, input.length-inPointer);
-            System.arraycopy(newData, input.length-inPointer, input, 0, newData.length-(input.length-inPointer));
-            inPointer = newData.length-(input.length-inPointer);
-            size += newData.length;
+            System.arraycopy(encoded.array(), 0, input, inPointer, bytesToEnd);
+            System.arraycopy(encoded.array(), bytesToEnd, input, 0, length - bytesToEnd);
         }
+        inPointer = (inPointer + length) % input.length;
+        size += length;
 
-        if (inPointer == input.length) {
-            inPointer = 0;
+        if (waiting > 0) {
+            notifyAll();
         }
-        notifyAll();
     }
 
     /**
-     * Enlarges the buffer.
+     * Enlarges the buffer, at least doubling its size.
+     *
+     * @param minLength number of bytes the buffer must hold
      */
-    private void growArray() {
-        byte[] newInput = new byte[input.length+1024];
-        if (outPointer < inPointer) {
+    private void growArray(int minLength) {
+        int length = input.length * 2;
+        while (length < minLength) {
+            length *= 2;
+        }
+        byte[] newInput = new byte[length];
+        int bytesToEnd = input.length - outPointer;
+        if (bytesToEnd >= size) {
             System.arraycopy(input, outPointer, newInput, 0, size);
         } else {
-            System.arraycopy(input, outPointer, newInput, 0, input.length-outPointer);
-            System.arraycopy(input, 0, newInput, input.length-outPointer, inPointer);
+            System.arraycopy(input, outPointer, newInput, 0, bytesToEnd);
+            System.arraycopy(input, 0, newInput, bytesToEnd, size - bytesToEnd);
         }
         outPointer = 0;
         inPointer = size;
         input = newInput;
-        newInput = null;
     }
 
     /**
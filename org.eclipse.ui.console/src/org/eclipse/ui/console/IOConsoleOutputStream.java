@@ -13,8 +13,11 @@ package org.eclipse.ui.console;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
+import java.util.Objects;
 
+import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.internal.console.IOConsolePartitioner;
 import org.eclipse.ui.internal.console.StreamDecoder;
@@ -71,6 +74,180 @@ public class IOConsoleOutputStream extends OutputStream {
 
     private boolean prependCR;
 
+	/**
+	 * Transforms the output before it is appended, or <code>null</code>
+	 */
+	private IConsoleOutputProcessor processor;
+
+	private final ProcessorOutput processorOutput = new ProcessorOutput();
+
+	/**
+	 * Decodes into chunks of the partitioner and passes them on without
+	 * copying them, or to the output processor.
+	 */
+	private final StreamDecoder.ChunkHandler chunkHandler = new StreamDecoder.ChunkHandler() {
+		@Override
+		public CharBuffer allocate() {
+			return processor == null ? allocateChunk() : partitioner.allocateChunk();
+		}
+
+		@Override
+		public void consume(CharBuffer chunk) throws IOException {
+			if (processor == null) {
+				// small writes fill up the chunk of the previous write, so
+				// that their chunks are not pinned until the queue is processed
+				int count = partitioner.appendToLastChunk(IOConsoleOutputStream.this, null, chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+				chunk.position(chunk.position() + count);
+				if (chunk.hasRemaining()) {
+					appendChunk(chunk, true);
+				} else {
+					partitioner.releaseChunk(chunk);
+				}
+			} else {
+				processor.process(chunk, processorOutput);
+				processorOutput.appendRun(true);
+				partitioner.releaseChunk(chunk);
+			}
+		}
+	};
+
+	/**
+	 * Collects the output of the processor in chunks of the partitioner. The
+	 * text of consecutive style runs shares a chunk, each run is passed on as
+	 * a slice of it. The chunk is released when it is full or the output is
+	 * finished, and returns to the pool once its slices have been appended.
+	 */
+	private class ProcessorOutput implements IConsoleStyledOutput {
+
+		/**
+		 * Chunk being filled, or <code>null</code>
+		 */
+		private CharBuffer chunk;
+
+		/**
+		 * Start of the run in the chunk that has not been passed on
+		 */
+		private int runStart;
+
+		/**
+		 * Style of the current run
+		 */
+		private TextAttribute style;
+
+		/**
+		 * Style of the text appended next, which starts a new run if it
+		 * differs from the style of the current run
+		 */
+		private TextAttribute nextStyle;
+
+		@Override
+		public void setStyle(TextAttribute newStyle) {
+			nextStyle = newStyle;
+		}
+
+		@Override
+		public TextAttribute getStyle() {
+			return nextStyle;
+		}
+
+		@Override
+		public void append(char c) throws IOException {
+			startRun();
+			ensureCapacity();
+			chunk.put(c);
+		}
+
+		@Override
+		public void append(CharBuffer text) throws IOException {
+			if (text.hasRemaining()) {
+				startRun();
+			}
+			while (text.hasRemaining()) {
+				ensureCapacity();
+				int count = Math.min(chunk.remaining(), text.remaining());
+				if (text.hasArray()) {
+					chunk.put(text.array(), text.arrayOffset() + text.position(), count);
+					text.position(text.position() + count);
+				} else {
+					int limit = text.limit();
+					text.limit(text.position() + count);
+					chunk.put(text);
+					text.limit(limit);
+				}
+			}
+		}
+
+		/**
+		 * Passes the current run on if the style has changed.
+		 */
+		private void startRun() throws IOException {
+			if (!Objects.equals(style, nextStyle)) {
+				appendRun(true);
+				style = nextStyle;
+			}
+		}
+
+		/**
+		 * Moves on to a new chunk when the current one is full, keeping a
+		 * held back carriage return.
+		 */
+		private void ensureCapacity() throws IOException {
+			if (chunk != null && chunk.hasRemaining()) {
+				return;
+			}
+			CharBuffer full = chunk;
+			if (full != null) {
+				appendRun(true);
+			}
+			chunk = allocateChunk();
+			if (full != null) {
+				if (runStart < full.position()) {
+					chunk.put('\r');
+				}
+				partitioner.releaseChunk(full);
+			}
+			runStart = 0;
+		}
+
+		/**
+		 * Passes the text of the current run on to the partitioner.
+		 *
+		 * @param holdCR whether to hold back a trailing carriage return
+		 */
+		void appendRun(boolean holdCR) throws IOException {
+			if (chunk == null) {
+				return;
+			}
+			int end = chunk.position();
+			if (holdCR && end > runStart && chunk.get(end - 1) == '\r') {
+				end--;
+			}
+			if (end > runStart) {
+				CharBuffer run = partitioner.sliceChunk(chunk, runStart, end);
+				runStart = end;
+				appendChunk(run, false, style);
+			}
+		}
+
+		/**
+		 * Passes all text on and stops using the current chunk. A held back
+		 * carriage return is left to the stream.
+		 */
+		void finish() throws IOException {
+			appendRun(true);
+			if (chunk != null) {
+				if (runStart < chunk.position()) {
+					prependCR = true;
+				}
+				partitioner.releaseChunk(chunk);
+			}
+			chunk = null;
+			runStart = 0;
+			style = null;
+			nextStyle = null;
+		}
+	}
+
     /**
      * Constructs a new output stream on the given console.
      *
@@ -168,15 +345,18 @@ public class IOConsoleOutputStream extends OutputStream {
 			// Closeable#close() has no effect if already closed
 			return;
         }
-		StringBuilder builder = new StringBuilder();
+		this.decoder.finish(chunkHandler);
+		if (processor != null) {
+			processor.flush(processorOutput);
+			processorOutput.finish();
+		}
         if (prependCR) { // force writing of last /r
             prependCR = false;
-			builder.append('\r');
+			CharBuffer chunk = partitioner.allocateChunk();
+			chunk.put('\r');
+			chunk.flip();
+			appendChunk(chunk, false, null);
         }
-		this.decoder.finish(builder);
-		if (builder.length() > 0) {
-			notifyParitioner(builder.toString());
-		}
         console.streamClosed(this);
         closed = true;
         partitioner = null;
@@ -202,9 +382,8 @@ public class IOConsoleOutputStream extends OutputStream {
 		if (closed) {
 			throw new IOException("Output Stream is closed"); //$NON-NLS-1$
 		}
-		StringBuilder builder = new StringBuilder();
-		this.decoder.decode(builder, b, off, len);
-		encodedWrite(builder.toString());
+		this.decoder.decode(chunkHandler, b, off, len);
+		contentAppended();
     }
     /*
      *  (non-Javadoc)
@@ -231,8 +410,7 @@ public class IOConsoleOutputStream extends OutputStream {
 	 * @since 3.7
 	 */
 	public void write(char[] buffer) throws IOException {
-		String str = new String(buffer);
-		this.encodedWrite(str);
+		this.encodedWrite(null, buffer, 0, buffer.length);
 	}
 
 	/**
@@ -246,8 +424,7 @@ public class IOConsoleOutputStream extends OutputStream {
 	 * @since 3.7
 	 */
 	public void write(char[] buffer, int off, int len) throws IOException {
-		String str = new String(buffer, off, len);
-		this.encodedWrite(str);
+		this.encodedWrite(null, buffer, off, len);
 	}
 
     /**
@@ -259,7 +436,7 @@ public class IOConsoleOutputStream extends OutputStream {
 	 */
 	public void write(CharSequence chars) throws IOException {
 		String str = chars.toString();
-		encodedWrite(str);
+		encodedWrite(str, null, 0, str.length());
     }
 
     /**
@@ -269,34 +446,90 @@ public class IOConsoleOutputStream extends OutputStream {
 	 * @throws IOException if the stream is closed
 	 */
     public void write(String str) throws IOException {
-        encodedWrite(str);
+        encodedWrite(str, null, 0, str.length());
     }
 
-    private synchronized void encodedWrite(String encodedString) throws IOException {
+    /**
+     * Copies characters of a string or of an array into chunks of the
+     * partitioner.
+     */
+    private synchronized void encodedWrite(String str, char[] buffer, int off, int len) throws IOException {
         if(closed) {
             throw new IOException("Output Stream is closed"); //$NON-NLS-1$
         }
-		String newencoding = encodedString;
-        if (prependCR){
-			newencoding = "\r" + newencoding; //$NON-NLS-1$
-            prependCR=false;
-        }
-		if (newencoding.endsWith("\r")) { //$NON-NLS-1$
-            prependCR = true;
-			newencoding = new String(newencoding.substring(0, newencoding.length() - 1));
-        }
-		notifyParitioner(newencoding);
+		if (processor != null) {
+			CharBuffer text = str != null ? CharBuffer.wrap(str, off, off + len) : CharBuffer.wrap(buffer, off, len);
+			processor.process(text, processorOutput);
+			processorOutput.appendRun(true);
+			contentAppended();
+			return;
+		}
+		int offset = off;
+		int remaining = len;
+		if (!prependCR) {
+			// small writes fill up the chunk of the previous write
+			int count = partitioner.appendToLastChunk(this, str, buffer, offset, remaining);
+			offset += count;
+			remaining -= count;
+		}
+		while (remaining > 0) {
+			CharBuffer chunk = allocateChunk();
+			int count = Math.min(chunk.remaining(), remaining);
+			int target = chunk.arrayOffset() + chunk.position();
+			if (str != null) {
+				str.getChars(offset, offset + count, chunk.array(), target);
+			} else {
+				System.arraycopy(buffer, offset, chunk.array(), target, count);
+			}
+			chunk.position(chunk.position() + count);
+			chunk.flip();
+			appendChunk(chunk, true, null);
+			offset += count;
+			remaining -= count;
+		}
+		contentAppended();
     }
 
-    private void notifyParitioner(String encodedString) throws IOException {
-        try {
-            partitioner.streamAppended(this, encodedString);
+	/**
+	 * Returns an empty chunk of the partitioner, starting with a carriage
+	 * return that has been held back from the previous chunk.
+	 */
+	private CharBuffer allocateChunk() {
+		CharBuffer chunk = partitioner.allocateChunk();
+		if (prependCR) {
+			prependCR = false;
+			chunk.put('\r');
+		}
+		return chunk;
+	}
 
-            if (activateOnWrite) {
-            	console.activate();
-            } else {
-            	ConsolePlugin.getDefault().getConsoleManager().warnOfContentChange(console);
-            }
+	/**
+	 * Passes a chunk on to the partitioner, which takes it over.
+	 *
+	 * @param chunk decoded characters, flipped for reading
+	 * @param holdCR whether to hold back a trailing carriage return, so that
+	 *            it stays together with a line feed written next
+	 */
+	private void appendChunk(CharBuffer chunk, boolean holdCR) throws IOException {
+		appendChunk(chunk, holdCR, null);
+	}
+
+	/**
+	 * Passes a chunk on to the partitioner, which takes it over.
+	 *
+	 * @param chunk decoded characters, flipped for reading
+	 * @param holdCR whether to hold back a trailing carriage return, so that
+	 *            it stays together with a line feed written next
+	 * @param style the style set by the output processor, or <code>null</code>
+	 */
+	private void appendChunk(CharBuffer chunk, boolean holdCR, TextAttribute style) throws IOException {
+		int end = chunk.limit();
+		if (holdCR && end > chunk.position() && chunk.get(end - 1) == '\r') {
+			prependCR = true;
+			chunk.limit(end - 1);
+		}
+        try {
+            partitioner.streamAppended(this, chunk, style);
         } catch (IOException e) {
             if (!closed) {
                 close();
@@ -305,6 +538,14 @@ public class IOConsoleOutputStream extends OutputStream {
         }
     }
 
+	private void contentAppended() {
+		if (activateOnWrite) {
+			console.activate();
+		} else {
+			ConsolePlugin.getDefault().getConsoleManager().warnOfContentChange(console);
+		}
+	}
+
     /**
      * Sets the character encoding used to interpret characters written to this steam.
      *
@@ -320,6 +561,41 @@ public class IOConsoleOutputStream extends OutputStream {
 		}
 	}
 
+	/**
+	 * Sets the processor that transforms output written to this stream before
+	 * it is appended to the console's document. The processor runs in the
+	 * thread writing to this stream.
+	 *
+	 * @param newProcessor the processor, or <code>null</code> to append output
+	 *            as it is written
+	 * @throws IOException if the stream is closed
+	 * @see AnsiOutputProcessor
+	 * @since 3.7
+	 */
+	public synchronized void setOutputProcessor(IConsoleOutputProcessor newProcessor) throws IOException {
+		if (closed) {
+			throw new IOException("Output Stream is closed"); //$NON-NLS-1$
+		}
+		if (newProcessor == processor) {
+			return;
+		}
+		if (processor != null) {
+			processor.flush(processorOutput);
+			processorOutput.finish();
+		}
+		processor = newProcessor;
+	}
+
+	/**
+	 * Returns the processor that transforms output written to this stream.
+	 *
+	 * @return the processor, or <code>null</code> if none
+	 * @since 3.7
+	 */
+	public synchronized IConsoleOutputProcessor getOutputProcessor() {
+		return processor;
+	}
+
 	/**
 	 * @param charset set the Charset for the attached console
 	 * @throws IOException if the stream is closed
@@ -329,11 +605,7 @@ public class IOConsoleOutputStream extends OutputStream {
 		if (closed) {
 			throw new IOException("Output Stream is closed"); //$NON-NLS-1$
 		}
-		StringBuilder builder = new StringBuilder();
-		this.decoder.finish(builder);
-		if (builder.length() > 0) {
-			this.encodedWrite(builder.toString());
-		}
+		this.decoder.finish(chunkHandler);
 		this.decoder = new StreamDecoder(charset);
     }
 
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,20 +12,19 @@
 package org.eclipse.ui.console;
 
 import java.util.HashMap;
+import java.util.List;
 
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.jface.resource.ImageDescriptor;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.BadPositionCategoryException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRegion;
-import org.eclipse.jface.text.Position;
-import org.eclipse.jface.text.Region;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.ui.internal.console.ConsoleDocument;
 import org.eclipse.ui.internal.console.ConsoleHyperlinkPosition;
+import org.eclipse.ui.internal.console.ConsoleHyperlinkStore;
 import org.eclipse.ui.internal.console.ConsolePatternMatcher;
 import org.eclipse.ui.part.IPageBookViewPage;
 
@@ -73,6 +72,11 @@ public abstract class TextConsole extends AbstractConsole {
      */
     private ConsoleDocument fDocument;
 
+    /**
+     * The hyperlinks in the console's document
+     */
+    private ConsoleHyperlinkStore fHyperlinks;
+
    /**
     * indication that the console's partitioner is not expecting more input
     */
@@ -121,7 +125,8 @@ public abstract class TextConsole extends AbstractConsole {
     public TextConsole(String name, String consoleType, ImageDescriptor imageDescriptor, boolean autoLifecycle) {
         super(name, consoleType, imageDescriptor, autoLifecycle);
         fDocument = new ConsoleDocument();
-        fDocument.addPositionCategory(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
+        fHyperlinks = new ConsoleHyperlinkStore();
+        fDocument.addPositionUpdater(fHyperlinks);
         fPatternMatcher = new ConsolePatternMatcher(this);
         fDocument.addDocumentListener(fPatternMatcher);
         fTabWidth = IConsoleConstants.DEFAULT_TAB_SIZE;
@@ -314,21 +319,17 @@ public abstract class TextConsole extends AbstractConsole {
 
     /**
      * Returns all hyperlinks in this console.
+     * <p>
+     * If pattern matching has been deferred, matching of the deferred output
+     * is started and the hyperlinks found so far are returned. Clients can
+     * join this console's job family to wait for matching to complete.
+     * </p>
      *
      * @return all hyperlinks in this console
      */
     public IHyperlink[] getHyperlinks() {
-        try {
-            Position[] positions = getDocument().getPositions(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
-            IHyperlink[] hyperlinks = new IHyperlink[positions.length];
-            for (int i = 0; i < positions.length; i++) {
-                ConsoleHyperlinkPosition position = (ConsoleHyperlinkPosition) positions[i];
-                hyperlinks[i] = position.getHyperLink();
-            }
-            return hyperlinks;
-        } catch (BadPositionCategoryException e) {
-            return new IHyperlink[0];
-        }
+        fPatternMatcher.catchUp();
+        return fHyperlinks.getHyperlinks();
     }
 
     /**
@@ -338,65 +339,20 @@ public abstract class TextConsole extends AbstractConsole {
      * @return the hyperlink at the given offset of <code>null</code> if none
      */
     public IHyperlink getHyperlink(int offset) {
-        try {
-        	IDocument document = getDocument();
-        	if (document != null) {
-	            Position[] positions = document.getPositions(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
-	            Position position = findPosition(offset, positions);
-	            if (position instanceof ConsoleHyperlinkPosition) {
-	                return ((ConsoleHyperlinkPosition) position).getHyperLink();
-	            }
-        	}
-        } catch (BadPositionCategoryException e) {
-        }
-        return null;
+        return fHyperlinks.getHyperlink(offset);
     }
 
-	/**
-	 * Binary search for the position at a given offset.
-	 *
-	 * @param offset the offset whose position should be found
-	 * @return the position containing the offset, or <code>null</code>
-	 */
-	private Position findPosition(int offset, Position[] positions) {
-
-		if (positions.length == 0) {
-			return null;
-		}
-
-		int left= 0;
-		int right= positions.length -1;
-		int mid= 0;
-		Position position= null;
-
-		while (left < right) {
-
-			mid= (left + right) / 2;
-
-			position= positions[mid];
-			if (offset < position.getOffset()) {
-				if (left == mid) {
-					right= left;
-				} else {
-					right= mid -1;
-				}
-			} else if (offset > (position.getOffset() + position.getLength() - 1)) {
-				if (right == mid) {
-					left= right;
-				} else {
-					left= mid  +1;
-				}
-			} else {
-				left= right= mid;
-			}
-		}
-
-		position= positions[left];
-		if (offset >= position.getOffset() && (offset < (position.getOffset() + position.getLength()))) {
-			return position;
-		}
-		return null;
-	}
+    /**
+     * Returns the positions of the hyperlinks overlapping the given range,
+     * sorted by offset.
+     *
+     * @param offset offset of the range
+     * @param length length of the range
+     * @return the positions of the hyperlinks overlapping the range
+     */
+    List<ConsoleHyperlinkPosition> getHyperlinkPositions(int offset, int length) {
+        return fHyperlinks.getPositions(offset, length);
+    }
 
     /**
      * Adds the given pattern match listener to this console. The listener will
@@ -409,6 +365,46 @@ public abstract class TextConsole extends AbstractConsole {
         fPatternMatcher.addPatternMatchListener(listener);
     }
 
+	/**
+	 * Sets whether pattern matching is deferred while this console is not
+	 * shown in a console view. Only the range of the document that has not
+	 * been matched is tracked. The deferred output is matched in chunks when
+	 * the console is shown, starting with the visible lines, when hyperlinks
+	 * are requested by {@link #getHyperlinks()} or when no more output is
+	 * expected.
+	 * <p>
+	 * Matching is not deferred by default.
+	 * </p>
+	 *
+	 * @param deferred whether to defer pattern matching
+	 * @since 3.7
+	 */
+	public void setDeferredMatching(boolean deferred) {
+		fPatternMatcher.setDeferred(deferred);
+	}
+
+	/**
+	 * Returns whether pattern matching is deferred while this console is not
+	 * shown in a console view.
+	 *
+	 * @return whether pattern matching is deferred
+	 * @since 3.7
+	 */
+	public boolean isDeferredMatching() {
+		return fPatternMatcher.isDeferred();
+	}
+
+	/**
+	 * Matches deferred output, starting with the given range shown by a
+	 * viewer.
+	 *
+	 * @param offset offset of the shown range
+	 * @param length length of the shown range
+	 */
+	void matchDeferred(int offset, int length) {
+		fPatternMatcher.matchDeferred(offset, length);
+	}
+
     /**
      * Removes the given pattern match listener from this console. The listener will be
      * disconnected and will no longer receive match notifications. Has no effect
@@ -505,14 +501,13 @@ public abstract class TextConsole extends AbstractConsole {
      * @throws BadLocationException if the specified location is not valid.
      */
     public void addHyperlink(IHyperlink hyperlink, int offset, int length) throws BadLocationException {
-        IDocument document = getDocument();
-		ConsoleHyperlinkPosition hyperlinkPosition = new ConsoleHyperlinkPosition(hyperlink, offset, length);
-		try {
-			document.addPosition(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY, hyperlinkPosition);
-            fConsoleManager.refresh(this);
-		} catch (BadPositionCategoryException e) {
-			ConsolePlugin.log(e);
-		}
+        synchronized (fDocument) {
+            if (offset < 0 || length < 0 || offset + length > fDocument.getLength()) {
+                throw new BadLocationException();
+            }
+            fHyperlinks.add(hyperlink, offset, length);
+        }
+        fConsoleManager.refresh(this);
     }
 
     /**
@@ -522,20 +517,7 @@ public abstract class TextConsole extends AbstractConsole {
      * @return the region associated with the hyperlink or null if the hyperlink is not found.
      */
     public IRegion getRegion(IHyperlink link) {
-		try {
-		    IDocument doc = getDocument();
-		    if (doc != null) {
-				Position[] positions = doc.getPositions(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
-				for (int i = 0; i < positions.length; i++) {
-					ConsoleHyperlinkPosition position = (ConsoleHyperlinkPosition)positions[i];
-					if (position.getHyperLink().equals(link)) {
-						return new Region(position.getOffset(), position.getLength());
-					}
-				}
-		    }
-		} catch (BadPositionCategoryException e) {
-		}
-		return null;
+        return fHyperlinks.getRegion(link);
     }
 
     /**
@@ -22,12 +22,11 @@ import org.eclipse.jface.preference.JFacePreferences;
 import org.eclipse.jface.resource.ColorRegistry;
 import org.eclipse.jface.resource.JFaceColors;
 import org.eclipse.jface.resource.JFaceResources;
-import org.eclipse.jface.text.BadPositionCategoryException;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentAdapter;
 import org.eclipse.jface.text.IDocumentListener;
-import org.eclipse.jface.text.IPositionUpdater;
+import org.eclipse.jface.text.IDocumentPartitioner;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.JFaceTextUtil;
 import org.eclipse.jface.text.Position;
@@ -62,7 +61,6 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.internal.console.ConsoleDocumentAdapter;
-import org.eclipse.ui.internal.console.ConsoleHyperlinkPosition;
 import org.eclipse.ui.progress.WorkbenchJob;
 
 /**
@@ -171,28 +169,6 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
 		return false;
 	}
 
-    private IPositionUpdater positionUpdater = new IPositionUpdater() {
-        @Override
-		public void update(DocumentEvent event) {
-            try {
-                IDocument document = getDocument();
-                if (document != null) {
-                    Position[] positions = document.getPositions(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
-                    for (int i = 0; i < positions.length; i++) {
-                        Position position = positions[i];
-                        if (position.offset == event.fOffset && position.length<=event.fLength) {
-                            position.delete();
-                        }
-                        if (position.isDeleted) {
-                            document.removePosition(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY, position);
-                        }
-                    }
-                }
-            } catch (BadPositionCategoryException e) {
-            }
-        }
-    };
-
     /**
 	 * Constructs a new viewer in the given parent for the specified console.
 	 *
@@ -317,7 +293,6 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
 
         revealJob.setSystem(true);
         document.addDocumentListener(documentListener);
-        document.addPositionUpdater(positionUpdater);
     }
 
     /**
@@ -371,7 +346,11 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
             int offset = event.lineOffset;
             int length = event.lineText.length();
 
-            StyleRange[] partitionerStyles = ((IConsoleDocumentPartitioner) document.getDocumentPartitioner()).getStyleRanges(event.lineOffset, event.lineText.length());
+            IDocumentPartitioner partitioner = document.getDocumentPartitioner();
+            StyleRange[] partitionerStyles = null;
+            if (partitioner instanceof IConsoleDocumentPartitioner) {
+                partitionerStyles = ((IConsoleDocumentPartitioner) partitioner).getStyleRanges(event.lineOffset, event.lineText.length());
+            }
             if (partitionerStyles != null) {
                 for (int i = 0; i < partitionerStyles.length; i++) {
                     ranges.add(partitionerStyles[i]);
@@ -380,19 +359,16 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
                 ranges.add(new StyleRange(offset, length, null, null));
             }
 
-            try {
-                Position[] positions = getDocument().getPositions(ConsoleHyperlinkPosition.HYPER_LINK_CATEGORY);
-                Position[] overlap = findPosition(offset, length, positions);
+            // hyperlinks are only known for the document of the console
+            if (console != null && document == console.getDocument()) {
+				int top = getTopIndexStartOffset();
+				console.matchDeferred(top, getBottomIndexEndOffset() - top);
                 Color color = JFaceColors.getHyperlinkText(Display.getCurrent());
-                if (overlap != null) {
-                    for (int i = 0; i < overlap.length; i++) {
-                        Position position = overlap[i];
-                        StyleRange linkRange = new StyleRange(position.offset, position.length, color, null);
-                        linkRange.underline = true;
-                        override(ranges, linkRange);
-                    }
+                for (Position position : console.getHyperlinkPositions(offset, length)) {
+                    StyleRange linkRange = new StyleRange(position.offset, position.length, color, null);
+                    linkRange.underline = true;
+                    override(ranges, linkRange);
                 }
-            } catch (BadPositionCategoryException e) {
             }
 
             if (ranges.size() > 0) {
@@ -438,78 +414,6 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
         }
     }
 
-    /**
-     * Binary search for the positions overlapping the given range
-     *
-     * @param offset
-     *            the offset of the range
-     * @param length
-     *            the length of the range
-     * @param positions
-     *            the positions to search
-     * @return the positions overlapping the given range, or <code>null</code>
-     */
-    private Position[] findPosition(int offset, int length, Position[] positions) {
-
-        if (positions.length == 0) {
-			return null;
-		}
-
-        int rangeEnd = offset + length;
-        int left = 0;
-        int right = positions.length - 1;
-        int mid = 0;
-        Position position = null;
-
-        while (left < right) {
-
-            mid = (left + right) / 2;
-
-            position = positions[mid];
-            if (rangeEnd < position.getOffset()) {
-                if (left == mid) {
-					right = left;
-				} else {
-					right = mid - 1;
-				}
-            } else if (offset > (position.getOffset() + position.getLength() - 1)) {
-                if (right == mid) {
-					left = right;
-				} else {
-					left = mid + 1;
-				}
-            } else {
-                left = right = mid;
-            }
-        }
-
-		List<Position> list = new ArrayList<Position>();
-        int index = left - 1;
-        if (index >= 0) {
-            position = positions[index];
-            while (index >= 0 && (position.getOffset() + position.getLength()) > offset) {
-                index--;
-                if (index > 0) {
-                    position = positions[index];
-                }
-            }
-        }
-        index++;
-        position = positions[index];
-        while (index < positions.length && (position.getOffset() < rangeEnd)) {
-            list.add(position);
-            index++;
-            if (index < positions.length) {
-                position = positions[index];
-            }
-        }
-
-        if (list.isEmpty()) {
-            return null;
-        }
-        return list.toArray(new Position[list.size()]);
-    }
-
     /*
      * (non-Javadoc)
      *
@@ -666,7 +570,7 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
      * @return hyperlink at the specified offset, or <code>null</code> if none
      */
     public IHyperlink getHyperlink(int offset) {
-        if (offset >= 0 && console != null) {
+        if (offset >= 0 && console != null && getDocument() == console.getDocument()) {
             return console.getHyperlink(offset);
         }
         return null;
@@ -740,11 +644,7 @@ public class TextConsoleViewer extends SourceViewer implements LineStyleListener
      */
     @Override
 	protected void handleDispose() {
-        IDocument document = getDocument();
-        if (document != null) {
-            document.removeDocumentListener(documentListener);
-            document.removePositionUpdater(positionUpdater);
-        }
+        console.getDocument().removeDocumentListener(documentListener);
 
         StyledText styledText = getTextWidget();
         styledText.removeLineStyleListener(this);
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -12,8 +12,6 @@ package org.eclipse.ui.internal.console;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.jface.text.BadLocationException;
@@ -21,6 +19,7 @@ import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentAdapter;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IRegion;
 import org.eclipse.swt.custom.TextChangeListener;
 import org.eclipse.swt.custom.TextChangedEvent;
 import org.eclipse.swt.custom.TextChangingEvent;
@@ -40,10 +39,16 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
 	private List<TextChangeListener> textChangeListeners;
     private IDocument document;
 
-    int[] offsets = new int[5000];
-    int[] lengths = new int[5000];
-    private int regionCount = 1;
-    private Pattern pattern = Pattern.compile("$", Pattern.MULTILINE); //$NON-NLS-1$
+    /*
+     * visual lines per document line
+     */
+    private WrappedLineIndex index = new WrappedLineIndex();
+
+    /*
+     * document lines replaced by the current document change
+     */
+    private int changeFirstLine = -1;
+    private int changeLastLine = -1;
 
 
     public ConsoleDocumentAdapter(int width) {
@@ -52,74 +57,52 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
     }
 
     /*
-     * repairs lines list from the beginning of the line containing the offset of any
-     * DocumentEvent, to the end of the Document.
+     * recomputes the visual lines of all document lines. Only line lengths are
+     * needed, the text of the document is not read.
      */
-    private void repairLines(int eventOffset) {
+    private void rebuildLines() {
         if (document == null) {
             return;
         }
+        int lineCount = document.getNumberOfLines();
+        int[] counts = new int[lineCount];
         try {
-            int docLine = document.getLineOfOffset(eventOffset);
-            int docLineOffset = document.getLineOffset(docLine);
-            int widgetLine = getLineAtOffset(docLineOffset);
-
-            for (int i=regionCount-1; i>=widgetLine; i--) {
-                regionCount--;
-            }
-
-            int numLinesInDoc = document.getNumberOfLines();
-
-            int nextOffset =  document.getLineOffset(docLine);
-            for (int i = docLine; i<numLinesInDoc; i++) {
-                int offset = nextOffset;
-                int length = document.getLineLength(i);
-                nextOffset += length;
-
-                if (length == 0) {
-                    addRegion(offset, 0);
-                } else {
-                    while (length > 0) {
-                        int trimmedLength = length;
-                        String lineDelimiter = document.getLineDelimiter(i);
-                        int lineDelimiterLength = 0;
-                        if (lineDelimiter != null) {
-                            lineDelimiterLength = lineDelimiter.length();
-                            trimmedLength -= lineDelimiterLength;
-                        }
-
-                        if (consoleWidth > 0 && consoleWidth < trimmedLength) {
-                            addRegion(offset, consoleWidth);
-                            offset += consoleWidth;
-                            length -= consoleWidth;
-                        } else {
-                            addRegion(offset, length);
-                            offset += length;
-                            length -= length;
-                        }
-                    }
-                }
+            for (int i = 0; i < lineCount; i++) {
+                counts[i] = countVisualLines(i);
             }
         } catch (BadLocationException e) {
         }
-
-        if (regionCount == 0) {
-            addRegion(0, document.getLength());
-        }
+        index.reset(counts, lineCount);
     }
 
-    private void addRegion(int offset, int length) {
-        if (regionCount == 0) {
-            offsets[0] = offset;
-            lengths[0] = length;
+    /*
+     * repairs the visual lines of the document lines replaced by a document
+     * change. Appending to the document and trimming its head only touch the
+     * changed lines, other changes repair the lines to the end of the document.
+     */
+    private void repairLines(int firstLine, int oldLastLine, int newLastLine) throws BadLocationException {
+        int lineCount = document.getNumberOfLines();
+        int oldLines = oldLastLine - firstLine + 1;
+        int newLines = newLastLine - firstLine + 1;
+        if (oldLines == newLines) {
+            for (int i = firstLine; i <= newLastLine; i++) {
+                index.set(i, countVisualLines(i));
+            }
+        } else if (firstLine == 0 && newLines < oldLines && oldLastLine < index.getDocumentLineCount() - 1) {
+            index.removeHead(oldLines - newLines);
+            for (int i = 0; i <= newLastLine; i++) {
+                index.set(i, countVisualLines(i));
+            }
         } else {
-            if (regionCount == offsets.length) {
-                growRegionArray(regionCount * 2);
+            index.truncate(firstLine);
+            for (int i = firstLine; i < lineCount; i++) {
+                index.append(countVisualLines(i));
             }
-            offsets[regionCount] = offset;
-            lengths[regionCount] = length;
         }
-        regionCount++;
+    }
+
+    private int countVisualLines(int line) throws BadLocationException {
+        return WrappedLineIndex.countVisualLines(document.getLineInformation(line).getLength(), consoleWidth);
     }
 
     /* (non-Javadoc)
@@ -135,7 +118,7 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
 
         if (document != null) {
             document.addDocumentListener(this);
-            repairLines(0);
+            rebuildLines();
         }
     }
 
@@ -175,12 +158,12 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
     @Override
 	public String getLine(int lineIndex) {
         try {
-            StringBuffer line = new StringBuffer(document.get(offsets[lineIndex], lengths[lineIndex]));
-            int index = line.length() - 1;
-            while(index > -1 && (line.charAt(index)=='\n' || line.charAt(index)=='\r')) {
-                index--;
-            }
-            return new String(line.substring(0, index+1));
+            int line = index.getDocumentLine(lineIndex);
+            IRegion info = document.getLineInformation(line);
+            int piece = lineIndex - index.getFirstVisualLine(line);
+            int start = piece * consoleWidth;
+            int length = piece == index.getCount(line) - 1 ? info.getLength() - start : consoleWidth;
+            return document.get(info.getOffset() + start, length);
         } catch (BadLocationException e) {
         }
         return ""; //$NON-NLS-1$
@@ -191,34 +174,19 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
      */
     @Override
 	public int getLineAtOffset(int offset) {
-        if (offset == 0 || regionCount <= 1) {
+        if (offset == 0 || document == null) {
             return 0;
         }
-
-        if (offset == document.getLength()) {
-            return regionCount-1;
+        try {
+            int line = document.getLineOfOffset(offset);
+            int piece = 0;
+            if (consoleWidth > 0) {
+                piece = Math.min((offset - document.getLineOffset(line)) / consoleWidth, index.getCount(line) - 1);
+            }
+            return index.getFirstVisualLine(line) + piece;
+        } catch (BadLocationException e) {
         }
-
-		int left= 0;
-		int right= regionCount-1;
-		int midIndex = 0;
-
-		while (left <= right) {
-			if(left == right) {
-	    		return right;
-	    	}
-		    midIndex = (left + right) / 2;
-
-		    if (offset < offsets[midIndex]) {
-		        right = midIndex;
-		    } else if (offset >= offsets[midIndex] + lengths[midIndex]) {
-		        left = midIndex + 1;
-		    } else {
-		        return midIndex;
-		    }
-		}
-
-		return midIndex;
+        return getLineCount() - 1;
     }
 
     /* (non-Javadoc)
@@ -226,7 +194,10 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
      */
     @Override
 	public int getLineCount() {
-        return regionCount;
+        if (document == null) {
+            return 1;
+        }
+        return index.getVisualLineCount();
     }
 
     /* (non-Javadoc)
@@ -242,7 +213,16 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
      */
     @Override
 	public int getOffsetAtLine(int lineIndex) {
-        return offsets[lineIndex];
+        if (document == null) {
+            return 0;
+        }
+        try {
+            int line = index.getDocumentLine(lineIndex);
+            int piece = lineIndex - index.getFirstVisualLine(line);
+            return document.getLineOffset(line) + piece * consoleWidth;
+        } catch (BadLocationException e) {
+        }
+        return 0;
     }
 
     /* (non-Javadoc)
@@ -294,16 +274,20 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
         changeEvent.replaceCharCount = event.fLength;
         changeEvent.newCharCount = (event.fText == null ? 0 : event.fText.length());
 
-        int first = getLineAtOffset(event.fOffset);
-        int lOffset = Math.max(event.fOffset + event.fLength - 1, 0);
-		int last = getLineAtOffset(lOffset);
-        changeEvent.replaceLineCount = Math.max(last - first, 0);
-
-        int newLineCount = countNewLines(event.fText);
-		changeEvent.newLineCount = newLineCount >= 0 ? newLineCount : 0;
-
-        if (changeEvent.newLineCount > offsets.length-regionCount) {
-            growRegionArray(changeEvent.newLineCount);
+        try {
+            changeFirstLine = document.getLineOfOffset(event.fOffset);
+            changeLastLine = document.getLineOfOffset(event.fOffset + event.fLength);
+            // the visual lines before the one of the offset are not changed
+            int firstLineOffset = document.getLineOffset(changeFirstLine);
+            int head = event.fOffset - firstLineOffset;
+            int piece = consoleWidth > 0 && head > 0 ? Math.min((head - 1) / consoleWidth, index.getCount(changeFirstLine) - 1) : 0;
+            int first = index.getFirstVisualLine(changeFirstLine);
+            int start = first + piece;
+            int oldEnd = index.getFirstVisualLine(changeLastLine) + index.getCount(changeLastLine);
+            changeEvent.replaceLineCount = oldEnd - 1 - start;
+            changeEvent.newLineCount = first + countNewVisualLines(event, head) - 1 - start;
+        } catch (BadLocationException e) {
+            changeFirstLine = -1;
         }
 
 		for (TextChangeListener listener : textChangeListeners) {
@@ -311,66 +295,32 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
 		}
     }
 
-    private void growRegionArray(int minSize) {
-        int size = Math.max(offsets.length*2, minSize*2);
-        int[] newOffsets = new int[size];
-        System.arraycopy(offsets, 0, newOffsets, 0, regionCount);
-        offsets = newOffsets;
-        int[] newLengths = new int[size];
-        System.arraycopy(lengths, 0, newLengths, 0, regionCount);
-        lengths = newLengths;
+    /*
+     * returns the number of visual lines of the document lines replaced by the
+     * given change, after the change. Only the new text is scanned for line
+     * delimiters.
+     */
+    private int countNewVisualLines(DocumentEvent event, int head) throws BadLocationException {
+        IRegion last = document.getLineInformation(changeLastLine);
+        int tail = Math.max(last.getOffset() + last.getLength() - (event.fOffset + event.fLength), 0);
+        int count = 0;
+        int segment = head;
+        String text = event.fText == null ? "" : event.fText; //$NON-NLS-1$
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\r' || c == '\n') {
+                count += WrappedLineIndex.countVisualLines(segment, consoleWidth);
+                segment = 0;
+                if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else {
+                segment++;
+            }
+        }
+        return count + WrappedLineIndex.countVisualLines(segment + tail, consoleWidth);
     }
 
-    private int countNewLines(String string) {
-		int count = 0;
-
-		if (string.length() == 0) {
-			return 0;
-		}
-
-		// work around to
-		// http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4994840
-		// see bug 84641
-		int offset = string.length() - 1;
-		while (offset > -1 && string.charAt(offset) == '\r') {
-			offset--;
-			count++;
-		}
-		// if offset == -1, the line was all '\r' and there is no string to search for matches (bug 207743)
-		if (offset > -1) {
-			String str = string;
-			if (offset < (str.length() - 1)) {
-				str = str.substring(0, offset);
-			}
-
-			int lastIndex = 0;
-			int index = 0;
-
-			Matcher matcher = pattern.matcher(str);
-
-			while (matcher.find()) {
-				index = matcher.start();
-
-				if (index == 0) {
-					count++;
-				} else if (index != str.length()) {
-					count++;
-				}
-
-				if (consoleWidth > 0) {
-					int lineLen = index - lastIndex + 1;
-					if (index == 0) {
-						lineLen += lengths[regionCount-1];
-					}
-					count += lineLen/consoleWidth;
-				}
-
-				lastIndex = index;
-			}
-		}
-		return count;
-	}
-
 
     /* (non-Javadoc)
      * @see org.eclipse.jface.text.IDocumentListener#documentChanged(org.eclipse.jface.text.DocumentEvent)
@@ -381,7 +331,20 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
             return;
         }
 
-        repairLines(event.fOffset);
+        try {
+            if (changeFirstLine == -1) {
+                rebuildLines();
+            } else {
+                int length = event.fText == null ? 0 : event.fText.length();
+                repairLines(changeFirstLine, changeLastLine, document.getLineOfOffset(event.fOffset + length));
+                if (index.getDocumentLineCount() != document.getNumberOfLines()) {
+                    rebuildLines();
+                }
+            }
+        } catch (BadLocationException e) {
+            rebuildLines();
+        }
+        changeFirstLine = -1;
 
         TextChangedEvent changeEvent = new TextChangedEvent(this);
 
@@ -397,7 +360,7 @@ public class ConsoleDocumentAdapter implements IDocumentAdapter, IDocumentListen
     public void setWidth(int width) {
         if (width != consoleWidth) {
             consoleWidth = width;
-            repairLines(0);
+            rebuildLines();
             TextChangedEvent changeEvent = new TextChangedEvent(this);
 			for (TextChangeListener listener : textChangeListeners) {
 				listener.textSet(changeEvent);
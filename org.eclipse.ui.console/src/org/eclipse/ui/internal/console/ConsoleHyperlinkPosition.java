@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,7 +11,6 @@
 package org.eclipse.ui.internal.console;
 
 import org.eclipse.jface.text.Position;
-import org.eclipse.ui.console.ConsolePlugin;
 import org.eclipse.ui.console.IHyperlink;
 
 /**
@@ -21,8 +20,6 @@ import org.eclipse.ui.console.IHyperlink;
  */
 public class ConsoleHyperlinkPosition extends Position {
 
-	public static final String HYPER_LINK_CATEGORY = ConsolePlugin.getUniqueIdentifier() + ".CONSOLE_HYPERLINK_POSITION"; //$NON-NLS-1$
-
 	private IHyperlink fLink = null;
 
 	public ConsoleHyperlinkPosition(IHyperlink link, int offset, int length) {
@@ -0,0 +1,355 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.console;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IPositionUpdater;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.ui.console.IHyperlink;
+
+/**
+ * The hyperlinks of a console document, sorted by offset.
+ * <p>
+ * Hyperlinks are kept in chunks whose offsets are relative to the base of the
+ * chunk, and the chunk bases are relative to a shift common to all chunks.
+ * Appending output after the hyperlinks does not touch them, a change in the
+ * middle of the document only moves the bases of the chunks after it, and
+ * trimming the head of the document drops a prefix of the chunks and moves
+ * the common shift.
+ * </p>
+ * <p>
+ * A hyperlink is removed when the text it covers is changed, as well as when
+ * text is inserted into it or right after it.
+ * </p>
+ *
+ * @since 3.7
+ */
+public class ConsoleHyperlinkStore implements IPositionUpdater {
+
+	/**
+	 * Maximum number of hyperlinks per chunk
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	private static class Chunk {
+
+		/**
+		 * Offset of the chunk, relative to the common shift
+		 */
+		int fBase;
+
+		/**
+		 * Offsets of the hyperlinks relative to the base, ascending
+		 */
+		final int[] fOffsets = new int[CHUNK_SIZE];
+		final int[] fLengths = new int[CHUNK_SIZE];
+		final IHyperlink[] fLinks = new IHyperlink[CHUNK_SIZE];
+
+		/**
+		 * Number of hyperlinks in the chunk, never 0 for a stored chunk
+		 */
+		int fSize;
+
+		Chunk(int base) {
+			fBase = base;
+		}
+	}
+
+	private final List<Chunk> fChunks = new ArrayList<>();
+
+	/**
+	 * Offset added to the base of all chunks
+	 */
+	private int fShift = 0;
+
+	/**
+	 * Length of the longest hyperlink that has been added, bounds the
+	 * hyperlinks to look at before an offset
+	 */
+	private int fMaxLength = 0;
+
+	/**
+	 * Bound of the ends of all hyperlinks, changes after it do not touch any
+	 * hyperlink
+	 */
+	private int fEnd = 0;
+
+	private int fCount = 0;
+
+	/**
+	 * Adds a hyperlink to the store.
+	 *
+	 * @param link the hyperlink
+	 * @param offset offset of the hyperlink in the document
+	 * @param length length of the hyperlink
+	 */
+	public synchronized void add(IHyperlink link, int offset, int length) {
+		Chunk last = fChunks.isEmpty() ? null : fChunks.get(fChunks.size() - 1);
+		if (last == null || offset >= getOffset(last, last.fSize - 1)) {
+			// output is matched in order, the hyperlink goes to the end
+			if (last == null || last.fSize == CHUNK_SIZE) {
+				last = new Chunk(offset - fShift);
+				fChunks.add(last);
+			}
+			set(last, last.fSize++, link, offset, length);
+		} else {
+			insert(link, offset, length);
+		}
+		fCount++;
+		fMaxLength = Math.max(fMaxLength, length);
+		fEnd = Math.max(fEnd, offset + length);
+	}
+
+	private void insert(IHyperlink link, int offset, int length) {
+		int index = Math.max(findChunk(offset), 0);
+		Chunk chunk = fChunks.get(index);
+		int position = findLink(chunk, offset) + 1;
+		if (chunk.fSize == CHUNK_SIZE) {
+			// split, both halves keep the base
+			Chunk tail = new Chunk(chunk.fBase);
+			int half = CHUNK_SIZE / 2;
+			tail.fSize = CHUNK_SIZE - half;
+			System.arraycopy(chunk.fOffsets, half, tail.fOffsets, 0, tail.fSize);
+			System.arraycopy(chunk.fLengths, half, tail.fLengths, 0, tail.fSize);
+			System.arraycopy(chunk.fLinks, half, tail.fLinks, 0, tail.fSize);
+			Arrays.fill(chunk.fLinks, half, CHUNK_SIZE, null);
+			chunk.fSize = half;
+			fChunks.add(index + 1, tail);
+			if (position > half) {
+				chunk = tail;
+				position -= half;
+			}
+		}
+		int moved = chunk.fSize - position;
+		System.arraycopy(chunk.fOffsets, position, chunk.fOffsets, position + 1, moved);
+		System.arraycopy(chunk.fLengths, position, chunk.fLengths, position + 1, moved);
+		System.arraycopy(chunk.fLinks, position, chunk.fLinks, position + 1, moved);
+		chunk.fSize++;
+		set(chunk, position, link, offset, length);
+	}
+
+	/**
+	 * Returns the hyperlink at the given offset or <code>null</code> if none.
+	 *
+	 * @param offset offset in the document
+	 * @return the hyperlink at the given offset or <code>null</code> if none
+	 */
+	public synchronized IHyperlink getHyperlink(int offset) {
+		int index = findChunk(offset);
+		if (index < 0) {
+			return null;
+		}
+		Chunk chunk = fChunks.get(index);
+		int position = findLink(chunk, offset);
+		if (offset < getOffset(chunk, position) + chunk.fLengths[position]) {
+			return chunk.fLinks[position];
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the positions of the hyperlinks that overlap the given range,
+	 * sorted by offset.
+	 *
+	 * @param offset offset of the range
+	 * @param length length of the range
+	 * @return the positions of the hyperlinks overlapping the range
+	 */
+	public synchronized List<ConsoleHyperlinkPosition> getPositions(int offset, int length) {
+		List<ConsoleHyperlinkPosition> positions = new ArrayList<>();
+		int rangeEnd = offset + length;
+		int from = offset - fMaxLength;
+		int index = findChunk(from);
+		int position = index < 0 ? 0 : findLink(fChunks.get(index), from);
+		for (int i = Math.max(index, 0); i < fChunks.size(); i++) {
+			Chunk chunk = fChunks.get(i);
+			for (int j = Math.max(position, 0); j < chunk.fSize; j++) {
+				int start = getOffset(chunk, j);
+				if (start >= rangeEnd) {
+					return positions;
+				}
+				if (start + chunk.fLengths[j] > offset) {
+					positions.add(new ConsoleHyperlinkPosition(chunk.fLinks[j], start, chunk.fLengths[j]));
+				}
+			}
+			position = 0;
+		}
+		return positions;
+	}
+
+	/**
+	 * Returns all hyperlinks, sorted by offset.
+	 *
+	 * @return all hyperlinks
+	 */
+	public synchronized IHyperlink[] getHyperlinks() {
+		IHyperlink[] links = new IHyperlink[fCount];
+		int index = 0;
+		for (Chunk chunk : fChunks) {
+			System.arraycopy(chunk.fLinks, 0, links, index, chunk.fSize);
+			index += chunk.fSize;
+		}
+		return links;
+	}
+
+	/**
+	 * Returns the region of the given hyperlink or <code>null</code> if it is
+	 * not in the store.
+	 *
+	 * @param link hyperlink
+	 * @return the region of the hyperlink or <code>null</code>
+	 */
+	public synchronized IRegion getRegion(IHyperlink link) {
+		for (Chunk chunk : fChunks) {
+			for (int i = 0; i < chunk.fSize; i++) {
+				if (chunk.fLinks[i].equals(link)) {
+					return new Region(getOffset(chunk, i), chunk.fLengths[i]);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of hyperlinks in the store.
+	 *
+	 * @return the number of hyperlinks
+	 */
+	public synchronized int getCount() {
+		return fCount;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.jface.text.IPositionUpdater#update(org.eclipse.jface.text.DocumentEvent)
+	 */
+	@Override
+	public synchronized void update(DocumentEvent event) {
+		int offset = event.getOffset();
+		int length = event.getLength();
+		int delta = (event.getText() == null ? 0 : event.getText().length()) - length;
+		if (fChunks.isEmpty() || offset > fEnd || (length > 0 && offset == fEnd)) {
+			// appended after all hyperlinks
+			return;
+		}
+		int editEnd = offset + length;
+		int index = Math.max(findChunk(offset - fMaxLength), 0);
+		// chunks before the first one looked at are kept as they are
+		boolean kept = index > 0;
+		boolean emptied = false;
+		for (; index < fChunks.size(); index++) {
+			Chunk chunk = fChunks.get(index);
+			int first = getOffset(chunk, 0);
+			if (first > offset && first >= editEnd) {
+				break;
+			}
+			int base = fShift + chunk.fBase;
+			int size = 0;
+			for (int i = 0; i < chunk.fSize; i++) {
+				int start = base + chunk.fOffsets[i];
+				int end = start + chunk.fLengths[i];
+				if (isChanged(start, end, offset, length)) {
+					fCount--;
+					continue;
+				}
+				chunk.fOffsets[size] = start > offset ? chunk.fOffsets[i] + delta : chunk.fOffsets[i];
+				chunk.fLengths[size] = chunk.fLengths[i];
+				chunk.fLinks[size] = chunk.fLinks[i];
+				size++;
+			}
+			Arrays.fill(chunk.fLinks, size, chunk.fSize, null);
+			chunk.fSize = size;
+			if (size > 0) {
+				kept = true;
+			} else {
+				emptied = true;
+			}
+		}
+		if (delta != 0) {
+			if (kept) {
+				for (int i = index; i < fChunks.size(); i++) {
+					fChunks.get(i).fBase += delta;
+				}
+			} else {
+				// the chunks before the remaining ones are dropped
+				fShift += delta;
+			}
+		}
+		if (emptied) {
+			fChunks.removeIf(chunk -> chunk.fSize == 0);
+		}
+		fEnd = Math.max(offset, fEnd + delta);
+	}
+
+	/**
+	 * Returns whether the hyperlink from the given start to the given end is
+	 * touched by a change of the given length at the given offset.
+	 */
+	private static boolean isChanged(int start, int end, int offset, int length) {
+		if (length > 0) {
+			return offset < end && offset + length > start;
+		}
+		// insertion into or right after the hyperlink
+		return start < end && start <= offset && offset <= end;
+	}
+
+	private int getOffset(Chunk chunk, int index) {
+		return fShift + chunk.fBase + chunk.fOffsets[index];
+	}
+
+	private void set(Chunk chunk, int index, IHyperlink link, int offset, int length) {
+		chunk.fOffsets[index] = offset - fShift - chunk.fBase;
+		chunk.fLengths[index] = length;
+		chunk.fLinks[index] = link;
+	}
+
+	/**
+	 * Returns the index of the last chunk whose first hyperlink starts at or
+	 * before the given offset, or -1 if none.
+	 */
+	private int findChunk(int offset) {
+		int low = 0;
+		int high = fChunks.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (getOffset(fChunks.get(mid), 0) <= offset) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	/**
+	 * Returns the index of the last hyperlink of the chunk that starts at or
+	 * before the given offset, or -1 if none.
+	 */
+	private int findLink(Chunk chunk, int offset) {
+		int relative = offset - fShift - chunk.fBase;
+		int low = 0;
+		int high = chunk.fSize - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (chunk.fOffsets[mid] <= relative) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+}
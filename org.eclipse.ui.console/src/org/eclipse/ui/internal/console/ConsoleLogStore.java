@@ -0,0 +1,394 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.console;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.SubMonitor;
+
+import org.eclipse.ui.console.ConsolePlugin;
+
+/**
+ * Console text kept in a temporary file, indexed by line. The store only
+ * keeps the byte offset of every {@link #LINES_PER_BLOCK}th line in memory,
+ * so the memory used does not depend on the length of the lines and is small
+ * compared to the size of the text.
+ * <p>
+ * Text is stored in UTF-8. Lines end with <code>\n</code>, <code>\r\n</code>
+ * or <code>\r</code>, like in console documents.
+ * </p>
+ *
+ * @since 3.7
+ */
+public class ConsoleLogStore {
+
+	/**
+	 * Number of lines between two indexed lines
+	 */
+	private static final int LINES_PER_BLOCK = 256;
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private final File fFile;
+
+	private final FileChannel fChannel;
+
+	/**
+	 * Appended bytes that have not been written to the file yet
+	 */
+	private final ByteBuffer fWriteBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/**
+	 * Number of bytes in the file, without the write buffer
+	 */
+	private long fFileLength = 0;
+
+	/**
+	 * Byte offsets of the first line of each block
+	 */
+	private long[] fBlockOffsets = new long[64];
+
+	/**
+	 * Number of line delimiters in the store
+	 */
+	private int fDelimiters = 0;
+
+	/**
+	 * Whether there is text after the last line delimiter
+	 */
+	private boolean fPartialLine = false;
+
+	/**
+	 * Whether the last byte appended is a <code>\r</code>, which forms a
+	 * single delimiter with a <code>\n</code> that follows
+	 */
+	private boolean fLastCR = false;
+
+	/**
+	 * Creates an empty store in a new temporary file.
+	 *
+	 * @throws IOException if the file cannot be created
+	 */
+	@SuppressWarnings("resource")
+	public ConsoleLogStore() throws IOException {
+		fFile = File.createTempFile("console", ".log"); //$NON-NLS-1$ //$NON-NLS-2$
+		fFile.deleteOnExit();
+		fChannel = new RandomAccessFile(fFile, "rw").getChannel(); //$NON-NLS-1$
+	}
+
+	/**
+	 * Appends text to the store.
+	 *
+	 * @param text the text to append
+	 * @throws IOException if the text cannot be written
+	 */
+	public synchronized void append(String text) throws IOException {
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		long start = fFileLength + fWriteBuffer.position();
+		// delimiters are single bytes that do not occur within multi-byte characters
+		for (int i = 0; i < bytes.length; i++) {
+			byte b = bytes[i];
+			if (b == '\n' && fLastCR) {
+				fLastCR = false;
+				if (fDelimiters % LINES_PER_BLOCK == 0) {
+					// the line starts after the \n
+					fBlockOffsets[fDelimiters / LINES_PER_BLOCK]++;
+				}
+			} else if (b == '\n' || b == '\r') {
+				lineEnded(start + i + 1);
+				fLastCR = b == '\r';
+				fPartialLine = false;
+			} else {
+				fLastCR = false;
+				fPartialLine = true;
+			}
+		}
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!fWriteBuffer.hasRemaining()) {
+				flush();
+			}
+			int length = Math.min(bytes.length - offset, fWriteBuffer.remaining());
+			fWriteBuffer.put(bytes, offset, length);
+			offset += length;
+		}
+	}
+
+	private void lineEnded(long nextLineOffset) {
+		fDelimiters++;
+		if (fDelimiters % LINES_PER_BLOCK == 0) {
+			int block = fDelimiters / LINES_PER_BLOCK;
+			if (block == fBlockOffsets.length) {
+				long[] offsets = new long[block * 2];
+				System.arraycopy(fBlockOffsets, 0, offsets, 0, block);
+				fBlockOffsets = offsets;
+			}
+			fBlockOffsets[block] = nextLineOffset;
+		}
+	}
+
+	/**
+	 * Returns the number of lines in the store. A line without delimiter at
+	 * the end of the store is counted, an empty one is not.
+	 *
+	 * @return the number of lines
+	 */
+	public synchronized int getLineCount() {
+		return fPartialLine ? fDelimiters + 1 : fDelimiters;
+	}
+
+	/**
+	 * Returns the text of the given lines, including their delimiters.
+	 *
+	 * @param first the first line
+	 * @param count the number of lines, the lines after the end of the store
+	 *            are ignored
+	 * @return the text of the lines
+	 * @throws IOException if the text cannot be read
+	 */
+	public synchronized String getLines(int first, int count) throws IOException {
+		StringBuilder text = new StringBuilder();
+		int end = Math.min(first + count, getLineCount());
+		if (first >= end) {
+			return text.toString();
+		}
+		LineReader reader = openAt(first);
+		for (int line = first; line < end; line++) {
+			reader.readLine(text);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns the first line from the given line on, in the given direction,
+	 * that contains a match of the pattern. Lines are matched without their
+	 * delimiters.
+	 *
+	 * @param pattern the pattern to look for
+	 * @param line the line to start at, it is searched as well
+	 * @param forward whether to search towards the end of the store
+	 * @return the line that contains a match or -1 if none
+	 * @throws IOException if the text cannot be read
+	 */
+	public int find(Pattern pattern, int line, boolean forward) throws IOException {
+		return find(pattern, line, forward, new NullProgressMonitor());
+	}
+
+	/**
+	 * Returns the first line from the given line on, in the given direction,
+	 * that contains a match of the pattern, reporting the lines searched to
+	 * the monitor. Lines are matched without their delimiters.
+	 *
+	 * @param pattern the pattern to look for
+	 * @param line the line to start at, it is searched as well
+	 * @param forward whether to search towards the end of the store
+	 * @param monitor the progress monitor, the search stops with -1 when it
+	 *            is canceled
+	 * @return the line that contains a match or -1 if none
+	 * @throws IOException if the text cannot be read
+	 */
+	public synchronized int find(Pattern pattern, int line, boolean forward, IProgressMonitor monitor) throws IOException {
+		int lineCount = getLineCount();
+		if (line < 0 || line >= lineCount) {
+			return -1;
+		}
+		SubMonitor progress = SubMonitor.convert(monitor, forward ? lineCount - line : line + 1);
+		StringBuilder text = new StringBuilder();
+		if (forward) {
+			LineReader reader = openAt(line);
+			for (int i = line; i < lineCount; i++) {
+				if ((i - line) % LINES_PER_BLOCK == 0) {
+					if (progress.isCanceled()) {
+						return -1;
+					}
+					progress.worked(Math.min(LINES_PER_BLOCK, lineCount - i));
+				}
+				text.setLength(0);
+				int length = reader.readLine(text);
+				if (pattern.matcher(text).region(0, length).find()) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		// read the blocks backwards, each from its start
+		for (int block = line / LINES_PER_BLOCK; block >= 0; block--) {
+			if (progress.isCanceled()) {
+				return -1;
+			}
+			int first = block * LINES_PER_BLOCK;
+			int end = Math.min(line + 1, first + LINES_PER_BLOCK);
+			progress.worked(end - first);
+			LineReader reader = openAt(first);
+			List<String> lines = new ArrayList<String>(end - first);
+			for (int i = first; i < end; i++) {
+				text.setLength(0);
+				int length = reader.readLine(text);
+				lines.add(text.substring(0, length));
+			}
+			for (int i = lines.size() - 1; i >= 0; i--) {
+				if (pattern.matcher(lines.get(i)).find()) {
+					return first + i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Removes all text from the store.
+	 *
+	 * @throws IOException if the file cannot be truncated
+	 */
+	public synchronized void clear() throws IOException {
+		fWriteBuffer.clear();
+		fChannel.truncate(0);
+		fFileLength = 0;
+		fDelimiters = 0;
+		fPartialLine = false;
+		fLastCR = false;
+		fBlockOffsets[0] = 0;
+	}
+
+	/**
+	 * Closes and deletes the file of the store.
+	 */
+	public synchronized void dispose() {
+		try {
+			fChannel.close();
+		} catch (IOException e) {
+			ConsolePlugin.log(e);
+		}
+		fFile.delete();
+	}
+
+	private void flush() throws IOException {
+		fWriteBuffer.flip();
+		while (fWriteBuffer.hasRemaining()) {
+			fFileLength += fChannel.write(fWriteBuffer, fFileLength);
+		}
+		fWriteBuffer.clear();
+	}
+
+	/**
+	 * Returns a reader positioned at the start of the given line.
+	 */
+	private LineReader openAt(int line) throws IOException {
+		flush();
+		LineReader reader = new LineReader(new InputStreamReader(new ChannelInputStream(fBlockOffsets[line / LINES_PER_BLOCK]), StandardCharsets.UTF_8));
+		StringBuilder skipped = new StringBuilder();
+		for (int i = line % LINES_PER_BLOCK; i > 0; i--) {
+			skipped.setLength(0);
+			reader.readLine(skipped);
+		}
+		return reader;
+	}
+
+	/**
+	 * Reads the file from an offset, without moving the position of the
+	 * channel.
+	 */
+	private class ChannelInputStream extends InputStream {
+
+		private long fPosition;
+
+		ChannelInputStream(long position) {
+			fPosition = position;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (fPosition >= fFileLength) {
+				return -1;
+			}
+			int read = fChannel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, fFileLength - fPosition)), fPosition);
+			if (read > 0) {
+				fPosition += read;
+			}
+			return read;
+		}
+	}
+
+	/**
+	 * Splits decoded text into lines that keep their delimiters.
+	 */
+	private static class LineReader {
+
+		private final Reader fReader;
+
+		private final char[] fBuffer = new char[8192];
+
+		private int fPosition = 0;
+
+		private int fLimit = 0;
+
+		LineReader(Reader reader) {
+			fReader = reader;
+		}
+
+		/**
+		 * Appends the next line and its delimiter to the given text.
+		 *
+		 * @return the length of the line without its delimiter
+		 */
+		int readLine(StringBuilder text) throws IOException {
+			int start = text.length();
+			while (fill()) {
+				for (int i = fPosition; i < fLimit; i++) {
+					char c = fBuffer[i];
+					if (c == '\n' || c == '\r') {
+						text.append(fBuffer, fPosition, i + 1 - fPosition);
+						fPosition = i + 1;
+						int length = text.length() - start - 1;
+						if (c == '\r' && fill() && fBuffer[fPosition] == '\n') {
+							text.append('\n');
+							fPosition++;
+						}
+						return length;
+					}
+				}
+				text.append(fBuffer, fPosition, fLimit - fPosition);
+				fPosition = fLimit;
+			}
+			return text.length() - start;
+		}
+
+		/**
+		 * Returns whether there is buffered text, reading more if needed.
+		 */
+		private boolean fill() throws IOException {
+			if (fPosition < fLimit) {
+				return true;
+			}
+			fPosition = 0;
+			fLimit = Math.max(fReader.read(fBuffer), 0);
+			return fLimit > 0;
+		}
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -80,8 +80,17 @@ public class ConsoleManager implements IConsoleManager {
 
     private boolean fWarnQueued = false;
 
+	private WarnJob fWarnJob = new WarnJob();
+
     private RepaintJob fRepaintJob = new RepaintJob();
 
+	private boolean fRepaintQueued = false;
+
+	/**
+	 * Schedules the updates of all console documents
+	 */
+	private final ConsoleUpdateScheduler fUpdateScheduler = new ConsoleUpdateScheduler();
+
     private class RepaintJob extends WorkbenchJob {
 		private Set<IConsole> list = new HashSet<IConsole>();
 
@@ -99,6 +108,7 @@ public class ConsoleManager implements IConsoleManager {
         @Override
 		public IStatus runInUIThread(IProgressMonitor monitor) {
             synchronized (list) {
+				fRepaintQueued = false;
                 if (list.isEmpty()) {
                     return Status.OK_STATUS;
                 }
@@ -129,6 +139,40 @@ public class ConsoleManager implements IConsoleManager {
         }
     }
 
+	/**
+	 * Shows that the content of a console has changed in the console view.
+	 */
+	private class WarnJob extends UIJob {
+
+		private IConsole fConsole;
+
+		WarnJob() {
+			super(ConsolePlugin.getStandardDisplay(), ConsoleMessages.ConsoleManager_consoleContentChangeJob);
+			setSystem(true);
+		}
+
+		void setConsole(IConsole console) {
+			fConsole = console;
+		}
+
+		@Override
+		public IStatus runInUIThread(IProgressMonitor monitor) {
+			IConsole console = fConsole;
+			fWarnQueued = false;
+			IWorkbenchWindow window= PlatformUI.getWorkbench().getActiveWorkbenchWindow();
+			if (window != null) {
+				IWorkbenchPage page= window.getActivePage();
+				if (page != null) {
+					IConsoleView consoleView= (IConsoleView)page.findView(IConsoleConstants.ID_CONSOLE_VIEW);
+					if (consoleView != null) {
+						consoleView.warnOfContentChange(console);
+					}
+				}
+			}
+			return Status.OK_STATUS;
+		}
+	}
+
 	/**
 	 * Notifies a console listener of additions or removals
 	 */
@@ -387,25 +431,8 @@ public class ConsoleManager implements IConsoleManager {
 	public void warnOfContentChange(final IConsole console) {
 		if (!fWarnQueued) {
 			fWarnQueued = true;
-			Job job = new UIJob(ConsolePlugin.getStandardDisplay(), ConsoleMessages.ConsoleManager_consoleContentChangeJob) {
-				@Override
-				public IStatus runInUIThread(IProgressMonitor monitor) {
-					IWorkbenchWindow window= PlatformUI.getWorkbench().getActiveWorkbenchWindow();
-					if (window != null) {
-						IWorkbenchPage page= window.getActivePage();
-						if (page != null) {
-							IConsoleView consoleView= (IConsoleView)page.findView(IConsoleConstants.ID_CONSOLE_VIEW);
-							if (consoleView != null) {
-								consoleView.warnOfContentChange(console);
-							}
-						}
-					}
-					fWarnQueued = false;
-					return Status.OK_STATUS;
-				}
-			};
-			job.setSystem(true);
-			job.schedule();
+			fWarnJob.setConsole(console);
+			fWarnJob.schedule();
 		}
 	}
 
@@ -498,7 +525,37 @@ public class ConsoleManager implements IConsoleManager {
     @Override
 	public void refresh(final IConsole console) {
         fRepaintJob.addConsole(console);
-        fRepaintJob.schedule(50);
+		if (!fRepaintQueued) {
+			fRepaintQueued = true;
+			fRepaintJob.schedule(fUpdateScheduler.getFrameDelay());
+		}
     }
 
+	/**
+	 * Returns the scheduler of the updates of all console documents.
+	 *
+	 * @return the update scheduler
+	 */
+	public ConsoleUpdateScheduler getUpdateScheduler() {
+		return fUpdateScheduler;
+	}
+
+	/**
+	 * Returns whether the given console is shown in a console view. Must be
+	 * called in the UI thread.
+	 *
+	 * @param console a console
+	 * @return whether the console is visible
+	 */
+	public boolean isVisible(IConsole console) {
+		synchronized (fConsoleViews) {
+			for (IConsoleView view : fConsoleViews) {
+				if (view.getConsole() == console && view.getSite().getPage().isPartVisible(view)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 }
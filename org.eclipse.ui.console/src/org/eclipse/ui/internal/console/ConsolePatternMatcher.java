@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2013 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -24,6 +24,7 @@ import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.console.ConsolePlugin;
 import org.eclipse.ui.console.IPatternMatchListener;
 import org.eclipse.ui.console.PatternMatchEvent;
@@ -44,6 +45,34 @@ public class ConsolePatternMatcher implements IDocumentListener {
 
 	private boolean fScheduleFinal;
 
+	/**
+	 * Number of characters matched per run while catching up with deferred
+	 * matching
+	 */
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Whether matching is deferred while the console is not visible
+	 */
+	private volatile boolean fDeferred = false;
+
+	/**
+	 * Whether the document has changed while matching was deferred
+	 */
+	private volatile boolean fPending = false;
+
+	/**
+	 * Whether the deferred text is being matched
+	 */
+	private volatile boolean fCatchingUp = false;
+
+	/**
+	 * Region shown by a viewer that is matched first when catching up, guarded
+	 * by fPatterns
+	 */
+	private int fRequestStart = -1;
+	private int fRequestEnd = -1;
+
     public ConsolePatternMatcher(TextConsole console) {
         fConsole = console;
 		fMatchJob = new MatchJob();
@@ -64,8 +93,10 @@ public class ConsolePatternMatcher implements IDocumentListener {
         @Override
 		protected IStatus run(IProgressMonitor monitor) {
 			IDocument doc = fConsole.getDocument();
-			String text = null;
-			int prevBaseOffset = -1;
+			// deferred matching catches up in chunks, unless no more output
+			// is expected
+			boolean inChunks = fCatchingUp && !fScheduleFinal;
+			boolean behind = false;
 			if (doc != null && !monitor.isCanceled()) {
 				int endOfSearch = doc.getLength();
 				int indexOfLastChar = endOfSearch;
@@ -85,83 +116,65 @@ public class ConsolePatternMatcher implements IDocumentListener {
 				synchronized (fPatterns) {
 					patterns = fPatterns.toArray();
 				}
+				try {
+					matchRequestedRegion(doc, patterns, offsetOfLastLineToSearch, monitor);
+				} catch (BadLocationException e) {
+					ConsolePlugin.log(e);
+				}
+				String text = null;
+				int textStart = -1;
+				int textEnd = -1;
 				for (int i = 0; i < patterns.length; i++) {
 					if (monitor.isCanceled()) {
 						break;
 					}
 					CompiledPatternMatchListener notifier = (CompiledPatternMatchListener) patterns[i];
+					notifier.skipAhead();
 					int baseOffset = notifier.end;
-					int lengthToSearch = endOfSearch - baseOffset;
-					if (lengthToSearch > 0) {
-						try {
-							if (prevBaseOffset != baseOffset) {
-								// reuse the text string if possible
-								text = doc.get(baseOffset, lengthToSearch);
-							}
-							if(text == null) {
-								continue;
-							}
-							Matcher reg = notifier.pattern.matcher(text);
-							Matcher quick = null;
-							if (notifier.qualifier != null) {
-								quick = notifier.qualifier.matcher(text);
-							}
-							int startOfNextSearch = 0;
-							int endOfLastMatch = -1;
-							int lineOfLastMatch = -1;
-							while ((startOfNextSearch < lengthToSearch) && !monitor.isCanceled()) {
-								if (quick != null) {
-									if (quick.find(startOfNextSearch)) {
-										// start searching on the beginning
-										// of the line where the potential
-										// match was found, or after the
-										// last match on the same line
-										int matchLine = doc.getLineOfOffset(baseOffset + quick.start());
-										if (lineOfLastMatch == matchLine) {
-											startOfNextSearch = endOfLastMatch;
-										} else {
-											startOfNextSearch = doc.getLineOffset(matchLine) - baseOffset;
-										}
-									} else {
-										startOfNextSearch = lengthToSearch;
-									}
-								}
-								if (startOfNextSearch < 0) {
-									startOfNextSearch = 0;
-								}
-								if (startOfNextSearch < lengthToSearch) {
-									if (reg.find(startOfNextSearch)) {
-										endOfLastMatch = reg.end();
-										lineOfLastMatch = doc.getLineOfOffset(baseOffset + endOfLastMatch - 1);
-										int regStart = reg.start();
-										IPatternMatchListener listener = notifier.listener;
-										if (listener != null && !monitor.isCanceled()) {
-											listener.matchFound(new PatternMatchEvent(fConsole, baseOffset + regStart, endOfLastMatch - regStart));
-										}
-										startOfNextSearch = endOfLastMatch;
-									} else {
-										startOfNextSearch = lengthToSearch;
-									}
-								}
+					int end = notifier.aheadStart >= 0 ? notifier.aheadStart : endOfSearch;
+					if (end <= baseOffset) {
+						continue;
+					}
+					try {
+						if (inChunks && end - baseOffset > CHUNK_SIZE) {
+							int line = doc.getLineOfOffset(baseOffset + CHUNK_SIZE);
+							if (line + 1 < doc.getNumberOfLines()) {
+								end = Math.min(end, doc.getLineOffset(line + 1));
 							}
-							// update start of next search to the last line
+						}
+						if (baseOffset != textStart || end != textEnd) {
+							// reuse the text string if possible
+							text = doc.get(baseOffset, end - baseOffset);
+							textStart = baseOffset;
+							textEnd = end;
+						}
+						int endOfLastMatch = match(doc, notifier, text, baseOffset, monitor);
+						if (end < endOfSearch) {
+							// the text ends at the start of a line
+							notifier.end = end;
+						} else if (endOfLastMatch > offsetOfLastLineToSearch) {
+							// update start of next search to the end of the
+							// last match if it was on the line that was last
 							// searched
-							// or the end of the last match if it was on the
-							// line that
-							// was last searched
-							if (lastLineToSearch == lineOfLastMatch) {
-								notifier.end = baseOffset + endOfLastMatch;
-							} else {
-								notifier.end = offsetOfLastLineToSearch;
-							}
-						} catch (BadLocationException e) {
-							ConsolePlugin.log(e);
+							notifier.end = endOfLastMatch;
+						} else {
+							// or to the last line searched
+							notifier.end = offsetOfLastLineToSearch;
 						}
+						notifier.skipAhead();
+						behind |= notifier.end < offsetOfLastLineToSearch;
+					} catch (BadLocationException e) {
+						ConsolePlugin.log(e);
 					}
-					prevBaseOffset = baseOffset;
 				}
 			}
 
+			if (inChunks && behind) {
+				// continue with the next chunk
+				schedule();
+				return Status.OK_STATUS;
+			}
+			fCatchingUp = false;
 			if (fFinalMatch) {
 				disconnect();
 				fConsole.matcherFinished();
@@ -173,6 +186,99 @@ public class ConsolePatternMatcher implements IDocumentListener {
 			return Status.OK_STATUS;
 		}
 
+		/**
+		 * Matches the region requested by a viewer ahead of the rest of the
+		 * deferred text.
+		 */
+		private void matchRequestedRegion(IDocument doc, Object[] patterns, int offsetOfLastLineToSearch, IProgressMonitor monitor) throws BadLocationException {
+			int start;
+			int end;
+			synchronized (fPatterns) {
+				start = fRequestStart;
+				end = fRequestEnd;
+				fRequestStart = -1;
+			}
+			if (start < 0) {
+				return;
+			}
+			// search complete lines only
+			start = doc.getLineOffset(doc.getLineOfOffset(Math.min(start, doc.getLength())));
+			int endLine = doc.getLineOfOffset(Math.min(end, doc.getLength()));
+			end = endLine + 1 < doc.getNumberOfLines() ? doc.getLineOffset(endLine + 1) : offsetOfLastLineToSearch;
+			end = Math.min(end, offsetOfLastLineToSearch);
+			if (start >= end) {
+				return;
+			}
+			for (int i = 0; i < patterns.length; i++) {
+				CompiledPatternMatchListener notifier = (CompiledPatternMatchListener) patterns[i];
+				if (monitor.isCanceled() || notifier.end >= end || notifier.aheadStart >= 0) {
+					continue;
+				}
+				int from = Math.max(notifier.end, start);
+				match(doc, notifier, doc.get(from, end - from), from, monitor);
+				if (notifier.end >= start) {
+					notifier.end = end;
+				} else {
+					notifier.aheadStart = start;
+					notifier.aheadEnd = end;
+				}
+			}
+		}
+
+		/**
+		 * Notifies the listener of the matches in the given text.
+		 *
+		 * @return the document offset of the end of the last match or -1 if
+		 *         none
+		 */
+		private int match(IDocument doc, CompiledPatternMatchListener notifier, String text, int baseOffset, IProgressMonitor monitor) throws BadLocationException {
+			int lengthToSearch = text.length();
+			Matcher reg = notifier.pattern.matcher(text);
+			Matcher quick = null;
+			if (notifier.qualifier != null) {
+				quick = notifier.qualifier.matcher(text);
+			}
+			int startOfNextSearch = 0;
+			int endOfLastMatch = -1;
+			int lineOfLastMatch = -1;
+			while ((startOfNextSearch < lengthToSearch) && !monitor.isCanceled()) {
+				if (quick != null) {
+					if (quick.find(startOfNextSearch)) {
+						// start searching on the beginning
+						// of the line where the potential
+						// match was found, or after the
+						// last match on the same line
+						int matchLine = doc.getLineOfOffset(baseOffset + quick.start());
+						if (lineOfLastMatch == matchLine) {
+							startOfNextSearch = endOfLastMatch;
+						} else {
+							startOfNextSearch = doc.getLineOffset(matchLine) - baseOffset;
+						}
+					} else {
+						startOfNextSearch = lengthToSearch;
+					}
+				}
+				if (startOfNextSearch < 0) {
+					startOfNextSearch = 0;
+				}
+				if (startOfNextSearch < lengthToSearch) {
+					if (reg.find(startOfNextSearch)) {
+						endOfLastMatch = reg.end();
+						lineOfLastMatch = doc.getLineOfOffset(baseOffset + endOfLastMatch - 1);
+						int regStart = reg.start();
+						IPatternMatchListener listener = notifier.listener;
+						if (listener != null && !monitor.isCanceled()) {
+							listener.matchFound(new PatternMatchEvent(fConsole, baseOffset + regStart, endOfLastMatch - regStart));
+						}
+						startOfNextSearch = endOfLastMatch;
+					} else {
+						startOfNextSearch = lengthToSearch;
+					}
+				}
+			}
+			return endOfLastMatch < 0 ? -1 : baseOffset + endOfLastMatch;
+		}
+
 		@Override
 		public boolean belongsTo(Object family) {
             return family == fConsole;
@@ -190,12 +296,28 @@ public class ConsolePatternMatcher implements IDocumentListener {
 
         int end = 0;
 
+		/**
+		 * Region after end that has already been matched, or -1
+		 */
+		int aheadStart = -1;
+		int aheadEnd = -1;
+
         CompiledPatternMatchListener(Pattern pattern, Pattern qualifier, IPatternMatchListener matchListener) {
             this.pattern = pattern;
             this.listener = matchListener;
             this.qualifier = qualifier;
         }
 
+		/**
+		 * Continues after the region matched ahead once it is reached.
+		 */
+		void skipAhead() {
+			if (aheadStart >= 0 && end >= aheadStart) {
+				end = Math.max(end, aheadEnd);
+				aheadStart = -1;
+			}
+		}
+
         public void dispose() {
             listener.disconnect();
             pattern = null;
@@ -285,22 +407,99 @@ public class ConsolePatternMatcher implements IDocumentListener {
             synchronized (fPatterns) {
                 if (event.fDocument.getLength() == 0) {
                     // document has been cleared, reset match listeners
-					for (CompiledPatternMatchListener notifier : fPatterns) {
-						notifier.end = 0;
-					}
+                    for (CompiledPatternMatchListener notifier : fPatterns) {
+                        notifier.end = 0;
+                        notifier.aheadStart = -1;
+                    }
                 } else {
                     if (event.fOffset == 0) {
                         //document was trimmed
-						for (CompiledPatternMatchListener notifier : fPatterns) {
-							notifier.end = notifier.end > event.fLength ? notifier.end - event.fLength : 0;
-						}
+                        for (CompiledPatternMatchListener notifier : fPatterns) {
+                            notifier.end = notifier.end > event.fLength ? notifier.end - event.fLength : 0;
+                            if (notifier.aheadStart >= 0) {
+                                notifier.aheadStart = Math.max(notifier.aheadStart - event.fLength, 0);
+                                notifier.aheadEnd -= event.fLength;
+                                if (notifier.aheadEnd <= 0) {
+                                    notifier.aheadStart = -1;
+                                }
+                            }
+                        }
                     }
                 }
             }
         }
+        if (fDeferred && !isShown()) {
+            fPending = true;
+            return;
+        }
         fMatchJob.schedule();
     }
 
+	/**
+	 * Returns whether the console is shown in a console view. Visibility is
+	 * only known in the UI thread, elsewhere the console is assumed to be
+	 * shown.
+	 */
+	private boolean isShown() {
+		if (Display.getCurrent() == null) {
+			return true;
+		}
+		return ((ConsoleManager) ConsolePlugin.getDefault().getConsoleManager()).isVisible(fConsole);
+	}
+
+	/**
+	 * Sets whether matching is deferred while the console is not shown in a
+	 * console view. Deferred text is matched when a viewer shows it, when the
+	 * hyperlinks of the console are requested or when no more output is
+	 * expected.
+	 *
+	 * @param deferred whether to defer matching
+	 */
+	public void setDeferred(boolean deferred) {
+		fDeferred = deferred;
+		if (!deferred) {
+			catchUp();
+		}
+	}
+
+	/**
+	 * Returns whether matching is deferred while the console is not shown.
+	 *
+	 * @return whether matching is deferred
+	 */
+	public boolean isDeferred() {
+		return fDeferred;
+	}
+
+	/**
+	 * Matches the deferred text, starting with the given region of the
+	 * document shown by a viewer.
+	 *
+	 * @param offset the offset of the shown region
+	 * @param length the length of the shown region
+	 */
+	public void matchDeferred(int offset, int length) {
+		if (!fPending) {
+			return;
+		}
+		synchronized (fPatterns) {
+			fRequestStart = offset;
+			fRequestEnd = offset + Math.max(length, 0);
+		}
+		catchUp();
+	}
+
+	/**
+	 * Matches the deferred text, if any, in chunks.
+	 */
+	public void catchUp() {
+		if (fPending) {
+			fPending = false;
+			fCatchingUp = true;
+			fMatchJob.schedule();
+		}
+	}
+
 
     public void forceFinalMatching() {
     	fScheduleFinal = true;
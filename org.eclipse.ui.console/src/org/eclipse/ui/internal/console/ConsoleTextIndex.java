@@ -0,0 +1,865 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.console;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+
+/**
+ * Trigram index of the text of a console document, used to find matches
+ * without scanning the whole document.
+ * <p>
+ * The text is split into chunks of {@link #CHUNK_SIZE} characters and the
+ * index maps each trigram, in lower case, to the chunks it starts in. Offsets
+ * are absolute: the document offset plus the number of characters that have
+ * been trimmed from the head of the document.
+ * </p>
+ * <p>
+ * The index is only built once it is first searched, so consoles that are
+ * never searched do not pay for it. From then on, changes are queued by the
+ * partitioner and indexed by a background job. A search does not wait for the
+ * job: while changes are queued, the index cannot answer and the caller
+ * searches the document itself.
+ * </p>
+ * <p>
+ * The index may report chunks that no longer contain a trigram after the
+ * document has been edited, but never misses one. Candidate chunks are
+ * verified against the document.
+ * </p>
+ *
+ * @since 3.7
+ */
+public class ConsoleTextIndex {
+
+	/**
+	 * Number of characters per chunk
+	 */
+	static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Chunks that contain a trigram, ascending
+	 */
+	private static class Postings {
+		int[] fChunks = new int[4];
+		int fSize;
+
+		void add(int chunk) {
+			if (fSize > 0 && fChunks[fSize - 1] >= chunk) {
+				// reindexed after an edit
+				int index = Arrays.binarySearch(fChunks, 0, fSize, chunk);
+				if (index >= 0) {
+					return;
+				}
+				insert(-index - 1, chunk);
+				return;
+			}
+			insert(fSize, chunk);
+		}
+
+		private void insert(int index, int chunk) {
+			if (fSize == fChunks.length) {
+				fChunks = Arrays.copyOf(fChunks, fSize * 2);
+			}
+			System.arraycopy(fChunks, index, fChunks, index + 1, fSize - index);
+			fChunks[index] = chunk;
+			fSize++;
+		}
+
+		/**
+		 * Removes the chunks before the given chunk.
+		 */
+		void removeBefore(int chunk) {
+			int index = Arrays.binarySearch(fChunks, 0, fSize, chunk);
+			int removed = index >= 0 ? index : -index - 1;
+			System.arraycopy(fChunks, removed, fChunks, 0, fSize - removed);
+			fSize -= removed;
+		}
+	}
+
+	/**
+	 * Postings by trigram, in an open addressing table with primitive keys
+	 */
+	private static class PostingsTable {
+
+		private static final int INITIAL_CAPACITY = 1024;
+
+		private long[] fKeys = new long[INITIAL_CAPACITY];
+
+		/**
+		 * Postings of the keys, <code>null</code> for free slots
+		 */
+		private Postings[] fValues = new Postings[INITIAL_CAPACITY];
+
+		private int fSize;
+
+		Postings get(long trigram) {
+			int mask = fKeys.length - 1;
+			for (int i = hash(trigram) & mask; fValues[i] != null; i = (i + 1) & mask) {
+				if (fKeys[i] == trigram) {
+					return fValues[i];
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Adds the postings of a trigram that is not in the table.
+		 */
+		void add(long trigram, Postings postings) {
+			if ((fSize + 1) * 2 > fKeys.length) {
+				rehash(fKeys.length * 2, -1);
+			}
+			insert(trigram, postings);
+			fSize++;
+		}
+
+		private void insert(long trigram, Postings postings) {
+			int mask = fKeys.length - 1;
+			int i = hash(trigram) & mask;
+			while (fValues[i] != null) {
+				i = (i + 1) & mask;
+			}
+			fKeys[i] = trigram;
+			fValues[i] = postings;
+		}
+
+		/**
+		 * Removes the chunks before the given chunk from all postings, and
+		 * the postings that become empty.
+		 */
+		void removeBefore(int chunk) {
+			rehash(fKeys.length, chunk);
+		}
+
+		private void rehash(int capacity, int firstChunk) {
+			long[] keys = fKeys;
+			Postings[] values = fValues;
+			fKeys = new long[capacity];
+			fValues = new Postings[capacity];
+			fSize = 0;
+			for (int i = 0; i < keys.length; i++) {
+				Postings postings = values[i];
+				if (postings != null) {
+					if (firstChunk >= 0) {
+						postings.removeBefore(firstChunk);
+					}
+					if (postings.fSize > 0) {
+						insert(keys[i], postings);
+						fSize++;
+					}
+				}
+			}
+		}
+
+		void clear() {
+			fKeys = new long[INITIAL_CAPACITY];
+			fValues = new Postings[INITIAL_CAPACITY];
+			fSize = 0;
+		}
+
+		private static int hash(long trigram) {
+			return (int) ((trigram * 0x9E3779B97F4A7C15L) >>> 32);
+		}
+	}
+
+	/**
+	 * A change of the document waiting to be indexed
+	 */
+	private static class Change {
+		/**
+		 * Document offset of the text, or -1 if the text is appended
+		 */
+		final int fOffset;
+		final String fText;
+		/**
+		 * Number of characters trimmed from the head, or -1 if the document
+		 * is cleared
+		 */
+		final int fTrimmed;
+
+		Change(int offset, String text, int trimmed) {
+			fOffset = offset;
+			fText = text;
+			fTrimmed = trimmed;
+		}
+	}
+
+	/**
+	 * Matches of a pattern in the document, sorted by offset
+	 */
+	public static class Matches {
+
+		private final ConsoleTextIndex fIndex;
+		private final int fModification;
+		private final long[] fOffsets;
+		private final int[] fLengths;
+		private final int fCount;
+
+		/**
+		 * Index of the match that was returned last
+		 */
+		private int fLast = -1;
+
+		Matches(ConsoleTextIndex index, long[] offsets, int[] lengths, int count) {
+			fIndex = index;
+			fModification = index.fModification;
+			fOffsets = offsets;
+			fLengths = lengths;
+			fCount = count;
+		}
+
+		/**
+		 * Returns whether the document has changed since the matches were
+		 * found, or the index has not caught up with a change.
+		 *
+		 * @return whether the matches are outdated
+		 */
+		public boolean isOutdated() {
+			synchronized (fIndex) {
+				return fModification != fIndex.fModification || !fIndex.fPending.isEmpty();
+			}
+		}
+
+		/**
+		 * Returns the number of matches, including the ones that have been
+		 * trimmed from the document since.
+		 *
+		 * @return the number of matches
+		 */
+		public int getCount() {
+			return fCount;
+		}
+
+		/**
+		 * Returns the document offset of the given match.
+		 *
+		 * @param match index of the match
+		 * @return the document offset of the match, negative if it has been
+		 *         trimmed
+		 */
+		public int getOffset(int match) {
+			return (int) (fOffsets[match] - fIndex.fBase);
+		}
+
+		/**
+		 * Returns the length of the given match.
+		 *
+		 * @param match index of the match
+		 * @return the length of the match
+		 */
+		public int getLength(int match) {
+			return fLengths[match];
+		}
+
+		/**
+		 * Returns the next match from the given document offset on. Moving
+		 * from the match returned last to the one next to it takes constant
+		 * time.
+		 *
+		 * @param offset document offset
+		 * @param forward whether to return the first match that starts at or
+		 *            after the offset, or the last match that starts at or
+		 *            before it
+		 * @return index of the match or -1 if none
+		 */
+		public int getNext(int offset, boolean forward) {
+			long base = fIndex.fBase;
+			long absolute = offset + base;
+			int match;
+			if (forward && fLast >= 0 && fLast + 1 < fCount && absolute > fOffsets[fLast] && absolute <= fOffsets[fLast + 1]) {
+				match = fLast + 1;
+			} else if (!forward && fLast > 0 && absolute >= fOffsets[fLast - 1] && absolute < fOffsets[fLast]) {
+				match = fLast - 1;
+			} else {
+				int index = Arrays.binarySearch(fOffsets, 0, fCount, absolute);
+				if (index >= 0) {
+					match = index;
+				} else {
+					match = forward ? -index - 1 : -index - 2;
+				}
+			}
+			if (match >= fCount || match >= 0 && fOffsets[match] < base) {
+				// after the end or trimmed
+				match = -1;
+			}
+			fLast = match;
+			return match;
+		}
+	}
+
+	/**
+	 * Number of characters of the document indexed at a time when the index
+	 * is built, so that searches do not wait long for the lock
+	 */
+	private static final int BUILD_STEP = 16 * CHUNK_SIZE;
+
+	/**
+	 * Postings of the trigrams, <code>null</code> until the index is built
+	 */
+	private PostingsTable fPostings;
+
+	/**
+	 * Whether the index has been searched, changes are only indexed from
+	 * then on
+	 */
+	private boolean fActive = false;
+
+	/**
+	 * Absolute offset of the start of the document
+	 */
+	private volatile long fBase = 0;
+
+	/**
+	 * Absolute offset after the indexed text
+	 */
+	private long fEnd = 0;
+
+	/**
+	 * The last two indexed characters, the most recent in the low bits, and
+	 * how many of them are valid
+	 */
+	private long fPrevious = 0;
+	private int fPreviousCount = 0;
+
+	/**
+	 * Chunks before this chunk have been removed from all postings
+	 */
+	private int fCompactedChunk = 0;
+
+	/**
+	 * Incremented whenever the indexed text changes
+	 */
+	private int fModification = 0;
+
+	private final ArrayDeque<Change> fPending = new ArrayDeque<Change>();
+
+	private final Job fIndexJob = new Job("Console Indexer") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			// the lock is released after each change
+			while (indexNext()) {
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+			}
+			return Status.OK_STATUS;
+		}
+	};
+
+	public ConsoleTextIndex() {
+		fIndexJob.setSystem(true);
+		fIndexJob.setPriority(Job.DECORATE);
+	}
+
+	/**
+	 * Notification that text was appended to the document.
+	 *
+	 * @param text the appended text
+	 */
+	public synchronized void textAppended(String text) {
+		if (fActive) {
+			enqueue(new Change(-1, text, 0));
+		}
+	}
+
+	/**
+	 * Notification that the document was edited at the given offset. The
+	 * text from the offset to the end of the document is indexed again.
+	 *
+	 * @param document the document
+	 * @param offset the offset of the edit
+	 */
+	public synchronized void textChanged(IDocument document, int offset) {
+		if (!fActive) {
+			return;
+		}
+		// the trigrams that start before the offset end in the new text
+		int start = Math.max(offset - 2, 0);
+		try {
+			enqueue(new Change(start, document.get(start, document.getLength() - start), 0));
+		} catch (BadLocationException e) {
+		}
+	}
+
+	/**
+	 * Notification that text was removed from the head of the document.
+	 *
+	 * @param length the number of characters removed
+	 */
+	public synchronized void textTrimmed(int length) {
+		if (fActive && length > 0) {
+			enqueue(new Change(-1, null, length));
+		}
+	}
+
+	/**
+	 * Notification that the document was cleared.
+	 */
+	public synchronized void textCleared() {
+		if (fActive) {
+			enqueue(new Change(-1, null, -1));
+		}
+	}
+
+	/**
+	 * Discards the index.
+	 */
+	public synchronized void dispose() {
+		fIndexJob.cancel();
+		fPending.clear();
+		fPostings = null;
+		fActive = false;
+	}
+
+	private void enqueue(Change change) {
+		fPending.add(change);
+		fIndexJob.schedule();
+	}
+
+	/**
+	 * Returns all matches of the pattern in the given document. Only the
+	 * lines around the chunks that contain the required literals of the
+	 * pattern are searched, so a match that spans several lines is only found
+	 * if it starts on a line that contains a literal.
+	 * <p>
+	 * The index is built when it is searched for the first time. Until the
+	 * index job has indexed all changes, <code>null</code> is returned.
+	 * </p>
+	 *
+	 * @param document the indexed document, it must not change during the
+	 *            search
+	 * @param pattern the pattern to look for
+	 * @return the matches, or <code>null</code> if the index is not complete
+	 */
+	public synchronized Matches find(IDocument document, Pattern pattern) {
+		if (!fActive) {
+			build(document);
+			return null;
+		}
+		if (!fPending.isEmpty()) {
+			return null;
+		}
+		int[] candidates = getCandidates(getRequiredLiterals(pattern));
+		long[] offsets = new long[16];
+		int[] lengths = new int[16];
+		int count = 0;
+		int length = document.getLength();
+		int regionStart = -1;
+		int regionEnd = -1;
+		try {
+			for (int i = 0; i <= candidates.length; i++) {
+				int start = -1;
+				int end = -1;
+				if (i < candidates.length) {
+					// a literal that starts in a chunk may end in the next one
+					start = (int) Math.max(candidates[i] * (long) CHUNK_SIZE - fBase, 0);
+					end = (int) Math.min((candidates[i] + 2) * (long) CHUNK_SIZE - fBase, length);
+					if (start >= end) {
+						continue;
+					}
+					start = document.getLineInformationOfOffset(start).getOffset();
+					IRegion line = document.getLineInformationOfOffset(end);
+					end = line.getOffset() + line.getLength();
+					if (regionEnd >= start) {
+						regionEnd = Math.max(regionEnd, end);
+						continue;
+					}
+				}
+				if (regionStart >= 0) {
+					Matcher matcher = pattern.matcher(document.get(regionStart, regionEnd - regionStart));
+					while (matcher.find()) {
+						if (matcher.end() == matcher.start()) {
+							continue;
+						}
+						if (count == offsets.length) {
+							offsets = Arrays.copyOf(offsets, count * 2);
+							lengths = Arrays.copyOf(lengths, count * 2);
+						}
+						offsets[count] = fBase + regionStart + matcher.start();
+						lengths[count] = matcher.end() - matcher.start();
+						count++;
+					}
+				}
+				regionStart = start;
+				regionEnd = end;
+			}
+		} catch (BadLocationException e) {
+		}
+		return new Matches(this, offsets, lengths, count);
+	}
+
+	/**
+	 * Returns the chunks, ascending, that the literal with the fewest
+	 * candidates may start in.
+	 */
+	private int[] getCandidates(String[] literals) {
+		int first = (int) (fBase / CHUNK_SIZE);
+		int[] best = null;
+		for (String literal : literals) {
+			int[] candidates = getCandidates(literal, first);
+			if (best == null || candidates.length < best.length) {
+				best = candidates;
+			}
+		}
+		if (best == null) {
+			// search the whole document
+			best = new int[(int) (fEnd / CHUNK_SIZE) - first + 1];
+			for (int i = 0; i < best.length; i++) {
+				best[i] = first + i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the chunks, ascending, that the literal may start in.
+	 */
+	private int[] getCandidates(String literal, int first) {
+		// the trigrams of a literal that starts in chunk c are in chunk c or c + 1
+		int[] candidates = null;
+		int size = 0;
+		for (int i = 0; i + 2 < literal.length(); i++) {
+			Postings postings = fPostings.get(trigram(literal.charAt(i), literal.charAt(i + 1), literal.charAt(i + 2)));
+			if (postings == null) {
+				return new int[0];
+			}
+			int[] expanded = new int[postings.fSize * 2];
+			int expandedSize = 0;
+			for (int j = 0; j < postings.fSize; j++) {
+				int chunk = postings.fChunks[j];
+				if (chunk < first) {
+					continue;
+				}
+				if (expandedSize == 0 || expanded[expandedSize - 1] < chunk - 1) {
+					expanded[expandedSize++] = chunk - 1;
+				}
+				expanded[expandedSize++] = chunk;
+			}
+			if (candidates == null) {
+				candidates = expanded;
+				size = expandedSize;
+			} else {
+				size = intersect(candidates, size, expanded, expandedSize);
+			}
+			if (size == 0) {
+				break;
+			}
+		}
+		return Arrays.copyOf(candidates, size);
+	}
+
+	/**
+	 * Keeps the elements of the first sorted array that are in the second
+	 * one and returns how many are kept.
+	 */
+	private static int intersect(int[] a, int aSize, int[] b, int bSize) {
+		int size = 0;
+		int j = 0;
+		for (int i = 0; i < aSize && j < bSize; i++) {
+			while (j < bSize && b[j] < a[i]) {
+				j++;
+			}
+			if (j < bSize && b[j] == a[i]) {
+				a[size++] = a[i];
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Starts to index the given document, from its current text on.
+	 */
+	private void build(IDocument document) {
+		fActive = true;
+		fModification++;
+		fPostings = new PostingsTable();
+		fBase = 0;
+		fEnd = 0;
+		fPreviousCount = 0;
+		fCompactedChunk = 0;
+		String text = document.get();
+		for (int i = 0; i < text.length(); i += BUILD_STEP) {
+			enqueue(new Change(-1, text.substring(i, Math.min(i + BUILD_STEP, text.length())), 0));
+		}
+	}
+
+	/**
+	 * Indexes the next queued change and returns whether there was one.
+	 */
+	private synchronized boolean indexNext() {
+		Change change = fPending.poll();
+		if (change == null) {
+			return false;
+		}
+		fModification++;
+		if (change.fTrimmed < 0) {
+			fPostings.clear();
+			fBase = fEnd;
+			fCompactedChunk = (int) (fEnd / CHUNK_SIZE);
+			fPreviousCount = 0;
+		} else if (change.fTrimmed > 0) {
+			fBase += change.fTrimmed;
+			compact();
+		} else {
+			if (change.fOffset >= 0) {
+				fEnd = fBase + change.fOffset;
+				fPreviousCount = 0;
+			}
+			index(change.fText);
+		}
+		return true;
+	}
+
+	private void index(String text) {
+		long previous = fPrevious;
+		int previousCount = fPreviousCount;
+		long end = fEnd;
+		for (int i = 0; i < text.length(); i++) {
+			previous = (previous << 16) | fold(text.charAt(i));
+			end++;
+			if (previousCount < 2) {
+				previousCount++;
+				continue;
+			}
+			long trigram = previous & 0xFFFFFFFFFFFFL;
+			Postings postings = fPostings.get(trigram);
+			if (postings == null) {
+				postings = new Postings();
+				fPostings.add(trigram, postings);
+			}
+			postings.add((int) ((end - 3) / CHUNK_SIZE));
+		}
+		fPrevious = previous & 0xFFFFFFFFL;
+		fPreviousCount = previousCount;
+		fEnd = end;
+	}
+
+	/**
+	 * Removes trimmed chunks from the postings once they make up most of the
+	 * index.
+	 */
+	private void compact() {
+		int first = (int) (fBase / CHUNK_SIZE);
+		if (first - fCompactedChunk < fEnd / CHUNK_SIZE - first) {
+			return;
+		}
+		fPostings.removeBefore(first);
+		fCompactedChunk = first;
+	}
+
+	private static long trigram(char c1, char c2, char c3) {
+		return ((long) fold(c1) << 32) | ((long) fold(c2) << 16) | fold(c3);
+	}
+
+	/**
+	 * Folds the case of a character, so that characters that match case
+	 * insensitively have the same trigrams.
+	 */
+	private static char fold(char c) {
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	/**
+	 * Returns whether {@link #find(IDocument, Pattern)} finds all matches of
+	 * the given pattern, which is the case if its matches cannot span lines
+	 * and are never empty. The result is <code>false</code> if the pattern is
+	 * too complex to tell.
+	 *
+	 * @param pattern a pattern
+	 * @return whether the index finds all matches of the pattern
+	 */
+	public static boolean findsAll(Pattern pattern) {
+		String regex = pattern.pattern();
+		if ((pattern.flags() & Pattern.LITERAL) != 0) {
+			return regex.length() > 0 && regex.indexOf('\n') < 0 && regex.indexOf('\r') < 0;
+		}
+		if ((pattern.flags() & (Pattern.COMMENTS | Pattern.DOTALL)) != 0 || pattern.matcher("").find()) { //$NON-NLS-1$
+			return false;
+		}
+		// empty matches are skipped, like anchors and boundaries on their own
+		Matcher matcher = pattern.matcher("a\n"); //$NON-NLS-1$
+		while (matcher.find()) {
+			if (matcher.end() == matcher.start()) {
+				return false;
+			}
+		}
+		boolean quoted = false;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (quoted) {
+				if (c == '\\' && i + 1 < regex.length() && regex.charAt(i + 1) == 'E') {
+					quoted = false;
+					i++;
+				} else if (c == '\n' || c == '\r') {
+					return false;
+				}
+				continue;
+			}
+			switch (c) {
+				case '\n':
+				case '\r':
+					return false;
+				case '[':
+					// negated classes match line delimiters
+					if (i + 1 < regex.length() && regex.charAt(i + 1) == '^') {
+						return false;
+					}
+					break;
+				case '(':
+					// inline flags may let the dot match line delimiters
+					if (i + 1 < regex.length() && regex.charAt(i + 1) == '?') {
+						return false;
+					}
+					break;
+				case '\\':
+					if (i + 1 == regex.length()) {
+						return false;
+					}
+					char next = regex.charAt(++i);
+					if (next == 'Q') {
+						quoted = true;
+					} else if (Character.isLetterOrDigit(next) && "dwbBAGZz".indexOf(next) < 0) { //$NON-NLS-1$
+						// escapes like \s, \R or \x0A may match line delimiters
+						return false;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns strings that each match of the given pattern contains. The
+	 * result is empty if the pattern requires no literal of at least three
+	 * characters, or if it is too complex to tell.
+	 *
+	 * @param pattern a pattern
+	 * @return strings every match contains
+	 */
+	public static String[] getRequiredLiterals(Pattern pattern) {
+		String regex = pattern.pattern();
+		if ((pattern.flags() & Pattern.LITERAL) != 0) {
+			return regex.length() >= 3 ? new String[] { regex } : new String[0];
+		}
+		if ((pattern.flags() & Pattern.COMMENTS) != 0 || regex.indexOf('|') >= 0 || regex.contains("(?")) { //$NON-NLS-1$
+			// alternatives do not require any of their parts, and inline
+			// flags may change how literals are read
+			return new String[0];
+		}
+		List<String> literals = new ArrayList<String>();
+		StringBuilder run = new StringBuilder();
+		int depth = 0;
+		for (int i = 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\' && i + 1 < regex.length()) {
+				char next = regex.charAt(++i);
+				if (next == 'Q') {
+					int end = regex.indexOf("\\E", i); //$NON-NLS-1$
+					end = end < 0 ? regex.length() : end;
+					if (depth == 0) {
+						run.append(regex, i + 1, end);
+					}
+					i = end + 1;
+				} else if (!Character.isLetterOrDigit(next)) {
+					if (depth == 0) {
+						run.append(next);
+					}
+				} else if ("xuc0pPkN".indexOf(next) >= 0) { //$NON-NLS-1$
+					// escapes with arguments
+					return new String[0];
+				} else {
+					addLiteral(literals, run);
+				}
+				continue;
+			}
+			switch (c) {
+				case '(':
+					// groups may be optional or repeated
+					addLiteral(literals, run);
+					depth++;
+					break;
+				case ')':
+					depth = Math.max(depth - 1, 0);
+					break;
+				case '[':
+					addLiteral(literals, run);
+					i = skipClass(regex, i);
+					break;
+				case '*':
+				case '?':
+				case '{':
+					// the previous character is optional
+					if (run.length() > 0) {
+						run.setLength(run.length() - 1);
+					}
+					addLiteral(literals, run);
+					if (c == '{') {
+						int end = regex.indexOf('}', i);
+						i = end < 0 ? regex.length() : end;
+					}
+					break;
+				case '+':
+				case '.':
+				case '^':
+				case '$':
+					addLiteral(literals, run);
+					break;
+				default:
+					if (depth == 0) {
+						run.append(c);
+					}
+			}
+		}
+		addLiteral(literals, run);
+		return literals.toArray(new String[literals.size()]);
+	}
+
+	private static void addLiteral(List<String> literals, StringBuilder run) {
+		if (run.length() >= 3) {
+			// a longer literal may span more than two chunks
+			literals.add(run.substring(0, Math.min(run.length(), CHUNK_SIZE)));
+		}
+		run.setLength(0);
+	}
+
+	/**
+	 * Returns the index of the end of the character class that starts at the
+	 * given index.
+	 */
+	private static int skipClass(String regex, int start) {
+		int depth = 0;
+		for (int i = start; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (c == '\\') {
+				i++;
+			} else if (c == '[') {
+				depth++;
+			} else if (c == ']' && i > start + 1 && --depth == 0) {
+				return i;
+			}
+		}
+		return regex.length();
+	}
+}
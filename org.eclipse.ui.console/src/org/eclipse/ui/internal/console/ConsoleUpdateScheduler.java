@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.console;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shares the time the UI thread spends appending output to console documents
+ * among all consoles.
+ * <p>
+ * Time is divided into frames of {@link #FRAME_PERIOD} milliseconds, and
+ * console updates may use at most {@link #FRAME_BUDGET} milliseconds of each
+ * frame; the rest of the frame is left for painting and user input. The
+ * number of characters appended per update is derived from the measured cost
+ * of previous updates. Consoles that are not visible use at most a quarter of
+ * the budget, but append at least {@link #MIN_HIDDEN_BATCH} characters per
+ * frame, as no text widget is updated for them.
+ * </p>
+ *
+ * @since 3.7
+ */
+public class ConsoleUpdateScheduler {
+
+	/**
+	 * Length of a frame in milliseconds
+	 */
+	public static final int FRAME_PERIOD = 50;
+
+	/**
+	 * Milliseconds of a frame that console updates may use
+	 */
+	public static final int FRAME_BUDGET = 20;
+
+	/**
+	 * Minimum number of characters appended by an update
+	 */
+	public static final int MIN_BATCH = 8192;
+
+	/**
+	 * Minimum number of characters appended by an update of a console that is
+	 * not visible
+	 */
+	public static final int MIN_HIDDEN_BATCH = 65536;
+
+	/**
+	 * Backlogs smaller than this are delayed by a frame, so that small pieces
+	 * of output are appended together
+	 */
+	private static final int SMALL_BACKLOG = 1000;
+
+	/**
+	 * Weight of a new measurement in the running averages
+	 */
+	private static final double WEIGHT = 0.25;
+
+	private static final long FRAME_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(FRAME_PERIOD);
+
+	private static final long FRAME_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(FRAME_BUDGET);
+
+	/**
+	 * Start of the current frame
+	 */
+	private long fFrameStart = System.nanoTime() - FRAME_PERIOD_NANOS;
+
+	/**
+	 * Time used by updates in the current frame
+	 */
+	private long fFrameUsed = 0;
+
+	/**
+	 * Time used by updates in the last completed frame
+	 */
+	private long fLastFrameUsed = 0;
+
+	/**
+	 * Measured characters appended per nanosecond, initially a conservative
+	 * guess
+	 */
+	private double fCharsPerNano = 0.001;
+
+	/**
+	 * Average and maximum time from output being written to being appended
+	 */
+	private double fLatency = 0;
+	private long fMaxLatency = 0;
+
+	/**
+	 * Characters written to all consoles that have not been appended yet
+	 */
+	private long fBacklog = 0;
+
+	/**
+	 * Returns the number of characters a console should append now.
+	 *
+	 * @param visible whether the console is shown in a console view
+	 * @return the number of characters to append, at least
+	 *         {@link #MIN_BATCH}, or {@link #MIN_HIDDEN_BATCH} for a console
+	 *         that is not visible
+	 */
+	public synchronized int getBatchSize(boolean visible) {
+		long remaining = getRemaining(visible, System.nanoTime());
+		return (int) Math.max(visible ? MIN_BATCH : MIN_HIDDEN_BATCH, Math.min(Integer.MAX_VALUE, remaining * fCharsPerNano));
+	}
+
+	/**
+	 * Returns the delay before a console with pending output should be
+	 * updated.
+	 *
+	 * @param backlog the number of pending characters of the console
+	 * @param visible whether the console is shown in a console view
+	 * @return the delay in milliseconds
+	 */
+	public synchronized long getDelay(int backlog, boolean visible) {
+		if (backlog < SMALL_BACKLOG) {
+			return FRAME_PERIOD;
+		}
+		if (getRemaining(visible, System.nanoTime()) > 0) {
+			return 0;
+		}
+		return getFrameDelay();
+	}
+
+	/**
+	 * Returns the delay until the next frame starts.
+	 *
+	 * @return the delay in milliseconds
+	 */
+	public synchronized long getFrameDelay() {
+		long remaining = fFrameStart + FRAME_PERIOD_NANOS - System.nanoTime();
+		return remaining > 0 ? TimeUnit.NANOSECONDS.toMillis(remaining) + 1 : 0;
+	}
+
+	/**
+	 * Returns the update time left in the current frame.
+	 */
+	private long getRemaining(boolean visible, long now) {
+		startFrame(now);
+		long budget = visible ? FRAME_BUDGET_NANOS : FRAME_BUDGET_NANOS / 4;
+		return Math.max(budget - fFrameUsed, 0);
+	}
+
+	/**
+	 * Starts a new frame if the current one has ended.
+	 */
+	private void startFrame(long now) {
+		if (now - fFrameStart >= FRAME_PERIOD_NANOS) {
+			fFrameStart = now;
+			fLastFrameUsed = fFrameUsed;
+			fFrameUsed = 0;
+		}
+	}
+
+	/**
+	 * Notification that a console has appended output to its document.
+	 *
+	 * @param chars the number of characters appended
+	 * @param time the time the update took in nanoseconds
+	 * @param latency the time since the oldest appended output was written,
+	 *            in nanoseconds
+	 */
+	public synchronized void updated(int chars, long time, long latency) {
+		long now = System.nanoTime();
+		startFrame(now - time);
+		fFrameUsed += time;
+		fBacklog -= chars;
+		if (chars >= MIN_BATCH && time > 0) {
+			fCharsPerNano += WEIGHT * ((double) chars / time - fCharsPerNano);
+		}
+		fLatency += WEIGHT * (latency - fLatency);
+		fMaxLatency = Math.max(fMaxLatency, latency);
+	}
+
+	/**
+	 * Notification that output was written to a console, or discarded before
+	 * it was appended.
+	 *
+	 * @param chars the number of characters written, negative if discarded
+	 */
+	public synchronized void written(int chars) {
+		fBacklog += chars;
+	}
+
+	/**
+	 * Returns the number of characters written to all consoles that have not
+	 * been appended to their documents yet.
+	 *
+	 * @return the number of pending characters
+	 */
+	public synchronized long getBacklog() {
+		return fBacklog;
+	}
+
+	/**
+	 * Returns the average time from output being written to being appended to
+	 * the document.
+	 *
+	 * @return the average latency in milliseconds
+	 */
+	public synchronized double getLatency() {
+		return fLatency / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+
+	/**
+	 * Returns the longest time from output being written to being appended to
+	 * the document.
+	 *
+	 * @return the maximum latency in milliseconds
+	 */
+	public synchronized long getMaxLatency() {
+		return TimeUnit.NANOSECONDS.toMillis(fMaxLatency);
+	}
+
+	/**
+	 * Returns the time used by updates in the last completed frame.
+	 *
+	 * @return the update time in milliseconds
+	 */
+	public synchronized long getFrameTime() {
+		return TimeUnit.NANOSECONDS.toMillis(fLastFrameUsed);
+	}
+
+	/**
+	 * Returns the measured number of characters appended per millisecond.
+	 *
+	 * @return the update throughput
+	 */
+	public synchronized double getThroughput() {
+		return fCharsPerNano * TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2004, 2013 IBM Corporation and others.
+ * Copyright (c) 2004, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,6 +11,8 @@
 package org.eclipse.ui.internal.console;
 
 import org.eclipse.jface.text.ITypedRegion;
+import org.eclipse.jface.text.TextAttribute;
+import org.eclipse.swt.SWT;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.console.ConsolePlugin;
@@ -45,12 +47,29 @@ public class IOConsolePartition implements ITypedRegion {
     private IOConsoleInputStream inputStream;
     private int length;
 
+    /**
+     * Style set by the output processor of the stream, or <code>null</code>
+     */
+    private TextAttribute style;
+
     /**
      * Creates a new partition to contain output to console.
      */
     public IOConsolePartition(IOConsoleOutputStream outputStream, int length) {
+        this(outputStream, length, null);
+    }
+
+    /**
+     * Creates a new partition to contain output to console in the given style.
+     *
+     * @param style the style of the output, or <code>null</code> for the
+     *            style of the stream
+     * @since 3.7
+     */
+    public IOConsolePartition(IOConsoleOutputStream outputStream, int length, TextAttribute style) {
         this.outputStream = outputStream;
         this.length = length;
+        this.style = style;
         this.type = OUTPUT_PARTITION_TYPE;
         this.readOnly = true;
     }
@@ -144,7 +163,14 @@ public class IOConsolePartition implements ITypedRegion {
      * of this partition in a viewer.
      */
     public StyleRange getStyleRange(int rangeOffset, int rangeLength) {
-        return new StyleRange(rangeOffset, rangeLength, getColor(), null, getFontStyle());
+        if (style == null) {
+            return new StyleRange(rangeOffset, rangeLength, getColor(), null, getFontStyle());
+        }
+        int styleBits = style.getStyle();
+        StyleRange range = new StyleRange(rangeOffset, rangeLength, getColor(), style.getBackground(), getFontStyle() | (styleBits & (SWT.BOLD | SWT.ITALIC)));
+        range.underline = (styleBits & TextAttribute.UNDERLINE) != 0;
+        range.strikeout = (styleBits & TextAttribute.STRIKETHROUGH) != 0;
+        return range;
     }
 
     /**
@@ -163,8 +189,8 @@ public class IOConsolePartition implements ITypedRegion {
 
     /**
      * Returns the colour of the input stream if the type of the partition
-     * is <code>INPUT_PARTITION_TYPE</code>, otherwise it returns the output
-     * stream colour
+     * is <code>INPUT_PARTITION_TYPE</code>, otherwise it returns the
+     * foreground colour of the partition's style or the output stream colour
      *
      * @return the colour of one of the backing streams
      */
@@ -172,6 +198,9 @@ public class IOConsolePartition implements ITypedRegion {
         if (type.equals(INPUT_PARTITION_TYPE)) {
             return inputStream.getColor();
         }
+        if (style != null && style.getForeground() != null) {
+            return style.getForeground();
+        }
         return outputStream.getColor();
     }
 
@@ -209,4 +238,13 @@ public class IOConsolePartition implements ITypedRegion {
     IOConsoleOutputStream getStream() {
         return outputStream;
     }
+
+    /**
+     * Returns the style set by the output processor of the stream
+     *
+     * @return the style, or <code>null</code> for the style of the stream
+     */
+    TextAttribute getStyle() {
+        return style;
+    }
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2016 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,9 +11,14 @@
 package org.eclipse.ui.internal.console;
 
 import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
@@ -26,6 +31,7 @@ import org.eclipse.jface.text.IDocumentPartitionerExtension;
 import org.eclipse.jface.text.IRegion;
 import org.eclipse.jface.text.ITypedRegion;
 import org.eclipse.jface.text.Region;
+import org.eclipse.jface.text.TextAttribute;
 import org.eclipse.swt.custom.StyleRange;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.console.ConsolePlugin;
@@ -99,10 +105,100 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 
     private int fBuffer;
 
+	/**
+	 * Whether the queue job has been scheduled and has not started yet,
+	 * guarded by pendingPartitions
+	 */
+	private boolean updateScheduled = false;
+
+	/**
+	 * Whether the console was visible when the queue job ran last
+	 */
+	private volatile boolean visible = true;
+
+	/**
+	 * Number of pending characters after which writers of a console that is
+	 * not visible wait for the output to be appended
+	 */
+	private static final int MAX_HIDDEN_BUFFER = 1000000;
+
+	/**
+	 * Number of characters in a chunk of output
+	 */
+	private static final int CHUNK_SIZE = 8192;
+
+	/**
+	 * Maximum number of chunks kept for reuse
+	 */
+	private static final int MAX_POOLED_CHUNKS = 32;
+
+	/**
+	 * Chunks of output that have been appended to the document and can be
+	 * reused
+	 */
+	private final ArrayDeque<CharBuffer> chunkPool = new ArrayDeque<CharBuffer>();
+
+	/**
+	 * A chunk of the pool that slices have been taken of
+	 */
+	private static class SharedChunk {
+		final CharBuffer chunk;
+		/**
+		 * Number of slices that have not been released, plus one until the
+		 * chunk itself is released
+		 */
+		int references = 1;
+
+		SharedChunk(CharBuffer chunk) {
+			this.chunk = chunk;
+		}
+	}
+
+	/**
+	 * Shared chunks by the chunk and by each of its slices, guarded by
+	 * chunkPool
+	 */
+	private final IdentityHashMap<CharBuffer, SharedChunk> sharedChunks = new IdentityHashMap<CharBuffer, SharedChunk>();
+
+	/**
+	 * Store that keeps the lines trimmed from the document, or
+	 * <code>null</code> if trimmed lines are discarded
+	 */
+	private volatile ConsoleLogStore logStore;
+
+	/**
+	 * Lock held while trimmed text is written to the log store
+	 */
+	private final Object storeLock = new Object();
+
+	/**
+	 * Text trimmed from the document that has not been written to the log
+	 * store yet, <code>null</code> elements clear the store. Guarded by
+	 * itself.
+	 */
+	private final List<String> trimmedText = new ArrayList<String>();
+
+	/**
+	 * Writes trimmed text to the log store outside of the UI thread
+	 */
+	private final Job storeJob = new Job("Console Log Store") { //$NON-NLS-1$
+		@Override
+		protected IStatus run(IProgressMonitor monitor) {
+			writeTrimmedText();
+			return Status.OK_STATUS;
+		}
+	};
+
+	/**
+	 * Index of the text of the document
+	 */
+	private ConsoleTextIndex textIndex;
+
 	public IOConsolePartitioner(IOConsoleInputStream inputStream, IOConsole console) {
 		this.inputStream = inputStream;
 		this.console = console;
 		trimJob.setRule(console.getSchedulingRule());
+		storeJob.setSystem(true);
 	}
 
 	public IDocument getDocument() {
@@ -125,6 +221,7 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 		queueJob.setSystem(true);
         queueJob.setPriority(Job.INTERACTIVE);
 		queueJob.setRule(console.getSchedulingRule());
+		textIndex = new ConsoleTextIndex();
 		connected = true;
 	}
 
@@ -147,6 +244,93 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 		});
 	}
 
+	/**
+	 * Sets the store that keeps the lines trimmed from the document when the
+	 * high water mark is exceeded.
+	 *
+	 * @param store the store or <code>null</code> to discard trimmed lines
+	 */
+	public void setLogStore(ConsoleLogStore store) {
+		synchronized (overflowLock) {
+			synchronized (storeLock) {
+				logStore = store;
+				synchronized (trimmedText) {
+					trimmedText.clear();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the store that keeps the lines trimmed from the document.
+	 * Trimmed text may still be on its way to the store, see
+	 * {@link #flushLogStore()}.
+	 *
+	 * @return the store or <code>null</code> if trimmed lines are discarded
+	 */
+	public ConsoleLogStore getLogStore() {
+		return logStore;
+	}
+
+	/**
+	 * Writes the text trimmed from the document so far to the log store and
+	 * returns the store, so that the store and the document together hold all
+	 * output. Writes to the file, so it is not to be called in the UI thread,
+	 * see {@link #flushLogStore(Runnable)}.
+	 *
+	 * @return the store or <code>null</code> if trimmed lines are discarded
+	 */
+	public ConsoleLogStore flushLogStore() {
+		writeTrimmedText();
+		return logStore;
+	}
+
+	/**
+	 * Writes the text trimmed from the document so far to the log store in a
+	 * job and then runs the given runnable in the UI thread.
+	 *
+	 * @param done the runnable to run once the store holds the trimmed text
+	 */
+	public void flushLogStore(final Runnable done) {
+		Job job = new Job("Console Log Store Flush") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				writeTrimmedText();
+				Display display = ConsolePlugin.getStandardDisplay();
+				if (!display.isDisposed()) {
+					display.asyncExec(done);
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		job.setSystem(true);
+		job.schedule();
+	}
+
+	/**
+	 * Returns whether trimmed text is still on its way to the log store.
+	 *
+	 * @return whether the store lags behind the document
+	 */
+	public boolean isLogStorePending() {
+		synchronized (trimmedText) {
+			if (!trimmedText.isEmpty()) {
+				return true;
+			}
+		}
+		return storeJob.getState() == Job.RUNNING;
+	}
+
+	/**
+	 * Returns the index of the text of the document.
+	 *
+	 * @return the index or <code>null</code> if the partitioner is not
+	 *         connected
+	 */
+	public ConsoleTextIndex getTextIndex() {
+		return textIndex;
+	}
+
 	/**
 	 * Notification from the console that all of its streams have been closed.
 	 */
@@ -168,6 +352,20 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 			document = null;
 			partitions.clear();
 			connected = false;
+			synchronized (pendingPartitions) {
+				// the pending output is never appended
+				getUpdateScheduler().written(-fBuffer);
+				fBuffer = 0;
+				pendingPartitions.clear();
+				pendingPartitions.notifyAll();
+			}
+			synchronized (chunkPool) {
+				// the slices of the pending output are never released
+				sharedChunks.clear();
+			}
+			if (textIndex != null) {
+				textIndex.dispose();
+			}
 			try {
 	            inputStream.close();
 	        } catch (IOException e) {
@@ -345,6 +543,7 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 				}
 			}
 			lastPartition = null;
+			textIndex.textCleared();
 			return new Region(0, 0);
 		}
 
@@ -357,12 +556,12 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 				            continue;
 				        }
 
-				        int ppLen = pp.text.length();
-				        if (lastPartition != null && lastPartition.getStream() == pp.stream) {
+				        int ppLen = pp.length;
+				        if (lastPartition != null && lastPartition.getStream() == pp.stream && Objects.equals(lastPartition.getStyle(), pp.style)) {
 				            int len = lastPartition.getLength();
 				            lastPartition.setLength(len + ppLen);
 				        } else {
-				            IOConsolePartition partition = new IOConsolePartition(pp.stream, ppLen);
+				            IOConsolePartition partition = new IOConsolePartition(pp.stream, ppLen, pp.style);
 				            partition.setOffset(firstOffset);
 				            lastPartition = partition;
 				            partitions.add(partition);
@@ -372,6 +571,7 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 				}
 			}
 		} else {// user input.
+			textIndex.textChanged(document, event.fOffset);
 			int amountDeleted = event.getLength() ;
 
 			if (amountDeleted > 0) {
@@ -449,32 +649,196 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 		updateInProgress = b;
 	}
 
+	/**
+	 * Returns an empty chunk that output of a stream can be written to before
+	 * it is passed to {@link #streamAppended(IOConsoleOutputStream, CharBuffer)}.
+	 *
+	 * @return an empty chunk
+	 */
+	public CharBuffer allocateChunk() {
+		synchronized (chunkPool) {
+			CharBuffer chunk = chunkPool.poll();
+			if (chunk != null) {
+				return chunk;
+			}
+		}
+		return CharBuffer.allocate(CHUNK_SIZE);
+	}
+
+	/**
+	 * Returns a chunk that has not been passed to
+	 * {@link #streamAppended(IOConsoleOutputStream, CharBuffer)} to the pool.
+	 *
+	 * @param chunk a chunk returned by {@link #allocateChunk()}
+	 */
+	public void releaseChunk(CharBuffer chunk) {
+		releaseChunks(Collections.singletonList(chunk));
+	}
+
+	/**
+	 * Returns a slice of a chunk, which can be passed to
+	 * {@link #streamAppended(IOConsoleOutputStream, CharBuffer)} while the
+	 * rest of the chunk is still being written to. The chunk is returned to
+	 * the pool once it has been released with {@link #releaseChunk(CharBuffer)}
+	 * and all of its slices have been appended to the document.
+	 *
+	 * @param chunk a chunk returned by {@link #allocateChunk()}, its position
+	 *            and limit are not changed
+	 * @param start start of the slice in the chunk
+	 * @param end end of the slice in the chunk
+	 * @return the slice
+	 */
+	public CharBuffer sliceChunk(CharBuffer chunk, int start, int end) {
+		CharBuffer slice = chunk.duplicate();
+		slice.limit(end);
+		slice.position(start);
+		slice = slice.slice();
+		synchronized (chunkPool) {
+			SharedChunk shared = sharedChunks.get(chunk);
+			if (shared == null) {
+				shared = new SharedChunk(chunk);
+				sharedChunks.put(chunk, shared);
+			}
+			shared.references++;
+			sharedChunks.put(slice, shared);
+		}
+		return slice;
+	}
+
+	/**
+	 * Returns the number of chunks and slices whose chunk is waiting for
+	 * references to be released.
+	 *
+	 * @return the number of shared chunk references being tracked
+	 */
+	public int getSharedChunkCount() {
+		synchronized (chunkPool) {
+			return sharedChunks.size();
+		}
+	}
+
+	/**
+	 * Returns chunks that have been appended to the document to the pool. A
+	 * shared chunk is returned with the last of its references.
+	 */
+	private void releaseChunks(List<CharBuffer> chunks) {
+		synchronized (chunkPool) {
+			for (CharBuffer chunk : chunks) {
+				SharedChunk shared = sharedChunks.isEmpty() ? null : sharedChunks.get(chunk);
+				if (shared != null) {
+					if (chunk != shared.chunk) {
+						sharedChunks.remove(chunk);
+					}
+					if (--shared.references > 0) {
+						continue;
+					}
+					sharedChunks.remove(shared.chunk);
+					chunk = shared.chunk;
+				}
+				if (chunk.capacity() == CHUNK_SIZE && chunkPool.size() < MAX_POOLED_CHUNKS) {
+					chunk.clear();
+					chunkPool.add(chunk);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies output of a stream into the free space of the last pending chunk,
+	 * if that chunk holds output of the same stream in the style of the
+	 * stream, so that small writes share a chunk instead of pinning one each
+	 * until the queue is processed. A trailing carriage return is not copied,
+	 * so that the stream can hold it back for a line feed written next.
+	 *
+	 * @param stream the stream that was written to
+	 * @param str the written string, or <code>null</code>
+	 * @param buffer the written characters if no string is given
+	 * @param offset offset of the first character to copy
+	 * @param length number of characters to copy
+	 * @return the number of characters that were copied, possibly none
+	 */
+	public int appendToLastChunk(IOConsoleOutputStream stream, String str, char[] buffer, int offset, int length) {
+		if (document == null) {
+			return 0;
+		}
+		synchronized (pendingPartitions) {
+			PendingPartition last = pendingPartitions.size() > 0 ? pendingPartitions.get(pendingPartitions.size() - 1) : null;
+			if (last == null || last.stream != stream || last.style != null || last.chunks.isEmpty()) {
+				return 0;
+			}
+			CharBuffer chunk = last.chunks.get(last.chunks.size() - 1);
+			if (chunk.capacity() != CHUNK_SIZE) {
+				// not a chunk of the pool
+				return 0;
+			}
+			int count = Math.min(chunk.capacity() - chunk.limit(), length);
+			if (count > 0 && (str != null ? str.charAt(offset + count - 1) : buffer[offset + count - 1]) == '\r') {
+				count--;
+			}
+			if (count <= 0) {
+				return 0;
+			}
+			int target = chunk.arrayOffset() + chunk.limit();
+			if (str != null) {
+				str.getChars(offset, offset + count, chunk.array(), target);
+			} else {
+				System.arraycopy(buffer, offset, chunk.array(), target, count);
+			}
+			chunk.limit(chunk.limit() + count);
+			last.appended(count);
+			return count;
+		}
+	}
+
 	/**
 	 * A stream has been appended, add to pendingPartions list and schedule updateJob.
 	 * updateJob is scheduled with a slight delay, this allows the console to run the job
 	 * less frequently and update the document with a greater amount of data each time
 	 * the job is run
+	 * <p>
+	 * The partitioner takes over the chunk, it is not copied until it is
+	 * appended to the document and must not be changed by the caller.
+	 * </p>
 	 * @param stream The stream that was written to.
-	 * @param s The string that should be appended to the document.
+	 * @param chunk The characters that should be appended to the document, from
+	 * the position to the limit of the chunk. The chunk must be backed by an array.
 	 */
-	public void streamAppended(IOConsoleOutputStream stream, String s) throws IOException {
+	public void streamAppended(IOConsoleOutputStream stream, CharBuffer chunk) throws IOException {
+		streamAppended(stream, chunk, null);
+	}
+
+	/**
+	 * Appends output of a stream in the given style.
+	 *
+	 * @param stream The stream that was written to.
+	 * @param chunk The characters that should be appended to the document, as
+	 *            for {@link #streamAppended(IOConsoleOutputStream, CharBuffer)}
+	 * @param style The style set by the output processor of the stream, or
+	 *            <code>null</code> for the style of the stream.
+	 * @throws IOException if the document is closed
+	 */
+	public void streamAppended(IOConsoleOutputStream stream, CharBuffer chunk, TextAttribute style) throws IOException {
+		if (!chunk.hasRemaining()) {
+			releaseChunks(Collections.singletonList(chunk));
+			return;
+		}
         if (document == null) {
             throw new IOException("Document is closed"); //$NON-NLS-1$
         }
 		synchronized(pendingPartitions) {
 			PendingPartition last = pendingPartitions.size() > 0 ? pendingPartitions.get(pendingPartitions.size()-1) : null;
-			if (last != null && last.stream == stream) {
-				last.append(s);
+			if (last != null && last.stream == stream && Objects.equals(last.style, style)) {
+				last.append(chunk);
 			} else {
-				pendingPartitions.add(new PendingPartition(stream, s));
-                if (fBuffer > 1000) {
-                    queueJob.schedule();
-                } else {
-                    queueJob.schedule(50);
-                }
+				PendingPartition partition = new PendingPartition(stream, style);
+				partition.append(chunk);
+				pendingPartitions.add(partition);
 			}
+			scheduleUpdate();
 
-            if (fBuffer > 160000) {
+            // consoles that are not visible append larger batches, so their
+            // writers may get further ahead
+            if (fBuffer > (visible ? 160000 : MAX_HIDDEN_BUFFER)) {
             	if(Display.getCurrent() == null){
 					try {
 						pendingPartitions.wait();
@@ -491,23 +855,74 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
 		}
 	}
 
+	/**
+	 * Schedules the queue job, unless it is already waiting to run. Must be
+	 * called while holding the lock of pendingPartitions.
+	 */
+	private void scheduleUpdate() {
+		if (!updateScheduled) {
+			updateScheduled = true;
+			queueJob.schedule(getUpdateScheduler().getDelay(fBuffer, visible));
+		}
+	}
+
+	private static ConsoleUpdateScheduler getUpdateScheduler() {
+		return ((ConsoleManager) ConsolePlugin.getDefault().getConsoleManager()).getUpdateScheduler();
+	}
+
 	/**
 	 * Holds data until updateJob can be run and the document can be updated.
 	 */
 	private class PendingPartition {
-		StringBuffer text = new StringBuffer(8192);
+		/**
+		 * Chunks of output in the order they were written
+		 */
+		List<CharBuffer> chunks = new ArrayList<CharBuffer>();
+		int length;
 		IOConsoleOutputStream stream;
-
-		PendingPartition(IOConsoleOutputStream stream, String text) {
+		/**
+		 * Style set by the output processor of the stream, or
+		 * <code>null</code>
+		 */
+		TextAttribute style;
+		/**
+		 * When the first chunk was written
+		 */
+		long time = System.nanoTime();
+
+		PendingPartition(IOConsoleOutputStream stream, TextAttribute style) {
 			this.stream = stream;
-			if (text != null) {
-                append(text);
-            }
+			this.style = style;
+		}
+
+		void append(CharBuffer chunk) {
+			chunks.add(chunk);
+			appended(chunk.remaining());
 		}
 
-		void append(String moreText) {
-			text.append(moreText);
-            fBuffer += moreText.length();
+		/**
+		 * Accounts for characters added to the chunks of this partition
+		 */
+		void appended(int count) {
+			length += count;
+			fBuffer += count;
+			getUpdateScheduler().written(count);
+		}
+
+		/**
+		 * Removes leading chunks of at most the given length, but at least one
+		 * chunk, and returns them as a new partition.
+		 */
+		PendingPartition split(int maxLength) {
+			PendingPartition head = new PendingPartition(stream, style);
+			head.time = time;
+			while (!chunks.isEmpty() && (head.chunks.isEmpty() || head.length + chunks.get(0).remaining() <= maxLength)) {
+				CharBuffer chunk = chunks.remove(0);
+				head.chunks.add(chunk);
+				head.length += chunk.remaining();
+				length -= chunk.remaining();
+			}
+			return head;
 		}
 	}
 
@@ -527,58 +942,100 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
          */
         @Override
 		public IStatus runInUIThread(IProgressMonitor monitor) {
-        	processQueue();
+        	synchronized (pendingPartitions) {
+        		updateScheduled = false;
+        	}
+        	ConsoleUpdateScheduler scheduler = getUpdateScheduler();
+        	visible = ((ConsoleManager) ConsolePlugin.getDefault().getConsoleManager()).isVisible(console);
+        	processQueue(scheduler.getBatchSize(visible));
+        	synchronized (pendingPartitions) {
+        		if (connected && !pendingPartitions.isEmpty()) {
+        			scheduleUpdate();
+        		}
+        	}
         	return Status.OK_STATUS;
         }
 
         /*
-         * Job will process as much as it can each time it's run, but it gets
-         * scheduled everytime a PendingPartition is added to the list, meaning
-         * that this job could get scheduled unnecessarily in cases of heavy output.
-         * Note however, that schedule() will only reschedule a running/scheduled Job
-         * once even if it's called many times.
+         * Job processes as much as the update scheduler allows each time it's
+         * run and reschedules itself while output is pending. It is not run
+         * when the output has been processed in the UI thread in the meantime.
          */
         @Override
 		public boolean shouldRun() {
-            boolean shouldRun = connected && pendingPartitions != null && pendingPartitions.size() > 0;
-            return shouldRun;
+        	synchronized (pendingPartitions) {
+        		boolean shouldRun = connected && pendingPartitions.size() > 0;
+        		if (!shouldRun) {
+        			updateScheduled = false;
+        		}
+        		return shouldRun;
+        	}
         }
 	}
 
 	void processQueue() {
+		processQueue(Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Appends pending output to the document.
+	 *
+	 * @param maxLength the number of characters to append, the output of at
+	 *            least one chunk is appended
+	 */
+	private void processQueue(int maxLength) {
     	synchronized (overflowLock) {
+    		long start = System.nanoTime();
 			ArrayList<PendingPartition> pendingCopy = new ArrayList<PendingPartition>();
-    		StringBuffer buffer = null;
     		boolean consoleClosed = false;
-			synchronized(pendingPartitions) {
-				pendingCopy.addAll(pendingPartitions);
-				pendingPartitions.clear();
-				fBuffer = 0;
-				pendingPartitions.notifyAll();
-			}
-			// determine buffer size
 			int size = 0;
-			for (PendingPartition pp : pendingCopy) {
-				if (pp != consoleClosedPartition) {
-					size+= pp.text.length();
+			synchronized(pendingPartitions) {
+				Iterator<PendingPartition> it = pendingPartitions.iterator();
+				while (it.hasNext() && (size < maxLength || pendingCopy.isEmpty())) {
+					PendingPartition pp = it.next();
+					if (pp != consoleClosedPartition && size + pp.length > maxLength) {
+						// leave the rest of the output for the next update
+						PendingPartition head = pp.split(maxLength - size);
+						pendingCopy.add(head);
+						size += head.length;
+						if (pp.chunks.isEmpty()) {
+							it.remove();
+						}
+						break;
+					}
+					pendingCopy.add(pp);
+					it.remove();
+					if (pp != consoleClosedPartition) {
+						size += pp.length;
+					}
 				}
+				fBuffer -= size;
+				pendingPartitions.notifyAll();
 			}
-			buffer = new StringBuffer(size);
+			// gather the chunks of all streams for a single document change
+			char[] buffer = new char[size];
+			int offset = 0;
 			for (PendingPartition pp : pendingCopy) {
 				if (pp != consoleClosedPartition) {
-					buffer.append(pp.text);
+					for (CharBuffer chunk : pp.chunks) {
+						int length = chunk.remaining();
+						System.arraycopy(chunk.array(), chunk.arrayOffset() + chunk.position(), buffer, offset, length);
+						offset += length;
+					}
+					releaseChunks(pp.chunks);
+					pp.chunks = null;
 				} else {
 					consoleClosed = true;
 				}
 			}
+			String text = new String(buffer);
     		if (connected) {
     			setUpdateInProgress(true);
     			updatePartitions = pendingCopy;
     			firstOffset = document.getLength();
     			try {
-    				if (buffer != null) {
-    					document.replace(firstOffset, 0, buffer.toString());
-    				}
+    				document.replace(firstOffset, 0, text);
+    				textIndex.textAppended(text);
     			} catch (BadLocationException e) {
     			}
     			updatePartitions = null;
@@ -588,6 +1045,10 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
     			console.partitionerFinished();
     		}
     		checkBufferSize();
+    		if (!pendingCopy.isEmpty()) {
+    			long end = System.nanoTime();
+    			getUpdateScheduler().updated(size, end - start, end - pendingCopy.get(0).time);
+    		}
     	}
 
 	}
@@ -635,6 +1096,7 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
         			try {
         				if (truncateOffset < 0) {
         				    // clear
+        				    storeTrimmedText(null);
         				    setUpdateInProgress(true);
         					document.set(""); //$NON-NLS-1$
         					setUpdateInProgress(false);
@@ -644,6 +1106,9 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
         				    int cutoffLine = document.getLineOfOffset(truncateOffset);
         				    int cutOffset = document.getLineOffset(cutoffLine);
 
+        					if (logStore != null) {
+        						storeTrimmedText(document.get(0, cutOffset));
+        					}
 
         					// set the new length of the first partition
         					IOConsolePartition partition = (IOConsolePartition) getPartition(cutOffset);
@@ -652,6 +1117,7 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
         					setUpdateInProgress(true);
         					document.replace(0, cutOffset, ""); //$NON-NLS-1$
         					setUpdateInProgress(false);
+        					textIndex.textTrimmed(cutOffset);
 
         					//remove partitions and reset Partition offsets
         					int index = partitions.indexOf(partition);
@@ -673,6 +1139,62 @@ public class IOConsolePartitioner implements IConsoleDocumentPartitioner, IDocum
         }
     }
 
+    /**
+     * Queues text trimmed from the document for the log store, if any. The
+     * text is written by a job, so that the UI thread does not wait for the
+     * file.
+     *
+     * @param text the trimmed text or <code>null</code> if the console is cleared
+     */
+    private void storeTrimmedText(String text) {
+    	if (logStore == null) {
+    		return;
+    	}
+    	synchronized (trimmedText) {
+    		if (text == null) {
+    			// nothing queued needs to be written
+    			trimmedText.clear();
+    		}
+    		trimmedText.add(text);
+    	}
+    	storeJob.schedule();
+    }
+
+    /**
+     * Writes the queued trimmed text to the log store, in the order it was
+     * trimmed.
+     */
+    private void writeTrimmedText() {
+    	synchronized (storeLock) {
+    		List<String> texts;
+    		synchronized (trimmedText) {
+    			if (trimmedText.isEmpty()) {
+    				return;
+    			}
+    			texts = new ArrayList<String>(trimmedText);
+    			trimmedText.clear();
+    		}
+    		ConsoleLogStore store = logStore;
+    		if (store == null) {
+    			return;
+    		}
+    		try {
+    			for (String text : texts) {
+    				if (text == null) {
+    					store.clear();
+    				} else {
+    					store.append(text);
+    				}
+    			}
+    		} catch (IOException e) {
+    			// keep the console working without the store
+    			ConsolePlugin.log(e);
+    			store.dispose();
+    			logStore = null;
+    		}
+    	}
+    }
+
     /* (non-Javadoc)
      * @see org.eclipse.ui.console.IConsoleDocumentPartitioner#isReadOnly(int)
      */
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2000, 2015 IBM Corporation and others.
+ * Copyright (c) 2000, 2017 IBM Corporation and others.
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
  * which accompanies this distribution, and is available at
@@ -11,13 +11,30 @@
  *******************************************************************************/
 package org.eclipse.ui.internal.console;
 
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.DocumentEvent;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.text.IDocumentPartitioner;
+import org.eclipse.jface.text.IFindReplaceTarget;
+import org.eclipse.jface.text.IFindReplaceTargetExtension;
+import org.eclipse.jface.text.IFindReplaceTargetExtension3;
 import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.IViewportListener;
+import org.eclipse.jface.text.JFaceTextUtil;
 import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.events.VerifyEvent;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.console.ConsolePlugin;
 import org.eclipse.ui.console.IConsoleDocumentPartitioner;
@@ -27,10 +44,27 @@ import org.eclipse.ui.console.TextConsoleViewer;
 
 /**
  * Viewer used to display an IOConsole
+ * <p>
+ * When the console keeps the output trimmed from its document in a log store,
+ * scrolling to the start of the document shows a window of the output
+ * instead, which is moved through the log store while scrolling. Output lines
+ * are counted from the first line of the log store, the lines after the log
+ * store are the lines of the console document.
+ * </p>
+ * <p>
+ * Find uses the text index of the console document to go to the next match
+ * without searching the document again.
+ * </p>
  *
  * @since 3.1
  */
 public class IOConsoleViewer extends TextConsoleViewer {
+
+	/**
+	 * Number of output lines shown by the window
+	 */
+	private static final int WINDOW_LINES = 2000;
+
     /**
      * will always scroll with output if value is true.
      */
@@ -38,10 +72,71 @@ public class IOConsoleViewer extends TextConsoleViewer {
 
     private boolean fWordWrap = false;
 
+    private boolean fReadOnly = false;
+
     private IDocumentListener fDocumentListener;
 
+	/**
+	 * The document of the console
+	 */
+	private IDocument fConsoleDocument;
+
+	/**
+	 * Window of the output, or <code>null</code> when the console document
+	 * is shown
+	 */
+	private Document fWindow;
+
+	/**
+	 * First output line of the window
+	 */
+	private int fWindowFirst;
+
+	/**
+	 * Output line after the window
+	 */
+	private int fWindowEnd;
+
+	/**
+	 * Number of lines in the log store when the window was loaded
+	 */
+	private int fWindowStoreLines;
+
+	/**
+	 * Top line of the shown document when the viewport last changed
+	 */
+	private int fLastTopLine;
+
+	private boolean fUpdatingWindow = false;
+
+	/**
+	 * Whether the window is updated once the trimmed text has been written to
+	 * the log store
+	 */
+	private boolean fWindowUpdatePending = false;
+
+	/**
+	 * Job that searches the log store, if any
+	 */
+	private Job fSearchJob;
+
+	private IFindReplaceTarget fFindReplaceTarget;
+
+	/**
+	 * Result of {@link #findWithIndex} when the index cannot answer
+	 */
+	private static final int NOT_INDEXED = -2;
+
+	/**
+	 * Matches found last with the text index of the console document, and the
+	 * pattern they were found with
+	 */
+	private ConsoleTextIndex.Matches fMatches;
+	private Pattern fMatchesPattern;
+
     public IOConsoleViewer(Composite parent, TextConsole console) {
         super(parent, console);
+		init();
     }
 
 	/**
@@ -54,6 +149,17 @@ public class IOConsoleViewer extends TextConsoleViewer {
 	 */
 	public IOConsoleViewer(Composite parent, TextConsole console, IScrollLockStateProvider scrollLockStateProvider) {
 		super(parent, console, scrollLockStateProvider);
+		init();
+	}
+
+	private void init() {
+		fConsoleDocument = getDocument();
+		addViewportListener(new IViewportListener() {
+			@Override
+			public void viewportChanged(int verticalOffset) {
+				updateWindow();
+			}
+		});
 	}
 
     public boolean isAutoScroll() {
@@ -75,6 +181,11 @@ public class IOConsoleViewer extends TextConsoleViewer {
 
     @Override
 	protected void handleVerifyEvent(VerifyEvent e) {
+        if (fWindow != null) {
+            // the window is read-only
+            e.doit = false;
+            return;
+        }
         IDocument doc = getDocument();
         String[] legalLineDelimiters = doc.getLegalLineDelimiters();
         String eventString = e.text;
@@ -139,6 +250,7 @@ public class IOConsoleViewer extends TextConsoleViewer {
      * makes the associated text widget uneditable.
      */
     public void setReadOnly() {
+        fReadOnly = true;
         ConsolePlugin.getStandardDisplay().asyncExec(new Runnable() {
             @Override
 			public void run() {
@@ -180,7 +292,7 @@ public class IOConsoleViewer extends TextConsoleViewer {
 
                 @Override
 				public void documentChanged(DocumentEvent event) {
-                    if (fAutoScroll) {
+                    if (fAutoScroll && fWindow == null) {
                         revealEndOfDocument();
                     }
                 }
@@ -188,4 +300,446 @@ public class IOConsoleViewer extends TextConsoleViewer {
         }
         return fDocumentListener;
     }
+
+	/**
+	 * Returns the partitioner of the console document if it is an IO console
+	 * partitioner, otherwise <code>null</code>.
+	 */
+	private IOConsolePartitioner getPartitioner() {
+		IDocumentPartitioner partitioner = fConsoleDocument.getDocumentPartitioner();
+		if (partitioner instanceof IOConsolePartitioner) {
+			return (IOConsolePartitioner) partitioner;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the log store of the console or <code>null</code> if none.
+	 */
+	private ConsoleLogStore getLogStore() {
+		IOConsolePartitioner partitioner = getPartitioner();
+		return partitioner != null ? partitioner.getLogStore() : null;
+	}
+
+	/**
+	 * Returns the index of the text of the console document, if any.
+	 */
+	private ConsoleTextIndex getTextIndex() {
+		IDocumentPartitioner partitioner = fConsoleDocument.getDocumentPartitioner();
+		if (partitioner instanceof IOConsolePartitioner) {
+			return ((IOConsolePartitioner) partitioner).getTextIndex();
+		}
+		return null;
+	}
+
+	/**
+	 * Shows the window when the console document is scrolled to its start,
+	 * moves the window when it is scrolled to one of its ends and shows the
+	 * console document again when the window is scrolled past the start of
+	 * the console document.
+	 */
+	private void updateWindow() {
+		if (fUpdatingWindow || fWindowUpdatePending) {
+			return;
+		}
+		IOConsolePartitioner partitioner = getPartitioner();
+		if (partitioner != null && partitioner.isLogStorePending()) {
+			// update once the store has caught up, without waiting for the file
+			fWindowUpdatePending = true;
+			partitioner.flushLogStore(new Runnable() {
+				@Override
+				public void run() {
+					fWindowUpdatePending = false;
+					StyledText text = getTextWidget();
+					if (text != null && !text.isDisposed()) {
+						updateWindow();
+					}
+				}
+			});
+			return;
+		}
+		int topLine = getTopLine();
+		int lastTopLine = fLastTopLine;
+		fLastTopLine = topLine;
+		if (fWindow == null) {
+			// scrolled up to the start
+			if (topLine == 0 && lastTopLine > 0) {
+				ConsoleLogStore store = getLogStore();
+				if (store != null && store.getLineCount() > 0) {
+					showWindow(store.getLineCount());
+				}
+			}
+			return;
+		}
+		ConsoleLogStore store = getLogStore();
+		if (store == null || store.getLineCount() < fWindowStoreLines) {
+			// the log store has been cleared
+			showConsoleDocument(0);
+			return;
+		}
+		int storeLines = store.getLineCount();
+		int outputLine = fWindowFirst + topLine;
+		StyledText text = getTextWidget();
+		if (outputLine > storeLines) {
+			showConsoleDocument(outputLine - storeLines);
+		} else if (topLine == 0 && fWindowFirst > 0) {
+			showWindow(outputLine);
+		} else if (JFaceTextUtil.getPartialBottomIndex(text) >= text.getLineCount() - 1 && fWindowEnd < storeLines + fConsoleDocument.getNumberOfLines()) {
+			showWindow(outputLine);
+		}
+	}
+
+	/**
+	 * Shows a window of the output that has the given output line in its
+	 * middle and scrolls the line to the top of the viewport.
+	 *
+	 * @param line output line
+	 */
+	private void showWindow(int line) {
+		ConsoleLogStore store = getLogStore();
+		if (store == null) {
+			return;
+		}
+		int storeLines = store.getLineCount();
+		int documentLines = fConsoleDocument.getNumberOfLines();
+		int end = Math.min(storeLines + documentLines, Math.max(line - WINDOW_LINES / 2, 0) + WINDOW_LINES);
+		int first = Math.max(end - WINDOW_LINES, 0);
+		try {
+			StringBuilder text = new StringBuilder(store.getLines(first, Math.min(first + WINDOW_LINES, storeLines) - first));
+			if (end > storeLines) {
+				int offset = fConsoleDocument.getLineOffset(Math.max(first - storeLines, 0));
+				int endOffset = end - storeLines < documentLines ? fConsoleDocument.getLineOffset(end - storeLines) : fConsoleDocument.getLength();
+				text.append(fConsoleDocument.get(offset, endOffset - offset));
+			}
+			fUpdatingWindow = true;
+			if (fWindow == null) {
+				fWindow = new Document();
+				fWindow.set(text.toString());
+				setDocument(fWindow);
+				getTextWidget().setEditable(false);
+			} else {
+				fWindow.set(text.toString());
+			}
+			fWindowFirst = first;
+			fWindowEnd = end;
+			fWindowStoreLines = storeLines;
+			setTopLine(line - first);
+		} catch (IOException e) {
+			ConsolePlugin.log(e);
+		} catch (BadLocationException e) {
+		} finally {
+			fUpdatingWindow = false;
+		}
+		fLastTopLine = getTopLine();
+	}
+
+	/**
+	 * Shows the console document instead of the window.
+	 *
+	 * @param line line of the console document to show at the top
+	 */
+	private void showConsoleDocument(int line) {
+		fUpdatingWindow = true;
+		try {
+			fWindow = null;
+			setDocument(fConsoleDocument);
+			getTextWidget().setEditable(!fReadOnly);
+			setTopLine(Math.min(line, fConsoleDocument.getNumberOfLines() - 1));
+		} finally {
+			fUpdatingWindow = false;
+		}
+		fLastTopLine = getTopLine();
+	}
+
+	/**
+	 * Returns the line of the shown document at the top of the viewport.
+	 */
+	private int getTopLine() {
+		StyledText text = getTextWidget();
+		try {
+			return getDocument().getLineOfOffset(text.getOffsetAtLine(text.getTopIndex()));
+		} catch (BadLocationException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Scrolls the given line of the shown document to the top of the viewport.
+	 */
+	private void setTopLine(int line) {
+		StyledText text = getTextWidget();
+		try {
+			text.setTopIndex(text.getLineAtOffset(getDocument().getLineOffset(line)));
+		} catch (BadLocationException e) {
+		}
+	}
+
+	/**
+	 * Looks for the given text in the output before or after the shown
+	 * document in a job and selects it in the UI thread once it is found, so
+	 * that a large log store can be searched with progress and canceled.
+	 */
+	private void findOutsideDocument(final IFindReplaceTargetExtension3 target, final String findString, final boolean forward, final boolean caseSensitive, final boolean wholeWord, final boolean regExSearch) {
+		final IOConsolePartitioner partitioner = getPartitioner();
+		if (partitioner == null || partitioner.getLogStore() == null || (forward && fWindow == null)) {
+			return;
+		}
+		final Pattern pattern;
+		try {
+			pattern = createPattern(findString, caseSensitive, wholeWord, regExSearch);
+		} catch (PatternSyntaxException e) {
+			return;
+		}
+		final boolean inWindow = fWindow != null;
+		final int windowFirst = fWindowFirst;
+		final int windowEnd = fWindowEnd;
+		if (fSearchJob != null) {
+			fSearchJob.cancel();
+		}
+		fSearchJob = new Job(ConsoleMessages.IOConsoleViewer_0) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				ConsoleLogStore store = partitioner.flushLogStore();
+				if (store == null) {
+					return Status.OK_STATUS;
+				}
+				final int storeLines = store.getLineCount();
+				final int match;
+				try {
+					if (forward) {
+						match = store.find(pattern, windowEnd, true, monitor);
+					} else {
+						match = store.find(pattern, Math.min(inWindow ? windowFirst : storeLines, storeLines) - 1, false, monitor);
+					}
+				} catch (IOException e) {
+					ConsolePlugin.log(e);
+					return Status.OK_STATUS;
+				}
+				if (monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				if (match < 0 && !forward) {
+					return Status.OK_STATUS;
+				}
+				final Job job = this;
+				ConsolePlugin.getStandardDisplay().asyncExec(new Runnable() {
+					@Override
+					public void run() {
+						StyledText text = getTextWidget();
+						if (fSearchJob != job || text == null || text.isDisposed()) {
+							return;
+						}
+						fSearchJob = null;
+						if (match < 0) {
+							// continue in the console document
+							selectInConsoleDocument(target, Math.max(windowEnd - storeLines, 0), findString, caseSensitive, wholeWord, regExSearch);
+						} else {
+							selectInWindow(target, match, findString, forward, caseSensitive, wholeWord, regExSearch);
+						}
+					}
+				});
+				return Status.OK_STATUS;
+			}
+		};
+		fSearchJob.schedule();
+	}
+
+	/**
+	 * Shows the console document from the given line on and selects the first
+	 * match of the given text after the start of the line.
+	 */
+	private void selectInConsoleDocument(IFindReplaceTargetExtension3 target, int line, String findString, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		if (line >= fConsoleDocument.getNumberOfLines()) {
+			return;
+		}
+		try {
+			showConsoleDocument(line);
+			target.findAndSelect(fConsoleDocument.getLineOffset(line), findString, true, caseSensitive, wholeWord, regExSearch);
+		} catch (BadLocationException e) {
+		}
+	}
+
+	/**
+	 * Shows the window around the given output line and selects the match of
+	 * the given text in the line.
+	 */
+	private void selectInWindow(IFindReplaceTargetExtension3 target, int line, String findString, boolean forward, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		showWindow(line);
+		if (fWindow == null) {
+			return;
+		}
+		try {
+			IRegion region = fWindow.getLineInformation(line - fWindowFirst);
+			int offset = forward ? region.getOffset() : region.getOffset() + region.getLength();
+			target.findAndSelect(offset, findString, forward, caseSensitive, wholeWord, regExSearch);
+		} catch (BadLocationException e) {
+		}
+	}
+
+	/**
+	 * Looks for the given text in the console document with its text index
+	 * and selects it. The index is built when it is first used, and it
+	 * cannot answer while it has not caught up with the document, or for
+	 * patterns whose matches it may miss.
+	 *
+	 * @return the offset of the match, -1 if there is no match in the
+	 *         document or {@link #NOT_INDEXED} if the document has to be
+	 *         searched without the index
+	 */
+	private int findWithIndex(IFindReplaceTargetExtension3 target, int offset, String findString, boolean forward, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		ConsoleTextIndex index = getTextIndex();
+		if (fWindow != null || index == null || ((IFindReplaceTargetExtension) target).getScope() != null) {
+			return NOT_INDEXED;
+		}
+		Pattern pattern;
+		try {
+			pattern = createPattern(findString, caseSensitive, wholeWord, regExSearch);
+		} catch (PatternSyntaxException e) {
+			// let the target report the error
+			return NOT_INDEXED;
+		}
+		if (!ConsoleTextIndex.findsAll(pattern)) {
+			// the index may miss matches that span lines
+			return NOT_INDEXED;
+		}
+		if (fMatches == null || fMatches.isOutdated() || !pattern.pattern().equals(fMatchesPattern.pattern()) || pattern.flags() != fMatchesPattern.flags()) {
+			fMatches = index.find(fConsoleDocument, pattern);
+			fMatchesPattern = pattern;
+			if (fMatches == null) {
+				return NOT_INDEXED;
+			}
+		}
+		if (offset < 0) {
+			offset = forward ? 0 : fConsoleDocument.getLength();
+		}
+		int match = fMatches.getNext(offset, forward);
+		if (match < 0) {
+			return -1;
+		}
+		// the target selects the match found from its start
+		return target.findAndSelect(fMatches.getOffset(match), findString, true, caseSensitive, wholeWord, regExSearch);
+	}
+
+	/**
+	 * Returns the pattern that matches like the find/replace target of the
+	 * viewer.
+	 */
+	private static Pattern createPattern(String findString, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+		String regex = regExSearch ? findString : Pattern.quote(findString);
+		if (wholeWord && !regExSearch) {
+			regex = "\\b" + regex + "\\b"; //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		int flags = regExSearch ? Pattern.MULTILINE : 0;
+		return Pattern.compile(regex, caseSensitive ? flags : flags | Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+	}
+
+	@Override
+	public IFindReplaceTarget getFindReplaceTarget() {
+		if (fFindReplaceTarget == null) {
+			fFindReplaceTarget = new OutputFindReplaceTarget(super.getFindReplaceTarget());
+		}
+		return fFindReplaceTarget;
+	}
+
+	/**
+	 * Find/replace target that continues the search in the output kept in the
+	 * log store when there is no match in the shown document.
+	 */
+	private class OutputFindReplaceTarget implements IFindReplaceTarget, IFindReplaceTargetExtension, IFindReplaceTargetExtension3 {
+
+		private final IFindReplaceTarget fTarget;
+
+		OutputFindReplaceTarget(IFindReplaceTarget target) {
+			fTarget = target;
+		}
+
+		@Override
+		public int findAndSelect(int offset, String findString, boolean searchForward, boolean caseSensitive, boolean wholeWord, boolean regExSearch) {
+			IFindReplaceTargetExtension3 target = (IFindReplaceTargetExtension3) fTarget;
+			int result = findWithIndex(target, offset, findString, searchForward, caseSensitive, wholeWord, regExSearch);
+			if (result == NOT_INDEXED) {
+				result = target.findAndSelect(offset, findString, searchForward, caseSensitive, wholeWord, regExSearch);
+			}
+			if (result == -1) {
+				// the match, if any, is selected once the log store is searched
+				findOutsideDocument(target, findString, searchForward, caseSensitive, wholeWord, regExSearch);
+			}
+			return result;
+		}
+
+		@Override
+		public int findAndSelect(int widgetOffset, String findString, boolean searchForward, boolean caseSensitive, boolean wholeWord) {
+			return findAndSelect(widgetOffset, findString, searchForward, caseSensitive, wholeWord, false);
+		}
+
+		@Override
+		public void replaceSelection(String text, boolean regExReplace) {
+			((IFindReplaceTargetExtension3) fTarget).replaceSelection(text, regExReplace);
+		}
+
+		@Override
+		public boolean canPerformFind() {
+			return fTarget.canPerformFind();
+		}
+
+		@Override
+		public Point getSelection() {
+			return fTarget.getSelection();
+		}
+
+		@Override
+		public String getSelectionText() {
+			return fTarget.getSelectionText();
+		}
+
+		@Override
+		public boolean isEditable() {
+			return fTarget.isEditable();
+		}
+
+		@Override
+		public void replaceSelection(String text) {
+			fTarget.replaceSelection(text);
+		}
+
+		@Override
+		public void beginSession() {
+			((IFindReplaceTargetExtension) fTarget).beginSession();
+		}
+
+		@Override
+		public void endSession() {
+			((IFindReplaceTargetExtension) fTarget).endSession();
+		}
+
+		@Override
+		public IRegion getScope() {
+			return ((IFindReplaceTargetExtension) fTarget).getScope();
+		}
+
+		@Override
+		public void setScope(IRegion scope) {
+			((IFindReplaceTargetExtension) fTarget).setScope(scope);
+		}
+
+		@Override
+		public Point getLineSelection() {
+			return ((IFindReplaceTargetExtension) fTarget).getLineSelection();
+		}
+
+		@Override
+		public void setSelection(int offset, int length) {
+			((IFindReplaceTargetExtension) fTarget).setSelection(offset, length);
+		}
+
+		@Override
+		public void setScopeHighlightColor(Color color) {
+			((IFindReplaceTargetExtension) fTarget).setScopeHighlightColor(color);
+		}
+
+		@Override
+		public void setReplaceAllMode(boolean replaceAll) {
+			((IFindReplaceTargetExtension) fTarget).setReplaceAllMode(replaceAll);
+		}
+	}
 }
@@ -11,6 +11,7 @@
 
 package org.eclipse.ui.internal.console;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.Charset;
@@ -20,15 +21,42 @@ import java.nio.charset.CodingErrorAction;
 
 
 /**
+ * Decodes the bytes written to a console stream into chunks of characters.
+ * The chunks are supplied and received by a {@link ChunkHandler}, which
+ * takes over a chunk once it has been filled.
+ *
  * @since 3.7
  */
 public class StreamDecoder {
 
 	static private final int BUFFER_SIZE = 4096;
 
+	/**
+	 * Supplies the buffers that bytes are decoded into, and receives them
+	 * back once they are filled.
+	 */
+	public interface ChunkHandler {
+
+		/**
+		 * Returns a buffer to decode into, ready to be written to.
+		 *
+		 * @return a buffer with remaining space
+		 */
+		CharBuffer allocate();
+
+		/**
+		 * Receives a buffer filled with decoded characters, flipped for
+		 * reading. The decoder does not touch the buffer afterwards.
+		 *
+		 * @param chunk the decoded characters
+		 * @throws IOException if the characters cannot be processed
+		 */
+		void consume(CharBuffer chunk) throws IOException;
+	}
+
 	private final CharsetDecoder decoder;
 	private final ByteBuffer inputBuffer;
-	private final CharBuffer outputBuffer;
+	private CharBuffer outputBuffer;
 	private boolean finished;
 
 	public StreamDecoder(Charset charset) {
@@ -37,17 +65,27 @@ public class StreamDecoder {
 		this.decoder.onUnmappableCharacter(CodingErrorAction.REPLACE);
 		this.inputBuffer = ByteBuffer.allocate(StreamDecoder.BUFFER_SIZE);
 		this.inputBuffer.flip();
-		this.outputBuffer = CharBuffer.allocate(StreamDecoder.BUFFER_SIZE);
+		this.outputBuffer = null;
 		this.finished = false;
 	}
 
-	private void consume(StringBuilder consumer) {
-		this.outputBuffer.flip();
-		consumer.append(this.outputBuffer);
-		this.outputBuffer.clear();
+	private CharBuffer output(ChunkHandler handler) {
+		if (this.outputBuffer == null) {
+			this.outputBuffer = handler.allocate();
+		}
+		return this.outputBuffer;
+	}
+
+	private void consume(ChunkHandler handler) throws IOException {
+		if (this.outputBuffer != null) {
+			CharBuffer chunk = this.outputBuffer;
+			this.outputBuffer = null;
+			chunk.flip();
+			handler.consume(chunk);
+		}
 	}
 
-	private void internalDecode(StringBuilder consumer, byte[] buffer, int offset, int length) {
+	private void internalDecode(ChunkHandler handler, byte[] buffer, int offset, int length) throws IOException {
 		assert (offset >= 0);
 		assert (length >= 0);
 		int position = offset;
@@ -55,9 +93,9 @@ public class StreamDecoder {
 		assert (end <= buffer.length);
 		boolean finishedReading = false;
 		do {
-			CoderResult result = this.decoder.decode(this.inputBuffer, this.outputBuffer, false);
+			CoderResult result = this.decoder.decode(this.inputBuffer, this.output(handler), false);
 			if (result.isOverflow()) {
-				this.consume(consumer);
+				this.consume(handler);
 			} else if (result.isUnderflow()) {
 				this.inputBuffer.compact();
 				int remaining = this.inputBuffer.remaining();
@@ -76,28 +114,45 @@ public class StreamDecoder {
 		} while (!finishedReading);
 	}
 
-	public void decode(StringBuilder consumer, byte[] buffer, int offset, int length) {
-		this.internalDecode(consumer, buffer, offset, length);
-		this.consume(consumer);
+	/**
+	 * Decodes the given bytes. All characters that can be decoded are handed
+	 * over to the handler, the last chunk possibly not being full.
+	 *
+	 * @param handler supplies and receives the chunks
+	 * @param buffer the bytes
+	 * @param offset offset of the first byte to decode
+	 * @param length number of bytes to decode
+	 * @throws IOException if the handler fails to process a chunk
+	 */
+	public void decode(ChunkHandler handler, byte[] buffer, int offset, int length) throws IOException {
+		this.internalDecode(handler, buffer, offset, length);
+		this.consume(handler);
 	}
 
-	public void finish(StringBuilder consumer) {
+	/**
+	 * Decodes the remaining bytes of incomplete sequences and hands the
+	 * characters over to the handler.
+	 *
+	 * @param handler supplies and receives the chunks
+	 * @throws IOException if the handler fails to process a chunk
+	 */
+	public void finish(ChunkHandler handler) throws IOException {
 		if (this.finished) {
 			return;
 		}
 		this.finished = true;
 		CoderResult result;
-		result = this.decoder.decode(this.inputBuffer, this.outputBuffer, true);
+		result = this.decoder.decode(this.inputBuffer, this.output(handler), true);
 		assert (result.isOverflow() || result.isUnderflow());
 		do {
-			result = this.decoder.flush(this.outputBuffer);
+			result = this.decoder.flush(this.output(handler));
 			if (result.isOverflow()) {
-				this.consume(consumer);
+				this.consume(handler);
 			} else {
 				assert result.isUnderflow();
 			}
 		} while (!result.isUnderflow());
-		this.consume(consumer);
+		this.consume(handler);
 	}
 
 }
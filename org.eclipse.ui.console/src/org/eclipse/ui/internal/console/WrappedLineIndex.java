@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.ui.internal.console;
+
+/**
+ * Number of visual (wrapped) lines of each document line of a console, with
+ * prefix sums kept in a Fenwick tree. Appending lines costs O(log n) per
+ * line, removing lines from the head only moves the base of the index, and
+ * mapping between visual and document lines costs O(log n).
+ * <p>
+ * Document lines are stored at absolute positions: the document line
+ * <code>i</code> is stored at <code>fBase + i</code>.
+ * </p>
+ *
+ * @since 3.7
+ */
+class WrappedLineIndex {
+
+	/**
+	 * Number of visual lines per absolute line
+	 */
+	private int[] fCounts = new int[1024];
+
+	/**
+	 * Fenwick tree over {@link #fCounts}, 1-based
+	 */
+	private int[] fTree = new int[1025];
+
+	/**
+	 * Absolute position of the first document line
+	 */
+	private int fBase = 0;
+
+	/**
+	 * Absolute position after the last document line
+	 */
+	private int fSize = 0;
+
+	/**
+	 * Visual lines before the first document line, cached
+	 */
+	private int fBaseSum = 0;
+
+	/**
+	 * Returns the number of visual lines of a document line with the given
+	 * length, without its delimiter, when wrapped at the given width.
+	 *
+	 * @param length length of the line without delimiter
+	 * @param width wrap width, no wrapping when not positive
+	 * @return number of visual lines, at least one
+	 */
+	static int countVisualLines(int length, int width) {
+		if (width <= 0 || length <= width) {
+			return 1;
+		}
+		return (length + width - 1) / width;
+	}
+
+	/**
+	 * Returns the number of document lines in the index.
+	 *
+	 * @return number of document lines
+	 */
+	int getDocumentLineCount() {
+		return fSize - fBase;
+	}
+
+	/**
+	 * Returns the number of visual lines in the index.
+	 *
+	 * @return number of visual lines
+	 */
+	int getVisualLineCount() {
+		return prefix(fSize) - fBaseSum;
+	}
+
+	/**
+	 * Returns the number of visual lines of the given document line.
+	 *
+	 * @param line document line
+	 * @return number of visual lines
+	 */
+	int getCount(int line) {
+		return fCounts[fBase + line];
+	}
+
+	/**
+	 * Returns the first visual line of the given document line.
+	 *
+	 * @param line document line
+	 * @return first visual line
+	 */
+	int getFirstVisualLine(int line) {
+		return prefix(fBase + line) - fBaseSum;
+	}
+
+	/**
+	 * Returns the document line that contains the given visual line.
+	 *
+	 * @param visualLine visual line, less than {@link #getVisualLineCount()}
+	 * @return document line
+	 */
+	int getDocumentLine(int visualLine) {
+		// largest position whose prefix sum does not exceed the visual line
+		int remaining = visualLine + fBaseSum;
+		int position = 0;
+		for (int step = Integer.highestOneBit(fSize); step > 0; step >>= 1) {
+			int next = position + step;
+			if (next <= fSize && fTree[next] <= remaining) {
+				position = next;
+				remaining -= fTree[next];
+			}
+		}
+		return Math.max(position, fBase) - fBase;
+	}
+
+	/**
+	 * Replaces the counts of all lines by the given counts.
+	 *
+	 * @param counts number of visual lines per document line
+	 * @param length number of document lines
+	 */
+	void reset(int[] counts, int length) {
+		fBase = 0;
+		fBaseSum = 0;
+		fSize = length;
+		if (fCounts.length < length) {
+			fCounts = new int[Math.max(length, fCounts.length * 2)];
+		}
+		System.arraycopy(counts, 0, fCounts, 0, length);
+		build();
+	}
+
+	/**
+	 * Changes the number of visual lines of the given document line.
+	 *
+	 * @param line document line
+	 * @param count number of visual lines
+	 */
+	void set(int line, int count) {
+		int position = fBase + line;
+		int delta = count - fCounts[position];
+		if (delta != 0) {
+			fCounts[position] = count;
+			for (int i = position + 1; i <= fSize; i += i & -i) {
+				fTree[i] += delta;
+			}
+		}
+	}
+
+	/**
+	 * Appends a document line.
+	 *
+	 * @param count number of visual lines of the line
+	 */
+	void append(int count) {
+		if (fSize == fCounts.length) {
+			grow();
+		}
+		int position = fSize + 1;
+		fCounts[fSize] = count;
+		fSize = position;
+		// the node covers the lines (position - lowbit, position]
+		fTree[position] = count + prefix(position - 1) - prefix(position - (position & -position));
+	}
+
+	/**
+	 * Removes the document lines from the given line to the end.
+	 *
+	 * @param line first document line to remove
+	 */
+	void truncate(int line) {
+		// nodes only cover lines before them, the remaining nodes are valid
+		fSize = fBase + line;
+	}
+
+	/**
+	 * Removes the given number of document lines from the head.
+	 *
+	 * @param lines number of lines to remove
+	 */
+	void removeHead(int lines) {
+		fBase += lines;
+		if (fBase > 1024 && fBase > fSize / 2) {
+			// drop the removed lines for good
+			fSize -= fBase;
+			System.arraycopy(fCounts, fBase, fCounts, 0, fSize);
+			fBase = 0;
+			build();
+		}
+		fBaseSum = prefix(fBase);
+	}
+
+	private void grow() {
+		int[] counts = new int[fCounts.length * 2];
+		System.arraycopy(fCounts, fBase, counts, 0, fSize - fBase);
+		fCounts = counts;
+		fSize -= fBase;
+		fBase = 0;
+		build();
+		fBaseSum = 0;
+	}
+
+	/**
+	 * Builds the tree from the counts in linear time.
+	 */
+	private void build() {
+		if (fTree.length < fCounts.length + 1) {
+			fTree = new int[fCounts.length + 1];
+		}
+		for (int i = 1; i <= fSize; i++) {
+			fTree[i] = fCounts[i - 1];
+		}
+		for (int i = 1; i <= fSize; i++) {
+			int parent = i + (i & -i);
+			if (parent <= fSize) {
+				fTree[parent] += fTree[i];
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of visual lines of the absolute lines before the
+	 * given position.
+	 */
+	private int prefix(int position) {
+		int sum = 0;
+		for (int i = position; i > 0; i -= i & -i) {
+			sum += fTree[i];
+		}
+		return sum;
+	}
+}